@@ -0,0 +1,160 @@
+package org.khachouch.benchmarks;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.khachouch.CompactEFactory;
+import org.khachouch.ValidationEngine;
+import org.khachouch.ValidationReport;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the memory footprint of the instances EMF creates for a dynamic metamodel (DynamicEObjectImpl) with the
+ * {@link org.khachouch.CompactEObject}s of {@link CompactEFactory}, on large synthetic instance models.
+ * {@code retainedHeap} reports, as the {@code bytesPerObject} counter, the heap a loaded model keeps after a full GC
+ * divided by its number of objects; run with {@code -prof gc} to also get the allocations of a load
+ * ({@code gc.alloc.rate.norm}). Reading every attribute and validating show what the packing costs in time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Djava.awt.headless=true",
+        "-Dlog4j2.configurationFile=log4j2-benchmarks.xml"})
+public class CompactObjectBenchmark {
+
+    @Param({"DYNAMIC", "COMPACT"})
+    public String instances;
+
+    @Param({"10000", "100000"})
+    public int instanceSize;
+
+    @Param({"100"})
+    public int classCount;
+
+    private Path directory;
+    private Path instancePath;
+    private EPackage ePackage;
+    private Resource loaded;
+    private int objectCount;
+    private ValidationEngine engine;
+
+    /**
+     * The heap retained by the model loaded by {@link #retainedHeap(Footprint)}, per object.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerObject;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ecoreutils-compact");
+        SyntheticModelGenerator generator = new SyntheticModelGenerator(classCount, 8, 3, 0.25, 42);
+        instancePath = directory.resolve("instance.xmi");
+        try (OutputStream output = Files.newOutputStream(instancePath)) {
+            generator.writeInstance(instanceSize, output);
+        }
+        ePackage = generator.createEPackage();
+        switch (instances) {
+            case "DYNAMIC" -> {
+            }
+            case "COMPACT" -> CompactEFactory.install(ePackage);
+            default -> throw new IllegalArgumentException("Unknown instances " + instances);
+        }
+        loaded = load();
+        for (TreeIterator<EObject> iterator = loaded.getAllContents(); iterator.hasNext(); iterator.next()) {
+            objectCount++;
+        }
+        engine = new ValidationEngine(1, false, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private Resource load() {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xmi", new XMIResourceFactoryImpl());
+        resourceSet.getPackageRegistry().put(ePackage.getNsURI(), ePackage);
+        return resourceSet.getResource(URI.createFileURI(instancePath.toString()), true);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Benchmark
+    public Resource loadModel() {
+        return load();
+    }
+
+    // JMH sums event counters over the iterations, so a single one is measured.
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 1)
+    public Resource retainedHeap(Footprint footprint) {
+        long before = usedHeap();
+        Resource resource = load();
+        // Only what the loaded resource keeps reachable is left: its objects, ResourceSet and ID maps.
+        footprint.bytesPerObject = (usedHeap() - before) / objectCount;
+        return resource;
+    }
+
+    @Benchmark
+    public int readAttributes() {
+        int hash = 0;
+        for (TreeIterator<EObject> iterator = loaded.getAllContents(); iterator.hasNext(); ) {
+            EObject eObject = iterator.next();
+            for (EAttribute attribute : eObject.eClass().getEAllAttributes()) {
+                Object value = eObject.eGet(attribute);
+                hash = 31 * hash + (value != null ? value.hashCode() : 0);
+            }
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public ValidationReport validate() {
+        return engine.validate(loaded);
+    }
+}
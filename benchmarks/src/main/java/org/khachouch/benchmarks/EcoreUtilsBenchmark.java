@@ -0,0 +1,140 @@
+package org.khachouch.benchmarks;
+
+import org.eclipse.emf.codegen.ecore.genmodel.GenModel;
+import org.khachouch.EcoreUtils;
+import org.khachouch.EcoreUtilsImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks every EcoreUtils operation on synthetic models (see {@link SyntheticModelGenerator}).
+ * Each benchmark reports throughput and sampled latency; run through {@link BenchmarkRunner} to get
+ * the allocation rate from the GC profiler as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Djava.awt.headless=true",
+        "-Dlog4j2.configurationFile=log4j2-benchmarks.xml",
+        // PlantUML reads PNG metadata through this JDK-internal package (see DiagramSupport).
+        "--add-exports=java.desktop/com.sun.imageio.plugins.png=ALL-UNNAMED"})
+public class EcoreUtilsBenchmark {
+
+    @Param({"50", "500"})
+    public int classCount;
+
+    @Param({"8"})
+    public int featureCount;
+
+    @Param({"3"})
+    public int inheritanceDepth;
+
+    @Param({"0.25"})
+    public double referenceDensity;
+
+    /**
+     * The number of elements of the instance model passed to validateModel.
+     */
+    @Param({"1000"})
+    public int instanceSize;
+
+    private Path directory;
+    private EcoreUtils ecoreUtils;
+    private String ecorePath;
+    private String xsdPath;
+    private String instance;
+    private GenModel genModel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ecoreutils-benchmark");
+        SyntheticModelGenerator generator = new SyntheticModelGenerator(classCount, featureCount, inheritanceDepth, referenceDensity, 42);
+        ecorePath = directory.resolve(generator.getName() + ".ecore").toString();
+        xsdPath = directory.resolve(generator.getName() + ".xsd").toString();
+        generator.writeEcore(Path.of(ecorePath));
+        generator.writeXsd(Path.of(xsdPath));
+        instance = generator.createInstance(instanceSize);
+
+        ecoreUtils = new EcoreUtilsImpl();
+        genModel = createGenModel();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private GenModel createGenModel() {
+        return ecoreUtils.ConvertEcoreToGenModel(ecorePath, directory.toString(), "synthetic",
+                directory.resolve("java") + "/", "org.khachouch.benchmarks.generated");
+    }
+
+    private String output(String fileName) {
+        return directory.resolve(fileName).toString();
+    }
+
+    @Benchmark
+    public boolean isEcoreModel() {
+        return ecoreUtils.isEcoreModel(ecorePath);
+    }
+
+    @Benchmark
+    public boolean convertXSDToEcore() {
+        return ecoreUtils.ConvertXSDToEcore(xsdPath, output("fromXsd.ecore"));
+    }
+
+    @Benchmark
+    public GenModel convertEcoreToGenModel() {
+        return createGenModel();
+    }
+
+    @Benchmark
+    public boolean genModelToJava() {
+        return ecoreUtils.GenModelToJava(genModel, directory.resolve("java").toString());
+    }
+
+    @Benchmark
+    public boolean validateModel() {
+        return ecoreUtils.validateModel(instance, ecorePath);
+    }
+
+    @Benchmark
+    public boolean convertEcoreToXSD() {
+        return ecoreUtils.ConvertEcoreToXSD(ecorePath, output("toXsd.xsd"));
+    }
+
+    @Benchmark
+    public boolean convertEcoreToXMI() {
+        return ecoreUtils.ConvertEcoreToXMI(ecorePath, output("toXmi.xmi"));
+    }
+
+    @Benchmark
+    public boolean convertEcoreToUML() {
+        return ecoreUtils.ConvertEcoreToUML(ecorePath, output("diagram.svg"));
+    }
+}
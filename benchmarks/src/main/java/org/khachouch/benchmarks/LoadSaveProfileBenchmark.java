@@ -0,0 +1,127 @@
+package org.khachouch.benchmarks;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.khachouch.EcoreUtils;
+import org.khachouch.EcoreUtilsImpl;
+import org.khachouch.EmfSession;
+import org.khachouch.PerformanceProfile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the load and save options of {@link PerformanceProfile#EMF_DEFAULTS} and
+ * {@link PerformanceProfile#HIGH_THROUGHPUT} on large synthetic instance models: loading and saving an XMI file
+ * through a session's pooled ResourceSets, and saveModelAfterVerification, which does both plus validation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Djava.awt.headless=true",
+        "-Dlog4j2.configurationFile=log4j2-benchmarks.xml"})
+public class LoadSaveProfileBenchmark {
+
+    @Param({"EMF_DEFAULTS", "HIGH_THROUGHPUT"})
+    public String profile;
+
+    @Param({"10000", "100000"})
+    public int instanceSize;
+
+    @Param({"100"})
+    public int classCount;
+
+    private Path directory;
+    private EmfSession session;
+    private EcoreUtils ecoreUtils;
+    private EPackage ePackage;
+    private String ecorePath;
+    private Path instancePath;
+    private EmfSession.Lease saveLease;
+    private Resource loaded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ecoreutils-profile");
+        SyntheticModelGenerator generator = new SyntheticModelGenerator(classCount, 8, 3, 0.25, 42);
+        ecorePath = directory.resolve(generator.getName() + ".ecore").toString();
+        generator.writeEcore(Path.of(ecorePath));
+        instancePath = directory.resolve("instance.xmi");
+        try (OutputStream output = Files.newOutputStream(instancePath)) {
+            generator.writeInstance(instanceSize, output);
+        }
+        ePackage = generator.createEPackage();
+
+        session = new EmfSession(4, EmfSession.DEFAULT_METAMODEL_CACHE_BUDGET, profileOf(profile));
+        ecoreUtils = new EcoreUtilsImpl(session);
+
+        // The model saved by save(), kept in its own ResourceSet for the whole trial.
+        saveLease = session.acquire();
+        saveLease.detach();
+        loaded = load(saveLease.getResourceSet());
+        loaded.setURI(URI.createFileURI(directory.resolve("saved.xmi").toString()));
+    }
+
+    private static PerformanceProfile profileOf(String name) {
+        return switch (name) {
+            case "EMF_DEFAULTS" -> PerformanceProfile.EMF_DEFAULTS;
+            case "HIGH_THROUGHPUT" -> PerformanceProfile.HIGH_THROUGHPUT;
+            default -> throw new IllegalArgumentException("Unknown profile " + name);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private Resource load(ResourceSet resourceSet) {
+        resourceSet.getPackageRegistry().put(ePackage.getNsURI(), ePackage);
+        return resourceSet.getResource(URI.createFileURI(instancePath.toString()), true);
+    }
+
+    @Benchmark
+    public int load() {
+        try (EmfSession.Lease lease = session.acquire()) {
+            return load(lease.getResourceSet()).getContents().size();
+        }
+    }
+
+    @Benchmark
+    public Resource save() throws IOException {
+        loaded.save(saveLease.getSaveOptions());
+        return loaded;
+    }
+
+    @Benchmark
+    public boolean saveModelAfterVerification() {
+        return ecoreUtils.saveModelAfterVerification(instancePath, ecorePath, directory.resolve("verified.xmi").toString());
+    }
+}
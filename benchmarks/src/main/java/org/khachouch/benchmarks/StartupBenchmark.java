@@ -0,0 +1,139 @@
+package org.khachouch.benchmarks;
+
+import org.eclipse.emf.codegen.ecore.genmodel.GenModel;
+import org.khachouch.EcoreUtils;
+import org.khachouch.EcoreUtilsImpl;
+import org.khachouch.PlantUMLDiagramRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the time to the first result of each EcoreUtils operation: a new {@link EcoreUtilsImpl} and one call,
+ * in a forked JVM that has not run any EcoreUtils code yet. The score includes loading and initializing the
+ * classes the operation needs (EMF, and the code generator, XSD model or PlantUML for the operations using them),
+ * which later calls do not pay again; {@link EcoreUtilsBenchmark} measures those.
+ * <p>
+ * The models are the GASTM metamodel and the XMI schema shipped in the EcoreUtils resources. They are copied with
+ * JDK classes only, so that no EMF class is loaded before the measured call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 10, jvmArgsAppend = {
+        "-Djava.awt.headless=true",
+        "-Dlog4j2.configurationFile=log4j2-benchmarks.xml",
+        // PlantUML reads PNG metadata through this JDK-internal package (see DiagramSupport).
+        "--add-exports=java.desktop/com.sun.imageio.plugins.png=ALL-UNNAMED"})
+public class StartupBenchmark {
+
+    /**
+     * An instance of the GASTM metamodel for validateModel. Whether it is valid does not matter here.
+     */
+    private static final String INSTANCE = "<gastm:Project xmi:version=\"2.0\" xmlns:xmi=\"http://www.omg.org/XMI\""
+            + " xmlns:gastm=\"http://www.eclipse.org/MoDisco/GASTM/1.0.Beta2/gastm\"/>";
+
+    private Path directory;
+    private String ecorePath;
+    private String xsdPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ecoreutils-startup");
+        // The forks may inherit a diagram cache from the host JVM, whose hits would replace the cold rendering.
+        // The constant is inlined, so PlantUML is not loaded here.
+        System.clearProperty(PlantUMLDiagramRenderer.CACHE_PROPERTY);
+        ecorePath = copyResource("GastmEcore/gastm.ecore");
+        xsdPath = copyResource("GastmEcore/XMI.xsd");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private String copyResource(String name) throws IOException {
+        Path file = directory.resolve(Path.of(name).getFileName());
+        try (InputStream inputStream = EcoreUtils.class.getClassLoader().getResourceAsStream(name)) {
+            if (inputStream == null) {
+                throw new IOException("Resource not found: " + name);
+            }
+            Files.copy(inputStream, file);
+        }
+        return file.toString();
+    }
+
+    private String output(String fileName) {
+        return directory.resolve(fileName).toString();
+    }
+
+    @Benchmark
+    public boolean isEcoreModel() {
+        return new EcoreUtilsImpl().isEcoreModel(ecorePath);
+    }
+
+    @Benchmark
+    public boolean convertXSDToEcore() {
+        return new EcoreUtilsImpl().ConvertXSDToEcore(xsdPath, output("fromXsd.ecore"));
+    }
+
+    @Benchmark
+    public GenModel convertEcoreToGenModel() {
+        return new EcoreUtilsImpl().ConvertEcoreToGenModel(ecorePath, directory.toString(), "gastm",
+                output("java") + "/", "org.khachouch.benchmarks.generated");
+    }
+
+    /**
+     * The GenModel is part of the measurement, as Java code cannot be generated without one.
+     */
+    @Benchmark
+    public boolean genModelToJava() {
+        EcoreUtils ecoreUtils = new EcoreUtilsImpl();
+        GenModel genModel = ecoreUtils.ConvertEcoreToGenModel(ecorePath, directory.toString(), "gastm",
+                output("java") + "/", "org.khachouch.benchmarks.generated");
+        return ecoreUtils.GenModelToJava(genModel, output("java"));
+    }
+
+    @Benchmark
+    public boolean validateModel() {
+        return new EcoreUtilsImpl().validateModel(INSTANCE, ecorePath);
+    }
+
+    @Benchmark
+    public boolean convertEcoreToXMI() {
+        return new EcoreUtilsImpl().ConvertEcoreToXMI(ecorePath, output("toXmi.xmi"));
+    }
+
+    @Benchmark
+    public boolean convertEcoreToXSD() {
+        return new EcoreUtilsImpl().ConvertEcoreToXSD(ecorePath, output("toXsd.xsd"));
+    }
+
+    @Benchmark
+    public boolean convertEcoreToUML() {
+        return new EcoreUtilsImpl().ConvertEcoreToUML(ecorePath, output("diagram.svg"));
+    }
+}
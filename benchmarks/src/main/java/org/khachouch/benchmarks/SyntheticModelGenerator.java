@@ -0,0 +1,305 @@
+package org.khachouch.benchmarks;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.impl.EcoreResourceFactoryImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates metamodels of a chosen size and shape, in Ecore and XSD form, plus conforming instance models.
+ * <p>
+ * The metamodel contains {@code classCount} classes {@code C0..Cn}, each declaring {@code featureCount} features.
+ * Classes form inheritance chains of {@code inheritanceDepth} classes ({@code C1} extends {@code C0}, and so on).
+ * {@code referenceDensity} is the fraction of the features that are references to other classes; the others are
+ * attributes of type EString, EInt, EBoolean and EDouble in turn. A {@code Model} class contains the instances.
+ * The same seed always gives the same models.
+ */
+public final class SyntheticModelGenerator {
+
+    private static final EDataType[] ATTRIBUTE_TYPES = {
+            EcorePackage.Literals.ESTRING, EcorePackage.Literals.EINT,
+            EcorePackage.Literals.EBOOLEAN, EcorePackage.Literals.EDOUBLE};
+
+    private final int classCount;
+    private final int featureCount;
+    private final int inheritanceDepth;
+    private final double referenceDensity;
+    private final long seed;
+
+    /**
+     * Creates a generator.
+     *
+     * @param classCount       The number of classes, besides the Model class.
+     * @param featureCount     The number of features declared by each class.
+     * @param inheritanceDepth The length of the inheritance chains; 1 for no inheritance.
+     * @param referenceDensity The fraction of the features that are references, between 0 and 1.
+     * @param seed             The seed choosing reference targets and attribute values.
+     */
+    public SyntheticModelGenerator(int classCount, int featureCount, int inheritanceDepth, double referenceDensity, long seed) {
+        if (classCount < 1 || featureCount < 0 || inheritanceDepth < 1 || referenceDensity < 0 || referenceDensity > 1) {
+            throw new IllegalArgumentException("Invalid model shape");
+        }
+        this.classCount = classCount;
+        this.featureCount = featureCount;
+        this.inheritanceDepth = inheritanceDepth;
+        this.referenceDensity = referenceDensity;
+        this.seed = seed;
+    }
+
+    public String getName() {
+        return "synthetic" + classCount;
+    }
+
+    public String getNsURI() {
+        return "http://www.khachouch.org/synthetic/" + classCount;
+    }
+
+    private int referenceCount() {
+        return (int) Math.round(featureCount * referenceDensity);
+    }
+
+    /**
+     * Builds the metamodel.
+     *
+     * @return A new root EPackage.
+     */
+    public EPackage createEPackage() {
+        EcoreFactory factory = EcoreFactory.eINSTANCE;
+        EPackage ePackage = factory.createEPackage();
+        ePackage.setName(getName());
+        ePackage.setNsPrefix(getName());
+        ePackage.setNsURI(getNsURI());
+
+        List<EClass> classes = new ArrayList<>(classCount);
+        for (int i = 0; i < classCount; i++) {
+            EClass eClass = factory.createEClass();
+            eClass.setName("C" + i);
+            if (i % inheritanceDepth != 0) {
+                eClass.getESuperTypes().add(classes.get(i - 1));
+            }
+            classes.add(eClass);
+            ePackage.getEClassifiers().add(eClass);
+        }
+
+        Random random = new Random(seed);
+        int references = referenceCount();
+        for (int i = 0; i < classCount; i++) {
+            EClass eClass = classes.get(i);
+            for (int j = 0; j < featureCount; j++) {
+                String name = "f" + i + "_" + j;
+                if (j < references) {
+                    EReference reference = factory.createEReference();
+                    reference.setName(name);
+                    reference.setEType(classes.get(random.nextInt(classCount)));
+                    reference.setUpperBound(j % 2 == 0 ? 1 : EStructuralFeature.UNBOUNDED_MULTIPLICITY);
+                    eClass.getEStructuralFeatures().add(reference);
+                } else {
+                    EAttribute attribute = factory.createEAttribute();
+                    attribute.setName(name);
+                    attribute.setEType(ATTRIBUTE_TYPES[j % ATTRIBUTE_TYPES.length]);
+                    eClass.getEStructuralFeatures().add(attribute);
+                }
+            }
+        }
+
+        EClass model = factory.createEClass();
+        model.setName("Model");
+        EReference elements = factory.createEReference();
+        elements.setName("elements");
+        elements.setEType(EcorePackage.Literals.EOBJECT);
+        elements.setContainment(true);
+        elements.setUpperBound(EStructuralFeature.UNBOUNDED_MULTIPLICITY);
+        model.getEStructuralFeatures().add(elements);
+        ePackage.getEClassifiers().add(model);
+        return ePackage;
+    }
+
+    /**
+     * Writes the metamodel to an .ecore file.
+     *
+     * @param ecorePath The file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeEcore(Path ecorePath) throws IOException {
+        Resource resource = new EcoreResourceFactoryImpl().createResource(URI.createFileURI(ecorePath.toAbsolutePath().toString()));
+        resource.getContents().add(createEPackage());
+        resource.save(null);
+    }
+
+    /**
+     * Writes the metamodel as an XML schema, with the same classes, inheritance and features.
+     * References are written as IDREFs typed with {@code ecore:reference}.
+     *
+     * @param xsdPath The file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeXsd(Path xsdPath) throws IOException {
+        Files.writeString(xsdPath, createXsd(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The text of the XML schema described in {@link #writeXsd(Path)}.
+     */
+    public String createXsd() {
+        EPackage ePackage = createEPackage();
+        StringBuilder xsd = new StringBuilder();
+        xsd.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<xsd:schema xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\"")
+                .append(" xmlns:ecore=\"http://www.eclipse.org/emf/2002/Ecore\"")
+                .append(" xmlns:tns=\"").append(getNsURI()).append("\"")
+                .append(" targetNamespace=\"").append(getNsURI()).append("\"")
+                .append(" ecore:nsPrefix=\"").append(getName()).append("\"")
+                .append(" ecore:package=\"").append(getName()).append("\">\n");
+
+        xsd.append("  <xsd:element name=\"model\" type=\"tns:Model\"/>\n")
+                .append("  <xsd:complexType name=\"Model\">\n")
+                .append("    <xsd:choice minOccurs=\"0\" maxOccurs=\"unbounded\">\n");
+        for (int i = 0; i < classCount; i++) {
+            xsd.append("      <xsd:element name=\"c").append(i).append("\" type=\"tns:C").append(i).append("\"/>\n");
+        }
+        xsd.append("    </xsd:choice>\n")
+                .append("  </xsd:complexType>\n");
+
+        for (EClassifier eClassifier : ePackage.getEClassifiers()) {
+            if (!(eClassifier instanceof EClass eClass) || eClass.getName().equals("Model")) {
+                continue;
+            }
+            xsd.append("  <xsd:complexType name=\"").append(eClass.getName()).append("\">\n");
+            String indent = "    ";
+            boolean extension = !eClass.getESuperTypes().isEmpty();
+            if (extension) {
+                xsd.append("    <xsd:complexContent>\n")
+                        .append("      <xsd:extension base=\"tns:").append(eClass.getESuperTypes().get(0).getName()).append("\">\n");
+                indent = "        ";
+            }
+            xsd.append(indent).append("<xsd:sequence>\n");
+            for (EStructuralFeature feature : eClass.getEStructuralFeatures()) {
+                xsd.append(indent).append("  <xsd:element name=\"").append(feature.getName()).append("\"");
+                if (feature instanceof EReference) {
+                    xsd.append(" type=\"xsd:IDREF\" ecore:reference=\"tns:").append(feature.getEType().getName()).append("\"");
+                } else {
+                    xsd.append(" type=\"").append(xsdType(feature.getEType())).append("\"");
+                }
+                xsd.append(" minOccurs=\"0\"");
+                if (feature.isMany()) {
+                    xsd.append(" maxOccurs=\"unbounded\"");
+                }
+                xsd.append("/>\n");
+            }
+            xsd.append(indent).append("</xsd:sequence>\n");
+            if (extension) {
+                xsd.append("      </xsd:extension>\n")
+                        .append("    </xsd:complexContent>\n");
+            } else {
+                xsd.append("    <xsd:attribute name=\"id\" type=\"xsd:ID\"/>\n");
+            }
+            xsd.append("  </xsd:complexType>\n");
+        }
+        xsd.append("</xsd:schema>\n");
+        return xsd.toString();
+    }
+
+    private static String xsdType(EClassifier type) {
+        if (type == EcorePackage.Literals.EINT) {
+            return "xsd:int";
+        } else if (type == EcorePackage.Literals.EBOOLEAN) {
+            return "xsd:boolean";
+        } else if (type == EcorePackage.Literals.EDOUBLE) {
+            return "xsd:double";
+        }
+        return "xsd:string";
+    }
+
+    /**
+     * Creates an instance model conforming to the metamodel, as XMI text.
+     * Element {@code k} is an instance of class {@code C(k mod classCount)}; every attribute is set, and every
+     * reference points to an element of the referenced class when the model contains one.
+     *
+     * @param elementCount The number of elements contained in the Model root.
+     * @return The XMI text of the instance model.
+     * @throws IOException if the model cannot be serialized.
+     */
+    public String createInstance(int elementCount) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeInstance(elementCount, output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes an instance model, as described in {@link #createInstance(int)}, to a stream.
+     *
+     * @param elementCount The number of elements contained in the Model root.
+     * @param output       The stream receiving the XMI text. It is not closed.
+     * @throws IOException if the model cannot be serialized.
+     */
+    public void writeInstance(int elementCount, OutputStream output) throws IOException {
+        EPackage ePackage = createEPackage();
+        EClass modelClass = (EClass) ePackage.getEClassifier("Model");
+        EObject model = EcoreUtil.create(modelClass);
+        @SuppressWarnings("unchecked")
+        List<EObject> elements = (List<EObject>) model.eGet(modelClass.getEStructuralFeature("elements"));
+
+        for (int k = 0; k < elementCount; k++) {
+            elements.add(EcoreUtil.create((EClass) ePackage.getEClassifier("C" + (k % classCount))));
+        }
+
+        Random random = new Random(seed);
+        for (EObject element : elements) {
+            for (EAttribute attribute : element.eClass().getEAllAttributes()) {
+                element.eSet(attribute, attributeValue(attribute.getEAttributeType(), random));
+            }
+            for (EReference reference : element.eClass().getEAllReferences()) {
+                int targetClass = Integer.parseInt(reference.getEReferenceType().getName().substring(1));
+                if (targetClass >= elementCount) {
+                    continue;
+                }
+                // Elements of class Cj are at indexes j, j + classCount, j + 2 * classCount, ...
+                int instances = (elementCount - 1 - targetClass) / classCount + 1;
+                EObject target = elements.get(targetClass + classCount * random.nextInt(instances));
+                if (reference.isMany()) {
+                    @SuppressWarnings("unchecked")
+                    List<EObject> targets = (List<EObject>) element.eGet(reference);
+                    targets.add(target);
+                } else {
+                    element.eSet(reference, target);
+                }
+            }
+        }
+
+        Resource resource = new XMIResourceImpl(URI.createURI("synthetic.xmi"));
+        resource.getContents().add(model);
+        resource.save(output, null);
+    }
+
+    private static Object attributeValue(EDataType type, Random random) {
+        if (type == EcorePackage.Literals.EINT) {
+            return random.nextInt(1000);
+        } else if (type == EcorePackage.Literals.EBOOLEAN) {
+            return random.nextBoolean();
+        } else if (type == EcorePackage.Literals.EDOUBLE) {
+            return random.nextDouble();
+        }
+        return "value" + random.nextInt(1000);
+    }
+}
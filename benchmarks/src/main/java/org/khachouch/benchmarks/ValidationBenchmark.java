@@ -0,0 +1,112 @@
+package org.khachouch.benchmarks;
+
+import org.eclipse.emf.common.util.Diagnostic;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.Diagnostician;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.khachouch.ValidationEngine;
+import org.khachouch.ValidationReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link Diagnostician} with {@link ValidationEngine} on large synthetic instance models, sequentially and
+ * on several threads, and with the engine stopping at the first error.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Djava.awt.headless=true",
+        "-Dlog4j2.configurationFile=log4j2-benchmarks.xml"})
+public class ValidationBenchmark {
+
+    @Param({"10000", "100000"})
+    public int instanceSize;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    @Param({"100"})
+    public int classCount;
+
+    private Path directory;
+    private Resource resource;
+    private ValidationEngine engine;
+    private ValidationEngine failFastEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ecoreutils-validation");
+        SyntheticModelGenerator generator = new SyntheticModelGenerator(classCount, 8, 3, 0.25, 42);
+        Path instancePath = directory.resolve("instance.xmi");
+        try (OutputStream output = Files.newOutputStream(instancePath)) {
+            generator.writeInstance(instanceSize, output);
+        }
+        EPackage ePackage = generator.createEPackage();
+
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xmi", new XMIResourceFactoryImpl());
+        resourceSet.getPackageRegistry().put(ePackage.getNsURI(), ePackage);
+        resource = resourceSet.getResource(URI.createFileURI(instancePath.toString()), true);
+
+        engine = new ValidationEngine(parallelism, false, 0);
+        failFastEngine = new ValidationEngine(parallelism, true, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        engine.close();
+        failFastEngine.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public int diagnostician() {
+        int severity = Diagnostic.OK;
+        for (EObject root : resource.getContents()) {
+            severity = Math.max(severity, Diagnostician.INSTANCE.validate(root).getSeverity());
+        }
+        return severity;
+    }
+
+    @Benchmark
+    public ValidationReport validationEngine() {
+        return engine.validate(resource);
+    }
+
+    @Benchmark
+    public ValidationReport validationEngineFailFast() {
+        return failFastEngine.validate(resource);
+    }
+}
@@ -0,0 +1,552 @@
+package org.khachouch;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A local, content-addressed cache of the files written by model conversions, so that converting an input that
+ * was already converted the same way materializes the previous output instead of computing it again.
+ * <p>
+ * An entry is keyed by the SHA-256 of the operation, the versions of the libraries doing the conversion,
+ * the options, the input and output paths (some outputs embed them, e.g. a GenModel refers to its Ecore file)
+ * and the content of the input. The files the input references (hrefs of an Ecore or XMI file,
+ * schemaLocations of an XSD) are recorded with their hash when the entry is stored and checked on every hit.
+ * Output files are stored once per distinct content under {@code objects/}, named by their hash, which is checked
+ * on every hit, and materialized by copy or hard link.
+ * The least recently used entries are evicted once the stored files exceed the size cap; the recency is kept in the
+ * modification time of the entry files, so it carries over from one run to the next.
+ * <p>
+ * Several processes may share a directory: files are written to a temporary file and moved into place atomically.
+ */
+public class ArtifactCache {
+    private static final Logger logger = (Logger) LogManager.getLogger(ArtifactCache.class);
+
+    /**
+     * The default size cap, in bytes of stored output files.
+     */
+    public static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+
+    // Attributes naming the files an Ecore, XMI or XSD file depends on: hrefs, the schemaLocation of XSD imports and
+    // includes, and the xsi:schemaLocation (namespace and location pairs) and xsi:noNamespaceSchemaLocation of a document.
+    private static final Pattern REFERENCE = Pattern.compile(
+            "[\\s<](href|schemaLocation|[\\w.-]+:schemaLocation|[\\w.-]+:noNamespaceSchemaLocation)\\s*=\\s*\"([^\"]*)\"");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * How an output file is put in place on a hit.
+     */
+    public enum Materialization {
+        /**
+         * The stored file is copied.
+         */
+        COPY,
+        /**
+         * The output is a hard link to the stored file, or a copy where links are not supported (e.g. across
+         * file systems). Outputs must then be replaced rather than edited in place, or the stored file changes too;
+         * the conversions of EcoreUtils delete their outputs before writing them again. A stored file changed
+         * through a link no longer matches its hash, and is discarded on the next lookup.
+         */
+        HARD_LINK
+    }
+
+    /**
+     * A conversion writing the outputs of an entry.
+     */
+    @FunctionalInterface
+    public interface Computation {
+        /**
+         * @return true if the conversion succeeded and wrote all its outputs.
+         */
+        boolean run();
+    }
+
+    /**
+     * A snapshot of the cache counters.
+     *
+     * @param hits      Conversions answered from the cache.
+     * @param misses    Conversions that had to run, including those whose entry was stale.
+     * @param evictions Entries removed to stay within the size cap.
+     * @param entries   The number of entries.
+     * @param bytes     The size of the stored output files.
+     */
+    public record Stats(long hits, long misses, long evictions, int entries, long bytes) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    private static final class Entry {
+        final List<String> objects;
+        final List<Long> sizes;
+
+        Entry(List<String> objects, List<Long> sizes) {
+            this.objects = objects;
+            this.sizes = sizes;
+        }
+    }
+
+    private final Path directory;
+    private final Path objectsDirectory;
+    private final Path entriesDirectory;
+    private final long maxBytes;
+    private final Materialization materialization;
+    // Access-ordered, so iteration starts with the least recently used entry.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // How many entries use each stored file, and its size.
+    private final Map<String, Integer> objectReferences = new HashMap<>();
+    private final Map<String, Long> objectSizes = new HashMap<>();
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Opens a cache directory, creating it if needed, with the default size cap and copied outputs.
+     *
+     * @param directory The cache directory.
+     * @throws IOException if the directory cannot be created or read.
+     */
+    public ArtifactCache(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES, Materialization.COPY);
+    }
+
+    /**
+     * Opens a cache directory, creating it if needed.
+     *
+     * @param directory       The cache directory.
+     * @param maxBytes        The size cap, in bytes of stored output files. The most recently used entry is always kept.
+     * @param materialization How outputs are put in place on a hit.
+     * @throws IOException if the directory cannot be created or read.
+     */
+    public ArtifactCache(Path directory, long maxBytes, Materialization materialization) throws IOException {
+        this.directory = directory;
+        this.objectsDirectory = directory.resolve("objects");
+        this.entriesDirectory = directory.resolve("entries");
+        this.maxBytes = maxBytes;
+        this.materialization = materialization;
+        Files.createDirectories(objectsDirectory);
+        Files.createDirectories(entriesDirectory);
+        loadIndex();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Materializes the outputs of a conversion from the cache, or runs the conversion and stores its outputs.
+     *
+     * @param operation   The name of the conversion.
+     * @param libraries   Classes of the libraries doing the conversion, whose versions are part of the key.
+     * @param input       The file converted.
+     * @param options     The other arguments of the conversion.
+     * @param outputs     The files the conversion writes.
+     * @param computation The conversion.
+     * @return true if the outputs are in place, false if the conversion failed.
+     */
+    public boolean computeIfAbsent(String operation, List<Class<?>> libraries, Path input, Map<String, String> options,
+                                   List<Path> outputs, Computation computation) {
+        String key;
+        try {
+            key = key(operation, libraries, input, options, outputs);
+            if (materialize(key, outputs)) {
+                return true;
+            }
+            // A hard-linked output shares its file with the cache, so it is replaced rather than overwritten.
+            for (Path output : outputs) {
+                Files.deleteIfExists(output);
+            }
+        } catch (IOException e) {
+            logger.warn("Artifact cache unavailable for " + input + ": " + e);
+            return computation.run();
+        }
+
+        if (!computation.run()) {
+            return false;
+        }
+        try {
+            store(key, input, outputs);
+        } catch (IOException e) {
+            logger.warn("Could not cache the outputs of " + operation + " for " + input + ": " + e);
+        }
+        return true;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, entries.size(), bytes);
+    }
+
+    /**
+     * Removes every entry and stored file.
+     *
+     * @throws IOException if a file cannot be deleted.
+     */
+    public synchronized void clear() throws IOException {
+        for (String key : new ArrayList<>(entries.keySet())) {
+            remove(key);
+        }
+    }
+
+    private String key(String operation, List<Class<?>> libraries, Path input, Map<String, String> options,
+                       List<Path> outputs) throws IOException {
+        MessageDigest digest = newDigest();
+        update(digest, operation);
+        for (Class<?> library : libraries) {
+            update(digest, version(library));
+        }
+        for (Map.Entry<String, String> option : new TreeMap<>(options).entrySet()) {
+            update(digest, option.getKey());
+            update(digest, String.valueOf(option.getValue()));
+        }
+        update(digest, canonical(input).toString());
+        for (Path output : outputs) {
+            update(digest, canonical(output).toString());
+        }
+        update(digest, hash(input));
+        return hex(digest.digest());
+    }
+
+    /**
+     * The implementation version of a library, or the name of its jar, which usually contains the version.
+     */
+    private static String version(Class<?> library) {
+        String version = library.getPackage() != null ? library.getPackage().getImplementationVersion() : null;
+        if (version == null && library.getProtectionDomain().getCodeSource() != null) {
+            version = String.valueOf(library.getProtectionDomain().getCodeSource().getLocation());
+        }
+        return library.getName() + "@" + version;
+    }
+
+    /**
+     * Puts the outputs of an entry in place, if the entry exists and the files its input references are unchanged.
+     */
+    private boolean materialize(String key, List<Path> outputs) throws IOException {
+        Path entryFile = entriesDirectory.resolve(key + ".properties");
+        Properties properties = readEntry(entryFile);
+        Entry entry = properties == null ? null : toEntry(properties);
+        if (entry == null || entry.objects.size() != outputs.size() || !dependenciesUnchanged(properties)) {
+            synchronized (this) {
+                misses++;
+            }
+            return false;
+        }
+        for (int i = 0; i < outputs.size(); i++) {
+            Path object = objectsDirectory.resolve(entry.objects.get(i));
+            // A stored file that was evicted by another process, or edited through a hard link, is not used.
+            boolean intact = Files.isRegularFile(object) && Files.size(object) == entry.sizes.get(i)
+                    && hash(object).equals(entry.objects.get(i));
+            if (!intact) {
+                // Stored again by the conversion that runs instead.
+                Files.deleteIfExists(object);
+                synchronized (this) {
+                    misses++;
+                }
+                return false;
+            }
+        }
+        for (int i = 0; i < outputs.size(); i++) {
+            place(objectsDirectory.resolve(entry.objects.get(i)), outputs.get(i));
+        }
+        Files.setLastModifiedTime(entryFile, FileTime.fromMillis(System.currentTimeMillis()));
+        synchronized (this) {
+            hits++;
+            if (!entries.containsKey(key)) {
+                // Stored by another process.
+                add(key, entry);
+            }
+            // Marks the entry as the most recently used.
+            entries.get(key);
+        }
+        return true;
+    }
+
+    private void place(Path object, Path output) throws IOException {
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.deleteIfExists(output);
+        if (materialization == Materialization.HARD_LINK) {
+            try {
+                Files.createLink(output, object);
+                return;
+            } catch (UnsupportedOperationException | IOException e) {
+                // Not supported by the file system, or the output is on another one.
+            }
+        }
+        Files.copy(object, output, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void store(String key, Path input, List<Path> outputs) throws IOException {
+        Properties properties = new Properties();
+        List<String> objects = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        for (int i = 0; i < outputs.size(); i++) {
+            Path output = outputs.get(i);
+            if (!Files.isRegularFile(output)) {
+                // The conversion did not write all the files it is expected to; nothing to reuse.
+                return;
+            }
+            String object = hash(output);
+            Path objectFile = objectsDirectory.resolve(object);
+            if (!Files.isRegularFile(objectFile)) {
+                Path temporaryFile = Files.createTempFile(objectsDirectory, "store", ".tmp");
+                Files.copy(output, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporaryFile, objectFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            long size = Files.size(objectFile);
+            objects.add(object);
+            sizes.add(size);
+            properties.setProperty("output." + i, object);
+            properties.setProperty("size." + i, String.valueOf(size));
+        }
+        int index = 0;
+        for (Path dependency : findDependencies(input)) {
+            properties.setProperty("dependency." + index, dependency.toString());
+            properties.setProperty("dependencyHash." + index, hash(dependency));
+            index++;
+        }
+
+        Path temporaryFile = Files.createTempFile(entriesDirectory, "entry", ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+            properties.store(outputStream, null);
+        }
+        Files.move(temporaryFile, entriesDirectory.resolve(key + ".properties"),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                // Stored again by another thread meanwhile; the files are the same.
+                entries.get(key);
+                return;
+            }
+            add(key, new Entry(objects, sizes));
+            evict();
+        }
+    }
+
+    private static Properties readEntry(Path entryFile) {
+        if (!Files.isRegularFile(entryFile)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(entryFile)) {
+            properties.load(inputStream);
+            return properties;
+        } catch (IOException e) {
+            // Evicted by another process while being read.
+            return null;
+        }
+    }
+
+    private static Entry toEntry(Properties properties) {
+        List<String> objects = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        for (int i = 0; properties.getProperty("output." + i) != null; i++) {
+            objects.add(properties.getProperty("output." + i));
+            sizes.add(Long.parseLong(properties.getProperty("size." + i, "-1")));
+        }
+        return objects.isEmpty() ? null : new Entry(objects, sizes);
+    }
+
+    private static boolean dependenciesUnchanged(Properties properties) throws IOException {
+        for (int i = 0; properties.getProperty("dependency." + i) != null; i++) {
+            Path dependency = Path.of(properties.getProperty("dependency." + i));
+            if (!Files.isRegularFile(dependency) || !hash(dependency).equals(properties.getProperty("dependencyHash." + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lists the local files an input references, directly or not: the hrefs of Ecore and XMI files and the
+     * schemaLocations of XSD imports and includes. References that are not local files (http:, platform:, ...)
+     * are resolved through registered packages rather than read, and are left out.
+     */
+    static Set<Path> findDependencies(Path input) throws IOException {
+        Set<Path> dependencies = new HashSet<>();
+        Deque<Path> pending = new ArrayDeque<>(List.of(canonical(input)));
+        while (!pending.isEmpty()) {
+            Path file = pending.pop();
+            Matcher matcher = REFERENCE.matcher(Files.readString(file, StandardCharsets.ISO_8859_1));
+            while (matcher.find()) {
+                for (String reference : references(matcher.group(1), matcher.group(2))) {
+                    Path dependency = resolve(file, reference);
+                    if (dependency != null && !dependency.equals(canonical(input)) && dependencies.add(dependency)) {
+                        pending.push(dependency);
+                    }
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * @return The locations given by an attribute, without their fragments.
+     */
+    private static List<String> references(String attribute, String value) {
+        List<String> references = new ArrayList<>();
+        if (attribute.endsWith(":schemaLocation")) {
+            // Pairs of a namespace and its location.
+            String[] tokens = WHITESPACE.split(value.strip());
+            for (int i = 1; i < tokens.length; i += 2) {
+                references.add(tokens[i]);
+            }
+        } else {
+            references.add(value.strip());
+        }
+        references.replaceAll(reference -> reference.indexOf('#') < 0 ? reference : reference.substring(0, reference.indexOf('#')));
+        return references;
+    }
+
+    private static Path resolve(Path file, String reference) {
+        try {
+            if (reference.isEmpty()) {
+                return null;
+            }
+            Path path;
+            if (reference.startsWith("file:")) {
+                path = Path.of(URI.create(reference));
+            } else if (reference.matches("[A-Za-z][A-Za-z0-9+.-]+:.*")) {
+                return null;
+            } else {
+                path = file.getParent().resolve(URLDecoder.decode(reference, StandardCharsets.UTF_8));
+            }
+            path = canonical(path);
+            return Files.isRegularFile(path) ? path : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        List<Path> entryFiles;
+        try (Stream<Path> files = Files.list(entriesDirectory)) {
+            entryFiles = new ArrayList<>(files.filter(file -> file.getFileName().toString().endsWith(".properties")).toList());
+        }
+        // Oldest first, so that the access order of the map starts with the least recently used entry.
+        entryFiles.sort((first, second) -> lastModified(first).compareTo(lastModified(second)));
+        for (Path entryFile : entryFiles) {
+            Properties properties = readEntry(entryFile);
+            Entry entry = properties == null ? null : toEntry(properties);
+            if (entry != null) {
+                String name = entryFile.getFileName().toString();
+                add(name.substring(0, name.length() - ".properties".length()), entry);
+            }
+        }
+        synchronized (this) {
+            evict();
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private void add(String key, Entry entry) {
+        entries.put(key, entry);
+        for (int i = 0; i < entry.objects.size(); i++) {
+            String object = entry.objects.get(i);
+            if (objectReferences.merge(object, 1, Integer::sum) == 1) {
+                objectSizes.put(object, entry.sizes.get(i));
+                bytes += entry.sizes.get(i);
+            }
+        }
+    }
+
+    private void remove(String key) throws IOException {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+        Files.deleteIfExists(entriesDirectory.resolve(key + ".properties"));
+        for (String object : entry.objects) {
+            if (objectReferences.merge(object, -1, Integer::sum) == 0) {
+                objectReferences.remove(object);
+                bytes -= objectSizes.remove(object);
+                Files.deleteIfExists(objectsDirectory.resolve(object));
+            }
+        }
+    }
+
+    private void evict() {
+        Iterator<String> iterator = new ArrayList<>(entries.keySet()).iterator();
+        while (bytes > maxBytes && entries.size() > 1 && iterator.hasNext()) {
+            try {
+                remove(iterator.next());
+                evictions++;
+            } catch (IOException e) {
+                logger.warn("Could not evict a cache entry: " + e);
+            }
+        }
+    }
+
+    private static Path canonical(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(file), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+        return hex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,206 @@
+package org.khachouch;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Runs one conversion over every matching file of a directory, concurrently.
+ * Each file is converted by its own {@link EcoreUtils} call, so every task works in its own pooled ResourceSet.
+ */
+public class BatchConverter {
+
+    /**
+     * The conversions that can be run in bulk, with the file extensions they read and write.
+     */
+    public enum Conversion {
+        XSD_TO_ECORE("xsd", "ecore"),
+        ECORE_TO_XSD("ecore", "xsd"),
+        ECORE_TO_XMI("ecore", "xmi"),
+        ECORE_TO_UML("ecore", "svg");
+
+        private final String sourceExtension;
+        private final String targetExtension;
+
+        Conversion(String sourceExtension, String targetExtension) {
+            this.sourceExtension = sourceExtension;
+            this.targetExtension = targetExtension;
+        }
+
+        public String getSourceExtension() {
+            return sourceExtension;
+        }
+
+        public String getTargetExtension() {
+            return targetExtension;
+        }
+    }
+
+    /**
+     * The outcome of converting one file.
+     *
+     * @param input    The converted file.
+     * @param output   The file that was written, or attempted.
+     * @param success  Whether the conversion reported success.
+     * @param duration The wall-clock time spent on this file.
+     * @param error    The failure cause, or null on success.
+     */
+    public record Result(Path input, Path output, boolean success, Duration duration, Throwable error) {
+    }
+
+    /**
+     * The outcome of a whole batch, in input order.
+     *
+     * @param results  One result per input file.
+     * @param duration The wall-clock time of the whole batch.
+     */
+    public record Report(List<Result> results, Duration duration) {
+
+        public long successCount() {
+            return results.stream().filter(Result::success).count();
+        }
+
+        public List<Result> failures() {
+            return results.stream().filter(result -> !result.success()).toList();
+        }
+
+        @Override
+        public String toString() {
+            return "Converted " + successCount() + "/" + results.size() + " files in " + duration.toMillis() + " ms";
+        }
+    }
+
+    private final EcoreUtils ecoreUtils;
+    private final int parallelism;
+    private final boolean virtualThreads;
+
+    public BatchConverter(EcoreUtils ecoreUtils) {
+        this(ecoreUtils, Runtime.getRuntime().availableProcessors(), false);
+    }
+
+    /**
+     * Creates a batch converter.
+     *
+     * @param ecoreUtils     The utilities used for each conversion.
+     * @param parallelism    The maximum number of conversions running at the same time.
+     * @param virtualThreads true to run each conversion on a virtual thread, false to use a fixed pool of platform threads.
+     */
+    public BatchConverter(EcoreUtils ecoreUtils, int parallelism, boolean virtualThreads) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        this.ecoreUtils = ecoreUtils;
+        this.parallelism = parallelism;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Converts every file of a directory (recursively) that has the source extension of the conversion.
+     *
+     * @param inputDirectory  The directory containing the files to convert.
+     * @param conversion      The conversion to run.
+     * @param outputDirectory The directory receiving the outputs, mirroring the input layout.
+     * @return The per-file report.
+     * @throws IOException if the input directory cannot be listed.
+     */
+    public Report convertDirectory(Path inputDirectory, Conversion conversion, Path outputDirectory) throws IOException {
+        return convert(inputDirectory, "**." + conversion.getSourceExtension(), conversion, outputDirectory);
+    }
+
+    /**
+     * Converts the files of a directory whose relative path matches a glob, e.g. {@code *.xsd} or {@code schemas/**.xsd}.
+     *
+     * @param inputDirectory  The directory containing the files to convert.
+     * @param glob            The glob, evaluated against paths relative to the input directory.
+     * @param conversion      The conversion to run.
+     * @param outputDirectory The directory receiving the outputs, mirroring the input layout.
+     * @return The per-file report.
+     * @throws IOException if the input directory cannot be listed.
+     */
+    public Report convert(Path inputDirectory, String glob, Conversion conversion, Path outputDirectory) throws IOException {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        List<Path> inputs;
+        try (Stream<Path> files = Files.walk(inputDirectory)) {
+            inputs = files.filter(Files::isRegularFile)
+                    .filter(file -> matcher.matches(inputDirectory.relativize(file)))
+                    .sorted()
+                    .toList();
+        }
+
+        long start = System.nanoTime();
+        List<Result> results = new ArrayList<>(inputs.size());
+        // Virtual threads are unbounded, so a semaphore keeps the number of running conversions in check; the fixed
+        // pool already has only as many threads as conversions may run.
+        Semaphore permits = virtualThreads ? new Semaphore(parallelism) : null;
+        try (ExecutorService executor = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(parallelism)) {
+            List<Future<Result>> futures = new ArrayList<>(inputs.size());
+            for (Path input : inputs) {
+                Path output = outputDirectory.resolve(replaceExtension(inputDirectory.relativize(input), conversion.getTargetExtension()));
+                if (permits == null) {
+                    futures.add(executor.submit(() -> convertOne(input, output, conversion)));
+                } else {
+                    futures.add(executor.submit(() -> {
+                        permits.acquire();
+                        try {
+                            return convertOne(input, output, conversion);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(await(futures.get(i), inputs.get(i)));
+            }
+        }
+        return new Report(results, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private Result convertOne(Path input, Path output, Conversion conversion) {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            String inputPath = input.toAbsolutePath().toString();
+            String outputPath = output.toAbsolutePath().toString();
+            boolean success = switch (conversion) {
+                case XSD_TO_ECORE -> ecoreUtils.ConvertXSDToEcore(inputPath, outputPath);
+                case ECORE_TO_XSD -> ecoreUtils.ConvertEcoreToXSD(inputPath, outputPath);
+                case ECORE_TO_XMI -> ecoreUtils.ConvertEcoreToXMI(inputPath, outputPath);
+                case ECORE_TO_UML -> ecoreUtils.ConvertEcoreToUML(inputPath, outputPath);
+            };
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            return new Result(input, output, success, duration, success ? null : new IllegalStateException("Conversion reported failure"));
+        } catch (Exception e) {
+            return new Result(input, output, false, Duration.ofNanos(System.nanoTime() - start), e);
+        }
+    }
+
+    private static Result await(Future<Result> future, Path input) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(input, null, false, Duration.ZERO, e);
+        } catch (ExecutionException e) {
+            return new Result(input, null, false, Duration.ZERO, e.getCause());
+        }
+    }
+
+    private static Path replaceExtension(Path path, String extension) {
+        String fileName = path.getFileName().toString().replaceFirst("[.][^.]+$", "") + "." + extension;
+        return path.resolveSibling(fileName);
+    }
+}
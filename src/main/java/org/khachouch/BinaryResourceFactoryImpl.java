@@ -0,0 +1,68 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceFactoryImpl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Creates {@link BinaryResourceImpl} resources for the compact binary model format.
+ * The resources it creates default to the most compact binary style, so callers can save them without options.
+ */
+public class BinaryResourceFactoryImpl extends ResourceFactoryImpl {
+    /**
+     * The file extension registered for binary models by {@link EmfSession}.
+     */
+    public static final String EXTENSION = "xmib";
+
+    private static final int BUFFER_CAPACITY = 64 * 1024;
+
+    /**
+     * The save options applied to every binary resource: format version 1.1 with binary numbers, dates and enumerators,
+     * and tabulated (write-once) strings.
+     */
+    public static final Map<Object, Object> SAVE_OPTIONS = Map.of(
+            BinaryResourceImpl.OPTION_VERSION, BinaryResourceImpl.BinaryIO.Version.VERSION_1_1,
+            BinaryResourceImpl.OPTION_STYLE_BINARY_FLOATING_POINT, Boolean.TRUE,
+            BinaryResourceImpl.OPTION_STYLE_BINARY_DATE, Boolean.TRUE,
+            BinaryResourceImpl.OPTION_STYLE_BINARY_ENUMERATOR, Boolean.TRUE,
+            BinaryResourceImpl.OPTION_STYLE_DATA_CONVERTER, Boolean.TRUE,
+            BinaryResourceImpl.OPTION_BUFFER_CAPACITY, BUFFER_CAPACITY);
+
+    /**
+     * The load options applied to every binary resource.
+     */
+    public static final Map<Object, Object> LOAD_OPTIONS = Map.of(
+            BinaryResourceImpl.OPTION_BUFFER_CAPACITY, BUFFER_CAPACITY);
+
+    @Override
+    public Resource createResource(URI uri) {
+        return new BinaryResourceImpl(uri) {
+            // Options passed by the caller take precedence over the defaults.
+            @Override
+            protected void doSave(OutputStream outputStream, Map<?, ?> options) throws IOException {
+                super.doSave(outputStream, mergeMaps(options, SAVE_OPTIONS));
+            }
+
+            @Override
+            protected void doLoad(InputStream inputStream, Map<?, ?> options) throws IOException {
+                super.doLoad(inputStream, mergeMaps(options, LOAD_OPTIONS));
+            }
+        };
+    }
+
+    /**
+     * Checks whether a path designates a binary model, based on its file extension.
+     *
+     * @param path The path of the model file.
+     * @return true if the path ends with the binary extension, false otherwise.
+     */
+    public static boolean isBinaryPath(String path) {
+        return EXTENSION.equals(URI.createFileURI(path).fileExtension());
+    }
+}
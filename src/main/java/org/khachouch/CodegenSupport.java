@@ -0,0 +1,320 @@
+package org.khachouch;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Logger;
+import org.eclipse.emf.codegen.ecore.generator.Generator;
+import org.eclipse.emf.codegen.ecore.generator.GeneratorAdapterFactory;
+import org.eclipse.emf.codegen.ecore.genmodel.GenBase;
+import org.eclipse.emf.codegen.ecore.genmodel.GenJDKLevel;
+import org.eclipse.emf.codegen.ecore.genmodel.GenModel;
+import org.eclipse.emf.codegen.ecore.genmodel.GenModelFactory;
+import org.eclipse.emf.codegen.ecore.genmodel.GenModelPackage;
+import org.eclipse.emf.codegen.ecore.genmodel.GenPackage;
+import org.eclipse.emf.codegen.ecore.genmodel.generator.GenBaseGeneratorAdapter;
+import org.eclipse.emf.codegen.merge.java.JControlModel;
+import org.eclipse.emf.common.util.BasicDiagnostic;
+import org.eclipse.emf.common.util.Diagnostic;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The GenModel and Java code generation operations of {@link EcoreUtilsImpl}, which documents them.
+ * Created on the first of these calls, so that the EMF code generator is only loaded by the instances using it.
+ */
+final class CodegenSupport {
+    private static final Logger logger = (Logger) LogManager.getLogger(CodegenSupport.class);
+
+    private final EcoreUtilsImpl ecoreUtils;
+    private final EmfSession session;
+
+    CodegenSupport(EcoreUtilsImpl ecoreUtils) {
+        this.ecoreUtils = ecoreUtils;
+        this.session = ecoreUtils.getSession();
+    }
+
+    GenModel ConvertEcoreToGenModel(String ecorePath, String genDirectory, String genModelFileName, String javaGenDirectory, String basePackage) {
+        Monitor monitor = ecoreUtils.beginOperation("ConvertEcoreToGenModel", 3);
+        try {
+            String genModelFilePath = genDirectory + "/" + genModelFileName + ".genmodel";
+            Map<String, String> options = Map.of("genDirectory", String.valueOf(genDirectory),
+                    "javaGenDirectory", String.valueOf(javaGenDirectory), "basePackage", String.valueOf(basePackage));
+            GenModel[] genModel = new GenModel[1];
+            boolean converted = ecoreUtils.cached("ConvertEcoreToGenModel", List.of(GenModel.class), ecorePath, options,
+                    List.of(genModelFilePath), () -> (genModel[0] = ConvertEcoreToGenModel(ecorePath, genDirectory,
+                            genModelFileName, javaGenDirectory, basePackage, monitor)) != null);
+            if (!converted) {
+                return null;
+            }
+            // Not computed: the GenModel file was put back from the artifact cache, and is read from there.
+            return genModel[0] != null ? genModel[0] : loadGenModel(genModelFilePath, javaGenDirectory);
+        } finally {
+            monitor.done();
+        }
+    }
+
+    private GenModel loadGenModel(String genModelFilePath, String javaGenDirectory) {
+        // Detached from the pool like the ResourceSet of a computed GenModel, with the same URI mapping.
+        EmfSession.Lease lease = session.acquire();
+        lease.detach();
+        ResourceSet resourceSet = lease.getResourceSet();
+        resourceSet.getURIConverter().getURIMap().put(
+                URI.createURI("platform:/resource/"),
+                URI.createFileURI(new File(javaGenDirectory) + File.separator)
+        );
+        Resource genModelResource = resourceSet.getResource(URI.createURI(genModelFilePath, true), true);
+        return (GenModel) genModelResource.getContents().get(0);
+    }
+
+    private GenModel ConvertEcoreToGenModel(String ecorePath, String genDirectory, String genModelFileName, String javaGenDirectory, String basePackage, Monitor monitor) {
+        // Borrow a ResourceSet, which manages a set of related resources (models).
+        // The factories for model files and the GenModel package are registered by the session.
+        // The ResourceSet is detached from the pool because the returned GenModel keeps referring to it.
+        EmfSession.Lease lease = session.acquire();
+        lease.detach();
+        ResourceSet resourceSet = lease.getResourceSet();
+
+        // Map "platform:/resource/" URIs to a local file path for resolving references.
+        resourceSet.getURIConverter().getURIMap().put(
+                URI.createURI("platform:/resource/"),
+                URI.createFileURI(new File(javaGenDirectory) + File.separator)
+        );
+
+        // Load the Ecore model from the specified path.
+        monitor.subTask("parse");
+        URI ecoreURI = URI.createURI(ecorePath, true); // Create a URI for the Ecore file.
+        Resource resource = session.loadClosure(resourceSet, ecoreURI); // Load the Ecore resource and the ones it references.
+        EPackage ePackage = (EPackage) resource.getContents().get(0); // Get the root EPackage.
+
+        // Create a new GenModel instance.
+        monitor.subTask("generate");
+        GenModel genModel = GenModelFactory.eINSTANCE.createGenModel();
+        genModel.getForeignModel().add(ecorePath); // Reference the Ecore file in the GenModel.
+        genModel.initialize(Collections.singleton(ePackage)); // Initialize the GenModel with the EPackage.
+
+        // Set basic properties for the GenModel.
+        genModel.setModelDirectory(genDirectory); // Directory where generated models will be saved.
+        String modelName = ePackage.getNsPrefix(); // Use the EPackage namespace prefix as the model name.
+        genModel.setModelName(modelName);
+        genModel.setComplianceLevel(GenJDKLevel.JDK210_LITERAL); // Set Java compliance level to JDK 21.
+        genModel.setUpdateClasspath(false); // Do not update classpath automatically.
+        genModel.setGenerateSchema(true); // Enable schema generation.
+        genModel.setCanGenerate(true); // Allow the GenModel to be generated.
+
+        // Iterate through the GenPackages to set proper base package names and prefixes.
+        List<GenPackage> genPackages = genModel.getGenPackages().stream().toList();
+        for (GenPackage genPackage : genPackages) {
+            genPackage.setBasePackage(basePackage); // Set the base package for each GenPackage.
+
+            // Adjust the prefix for proper class naming.
+            genPackage.setPrefix(
+                    genPackage.getPrefix().lastIndexOf('.') != -1
+                            ? (genPackage.getPrefix().lastIndexOf('.', genPackage.getPrefix().lastIndexOf('.') - 1) != -1
+                            ? genPackage.getPrefix().substring(
+                            genPackage.getPrefix().lastIndexOf('.', genPackage.getPrefix().lastIndexOf('.') - 1) + 1,
+                            genPackage.getPrefix().lastIndexOf('.')
+                    )
+                            : (genPackage.getPrefix().lastIndexOf('.') != 0
+                            ? genPackage.getPrefix().substring(genPackage.getPrefix().lastIndexOf('.') + 1)
+                            : genPackage.getPrefix())
+                    )
+                            : genPackage.getPrefix()
+            );
+        }
+
+        // Also update the base package of the first GenPackage explicitly.
+        GenPackage genPackage = genModel.getGenPackages().get(0);
+        genPackage.setBasePackage(basePackage);
+
+        // Save the GenModel to a file in the specified directory.
+        String genModelFilePath = genDirectory + "/" + genModelFileName + ".genmodel"; // Full path for the GenModel file.
+        URI genModelURI = URI.createURI(genModelFilePath, true); // Create a URI for the GenModel file.
+        Resource genModelResource = resourceSet.createResource(genModelURI); // Create a resource for the GenModel.
+        if (genModelResource == null) {
+            System.err.println("\tERROR: Could not create a resource for the URI: " + genModelFilePath);
+            return null; // Exit if the resource could not be created.
+        }
+
+        // Add the GenModel object to the resource contents.
+        genModelResource.getContents().add(genModel);
+
+        // Save the resource to persist the GenModel file.
+        monitor.subTask("save");
+        try {
+            genModelResource.save(lease.getSaveOptions()); // Save with the session's save options.
+        } catch (IOException e) {
+            e.printStackTrace(); // Print the exception stack trace if saving fails.
+        }
+
+        // Return the generated GenModel object.
+        return genModel;
+    }
+
+    boolean GenModelToJava(GenModel genModel, String targetPath) {
+        return GenModelToJavaWithResult(genModel, targetPath).isSuccess();
+    }
+
+    GenerationResult GenModelToJavaWithResult(GenModel genModel, String targetPath) {
+        // The generator reports a task per file; they are logged at INFO as before.
+        Monitor monitor = ecoreUtils.beginOperation("GenModelToJava", 1, Level.INFO);
+        try {
+            monitor.subTask("generate");
+            return runGenerator(genModel, OnlyCodeGenModelGeneratorAdapterFactory.Descriptor, monitor);
+        } finally {
+            monitor.done();
+        }
+    }
+
+    boolean GenModelToJavaIncremental(GenModel genModel, String targetPath) {
+        // The model directory is part of the fingerprinted settings, so set it as the generation will.
+        genModel.setModelDirectory("/");
+        genModel.setCanGenerate(true);
+
+        Monitor monitor = ecoreUtils.beginOperation("GenModelToJavaIncremental", 3, Level.INFO);
+        try {
+            monitor.subTask("fingerprint");
+            GenModelFingerprints fingerprints = GenModelFingerprints.compute(genModel);
+            File manifest = GenModelFingerprints.getManifestFile(genModel);
+            Map<String, String> previous = GenModelFingerprints.readManifest(manifest);
+            Set<GenBase> changed = fingerprints.getChangedArtifacts(previous);
+            if (changed.isEmpty()) {
+                logger.info("Generated code is up to date for " + genModel.getModelName());
+                return true;
+            }
+            logger.info("Regenerating " + changed.size() + " of " + fingerprints.getFingerprints().size() + " artifacts of " + genModel.getModelName());
+
+            monitor.subTask("generate");
+            GenerationResult result = runGenerator(genModel, OnlyCodeGenModelGeneratorAdapterFactory.descriptor(changed::contains), monitor);
+
+            // Only record the new fingerprints once the generation went through,
+            // so that the failed artifacts are generated again next time.
+            if (!result.isSuccess()) {
+                return false;
+            }
+            monitor.subTask("save");
+            // The package of a deleted classifier is regenerated, so this is only reached after a generation.
+            int deleted = fingerprints.deleteStaleFiles(previous);
+            if (deleted > 0) {
+                logger.info("Deleted " + deleted + " files of artifacts removed from " + genModel.getModelName());
+            }
+            if (manifest != null) {
+                fingerprints.writeManifest(manifest);
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            monitor.done();
+        }
+    }
+
+    boolean GenModelToJavaParallel(GenModel genModel, String targetPath, int threads) {
+        int genPackageCount = genModel.getAllGenPackagesWithClassifiers().size();
+        ParallelGenModelGenerator.Partitioning partitioning = genPackageCount >= threads
+                ? ParallelGenModelGenerator.Partitioning.PACKAGE
+                : ParallelGenModelGenerator.Partitioning.CLASSIFIER;
+        ParallelGenModelGenerator generator = new ParallelGenModelGenerator(session, threads, partitioning, ecoreUtils.getMetrics());
+
+        Monitor monitor = ecoreUtils.beginOperation("GenModelToJavaParallel", 1, Level.INFO);
+        try {
+            monitor.subTask("generate");
+            return runGenerator(genModel, model -> generator.generate(model, artifact -> true)).isSuccess();
+        } finally {
+            monitor.done();
+        }
+    }
+
+    /**
+     * Runs the EMF code generator on a GenModel with the given generator adapter factory.
+     *
+     * @param genModel   The GenModel to generate code for.
+     * @param descriptor The descriptor of the adapter factory deciding what is generated.
+     * @param monitor    The monitor of the calling operation, receiving the generator's tasks.
+     * @return The result of the generation.
+     */
+    private GenerationResult runGenerator(GenModel genModel, GeneratorAdapterFactory.Descriptor descriptor, Monitor monitor) {
+        // Start the generation process. We specify that the type of project to generate is a "MODEL_PROJECT_TYPE"
+        // and pass the monitor (a progress monitor object to track the generation process).
+        return runGenerator(genModel, model -> createGenerator(model, descriptor)
+                .generate(model, GenBaseGeneratorAdapter.MODEL_PROJECT_TYPE, monitor));
+    }
+
+    /**
+     * Prepares a GenModel for generation and runs a generation on it with its error output captured.
+     * Only the output of this generation is captured, so concurrent generations do not interfere.
+     *
+     * @param genModel   The GenModel to generate code for.
+     * @param generation The generation to run on the prepared GenModel.
+     * @return The result of the generation.
+     */
+    private GenerationResult runGenerator(GenModel genModel, Function<GenModel, Diagnostic> generation) {
+        // Capture the error output of this thread (and of the workers it hands the capture to)
+        // to keep the generator's messages off the console.
+        ConsoleCapture capture = new ConsoleCapture(ConsoleCapture.Stream.ERR);
+        Diagnostic diagnostic;
+        ConsoleCapture.Scope scope = capture.open();
+        try {
+            // Set the model directory to the root. This is a default setting for code generation.
+            // It can be adjusted if required based on the actual directory structure.
+            genModel.setModelDirectory("/");
+
+            // Enable the code generation process. This is a flag that tells the generator
+            // whether it is allowed to perform code generation.
+            genModel.setCanGenerate(true);
+
+            diagnostic = generation.apply(genModel);
+        } catch (RuntimeException e) {
+            // A generator failure is reported like the errors the generator collects itself.
+            diagnostic = BasicDiagnostic.toDiagnostic(e);
+        } finally {
+            scope.close();
+        }
+
+        GenerationResult result = new GenerationResult(diagnostic, capture.getOutput());
+        if (!result.isSuccess()) {
+            logger.error("Code generation failed for " + genModel.getModelName() + ": " + diagnostic
+                    + (result.errorOutput().isEmpty() ? "" : System.lineSeparator() + result.errorOutput()));
+        }
+        return result;
+    }
+
+    /**
+     * Creates a code generator for a GenModel with the given generator adapter factory.
+     * Generators keep per-run state, so each concurrent generation needs its own.
+     *
+     * @param genModel   The GenModel to generate code for.
+     * @param descriptor The descriptor of the adapter factory deciding what is generated.
+     * @return The generator, with the GenModel set as its input.
+     */
+    static Generator createGenerator(GenModel genModel, GeneratorAdapterFactory.Descriptor descriptor) {
+        // Create a custom generator object that will be responsible for the actual code generation.
+        Generator generator;
+        generator = new Generator() {
+            @Override
+            public JControlModel getJControlModel() {
+                // Return a new JControlModel object (could be used for controlling code generation specifics).
+                return new JControlModel();
+            }
+        };
+
+        // Register a custom descriptor for the GenModel's URI to the generator's adapter factory.
+        // This is necessary to tell the generator which adapter to use for this specific model type.
+        generator.getAdapterFactoryDescriptorRegistry().addDescriptor(GenModelPackage.eNS_URI, descriptor);
+
+        // Set the input GenModel for the generator to use. This is the model that will be processed
+        // to generate Java code.
+        generator.setInput(genModel);
+        return generator;
+    }
+}
@@ -0,0 +1,204 @@
+package org.khachouch;
+
+import org.eclipse.emf.codegen.ecore.genmodel.GenModel;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The command line of EcoreUtils: one command name followed by its arguments, run on an {@link EcoreUtils}.
+ * Used by {@link Main} to run a command in-process, and by {@link EcoreUtilsServer} for the commands forwarded by
+ * {@link EcoreUtilsClient}. Relative paths are resolved against the caller's working directory, which for the server
+ * is the client's rather than its own.
+ */
+public class Commands {
+    /**
+     * Exit code of a command that ran and reported success.
+     */
+    public static final int SUCCESS = 0;
+    /**
+     * Exit code of a command that ran and reported failure.
+     */
+    public static final int FAILURE = 1;
+    /**
+     * Exit code of an unknown command or of wrong arguments.
+     */
+    public static final int USAGE = 2;
+
+    /**
+     * The list of commands. A constant, so that {@link EcoreUtilsClient} can print it without loading this class.
+     */
+    public static final String USAGE_TEXT = "Commands:\n" +
+            "  isEcore <ecore>\n" +
+            "  xsd2ecore <xsd> <ecore>\n" +
+            "  ecore2genmodel <ecore> <genDirectory> <genModelName> <javaDirectory> <basePackage>\n" +
+            "  ecore2java <ecore> <genDirectory> <genModelName> <javaDirectory> <basePackage> [threads]\n" +
+            "  validate <model> <metamodel>\n" +
+            "  save <model> <metamodel> <destination>\n" +
+            "  scan <model> <metamodel>\n" +
+            "  print <ecore>\n" +
+            "  ecore2xmi <ecore> <xmi>\n" +
+            "  xmi2binary <xmi> <binary> [metamodel]\n" +
+            "  binary2xmi <binary> <xmi> [metamodel]\n" +
+            "  ecore2xsd <ecore> <xsd>\n" +
+            "  ecore2uml <ecore> <svg>\n" +
+            "  ecore2umlPartitioned <ecore> <svgDirectory> package|component\n" +
+            "  ecore2umlFocused <ecore> <className> <hops> <svg>\n" +
+            "  fingerprint <ecore>\n" +
+            "  diff <previousEcore> <ecore>\n" +
+            "  metrics";
+
+    private final EcoreUtils ecoreUtils;
+    private final Path workingDirectory;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    /**
+     * Creates a command runner.
+     *
+     * @param ecoreUtils       The instance running the operations.
+     * @param workingDirectory The directory relative paths are resolved against.
+     * @param out              Where command results are printed.
+     * @param err              Where usage errors are printed.
+     */
+    public Commands(EcoreUtils ecoreUtils, Path workingDirectory, PrintStream out, PrintStream err) {
+        this.ecoreUtils = ecoreUtils;
+        this.workingDirectory = workingDirectory;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Runs one command.
+     *
+     * @param args The command name followed by its arguments.
+     * @return {@link #SUCCESS}, {@link #FAILURE} or {@link #USAGE}.
+     */
+    public int run(String... args) {
+        if (args.length == 0) {
+            err.println(USAGE_TEXT);
+            return USAGE;
+        }
+        Arguments arguments = new Arguments(args);
+        try {
+            return switch (args[0]) {
+                case "isEcore" -> result(ecoreUtils.isEcoreModel(arguments.path(1)));
+                case "xsd2ecore" -> result(ecoreUtils.ConvertXSDToEcore(arguments.path(1), arguments.path(2)));
+                case "ecore2genmodel" -> result(convertEcoreToGenModel(arguments) != null);
+                case "ecore2java" -> {
+                    GenModel genModel = convertEcoreToGenModel(arguments);
+                    if (genModel == null) {
+                        yield FAILURE;
+                    }
+                    int threads = arguments.count() > 6 ? Integer.parseInt(arguments.get(6)) : 1;
+                    yield result(threads > 1
+                            ? ecoreUtils.GenModelToJavaParallel(genModel, arguments.path(4), threads)
+                            : ecoreUtils.GenModelToJava(genModel, arguments.path(4)));
+                }
+                case "validate" -> result(ecoreUtils.validateModel(Path.of(arguments.path(1)), arguments.path(2)));
+                case "save" -> result(ecoreUtils.saveModelAfterVerification(Path.of(arguments.path(1)), arguments.path(2), arguments.path(3)));
+                case "scan" -> scan(arguments);
+                case "print" -> {
+                    ecoreUtils.PrintEcoreStructure(arguments.path(1));
+                    yield SUCCESS;
+                }
+                case "ecore2xmi" -> result(ecoreUtils.ConvertEcoreToXMI(arguments.path(1), arguments.path(2)));
+                case "xmi2binary" -> result(ecoreUtils.ConvertXMIToBinary(arguments.path(1), arguments.path(2), arguments.optionalPath(3)));
+                case "binary2xmi" -> result(ecoreUtils.ConvertBinaryToXMI(arguments.path(1), arguments.path(2), arguments.optionalPath(3)));
+                case "ecore2xsd" -> result(ecoreUtils.ConvertEcoreToXSD(arguments.path(1), arguments.path(2)));
+                case "ecore2uml" -> result(ecoreUtils.ConvertEcoreToUML(arguments.path(1), arguments.path(2)));
+                case "ecore2umlPartitioned" -> result(ecoreUtils.ConvertEcoreToUMLPartitioned(arguments.path(1), arguments.path(2),
+                        PlantUMLDiagramRenderer.Partitioning.valueOf(arguments.get(3).toUpperCase(Locale.ROOT))));
+                case "ecore2umlFocused" -> result(ecoreUtils.ConvertEcoreToUMLFocused(arguments.path(1), arguments.get(2),
+                        Integer.parseInt(arguments.get(3)), arguments.path(4)));
+                case "fingerprint" -> {
+                    ModelFingerprint fingerprint = ecoreUtils.getModelFingerprint(arguments.path(1));
+                    if (fingerprint == null) {
+                        yield FAILURE;
+                    }
+                    out.println(fingerprint.getFingerprint());
+                    yield SUCCESS;
+                }
+                case "diff" -> diff(arguments);
+                case "metrics" -> {
+                    ecoreUtils.getMetrics().exportPrometheus(out);
+                    yield SUCCESS;
+                }
+                default -> {
+                    err.println("Unknown command: " + args[0]);
+                    err.println(USAGE_TEXT);
+                    yield USAGE;
+                }
+            };
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // Missing arguments, or a number or partitioning that does not parse.
+            err.println("Invalid arguments for " + args[0] + ": " + Arrays.toString(Arrays.copyOfRange(args, 1, args.length)));
+            err.println(USAGE_TEXT);
+            return USAGE;
+        }
+    }
+
+    private GenModel convertEcoreToGenModel(Arguments arguments) {
+        return ecoreUtils.ConvertEcoreToGenModel(arguments.path(1), arguments.path(2), arguments.get(3), arguments.path(4), arguments.get(5));
+    }
+
+    /**
+     * Prints the statistics of a model read without loading it; fails if the model has dangling references.
+     */
+    private int scan(Arguments arguments) {
+        ModelStatistics statistics = ecoreUtils.scanModel(Path.of(arguments.path(1)), arguments.path(2));
+        if (statistics == null) {
+            return FAILURE;
+        }
+        statistics.print(out);
+        return statistics.getDanglingReferenceCount() == 0 ? SUCCESS : FAILURE;
+    }
+
+    /**
+     * Prints one line per difference, like diff(1): {@code +} added, {@code -} removed, {@code ~} changed.
+     * Succeeds only if the models have the same structure, so that a build script can skip the downstream steps.
+     */
+    private int diff(Arguments arguments) {
+        ModelDiff diff = ecoreUtils.diffModels(arguments.path(1), arguments.path(2));
+        if (diff == null) {
+            return FAILURE;
+        }
+        diff.changedPackages().forEach(name -> out.println("~ package " + name));
+        diff.addedClassifiers().forEach(name -> out.println("+ " + name));
+        diff.removedClassifiers().forEach(name -> out.println("- " + name));
+        diff.changedClassifiers().forEach(name -> out.println("~ " + name));
+        return diff.isEmpty() ? SUCCESS : FAILURE;
+    }
+
+    private int result(boolean success) {
+        out.println(success ? "Success" : "Failure");
+        return success ? SUCCESS : FAILURE;
+    }
+
+    private final class Arguments {
+        private final String[] args;
+
+        Arguments(String[] args) {
+            this.args = args;
+        }
+
+        int count() {
+            return args.length;
+        }
+
+        String get(int index) {
+            return args[index];
+        }
+
+        String path(int index) {
+            // The operations build file URIs with forward slashes.
+            return workingDirectory.resolve(args[index]).normalize().toString().replace('\\', '/');
+        }
+
+        String optionalPath(int index) {
+            return index < args.length ? path(index) : null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.khachouch;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EFactory;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.impl.EFactoryImpl;
+
+import java.util.List;
+
+/**
+ * The factory of a dynamic EPackage (one loaded from an .ecore file, without generated code) that creates
+ * {@link CompactEObject}s instead of {@link org.eclipse.emf.ecore.impl.DynamicEObjectImpl}s, to reduce the heap
+ * usage of large instance models. The layout of each EClass is computed once, when the factory is created.
+ * <p>
+ * The EClasses must not change once the factory is created.
+ */
+public class CompactEFactory extends EFactoryImpl {
+    // The layout of each concrete EClass of the package, by classifier ID.
+    private final CompactEObject.Layout[] layouts;
+
+    /**
+     * Computes the layouts of the EClasses of a package. Abstract classes, interfaces and classes with an instance
+     * class of their own (such as {@code java.util.Map$Entry}) keep the instances of EFactoryImpl.
+     *
+     * @param ePackage The package. The factory is not installed; see {@link #install(EPackage)}.
+     */
+    public CompactEFactory(EPackage ePackage) {
+        List<EClassifier> classifiers = ePackage.getEClassifiers();
+        layouts = new CompactEObject.Layout[classifiers.size()];
+        for (EClassifier classifier : classifiers) {
+            if (classifier instanceof EClass eClass && !eClass.isAbstract() && !eClass.isInterface()
+                    && eClass.getInstanceClassName() == null) {
+                layouts[eClass.getClassifierID()] = new CompactEObject.Layout(eClass);
+            }
+        }
+    }
+
+    /**
+     * Replaces the factory of a dynamic package and of its subpackages with a CompactEFactory. Packages that have a
+     * factory of their own, such as generated packages, are left alone, and so are packages that already have one.
+     *
+     * @param ePackage The package, before any of its classes is instantiated.
+     * @return The number of packages whose factory was replaced.
+     */
+    public static int install(EPackage ePackage) {
+        int installed = 0;
+        EFactory factory = ePackage.getEFactoryInstance();
+        if (factory == null || factory.getClass() == EFactoryImpl.class) {
+            ePackage.setEFactoryInstance(new CompactEFactory(ePackage));
+            installed++;
+        }
+        for (EPackage subpackage : ePackage.getESubpackages()) {
+            installed += install(subpackage);
+        }
+        return installed;
+    }
+
+    /**
+     * @param eClass An EClass of the package.
+     * @return true if the instances of the EClass are CompactEObjects, false if they are created by EFactoryImpl.
+     */
+    public boolean isCompact(EClass eClass) {
+        return layout(eClass) != null;
+    }
+
+    @Override
+    public EObject create(EClass eClass) {
+        CompactEObject.Layout layout = layout(eClass);
+        return layout != null ? new CompactEObject(layout) : super.create(eClass);
+    }
+
+    private CompactEObject.Layout layout(EClass eClass) {
+        int classifierID = eClass.getClassifierID();
+        if (classifierID >= 0 && classifierID < layouts.length && layouts[classifierID] != null
+                && layouts[classifierID].eClass == eClass) {
+            return layouts[classifierID];
+        }
+        return null;
+    }
+}
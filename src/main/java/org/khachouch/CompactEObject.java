@@ -0,0 +1,310 @@
+package org.khachouch;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.impl.DynamicEObjectImpl;
+import org.eclipse.emf.ecore.impl.MinimalEObjectImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An instance of an EClass of a dynamic metamodel that keeps its values in two arrays sized for its class, created by
+ * {@link CompactEFactory}. Single-valued attributes of primitive types are packed into the bits of a long[], a
+ * boolean taking one bit and an int 32; every other value, single-valued references included, is stored directly in
+ * an Object[]. {@link DynamicEObjectImpl} keeps every value boxed in an Object[] instead, so that e.g. each double or
+ * large int of a model is an object of its own.
+ * <p>
+ * As with DynamicEObjectImpl, every feature is handled by its setting delegate, so notifications, containment,
+ * inverse references, proxies and unsettable features behave the same. Unlike the classes of {@link RuntimeEFactory},
+ * one class serves every EClass, so the reflective calls of loads, validation and saves stay monomorphic.
+ */
+public class CompactEObject extends MinimalEObjectImpl.Container {
+    private static final long[] NO_BITS = {};
+    private static final Object[] NO_VALUES = {};
+
+    private final Layout layout;
+    private final long[] bits;
+    private final Object[] values;
+
+    /**
+     * @param layout The layout of the EClass of the object.
+     */
+    CompactEObject(Layout layout) {
+        this.layout = layout;
+        bits = layout.defaultBits.length > 0 ? layout.defaultBits.clone() : NO_BITS;
+        values = layout.valueCount > 0 ? new Object[layout.valueCount] : NO_VALUES;
+    }
+
+    @Override
+    protected EClass eStaticClass() {
+        return layout.eClass;
+    }
+
+    @Override
+    public EClass eClass() {
+        return layout.eClass;
+    }
+
+    // Every feature is dynamic: its ID in the class is the index of its value in dynamicGet and dynamicSet.
+    @Override
+    protected int eStaticFeatureCount() {
+        return 0;
+    }
+
+    @Override
+    protected int eStaticOperationCount() {
+        return 0;
+    }
+
+    @Override
+    public int eDerivedStructuralFeatureID(EStructuralFeature eStructuralFeature) {
+        return layout.eClass.getFeatureID(eStructuralFeature);
+    }
+
+    @Override
+    public void eSetClass(EClass eClass) {
+        if (eClass != layout.eClass) {
+            throw new IllegalArgumentException("An instance of " + layout.eClass.getName() + " cannot become an instance of "
+                    + (eClass != null ? eClass.getName() : null));
+        }
+    }
+
+    @Override
+    protected boolean eHasSettings() {
+        return true;
+    }
+
+    @Override
+    protected EStructuralFeature.Internal.DynamicValueHolder eSettings() {
+        return this;
+    }
+
+    @Override
+    public Object dynamicGet(int dynamicFeatureID) {
+        byte type = layout.types[dynamicFeatureID];
+        if (type == Layout.VALUE) {
+            return values[layout.offsets[dynamicFeatureID]];
+        }
+        return type != Layout.NONE ? Layout.decode(type, layout.get(bits, dynamicFeatureID)) : null;
+    }
+
+    @Override
+    public void dynamicSet(int dynamicFeatureID, Object newValue) {
+        byte type = layout.types[dynamicFeatureID];
+        if (type == Layout.VALUE) {
+            values[layout.offsets[dynamicFeatureID]] = newValue;
+        } else if (type != Layout.NONE) {
+            // The delegates store null for the default value.
+            layout.set(bits, dynamicFeatureID, newValue != null ? Layout.encode(type, newValue) : layout.defaultBits(dynamicFeatureID));
+        }
+    }
+
+    @Override
+    public void dynamicUnset(int dynamicFeatureID) {
+        dynamicSet(dynamicFeatureID, null);
+    }
+
+    // For the packed attributes, the delegates only box and unbox: eGet, eSet and eIsSet do it themselves.
+    @Override
+    public Object eGet(int featureID, boolean resolve, boolean coreType) {
+        byte type = packedType(featureID);
+        if (type != Layout.NONE) {
+            return Layout.decode(type, layout.get(bits, featureID));
+        }
+        return super.eGet(featureID, resolve, coreType);
+    }
+
+    @Override
+    public void eSet(int featureID, Object newValue) {
+        byte type = packedType(featureID);
+        if (type != Layout.NONE && newValue != null && !eNotificationRequired()) {
+            layout.set(bits, featureID, Layout.encode(type, newValue));
+            return;
+        }
+        super.eSet(featureID, newValue);
+    }
+
+    @Override
+    public boolean eIsSet(int featureID) {
+        // Floating-point values are compared with equals by the delegate, which tells NaNs apart by their bits.
+        byte type = packedType(featureID);
+        if (type != Layout.NONE && type != Layout.FLOAT && type != Layout.DOUBLE) {
+            return layout.get(bits, featureID) != layout.defaultBits(featureID);
+        }
+        return super.eIsSet(featureID);
+    }
+
+    /**
+     * @return The type of a packed attribute, NONE for any other feature ID, valid or not.
+     */
+    private byte packedType(int featureID) {
+        byte type = featureID >= 0 && featureID < layout.types.length ? layout.types[featureID] : Layout.NONE;
+        return type != Layout.VALUE ? type : Layout.NONE;
+    }
+
+    /**
+     * Where the value of each feature of an EClass is kept in its instances. Packed attributes are sorted by
+     * decreasing width, so that none crosses the boundary of a long.
+     */
+    static final class Layout {
+        /**
+         * No value: container references, whose value is the container of the object.
+         */
+        static final byte NONE = 0;
+        /**
+         * An element of the Object[]: any feature that is not packed.
+         */
+        static final byte VALUE = 1;
+        static final byte BOOLEAN = 2;
+        static final byte BYTE = 3;
+        static final byte CHAR = 4;
+        static final byte SHORT = 5;
+        static final byte INT = 6;
+        static final byte FLOAT = 7;
+        static final byte LONG = 8;
+        static final byte DOUBLE = 9;
+        // The number of bits of each packed type, by type.
+        private static final int[] WIDTHS = {0, 0, 1, 8, 16, 16, 32, 32, 64, 64};
+
+        final EClass eClass;
+        // By feature ID: the type of the value, and its index in the Object[] or its first bit in the long[].
+        final byte[] types;
+        private final int[] offsets;
+        private final long[] defaultBits;
+        private final int valueCount;
+
+        /**
+         * @param eClass The EClass. Its features must not change afterwards.
+         */
+        Layout(EClass eClass) {
+            this.eClass = eClass;
+            List<EStructuralFeature> features = eClass.getEAllStructuralFeatures();
+            types = new byte[features.size()];
+            offsets = new int[features.size()];
+
+            int valueCount = 0;
+            List<Integer> packed = new ArrayList<>();
+            for (int featureID = 0; featureID < features.size(); featureID++) {
+                EStructuralFeature feature = features.get(featureID);
+                if (feature instanceof EReference reference && reference.isContainer()) {
+                    types[featureID] = NONE;
+                } else if (isPackable(feature)) {
+                    types[featureID] = type(feature.getEType().getInstanceClass());
+                    packed.add(featureID);
+                } else {
+                    types[featureID] = VALUE;
+                    offsets[featureID] = valueCount++;
+                }
+            }
+            this.valueCount = valueCount;
+
+            packed.sort(Comparator.comparingInt((Integer featureID) -> WIDTHS[types[featureID]]).reversed());
+            int bitCount = 0;
+            for (int featureID : packed) {
+                offsets[featureID] = bitCount;
+                bitCount += WIDTHS[types[featureID]];
+            }
+            defaultBits = new long[(bitCount + 63) / 64];
+            for (int featureID : packed) {
+                Object defaultValue = features.get(featureID).getDefaultValue();
+                if (defaultValue != null) {
+                    set(defaultBits, featureID, encode(types[featureID], defaultValue));
+                }
+            }
+        }
+
+        /**
+         * @return true for the single-valued attributes of a primitive type the delegate keeps no other state for:
+         * not unsettable, derived, volatile or delegated.
+         */
+        private static boolean isPackable(EStructuralFeature feature) {
+            Class<?> instanceClass = feature.getEType() != null ? feature.getEType().getInstanceClass() : null;
+            return instanceClass != null && instanceClass.isPrimitive() && !feature.isMany() && !feature.isUnsettable()
+                    && !feature.isDerived() && !feature.isVolatile() && EcoreUtil.getSettingDelegateFactory(feature) == null;
+        }
+
+        private static byte type(Class<?> primitive) {
+            if (primitive == boolean.class) {
+                return BOOLEAN;
+            } else if (primitive == byte.class) {
+                return BYTE;
+            } else if (primitive == char.class) {
+                return CHAR;
+            } else if (primitive == short.class) {
+                return SHORT;
+            } else if (primitive == int.class) {
+                return INT;
+            } else if (primitive == float.class) {
+                return FLOAT;
+            } else if (primitive == long.class) {
+                return LONG;
+            } else if (primitive == double.class) {
+                return DOUBLE;
+            }
+            throw new IllegalArgumentException("Not a primitive type: " + primitive);
+        }
+
+        /**
+         * @return The bits of a packed value, in the low bits of a long.
+         */
+        long get(long[] bits, int featureID) {
+            int offset = offsets[featureID];
+            int width = WIDTHS[types[featureID]];
+            long word = bits[offset >>> 6];
+            return width == 64 ? word : (word >>> (offset & 63)) & ((1L << width) - 1);
+        }
+
+        void set(long[] bits, int featureID, long value) {
+            int offset = offsets[featureID];
+            int width = WIDTHS[types[featureID]];
+            if (width == 64) {
+                bits[offset >>> 6] = value;
+            } else {
+                long mask = ((1L << width) - 1) << (offset & 63);
+                bits[offset >>> 6] = (bits[offset >>> 6] & ~mask) | ((value << (offset & 63)) & mask);
+            }
+        }
+
+        long defaultBits(int featureID) {
+            return get(defaultBits, featureID);
+        }
+
+        /**
+         * @return The bits of a value. As with the delegates, a value of the wrong class is a ClassCastException.
+         */
+        static long encode(byte type, Object value) {
+            return switch (type) {
+                case BOOLEAN -> (Boolean) value ? 1 : 0;
+                case BYTE -> (Byte) value;
+                case CHAR -> (Character) value;
+                case SHORT -> (Short) value;
+                case INT -> (Integer) value;
+                case FLOAT -> Float.floatToRawIntBits((Float) value);
+                case LONG -> (Long) value;
+                case DOUBLE -> Double.doubleToRawLongBits((Double) value);
+                default -> throw new IllegalArgumentException("Not a packed type: " + type);
+            };
+        }
+
+        /**
+         * @return The boxed value of bits, which narrowing sign-extends back from the low bits.
+         */
+        static Object decode(byte type, long bits) {
+            return switch (type) {
+                case BOOLEAN -> bits != 0;
+                case BYTE -> (byte) bits;
+                case CHAR -> (char) bits;
+                case SHORT -> (short) bits;
+                case INT -> (int) bits;
+                case FLOAT -> Float.intBitsToFloat((int) bits);
+                case LONG -> bits;
+                case DOUBLE -> Double.longBitsToDouble(bits);
+                default -> throw new IllegalArgumentException("Not a packed type: " + type);
+            };
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.khachouch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+
+/**
+ * Captures what a piece of work prints to {@code System.out} or {@code System.err}, without affecting the other
+ * threads. The first capture of a stream replaces it once with a stream that writes to the capture of the current
+ * thread, if any, and to the previous stream otherwise; it is never swapped back, so concurrent captures cannot
+ * restore each other's streams. A capture can be opened on several threads, e.g. by the workers of a parallel
+ * generation, and collects the output of all of them.
+ */
+final class ConsoleCapture {
+
+    /**
+     * The standard stream a capture takes over.
+     */
+    enum Stream {
+        OUT, ERR;
+
+        private final ThreadLocal<ConsoleCapture> current = new ThreadLocal<>();
+        private DemultiplexingStream installed;
+
+        private PrintStream get() {
+            return this == OUT ? System.out : System.err;
+        }
+
+        private void set(PrintStream stream) {
+            if (this == OUT) {
+                System.setOut(stream);
+            } else {
+                System.setErr(stream);
+            }
+        }
+
+        private synchronized void install() {
+            // Install again if someone replaced the stream since; their stream becomes the fallback.
+            if (get() != installed) {
+                installed = new DemultiplexingStream(this, get());
+                set(installed);
+            }
+        }
+    }
+
+    private final Stream stream;
+    private final OutputStream sink;
+
+    /**
+     * Creates a capture collecting the output in memory, see {@link #getOutput()}.
+     *
+     * @param stream The stream to capture.
+     */
+    ConsoleCapture(Stream stream) {
+        this(stream, new ByteArrayOutputStream());
+    }
+
+    /**
+     * Creates a capture forwarding the output as it is written.
+     *
+     * @param stream The stream to capture.
+     * @param sink   Where to write the output; it must be safe to use from every thread the capture is opened on.
+     */
+    ConsoleCapture(Stream stream, OutputStream sink) {
+        this.stream = stream;
+        this.sink = sink;
+    }
+
+    /**
+     * @param stream A standard stream.
+     * @return The capture of that stream open on the current thread, or null.
+     */
+    static ConsoleCapture current(Stream stream) {
+        return stream.current.get();
+    }
+
+    /**
+     * Redirects the output of the current thread to this capture until the scope is closed.
+     * Scopes can be nested; closing one restores the capture that was open before it.
+     *
+     * @return The scope to close when the captured work is done.
+     */
+    Scope open() {
+        stream.install();
+        ConsoleCapture previous = stream.current.get();
+        stream.current.set(this);
+        return () -> {
+            if (previous == null) {
+                stream.current.remove();
+            } else {
+                stream.current.set(previous);
+            }
+        };
+    }
+
+    /**
+     * @return Everything captured so far, or an empty string if the output is forwarded to a sink.
+     */
+    String getOutput() {
+        return sink instanceof ByteArrayOutputStream buffer ? buffer.toString(Charset.defaultCharset()) : "";
+    }
+
+    /**
+     * Closes a capture scope without throwing checked exceptions.
+     */
+    interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class DemultiplexingStream extends PrintStream {
+        DemultiplexingStream(Stream stream, PrintStream fallback) {
+            super(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    target(stream, fallback).write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    target(stream, fallback).write(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    target(stream, fallback).flush();
+                }
+            }, true, Charset.defaultCharset());
+        }
+
+        private static OutputStream target(Stream stream, PrintStream fallback) {
+            ConsoleCapture capture = stream.current.get();
+            return capture == null ? fallback : capture.sink;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The class diagram operations of {@link EcoreUtilsImpl}, which documents them.
+ * Created on the first of these calls, so that PlantUML and its rendering threads are only set up by the instances drawing diagrams.
+ * PlantUML needs the JVM to be started with {@code --add-exports java.desktop/com.sun.imageio.plugins.png=ALL-UNNAMED}.
+ */
+final class DiagramSupport {
+    private final EcoreUtilsImpl ecoreUtils;
+    private final EmfSession session;
+    private final PlantUMLDiagramRenderer diagramRenderer;
+
+    DiagramSupport(EcoreUtilsImpl ecoreUtils) {
+        this.ecoreUtils = ecoreUtils;
+        this.session = ecoreUtils.getSession();
+
+        // Rendered diagrams are only cached on disk when a cache directory is given.
+        String cacheDirectory = System.getProperty(PlantUMLDiagramRenderer.CACHE_PROPERTY);
+        diagramRenderer = new PlantUMLDiagramRenderer(Runtime.getRuntime().availableProcessors(),
+                cacheDirectory != null ? Path.of(cacheDirectory) : null);
+    }
+
+    boolean ConvertEcoreToUML(String ecoreFilePath, String svgFilePath) {
+        Monitor monitor = ecoreUtils.beginOperation("ConvertEcoreToUML", 3);
+        try {
+            // Step 1: Load the Ecore model from the specified file
+            monitor.subTask("parse");
+            String plantUMLText;
+            try (EmfSession.Lease lease = session.acquire()) {
+                Resource ecoreResource = lease.getResourceSet().getResource(URI.createFileURI(new File(ecoreFilePath).getAbsolutePath()), true);
+
+                // Step 2: Generate PlantUML text from the Ecore model
+                monitor.subTask("generate");
+                plantUMLText = generatePlantUMLTextFromEcore(ecoreResource);
+            }
+
+            // Step 3: Use PlantUML to generate an SVG diagram from the PlantUML text
+            monitor.subTask("render");
+            return generateSVGFromPlantUML(plantUMLText, svgFilePath);
+        } finally {
+            monitor.done();
+        }
+    }
+
+    /**
+     * Generates PlantUML text from an Ecore model resource.
+     *
+     * @param ecoreResource The Ecore model resource to be converted to PlantUML text.
+     * @return A string containing the PlantUML representation of the Ecore model.
+     */
+    private String generatePlantUMLTextFromEcore(Resource ecoreResource) {
+        // Collect the top-level packages of the resource; each is drawn with its classes
+        List<EPackage> ePackages = new ArrayList<>();
+        for (EObject eObject : ecoreResource.getContents()) {
+            if (eObject instanceof EPackage) {
+                ePackages.add((EPackage) eObject);
+            }
+        }
+
+        // Return the constructed PlantUML text
+        return PlantUMLDiagramRenderer.toPlantUML(ePackages);
+    }
+
+    private boolean generateSVGFromPlantUML(String plantUMLText, String svgFilePath) {
+        // The renderer reuses the cached SVG if the same text was rendered before
+        return diagramRenderer.render(plantUMLText, Path.of(svgFilePath));
+    }
+
+    boolean ConvertEcoreToUMLPartitioned(String ecoreFilePath, String svgDirectory, PlantUMLDiagramRenderer.Partitioning partitioning) {
+        Monitor monitor = ecoreUtils.beginOperation("ConvertEcoreToUMLPartitioned", 3);
+        try {
+            monitor.subTask("parse");
+            Map<String, String> diagrams;
+            try (EmfSession.Lease lease = session.acquire()) {
+                Resource ecoreResource = lease.getResourceSet().getResource(URI.createFileURI(new File(ecoreFilePath).getAbsolutePath()), true);
+
+                monitor.subTask("generate");
+                List<EPackage> ePackages = new ArrayList<>();
+                for (EObject eObject : ecoreResource.getContents()) {
+                    if (eObject instanceof EPackage) {
+                        ePackages.add((EPackage) eObject);
+                    }
+                }
+                diagrams = PlantUMLDiagramRenderer.partition(ePackages, partitioning);
+            }
+
+            monitor.subTask("render");
+            return diagramRenderer.render(diagrams, Path.of(svgDirectory));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            monitor.done();
+        }
+    }
+
+    boolean ConvertEcoreToUMLFocused(String ecoreFilePath, String className, int hops, String svgFilePath) {
+        Monitor monitor = ecoreUtils.beginOperation("ConvertEcoreToUMLFocused", 3);
+        try {
+            monitor.subTask("parse");
+            String plantUMLText;
+            try (EmfSession.Lease lease = session.acquire()) {
+                Resource ecoreResource = lease.getResourceSet().getResource(URI.createFileURI(new File(ecoreFilePath).getAbsolutePath()), true);
+
+                monitor.subTask("generate");
+                EClass center = findEClass(ecoreResource, className);
+                if (center == null) {
+                    System.err.println("Class not found in " + ecoreFilePath + ": " + className);
+                    return false;
+                }
+                plantUMLText = PlantUMLDiagramRenderer.focus(center, hops);
+            }
+
+            monitor.subTask("render");
+            return generateSVGFromPlantUML(plantUMLText, svgFilePath);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            monitor.done();
+        }
+    }
+
+    /**
+     * Finds a class by name in the packages of a resource.
+     *
+     * @param ecoreResource The resource containing the packages.
+     * @param className     The class name, optionally prefixed by the names of its packages separated by dots.
+     * @return The first matching class, or null.
+     */
+    private EClass findEClass(Resource ecoreResource, String className) {
+        for (EObject eObject : ecoreResource.getContents()) {
+            if (eObject instanceof EPackage ePackage) {
+                MetamodelIndex index = MetamodelIndex.get(ePackage);
+                EClass eClass = index.getEClass(className);
+                if (eClass != null) {
+                    return eClass;
+                }
+                for (EClassifier classifier : index.getClassifiersByName(className)) {
+                    if (classifier instanceof EClass) {
+                        return (EClass) classifier;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
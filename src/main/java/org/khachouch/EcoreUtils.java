@@ -1,16 +1,52 @@
 package org.khachouch;
 
 import org.eclipse.emf.codegen.ecore.genmodel.GenModel;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
 
 public interface EcoreUtils {
     public boolean isEcoreModel(String path);
     public boolean ConvertXSDToEcore(String xsdUri, String ecoreUri);
     public GenModel ConvertEcoreToGenModel(String ecorePath, String genDirectory, String genModelFileName, String javaGenDirectory, String basePackage);
     public boolean GenModelToJava(GenModel genModel, String genPath);
+    public GenerationResult GenModelToJavaWithResult(GenModel genModel, String genPath);
+    public boolean GenModelToJavaIncremental(GenModel genModel, String genPath);
+    public boolean GenModelToJavaParallel(GenModel genModel, String genPath, int threads);
     public boolean validateModel(String modelString, String metaModelPath);
+    public boolean validateModel(Path modelPath, String metaModelPath);
+    public boolean validateModel(InputStream modelStream, String metaModelPath);
+    public boolean validateModel(ReadableByteChannel modelChannel, String metaModelPath);
+    public ValidationReport getValidationReport(Path modelPath, String metaModelPath, ValidationEngine engine);
     public boolean saveModelAfterVerification(String modelString, String metaModelPath, String xmiFilePath);
+    public boolean saveModelAfterVerification(Path modelPath, String metaModelPath, String xmiFilePath);
+    public boolean saveModelAfterVerification(InputStream modelStream, String metaModelPath, String xmiFilePath);
+    public boolean saveModelAfterVerification(ReadableByteChannel modelChannel, String metaModelPath, String xmiFilePath);
+    public boolean saveModelAfterVerification(Path modelPath, String metaModelPath, String xmiFilePath, FragmentationPolicy policy);
+    public FragmentedModel loadFragmentedModel(String modelFilePath, String metaModelPath, int maxLoadedFragments);
+    public ModelStatistics scanModel(Path modelPath, String metaModelPath);
+    public boolean scanModel(Path modelPath, String metaModelPath, ModelScanListener listener);
+    public MetamodelIndex getMetamodelIndex(String ecoreFilePath);
+    public EClassifier findClassifier(String ecoreFilePath, String qualifiedName);
+    public List<EClass> getAllSubtypes(String ecoreFilePath, String qualifiedClassName);
+    public List<EReference> getIncomingReferences(String ecoreFilePath, String qualifiedClassName);
+    public ModelFingerprint getModelFingerprint(String ecoreFilePath);
+    public ModelDiff diffModels(String previousEcoreFilePath, String ecoreFilePath);
     public void PrintEcoreStructure(String ecoreFilePath);
     public boolean ConvertEcoreToXMI(String ecorePath, String xmiDestinationPath);
+    public boolean ConvertXMIToBinary(String xmiFilePath, String binaryFilePath, String metaModelPath);
+    public boolean ConvertBinaryToXMI(String binaryFilePath, String xmiFilePath, String metaModelPath);
+    public EObject loadBinaryModel(String binaryFilePath, String metaModelPath);
+    public boolean saveBinaryModel(EObject modelRoot, String binaryFilePath);
     public boolean ConvertEcoreToXSD(String ecoreFilePath, String xsdFilePath);
     public boolean ConvertEcoreToUML(String ecoreFilePath, String svgFilePath);
+    public boolean ConvertEcoreToUMLPartitioned(String ecoreFilePath, String svgDirectory, PlantUMLDiagramRenderer.Partitioning partitioning);
+    public boolean ConvertEcoreToUMLFocused(String ecoreFilePath, String className, int hops, String svgFilePath);
+    public MonitorMetrics getMetrics();
 }
@@ -0,0 +1,155 @@
+package org.khachouch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Forwards a command line to an {@link EcoreUtilsServer} and prints its output as if the command ran locally.
+ * The client only uses JDK classes, so it starts in a fraction of the time of a JVM loading EMF:
+ * <pre>
+ * java -cp ecoreutils.jar org.khachouch.EcoreUtilsClient ecore2xsd model.ecore model.xsd
+ * java -cp ecoreutils.jar org.khachouch.EcoreUtilsClient 7411 ecore2xsd model.ecore model.xsd
+ * </pre>
+ * Without an address, the client connects to the server's default Unix-domain socket ({@link #defaultSocket()}).
+ * For a loopback port, it sends the token the server wrote to {@link #tokenFile(int)}, which only the user who
+ * started the server can read. The exit code is the command's, or 3 if the server cannot be reached.
+ */
+public class EcoreUtilsClient {
+    /**
+     * Exit code when the server cannot be reached or the connection breaks.
+     */
+    public static final int UNREACHABLE = 3;
+
+    public static void main(String[] args) {
+        int first = args.length > 0 && isAddress(args[0]) ? 1 : 0;
+        if (args.length <= first) {
+            // Commands.USAGE_TEXT and Commands.USAGE are constants, so Commands itself is not loaded.
+            System.err.println("Usage: EcoreUtilsClient [port|socketFile] <command> [arguments...]");
+            System.err.println(Commands.USAGE_TEXT);
+            System.exit(Commands.USAGE);
+        }
+        String address = first == 1 ? args[0] : defaultSocket().toString();
+        String[] command = new String[args.length - first];
+        System.arraycopy(args, first, command, 0, command.length);
+        System.exit(send(address, Path.of("").toAbsolutePath(), command, System.out, System.err));
+    }
+
+    /**
+     * @return The Unix-domain socket a server started without an address listens on.
+     */
+    public static Path defaultSocket() {
+        return PrivateFiles.stateDirectory().resolve("server.sock");
+    }
+
+    /**
+     * @param port The loopback port of a server.
+     * @return The file holding the token that requests to the server on that port must start with.
+     */
+    public static Path tokenFile(int port) {
+        return PrivateFiles.stateDirectory().resolve("server-" + port + ".token");
+    }
+
+    /**
+     * @return true if the first argument of the client is an address: a port number or a path with a separator
+     * (a socket file in the working directory is given as {@code ./name}); command names are neither.
+     */
+    private static boolean isAddress(String argument) {
+        return argument.matches("\\d+") || argument.contains("/") || argument.contains(File.separator);
+    }
+
+    /**
+     * Turns an address argument into a socket address: a number is a TCP port on the loopback interface,
+     * anything else the path of a Unix-domain socket file.
+     *
+     * @param address The address argument.
+     * @return The socket address.
+     */
+    public static SocketAddress parseAddress(String address) {
+        if (address.matches("\\d+")) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+        }
+        return UnixDomainSocketAddress.of(address);
+    }
+
+    /**
+     * Sends one command to a server.
+     *
+     * @param address          A port number on the loopback interface or the path of a Unix-domain socket file.
+     * @param workingDirectory The directory relative paths in the command are resolved against.
+     * @param command          The command name followed by its arguments.
+     * @param out              Where the command's standard output is printed.
+     * @param err              Where the command's standard error is printed.
+     * @return The exit code of the command, {@link Commands#USAGE} if an argument cannot be sent, or
+     * {@link #UNREACHABLE}.
+     */
+    public static int send(String address, Path workingDirectory, String[] command, PrintStream out, PrintStream err) {
+        // The protocol is line-based: a line break would split an argument, or smuggle in another one.
+        for (String argument : command) {
+            if (argument.indexOf('\n') >= 0 || argument.indexOf('\r') >= 0) {
+                err.println("Arguments sent to the EcoreUtils server cannot contain line breaks");
+                return Commands.USAGE;
+            }
+        }
+        if (workingDirectory.toString().indexOf('\n') >= 0 || workingDirectory.toString().indexOf('\r') >= 0) {
+            err.println("The working directory cannot be sent to the EcoreUtils server: its path contains a line break");
+            return Commands.USAGE;
+        }
+        SocketAddress socketAddress = parseAddress(address);
+        try (SocketChannel channel = socketAddress instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open()) {
+            String token = null;
+            if (socketAddress instanceof InetSocketAddress inetAddress) {
+                Path tokenFile = tokenFile(inetAddress.getPort());
+                try {
+                    token = Files.readString(tokenFile, StandardCharsets.UTF_8).trim();
+                } catch (IOException e) {
+                    err.println("Cannot read the token of the EcoreUtils server at " + address + " from " + tokenFile + ": " + e);
+                    return UNREACHABLE;
+                }
+            }
+            channel.connect(socketAddress);
+            Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+            if (token != null) {
+                writer.write(token + "\n");
+            }
+            writer.write(workingDirectory.toAbsolutePath() + "\n");
+            writer.write(command.length + "\n");
+            for (String argument : command) {
+                writer.write(argument + "\n");
+            }
+            writer.flush();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("1 ")) {
+                    out.println(line.substring(2));
+                } else if (line.startsWith("2 ")) {
+                    err.println(line.substring(2));
+                } else if (line.startsWith("= ")) {
+                    return Integer.parseInt(line.substring(2));
+                }
+            }
+            err.println("The EcoreUtils server closed the connection before the command completed");
+            return UNREACHABLE;
+        } catch (IOException e) {
+            err.println("Cannot reach the EcoreUtils server at " + address + ": " + e.getMessage());
+            return UNREACHABLE;
+        }
+    }
+}
@@ -1,60 +1,128 @@
 package org.khachouch;
 
-import net.sourceforge.plantuml.FileFormat;
-import net.sourceforge.plantuml.FileFormatOption;
-import net.sourceforge.plantuml.SourceStringReader;
+import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.core.Logger;
-import org.eclipse.emf.codegen.ecore.generator.Generator;
-import org.eclipse.emf.codegen.ecore.genmodel.*;
-import org.eclipse.emf.codegen.ecore.genmodel.generator.GenBaseGeneratorAdapter;
-import org.eclipse.emf.codegen.merge.java.JControlModel;
+import org.eclipse.emf.codegen.ecore.genmodel.GenModel;
 import org.eclipse.emf.common.util.Diagnostic;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.*;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
 import org.eclipse.emf.ecore.resource.impl.ExtensibleURIConverterImpl;
-import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
-import org.eclipse.emf.ecore.util.Diagnostician;
-import org.eclipse.emf.ecore.xmi.impl.EcoreResourceFactoryImpl;
-import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
-import org.eclipse.uml2.uml.Model;
-import org.eclipse.uml2.uml.PackageableElement;
-import org.eclipse.uml2.uml.UMLFactory;
-import org.eclipse.uml2.uml.internal.resource.UMLResourceFactoryImpl;
-import org.eclipse.xsd.*;
-import org.eclipse.xsd.ecore.EcoreSchemaBuilder;
-import org.eclipse.xsd.ecore.XSDEcoreBuilder;
-import org.eclipse.xsd.util.XSDResourceFactoryImpl;
 
 import java.io.*;
 import java.util.*;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class EcoreUtilsImpl implements EcoreUtils {
     private final ExtensibleURIConverterImpl converter;
+    private final EmfSession session;
     private static Logger logger;
-    private Monitor monitor;
+    private final MonitorMetrics metrics;
+
+    // Each capability links a large library (EMF codegen, XSD, PlantUML) and is only set up on first use,
+    // so that a call to e.g. isEcoreModel does not load the others.
+    private final Lazy<CodegenSupport> codegen = new Lazy<>(() -> new CodegenSupport(this));
+    private final Lazy<XsdSupport> xsd = new Lazy<>(() -> new XsdSupport(this));
+    private final Lazy<DiagramSupport> diagram = new Lazy<>(() -> new DiagramSupport(this));
+    private final Lazy<ValidationSupport> validation = new Lazy<>(() -> new ValidationSupport(this));
+    // Validates the models of isEcoreModel, validateModel and saveModelAfterVerification.
+    private final ValidationEngine validationEngine = new ValidationEngine();
 
     public EcoreUtilsImpl() {
+        this(new EmfSession());
+    }
+
+    /**
+     * Creates an instance drawing its ResourceSets and registries from the given session.
+     *
+     * @param session The session to share, e.g. between several EcoreUtilsImpl instances.
+     */
+    public EcoreUtilsImpl(EmfSession session) {
+        this(session, new MonitorMetrics());
+    }
+
+    /**
+     * Creates an instance drawing its ResourceSets from the given session and recording the duration
+     * of its operations and their phases in the given metrics.
+     *
+     * @param session The session to share, e.g. between several EcoreUtilsImpl instances.
+     * @param metrics The histograms receiving the spans of every operation.
+     */
+    public EcoreUtilsImpl(EmfSession session, MonitorMetrics metrics) {
 
         logger = (Logger) LogManager.getLogger(EcoreUtilsImpl.class);
 
+        this.session = session;
+        this.metrics = metrics;
+
         converter = new ExtensibleURIConverterImpl();
-        // Enregistrer la fabrique de ressource XMI pour le format Ecore
-        monitor = new Monitor(logger);
+    }
+
+    /**
+     * @return The latency histograms of the operations of this instance and of their phases.
+     */
+    public MonitorMetrics getMetrics() {
+        return metrics;
+    }
+
+    EmfSession getSession() {
+        return session;
+    }
+
+    ValidationEngine getValidationEngine() {
+        return validationEngine;
+    }
+
+    /**
+     * Starts the monitor of one operation call. The operation reports its phases (parse, validate, generate, save, ...)
+     * as subtasks and must call {@link Monitor#done()} when it returns.
+     *
+     * @param operation The name of the operation.
+     * @param phases    The number of phases the operation reports.
+     * @param level     The level at which the operation and its phases are logged.
+     * @return The monitor, with the operation's task begun.
+     */
+    Monitor beginOperation(String operation, int phases, Level level) {
+        Monitor monitor = new Monitor(logger, metrics, level);
+        monitor.beginTask(operation, phases);
+        return monitor;
+    }
+
+    Monitor beginOperation(String operation, int phases) {
+        return beginOperation(operation, phases, Level.DEBUG);
     }
 
     /**
      * Prints the validation issues found in the Ecore model.
      *
-     * @param diagnostic The Diagnostic object containing the validation issues.
+     * @param report The report containing the validation issues.
+     */
+    private static void printValidationIssues(ValidationReport report) {
+        for (ValidationReport.Issue issue : report.getIssues()) {
+            System.out.println("Severity: " + issue.severity());
+            System.out.println("Message: " + issue.message());
+        }
+    }
+
+    /**
+     * Registers a metamodel in a ResourceSet so that instance models can be read.
+     * The metamodel is taken from the session's {@link MetaModelCache}, which only loads it again when the file changes.
+     *
+     * @param resourceSet   The ResourceSet that will load the instance model.
+     * @param metaModelPath The path to the metamodel file, or null for models that only use registered packages.
+     * @throws IOException if the metamodel cannot be loaded.
      */
-    private static void printValidationIssues(Diagnostic diagnostic) {
-        for (Diagnostic issue : diagnostic.getChildren()) {
-            System.out.println("Severity: " + issue.getSeverity());
-            System.out.println("Message: " + issue.getMessage());
+    void registerMetaModel(ResourceSet resourceSet, String metaModelPath) throws IOException {
+        if (metaModelPath == null) {
+            return;
         }
+        session.getMetaModelCache().register(resourceSet, metaModelPath);
     }
 
     /**
@@ -63,32 +131,34 @@ public class EcoreUtilsImpl implements EcoreUtils {
      * @param ecoreFilePath The path to the Ecore file to be validated.
      */
     public boolean isEcoreModel(String ecoreFilePath) {
-        try {
+        Monitor monitor = beginOperation("isEcoreModel", 2);
+        try (EmfSession.Lease lease = session.acquire()) {
             // Load the Ecore file as an EMF Resource
-            ResourceSet resourceSet = new ResourceSetImpl();
-            resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("ecore", new EcoreResourceFactoryImpl());
-            resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("genmodel", new EcoreResourceFactoryImpl());
-            resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xmi", new XMIResourceFactoryImpl());
-            resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xsd", new XSDResourceFactoryImpl());
+            ResourceSet resourceSet = lease.getResourceSet();
 
-            Resource ecoreResource = resourceSet.getResource(URI.createFileURI(ecoreFilePath), true);
+            monitor.subTask("parse");
+            // The referenced Ecore files are loaded concurrently rather than one by one as validation reaches them
+            Resource ecoreResource = session.loadClosure(resourceSet, URI.createFileURI(ecoreFilePath));
 
             // Validate the Ecore model
-            Diagnostic diagnostic = Diagnostician.INSTANCE.validate(ecoreResource.getContents().get(0));
+            monitor.subTask("validate");
+            ValidationReport report = validationEngine.validate(ecoreResource.getContents().get(0));
 
             // Check the validation result
-            if (diagnostic.getSeverity() == Diagnostic.OK) {
+            if (report.getSeverity() == Diagnostic.OK) {
                 System.out.println("The Ecore file is valid.");
                 return true;
             } else {
                 System.out.println("The Ecore file is invalid.");
-                printValidationIssues(diagnostic);
+                printValidationIssues(report);
                 return false;
             }
         } catch (Exception e) {
             System.out.println("Error loading or validating the Ecore file: " + e.getMessage());
             e.printStackTrace();
             return false;
+        } finally {
+            monitor.done();
         }
     }
 
@@ -100,40 +170,7 @@ public class EcoreUtilsImpl implements EcoreUtils {
      * @return
      */
     public boolean ConvertXSDToEcore(String xsdUri, String ecoreUri) {
-        // Create an XSDEcoreBuilder object to handle the conversion from XSD to Ecore
-        XSDEcoreBuilder xsdEcoreBuilder = new XSDEcoreBuilder();
-
-        // Create a URI object from the XSD file path
-        // This URI will be used to locate the XSD file
-        URI xsdURI = URI.createURI(xsdUri);
-
-        // Generate a collection of Ecore packages from the XSD file
-        // The XSDEcoreBuilder processes the XSD and produces corresponding Ecore packages
-        Collection ecorePackages = xsdEcoreBuilder.generate(xsdURI);
-
-        // Create a URI object from the Ecore file path
-        // This URI will be used to specify where the Ecore model will be saved
-        URI ecoreURI = URI.createURI(ecoreUri);
-
-        // Create an Ecore resource from the URI
-        ResourceSet resourceSet = new ResourceSetImpl();
-        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("ecore", new EcoreResourceFactoryImpl());
-        Resource ecoreResource = resourceSet.createResource(ecoreURI);
-
-        // Add the generated Ecore packages to the resource
-        // This step integrates the Ecore packages into the resource for saving
-        ecoreResource.getContents().addAll(ecorePackages);
-
-        // Save the Ecore resource to the specified location
-        try {
-            ecoreResource.save(null);
-            return true;
-        } catch (IOException e) {
-            // Print an error message if saving the Ecore model fails
-            System.err.println("ERROR saving the Ecore model: " + e);
-            e.printStackTrace();
-            return false;
-        }
+        return xsd.get().ConvertXSDToEcore(xsdUri, ecoreUri);
     }
 
     /**
@@ -147,140 +184,76 @@ public class EcoreUtilsImpl implements EcoreUtils {
      * @return The generated GenModel object.
      */
     public GenModel ConvertEcoreToGenModel(String ecorePath, String genDirectory, String genModelFileName, String javaGenDirectory, String basePackage) {
-        // Create a ResourceSet, which manages a set of related resources (models).
-        ResourceSet resourceSet = new ResourceSetImpl();
-
-        // Register factories for different file extensions to handle model files.
-        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("ecore", new EcoreResourceFactoryImpl());
-        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("genmodel", new EcoreResourceFactoryImpl());
-        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xmi", new XMIResourceFactoryImpl());
-        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xsd", new XSDResourceFactoryImpl());
-
-        // Map "platform:/resource/" URIs to a local file path for resolving references.
-        resourceSet.getURIConverter().getURIMap().put(
-                URI.createURI("platform:/resource/"),
-                URI.createFileURI(new File(javaGenDirectory) + File.separator)
-        );
-
-        // Register the GenModel package in the package registry of the ResourceSet.
-        resourceSet.getPackageRegistry().put(GenModelPackage.eNS_URI, GenModelPackage.eINSTANCE);
-
-        // Load the Ecore model from the specified path.
-        URI ecoreURI = URI.createURI(ecorePath, true); // Create a URI for the Ecore file.
-        Resource resource = resourceSet.getResource(ecoreURI, true); // Load the Ecore resource.
-        EPackage ePackage = (EPackage) resource.getContents().get(0); // Get the root EPackage.
-
-        // Create a new GenModel instance.
-        GenModel genModel = GenModelFactory.eINSTANCE.createGenModel();
-        genModel.getForeignModel().add(ecorePath); // Reference the Ecore file in the GenModel.
-        genModel.initialize(Collections.singleton(ePackage)); // Initialize the GenModel with the EPackage.
-
-        // Set basic properties for the GenModel.
-        genModel.setModelDirectory(genDirectory); // Directory where generated models will be saved.
-        String modelName = ePackage.getNsPrefix(); // Use the EPackage namespace prefix as the model name.
-        genModel.setModelName(modelName);
-        genModel.setComplianceLevel(GenJDKLevel.JDK210_LITERAL); // Set Java compliance level to JDK 21.
-        genModel.setUpdateClasspath(false); // Do not update classpath automatically.
-        genModel.setGenerateSchema(true); // Enable schema generation.
-        genModel.setCanGenerate(true); // Allow the GenModel to be generated.
-
-        // Iterate through the GenPackages to set proper base package names and prefixes.
-        List<GenPackage> genPackages = genModel.getGenPackages().stream().toList();
-        for (GenPackage genPackage : genPackages) {
-            genPackage.setBasePackage(basePackage); // Set the base package for each GenPackage.
-
-            // Adjust the prefix for proper class naming.
-            genPackage.setPrefix(
-                    genPackage.getPrefix().lastIndexOf('.') != -1
-                            ? (genPackage.getPrefix().lastIndexOf('.', genPackage.getPrefix().lastIndexOf('.') - 1) != -1
-                            ? genPackage.getPrefix().substring(
-                            genPackage.getPrefix().lastIndexOf('.', genPackage.getPrefix().lastIndexOf('.') - 1) + 1,
-                            genPackage.getPrefix().lastIndexOf('.')
-                    )
-                            : (genPackage.getPrefix().lastIndexOf('.') != 0
-                            ? genPackage.getPrefix().substring(genPackage.getPrefix().lastIndexOf('.') + 1)
-                            : genPackage.getPrefix())
-                    )
-                            : genPackage.getPrefix()
-            );
-        }
+        return codegen.get().ConvertEcoreToGenModel(ecorePath, genDirectory, genModelFileName, javaGenDirectory, basePackage);
+    }
 
-        // Also update the base package of the first GenPackage explicitly.
-        GenPackage genPackage = genModel.getGenPackages().get(0);
-        genPackage.setBasePackage(basePackage);
-
-        // Save the GenModel to a file in the specified directory.
-        String genModelFilePath = genDirectory + "/" + genModelFileName + ".genmodel"; // Full path for the GenModel file.
-        URI genModelURI = URI.createURI(genModelFilePath, true); // Create a URI for the GenModel file.
-        Resource genModelResource = resourceSet.createResource(genModelURI); // Create a resource for the GenModel.
-        if (genModelResource == null) {
-            System.err.println("\tERROR: Could not create a resource for the URI: " + genModelFilePath);
-            return null; // Exit if the resource could not be created.
-        }
 
-        // Add the GenModel object to the resource contents.
-        genModelResource.getContents().add(genModel);
+    /**
+     * Validates a model against a given metamodel.
+     *
+     * @param modelString   The string representation of the model to be validated.
+     * @param metaModelPath The path to the metamodel file.
+     * @return true if the model is valid, false otherwise.
+     */
+    public boolean validateModel(String modelString, String metaModelPath) {
+        return validateModel(new ByteArrayInputStream(modelString.getBytes()), metaModelPath);
+    }
 
-        // Save the resource to persist the GenModel file.
-        try {
-            genModelResource.save(Collections.EMPTY_MAP); // Save with an empty options map.
+    /**
+     * Validates a model file against a given metamodel. The file is streamed from disk; its extension selects
+     * the format (binary for {@code .xmib}, XMI otherwise).
+     *
+     * @param modelPath     The path to the model file to be validated.
+     * @param metaModelPath The path to the metamodel file.
+     * @return true if the model is valid, false otherwise.
+     */
+    public boolean validateModel(Path modelPath, String metaModelPath) {
+        try (InputStream inputStream = Files.newInputStream(modelPath)) {
+            return validation.get().validateModel(inputStream, toFileURI(modelPath), metaModelPath);
         } catch (IOException e) {
-            e.printStackTrace(); // Print the exception stack trace if saving fails.
+            // Print the stack trace if the file cannot be opened
+            e.printStackTrace();
+            return false;
         }
-
-        // Return the generated GenModel object.
-        return genModel;
     }
 
+    /**
+     * Validates an XMI model read from a stream against a given metamodel. The stream is not closed.
+     *
+     * @param modelStream   The stream containing the model to be validated.
+     * @param metaModelPath The path to the metamodel file.
+     * @return true if the model is valid, false otherwise.
+     */
+    public boolean validateModel(InputStream modelStream, String metaModelPath) {
+        return validation.get().validateModel(modelStream, URI.createURI("src/main/resources/temp.xmi"), metaModelPath);
+    }
 
     /**
-     * Validates a model against a given metamodel.
+     * Validates an XMI model read from a channel against a given metamodel. The channel is not closed.
      *
-     * @param modelString   The string representation of the model to be validated.
+     * @param modelChannel  The channel containing the model to be validated.
      * @param metaModelPath The path to the metamodel file.
      * @return true if the model is valid, false otherwise.
      */
-    public boolean validateModel(String modelString, String metaModelPath) {
-        // Create a File object for the metamodel file
-        File file = new File(metaModelPath);
-        // Load the metamodel resource from the file
-        ResourceSet resourceSet = new ResourceSetImpl();
-        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("ecore", new EcoreResourceFactoryImpl());
-        Resource res = resourceSet.getResource(URI.createFileURI(file.getAbsolutePath()), true);
-        // Get the EPackage (metamodel) from the resource's contents
-        var metaModel = (EPackage) res.getContents().get(0);
-        // Register the metamodel in the package registry
-        resourceSet.getPackageRegistry().put(metaModel.getNsURI(), metaModel);
-
-        // Create a new resource for the model to be validated
-        Resource resource1 = resourceSet.createResource(URI.createURI("src/main/resources/temp.xmi"));
-        try {
-            // Load the model from the string representation
-            resource1.load(new java.io.ByteArrayInputStream(modelString.getBytes()), null);
-            // Get the root object of the model
-            EObject modelRoot = resource1.getContents().get(0);
-
-            // Create a Diagnostician to validate the model
-            Diagnostician diagnostician = new Diagnostician();
-            // Validate the model root object
-            Diagnostic diagnostic = diagnostician.validate(modelRoot);
-            // Check if the validation result indicates an error
-            boolean isValid = diagnostic.getSeverity() != Diagnostic.ERROR;
-            // If the model is not valid, print the diagnostic messages
-            if (!isValid) {
-                for (Diagnostic childDiagnostic : diagnostic.getChildren()) {
-                    System.out.println(childDiagnostic.getMessage());
-                }
-            }
-            // Return the validation result
-            return isValid;
-        } catch (Exception e) {
-            // Print the stack trace if an exception occurs
+    public boolean validateModel(ReadableByteChannel modelChannel, String metaModelPath) {
+        return validateModel(Channels.newInputStream(modelChannel), metaModelPath);
+    }
+
+    /**
+     * Validates a model file against a given metamodel and returns the issues found instead of printing them.
+     *
+     * @param modelPath     The path to the model file to be validated.
+     * @param metaModelPath The path to the metamodel file.
+     * @param engine        The engine validating the model, with its parallelism and limits.
+     * @return The report of the validation, or null if the model could not be loaded.
+     */
+    public ValidationReport getValidationReport(Path modelPath, String metaModelPath, ValidationEngine engine) {
+        try (InputStream inputStream = Files.newInputStream(modelPath)) {
+            return validation.get().getValidationReport(inputStream, toFileURI(modelPath), metaModelPath, engine);
+        } catch (IOException e) {
+            // Print the stack trace if the file cannot be opened
             e.printStackTrace();
-            return false;
-        } finally {
-            // Unload the resource to free up memory
-            resource1.unload();
+            return null;
         }
     }
 
@@ -293,61 +266,251 @@ public class EcoreUtilsImpl implements EcoreUtils {
      * @return true if the model is valid and saved successfully, false otherwise.
      */
     public boolean saveModelAfterVerification(String modelString, String metaModelPath, String xmiFilePath) {
-        // Validate the model against the metamodel
-        boolean isValid = validateModel(modelString, metaModelPath);
-        // Print the validation result
-        System.out.println("Le modèle est valide : " + isValid);
-
-        // If the model is valid, save it as an XMI file
-        if (isValid) {
-            // Create a new resource for the XMI file
-            ResourceSet resourceSet = new ResourceSetImpl();
-            resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("ecore", new EcoreResourceFactoryImpl());
-            Resource resource = resourceSet.createResource(URI.createURI(xmiFilePath));
-            try {
-                // Load the model from the string representation into the resource
-                resource.load(new ByteArrayInputStream(modelString.getBytes()), null);
-                // Save the resource to the specified XMI file path
-                resource.save(null);
-                // Print a success message
-                System.out.println("Fichier XMI sauvegardé avec succès à l'emplacement : " + xmiFilePath);
-                return true;
-            } catch (IOException e) {
-                // Print the stack trace if an exception occurs during saving
-                e.printStackTrace();
-                return false;
+        return saveModelAfterVerification(new ByteArrayInputStream(modelString.getBytes()), metaModelPath, xmiFilePath);
+    }
+
+    /**
+     * Validates a model file and saves it to the destination if valid. The file is streamed from disk and parsed
+     * once; its extension selects the input format, and the destination extension selects the output format.
+     *
+     * @param modelPath     The path to the model file to be validated and saved.
+     * @param metaModelPath The path to the metamodel file.
+     * @param xmiFilePath   The path where the model will be saved.
+     * @return true if the model is valid and saved successfully, false otherwise.
+     */
+    public boolean saveModelAfterVerification(Path modelPath, String metaModelPath, String xmiFilePath) {
+        try (InputStream inputStream = Files.newInputStream(modelPath)) {
+            return validation.get().saveModelAfterVerification(inputStream, toFileURI(modelPath), metaModelPath, xmiFilePath);
+        } catch (IOException e) {
+            // Print the stack trace if the file cannot be opened
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Validates a model file and saves it to the destination if valid, split into fragments: the containment subtrees
+     * chosen by the policy are saved as files of their own, in a directory next to the destination (e.g. the
+     * fragments of {@code model.xmi} go to {@code model.fragments/}). Use {@link #loadFragmentedModel} to read it
+     * back without loading all the fragments.
+     *
+     * @param modelPath     The path to the model file to be validated and saved.
+     * @param metaModelPath The path to the metamodel file.
+     * @param xmiFilePath   The path where the main resource of the model will be saved.
+     * @param policy        The policy choosing the subtrees saved as fragments.
+     * @return true if the model is valid and saved successfully, false otherwise.
+     */
+    public boolean saveModelAfterVerification(Path modelPath, String metaModelPath, String xmiFilePath, FragmentationPolicy policy) {
+        try (InputStream inputStream = Files.newInputStream(modelPath)) {
+            return validation.get().saveModelAfterVerification(inputStream, toFileURI(modelPath), metaModelPath, xmiFilePath, policy);
+        } catch (IOException e) {
+            // Print the stack trace if the file cannot be opened
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Validates an XMI model read from a stream and saves it to the destination if valid.
+     * The stream is parsed once and not closed.
+     *
+     * @param modelStream   The stream containing the model to be validated and saved.
+     * @param metaModelPath The path to the metamodel file.
+     * @param xmiFilePath   The path where the model will be saved.
+     * @return true if the model is valid and saved successfully, false otherwise.
+     */
+    public boolean saveModelAfterVerification(InputStream modelStream, String metaModelPath, String xmiFilePath) {
+        // The stream is always XML, so parse it through an XMI resource
+        URI modelURI = URI.createURI(xmiFilePath).trimFileExtension().appendFileExtension("xmi");
+        return validation.get().saveModelAfterVerification(modelStream, modelURI, metaModelPath, xmiFilePath);
+    }
+
+    /**
+     * Validates an XMI model read from a channel and saves it to the destination if valid.
+     * The channel is parsed once and not closed.
+     *
+     * @param modelChannel  The channel containing the model to be validated and saved.
+     * @param metaModelPath The path to the metamodel file.
+     * @param xmiFilePath   The path where the model will be saved.
+     * @return true if the model is valid and saved successfully, false otherwise.
+     */
+    public boolean saveModelAfterVerification(ReadableByteChannel modelChannel, String metaModelPath, String xmiFilePath) {
+        return saveModelAfterVerification(Channels.newInputStream(modelChannel), metaModelPath, xmiFilePath);
+    }
+
+    /**
+     * Runs a conversion through the session's {@link ArtifactCache}, if it has one: when the input was already
+     * converted the same way and neither it nor the files it references changed, the outputs are put back
+     * from the cache instead of being computed again.
+     *
+     * @param operation   The name of the conversion.
+     * @param libraries   Classes of the libraries doing the conversion besides EMF and EcoreUtils, for their versions.
+     * @param input       The path or file URI of the converted file.
+     * @param options     The other arguments of the conversion.
+     * @param outputs     The paths or file URIs of the files the conversion writes.
+     * @param computation The conversion.
+     * @return true if the outputs are in place, false if the conversion failed.
+     */
+    boolean cached(String operation, List<Class<?>> libraries, String input, Map<String, String> options,
+                   List<String> outputs, ArtifactCache.Computation computation) {
+        ArtifactCache cache = session.getArtifactCache();
+        Path inputPath = toLocalPath(input);
+        if (cache == null || inputPath == null || !Files.isRegularFile(inputPath)) {
+            return computation.run();
+        }
+        List<Path> outputPaths = new ArrayList<>();
+        for (String output : outputs) {
+            Path outputPath = toLocalPath(output);
+            if (outputPath == null) {
+                return computation.run();
             }
+            outputPaths.add(outputPath);
         }
-        return false;
+        List<Class<?>> allLibraries = new ArrayList<>(List.of(EcoreUtilsImpl.class, EObject.class));
+        allLibraries.addAll(libraries);
+        return cache.computeIfAbsent(operation, allLibraries, inputPath, options, outputPaths, computation);
     }
 
     /**
-     * Prints the structure of an Ecore model to the console, including packages, classifiers, and structural features.
+     * @return The local file of a path or file URI, or null for other URIs (e.g. http:).
+     */
+    private static Path toLocalPath(String location) {
+        if (location.startsWith("file:")) {
+            return Path.of(URI.createURI(location).toFileString());
+        }
+        // A single letter before the colon is a Windows drive, not a scheme.
+        if (location.matches("[A-Za-z][A-Za-z0-9+.-]+:.*")) {
+            return null;
+        }
+        return Path.of(location);
+    }
+
+    private static URI toFileURI(Path path) {
+        return URI.createFileURI(path.toAbsolutePath().toString());
+    }
+
+    /**
+     * Returns the index of an Ecore model, for repeated structure queries. The model is loaded through the
+     * metamodel cache, and the index is built on the first call and kept with the cached model.
      *
-     * @param ecoreFilePath The absolute or relative path to the input Ecore file.
+     * @param ecoreFilePath The path to the Ecore file.
+     * @return The index of the first root package of the file, or null if the file cannot be loaded.
      */
-    public void PrintEcoreStructure(String ecoreFilePath) {
-        try {
-            // Create a new ResourceSet to manage a set of related EMF resources.
-            ResourceSet resourceSet = new ResourceSetImpl();
+    public MetamodelIndex getMetamodelIndex(String ecoreFilePath) {
+        List<MetamodelIndex> indexes = getMetamodelIndexes(ecoreFilePath);
+        return indexes.isEmpty() ? null : indexes.get(0);
+    }
 
-            // Register a resource factory to handle .ecore files.
-            // This ensures that the Ecore file can be loaded and interpreted.
-            resourceSet.getResourceFactoryRegistry()
-                    .getExtensionToFactoryMap()
-                    .put("ecore", new EcoreResourceFactoryImpl());
+    /**
+     * Finds a classifier of an Ecore model by its qualified name.
+     *
+     * @param ecoreFilePath The path to the Ecore file.
+     * @param qualifiedName The package names and the classifier name separated by dots, e.g. {@code gastm.Expression}.
+     * @return The classifier, or null if there is none or the file cannot be loaded.
+     */
+    public EClassifier findClassifier(String ecoreFilePath, String qualifiedName) {
+        for (MetamodelIndex index : getMetamodelIndexes(ecoreFilePath)) {
+            EClassifier classifier = index.getClassifier(qualifiedName);
+            if (classifier != null) {
+                return classifier;
+            }
+        }
+        return null;
+    }
 
-            // Construct a URI object for the Ecore file.
-            // Convert the file path to an absolute path to ensure it is properly resolved.
-            URI ecoreURI = URI.createFileURI(new File(ecoreFilePath).getAbsolutePath());
+    /**
+     * Lists the classes of an Ecore model inheriting from a class, directly or not.
+     *
+     * @param ecoreFilePath      The path to the Ecore file.
+     * @param qualifiedClassName The qualified name of the class, e.g. {@code gastm.Expression}.
+     * @return The subtypes, nearest first, read-only; empty if the class does not exist or the file cannot be loaded.
+     */
+    public List<EClass> getAllSubtypes(String ecoreFilePath, String qualifiedClassName) {
+        for (MetamodelIndex index : getMetamodelIndexes(ecoreFilePath)) {
+            EClass eClass = index.getEClass(qualifiedClassName);
+            if (eClass != null) {
+                return index.getAllSubtypes(eClass);
+            }
+        }
+        return List.of();
+    }
 
-            // Load the Ecore resource from the specified URI.
-            Resource ecoreResource = resourceSet.getResource(ecoreURI, true);
+    /**
+     * Lists the references of an Ecore model whose type is a class.
+     *
+     * @param ecoreFilePath      The path to the Ecore file.
+     * @param qualifiedClassName The qualified name of the class, e.g. {@code gastm.Expression}.
+     * @return The references, read-only; empty if the class does not exist or the file cannot be loaded.
+     */
+    public List<EReference> getIncomingReferences(String ecoreFilePath, String qualifiedClassName) {
+        for (MetamodelIndex index : getMetamodelIndexes(ecoreFilePath)) {
+            EClass eClass = index.getEClass(qualifiedClassName);
+            if (eClass != null) {
+                return index.getIncomingReferences(eClass);
+            }
+        }
+        return List.of();
+    }
 
-            // Load the resource's contents. EMPTY_MAP indicates no additional load options.
-            ecoreResource.load(Collections.EMPTY_MAP);
+    private List<MetamodelIndex> getMetamodelIndexes(String ecoreFilePath) {
+        List<MetamodelIndex> indexes = new ArrayList<>();
+        try {
+            for (EPackage ePackage : session.getMetaModelCache().getPackages(ecoreFilePath)) {
+                indexes.add(MetamodelIndex.get(ePackage));
+            }
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+        return indexes;
+    }
+
+    /**
+     * Computes the structural fingerprint of an Ecore model, which only changes when the structure of the model does,
+     * not when the file is merely reformatted or reordered. The model is loaded through the metamodel cache.
+     *
+     * @param ecoreFilePath The path to the Ecore file.
+     * @return The fingerprint of the root packages of the file, or null if the file cannot be loaded.
+     */
+    public ModelFingerprint getModelFingerprint(String ecoreFilePath) {
+        try {
+            return ModelFingerprint.compute(session.getMetaModelCache().getPackages(ecoreFilePath));
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Compares the structure of two versions of an Ecore model.
+     *
+     * @param previousEcoreFilePath The path to the previous version.
+     * @param ecoreFilePath         The path to the new version.
+     * @return The packages and classifiers added, removed or changed, or null if a file cannot be loaded.
+     */
+    public ModelDiff diffModels(String previousEcoreFilePath, String ecoreFilePath) {
+        ModelFingerprint previous = getModelFingerprint(previousEcoreFilePath);
+        ModelFingerprint current = getModelFingerprint(ecoreFilePath);
+        if (previous == null || current == null) {
+            return null;
+        }
+        return current.diff(previous);
+    }
+
+    /**
+     * Prints the structure of an Ecore model to the console, including packages, classifiers, and structural features.
+     *
+     * @param ecoreFilePath The absolute or relative path to the input Ecore file.
+     */
+    public void PrintEcoreStructure(String ecoreFilePath) {
+        Monitor monitor = beginOperation("PrintEcoreStructure", 2);
+        try {
+            monitor.subTask("parse");
+            // Take the Ecore resource from the metamodel cache, which loads it on first use
+            // and keeps its index for the next calls.
+            Resource ecoreResource = session.getMetaModelCache().get(ecoreFilePath);
 
             // Print the top-level contents of the loaded Ecore resource for debugging.
+            monitor.subTask("print");
             System.out.println("Contents of Ecore resource: " + ecoreResource.getContents());
 
             // Iterate through all the top-level objects in the resource's contents.
@@ -359,8 +522,9 @@ public class EcoreUtilsImpl implements EcoreUtils {
                     // Print the name of the EPackage.
                     System.out.println("EPackage: " + ePackage.getName());
 
-                    // Iterate through the classifiers (e.g., classes, data types) in the EPackage.
-                    for (EClassifier eClassifier : ePackage.getEClassifiers()) {
+                    // Iterate through the classifiers (e.g., classes, data types) in the EPackage, as indexed.
+                    MetamodelIndex index = MetamodelIndex.get(ePackage);
+                    for (EClassifier eClassifier : index.getClassifiers(ePackage)) {
                         // Print the name of the EClassifier.
                         System.out.println("  EClassifier: " + eClassifier.getName());
 
@@ -383,6 +547,8 @@ public class EcoreUtilsImpl implements EcoreUtils {
         } catch (Exception e) {
             // Handle any other exceptions that may occur during execution.
             System.err.println("Error: " + e.getMessage());
+        } finally {
+            monitor.done();
         }
     }
 
@@ -396,20 +562,24 @@ public class EcoreUtilsImpl implements EcoreUtils {
      * @return true if the conversion was successful, false otherwise.
      */
     public boolean ConvertEcoreToXMI(String ecorePath, String xmiDestinationPath) {
+        Monitor monitor = beginOperation("ConvertEcoreToXMI", 2);
         try {
-            // Initialize a resource set to manage resources.
-            ResourceSet resourceSet = new ResourceSetImpl();
+            return cached("ConvertEcoreToXMI", List.of(), ecorePath, Map.of(), List.of(xmiDestinationPath),
+                    () -> ConvertEcoreToXMI(ecorePath, xmiDestinationPath, monitor));
+        } finally {
+            monitor.done();
+        }
+    }
 
-            // Register the XMI and Ecore resource factories.
-            resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xmi", new XMIResourceFactoryImpl());
-            resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("ecore", new EcoreResourceFactoryImpl());
+    private boolean ConvertEcoreToXMI(String ecorePath, String xmiDestinationPath, Monitor monitor) {
+        try (EmfSession.Lease lease = session.acquire()) {
+            monitor.subTask("parse");
+            // Borrow a resource set to manage resources; the XMI and Ecore factories come from the session.
+            ResourceSet resourceSet = lease.getResourceSet();
 
-            // Load the Ecore model as a resource using its URI.
+            // Load the Ecore model as a resource using its URI, with the session's load options.
             Resource ecoreResource = resourceSet.getResource(URI.createFileURI(ecorePath), true);
 
-            // Load the contents of the Ecore model into memory.
-            ecoreResource.load(Collections.EMPTY_MAP);
-
             // Initialize a new XMI resource for saving the model in XMI format.
             Resource xmiResource = resourceSet.createResource(URI.createFileURI(xmiDestinationPath));
 
@@ -423,7 +593,8 @@ public class EcoreUtilsImpl implements EcoreUtils {
             xmiResource.getContents().addAll(ecoreResource.getContents());
 
             // Save the XMI resource to the specified path.
-            xmiResource.save(Collections.EMPTY_MAP);
+            monitor.subTask("save");
+            xmiResource.save(lease.getSaveOptions());
             return true;
         } catch (IOException e) {
             System.err.println("IOException occurred during conversion: " + e.getMessage());
@@ -437,246 +608,312 @@ public class EcoreUtilsImpl implements EcoreUtils {
     }
 
     /**
-     * Converts an Ecore model to an XSD schema and saves it to the specified path.
+     * Converts an XMI model file to the compact binary format.
      *
-     * @param ecoreFilePath Path to the input Ecore file.
-     * @param xsdOutputPath Path to save the generated XSD file.
-     * @return true if the XSD file is generated successfully, false otherwise.
+     * @param xmiFilePath    The path to the input XMI file.
+     * @param binaryFilePath The path to the output binary file (.xmib).
+     * @param metaModelPath  The path to the metamodel of the model, or null if its packages are already registered (e.g. Ecore).
+     * @return true if the conversion was successful, false otherwise.
      */
-    public boolean ConvertEcoreToXSD(String ecoreFilePath, String xsdOutputPath) {
-        try {
-            // Step 1: Initialize the ResourceSet and register necessary packages and resource factories.
-            // The ResourceSet is used to manage resources such as Ecore and XSD files.
-            ResourceSet resourceSet = new ResourceSetImpl();
-
-            // Register the GenModel package for schema building.
-            resourceSet.getPackageRegistry().put(GenModelPackage.eNS_URI, GenModelPackage.eINSTANCE);
-
-            // Register resource factories to handle different file types.
-            resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("ecore", new EcoreResourceFactoryImpl());
-            resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xsd", new XSDResourceFactoryImpl());
-            resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xmi", new XMIResourceFactoryImpl());
-            resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("genmodel", new EcoreResourceFactoryImpl());
-
-            // Step 2: Load the Ecore resource using its file path.
-            // Create a URI for the Ecore file.
-            URI ecoreURI = URI.createFileURI(ecoreFilePath);
-
-            // Load the resource into the ResourceSet.
-            Resource ecoreResource = resourceSet.getResource(ecoreURI, true);
-
-            // Check if the Ecore resource contains at least one valid EPackage.
-            if (ecoreResource.getContents().isEmpty() || !(ecoreResource.getContents().get(0) instanceof EPackage)) {
-                throw new IllegalArgumentException("The provided Ecore file does not contain a valid EPackage.");
-            }
-
-            // Retrieve the root EPackage from the loaded resource.
-            EPackage ePackage = (EPackage) ecoreResource.getContents().get(0);
-
-            // Step 3: Generate a GenModel for the Ecore model.
-            // The GenModel is required by the EcoreSchemaBuilder for XSD generation.
-            String genDirectory = ecoreFilePath.substring(0, ecoreFilePath.lastIndexOf("/")); // Directory of the Ecore file.
-            String genModelFileName = new File(ecoreFilePath).getName().replaceFirst("[.][^.]+$", ""); // File name without extension.
-            String basePackage = ""; // Base package for the generated model.
-
-            // Use a helper method to create the GenModel.
-            GenModel genModel = this.ConvertEcoreToGenModel(ecoreFilePath, genDirectory, genModelFileName, "", basePackage);
-
-            // Step 4: Initialize the EcoreSchemaBuilder using the ExtendedMetaData from the GenModel.
-            // ExtendedMetaData contains information needed to map the Ecore model to XSD.
-            EcoreSchemaBuilder schemaBuilder = new EcoreSchemaBuilder(genModel.getExtendedMetaData());
-
-            // Step 5: Generate the XSD schema from the EPackage.
-            XSDSchema xsdSchema = schemaBuilder.getSchema(ePackage);
-
-            // Step 6: Save the generated XSD schema to the specified output path.
-            // Create a URI for the output XSD file.
-            URI xsdURI = URI.createFileURI(xsdOutputPath);
-
-            // Create a new resource for the XSD file in the ResourceSet.
-            Resource xsdResource = resourceSet.createResource(xsdURI);
-
-            // Add the XSD schema to the resource's contents.
-            xsdResource.getContents().add(xsdSchema);
-
-            // Save the resource to write the XSD schema to the file.
-            xsdResource.save(Collections.EMPTY_MAP);
-
-            // Return true to indicate successful processing.
+    public boolean ConvertXMIToBinary(String xmiFilePath, String binaryFilePath, String metaModelPath) {
+        Monitor monitor = beginOperation("ConvertXMIToBinary", 2);
+        try (EmfSession.Lease lease = session.acquire()) {
+            monitor.subTask("parse");
+            ResourceSet resourceSet = lease.getResourceSet();
+            registerMetaModel(resourceSet, metaModelPath);
+
+            // Load the XMI model and move its roots into a binary resource, which is saved with the binary options.
+            Resource xmiResource = resourceSet.getResource(URI.createFileURI(xmiFilePath), true);
+            monitor.subTask("save");
+            Resource binaryResource = resourceSet.createResource(URI.createFileURI(binaryFilePath));
+            binaryResource.getContents().addAll(xmiResource.getContents());
+            binaryResource.save(lease.getSaveOptions());
             return true;
-
-        } catch (IOException | IllegalArgumentException e) {
-            // Catch and handle file I/O errors or invalid arguments.
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error converting XMI to binary: " + e.getMessage());
             e.printStackTrace();
-            // Return false to indicate failure.
             return false;
+        } finally {
+            monitor.done();
         }
     }
 
-
     /**
-     * Main method to generate Java code from a GenModel file.
-     * This method initializes a code generator and produces Java code based on the provided GenModel.
-     * The generated code will be placed in the target directory.
+     * Converts a binary model file back to XMI.
      *
-     * @param genModel The GenModel object representing the model to be converted into Java code.
-     * @param targetPath The target directory where the generated Java code should be stored.
-     * @return boolean indicating whether the generation was successful (always returns true in this case).
+     * @param binaryFilePath The path to the input binary file (.xmib).
+     * @param xmiFilePath    The path to the output XMI file.
+     * @param metaModelPath  The path to the metamodel of the model, or null if its packages are already registered (e.g. Ecore).
+     * @return true if the conversion was successful, false otherwise.
      */
-    public boolean GenModelToJava(GenModel genModel, String targetPath) {
-
-        // Save the current error output stream to restore it later (in case we change it temporarily).
-        PrintStream oldErr = System.err;
+    public boolean ConvertBinaryToXMI(String binaryFilePath, String xmiFilePath, String metaModelPath) {
+        Monitor monitor = beginOperation("ConvertBinaryToXMI", 2);
+        try (EmfSession.Lease lease = session.acquire()) {
+            monitor.subTask("parse");
+            ResourceSet resourceSet = lease.getResourceSet();
+            registerMetaModel(resourceSet, metaModelPath);
+
+            // Load the binary model and move its roots into an XMI resource.
+            Resource binaryResource = resourceSet.getResource(URI.createFileURI(binaryFilePath), true);
+            monitor.subTask("save");
+            Resource xmiResource = resourceSet.createResource(URI.createFileURI(xmiFilePath));
+            xmiResource.getContents().addAll(binaryResource.getContents());
+            xmiResource.save(lease.getSaveOptions());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error converting binary to XMI: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        } finally {
+            monitor.done();
+        }
+    }
 
+    /**
+     * Loads a model saved in the binary format.
+     *
+     * @param binaryFilePath The path to the binary file (.xmib).
+     * @param metaModelPath  The path to the metamodel of the model, or null if its packages are already registered (e.g. Ecore).
+     * @return The root object of the model, or null if it could not be loaded.
+     */
+    public EObject loadBinaryModel(String binaryFilePath, String metaModelPath) {
+        // The ResourceSet stays with the returned model, so it is not given back to the pool.
+        EmfSession.Lease lease = session.acquire();
+        lease.detach();
+        Monitor monitor = beginOperation("loadBinaryModel", 1);
         try {
-            // Temporarily redirect System.err to suppress any error messages that might be printed
-            // during the generation process (to avoid cluttering the console).
-            System.setErr(new PrintStream(new ByteArrayOutputStream()));
-        } catch (Throwable e) {
-            // In case of any error while redirecting System.err (e.g., security exceptions),
-            // set 'oldErr' to null to avoid further restoration attempts.
-            oldErr = null;
+            monitor.subTask("parse");
+            ResourceSet resourceSet = lease.getResourceSet();
+            registerMetaModel(resourceSet, metaModelPath);
+            Resource binaryResource = resourceSet.getResource(URI.createFileURI(binaryFilePath), true);
+            return binaryResource.getContents().isEmpty() ? null : binaryResource.getContents().get(0);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error loading binary model: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        } finally {
+            monitor.done();
         }
+    }
 
+    /**
+     * Loads the main resource of a model saved in fragments; each fragment is loaded when a traversal first reaches it.
+     *
+     * @param modelFilePath      The path to the main resource of the model.
+     * @param metaModelPath      The path to the metamodel of the model, or null if its packages are already registered.
+     * @param maxLoadedFragments The maximum number of fragments kept loaded at once, or 0 for no limit.
+     * @return The model, to be closed once read, or null if it could not be loaded.
+     */
+    public FragmentedModel loadFragmentedModel(String modelFilePath, String metaModelPath, int maxLoadedFragments) {
+        Monitor monitor = beginOperation("loadFragmentedModel", 1);
+        // The lease goes with the returned model, which gives it back when closed.
+        EmfSession.Lease lease = session.acquire();
         try {
-            // Set the model directory to the root. This is a default setting for code generation.
-            // It can be adjusted if required based on the actual directory structure.
-            genModel.setModelDirectory("/");
-
-            // Enable the code generation process. This is a flag that tells the generator
-            // whether it is allowed to perform code generation.
-            genModel.setCanGenerate(true);
-
-            // Create a custom generator object that will be responsible for the actual code generation.
-            Generator generator;
-            generator = new Generator() {
-                @Override
-                public JControlModel getJControlModel() {
-                    // Return a new JControlModel object (could be used for controlling code generation specifics).
-                    return new JControlModel();
-                }
-            };
-
-            // Register a custom descriptor for the GenModel's URI to the generator's adapter factory.
-            // This is necessary to tell the generator which adapter to use for this specific model type.
-            generator.getAdapterFactoryDescriptorRegistry().addDescriptor(GenModelPackage.eNS_URI,
-                    OnlyCodeGenModelGeneratorAdapterFactory.Descriptor);
-
-            // Set the input GenModel for the generator to use. This is the model that will be processed
-            // to generate Java code.
-            generator.setInput(genModel);
-
-            // Start the generation process. We specify that the type of project to generate is a "MODEL_PROJECT_TYPE"
-            // and pass the monitor (a progress monitor object to track the generation process).
-            generator.generate(genModel, GenBaseGeneratorAdapter.MODEL_PROJECT_TYPE, this.monitor);
-
+            monitor.subTask("parse");
+            ResourceSet resourceSet = lease.getResourceSet();
+            registerMetaModel(resourceSet, metaModelPath);
+            Resource resource = resourceSet.getResource(URI.createFileURI(modelFilePath), true);
+            return new FragmentedModel(lease, resource, maxLoadedFragments);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error loading fragmented model: " + e.getMessage());
+            e.printStackTrace();
+            lease.close();
+            return null;
         } finally {
-            // Ensure that we restore the original error output stream after the generation process is complete.
-            // This is done regardless of whether the generation succeeded or failed.
-            if (oldErr != null) {
-                System.setErr(oldErr);
-            }
+            monitor.done();
         }
-
-        // Return true to indicate that the method has completed successfully.
-        // Note: In this case, success is assumed, regardless of whether the generation actually worked.
-        return true;
     }
-    public boolean ConvertEcoreToUML(String ecoreFilePath, String svgFilePath) {
-        // Step 1: Load the Ecore model from the specified file
-        ResourceSet resourceSet = new ResourceSetImpl();
-        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("ecore", new EcoreResourceFactoryImpl());
-
-        Resource ecoreResource = resourceSet.getResource(URI.createFileURI(new File(ecoreFilePath).getAbsolutePath()), true);
-
-        // Step 2: Generate PlantUML text from the Ecore model
-        String plantUMLText = generatePlantUMLTextFromEcore(ecoreResource);
 
-        // Step 3: Use PlantUML to generate an SVG diagram from the PlantUML text
-        return generateSVGFromPlantUML(plantUMLText, svgFilePath);
+    /**
+     * Reads an XMI model in a single pass without loading it, and counts its instances per class, the ranges of its
+     * attribute values and its dangling references.
+     *
+     * @param modelPath     The path to the XMI model.
+     * @param metaModelPath The path to the metamodel of the model.
+     * @return The statistics of the model, or null if it could not be read.
+     */
+    public ModelStatistics scanModel(Path modelPath, String metaModelPath) {
+        ModelStatistics statistics = new ModelStatistics(true);
+        return scanModel(modelPath, metaModelPath, statistics) ? statistics : null;
     }
 
     /**
-     * Generates PlantUML text from an Ecore model resource.
+     * Reads an XMI model in a single pass without loading it, reporting its objects, attribute values and
+     * references to a listener. Memory use does not grow with the size of the model (see {@link ModelScanner}).
      *
-     * @param ecoreResource The Ecore model resource to be converted to PlantUML text.
-     * @return A string containing the PlantUML representation of the Ecore model.
+     * @param modelPath     The path to the XMI model.
+     * @param metaModelPath The path to the metamodel of the model.
+     * @param listener      The listener receiving the content of the model.
+     * @return true if the whole model was read, false otherwise.
      */
-    private String generatePlantUMLTextFromEcore(Resource ecoreResource) {
-        // Initialize a StringBuilder to construct the PlantUML text
-        StringBuilder plantUMLText = new StringBuilder();
-
-        // Start the PlantUML diagram
-        plantUMLText.append("@startuml\n");
-
-        // Set the size of class attribute icons to 0 (no icons)
-        plantUMLText.append("skinparam classAttributeIconSize 0\n");
-
-        // Use orthogonal lines to reduce entanglement in the diagram
-        plantUMLText.append("skinparam linetype ortho\n");
-
-        // Arrange elements from top to bottom to reflect hierarchical structure
-        plantUMLText.append("top to bottom direction\n");
-
-        // Iterate over the contents of the Ecore resource
-        for (EObject eObject : ecoreResource.getContents()) {
-            // Check if the object is an instance of EPackage
-            if (eObject instanceof EPackage) {
-                EPackage ePackage = (EPackage) eObject;
+    public boolean scanModel(Path modelPath, String metaModelPath, ModelScanListener listener) {
+        Monitor monitor = beginOperation("scanModel", 1);
+        try {
+            monitor.subTask("scan");
+            // The cached packages, over the session's registry for the packages they refer to (e.g. Ecore).
+            EPackage.Registry packageRegistry = ModelScanner.createRegistry(session.getPackageRegistry(),
+                    session.getMetaModelCache().getPackages(metaModelPath));
+            new ModelScanner(packageRegistry).scan(modelPath, listener);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error scanning model: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        } finally {
+            monitor.done();
+        }
+    }
 
-                // Start a new package in the PlantUML diagram
-                plantUMLText.append("package ").append(ePackage.getName()).append(" {\n");
+    /**
+     * Saves a model in the binary format.
+     * If the root belongs to a resource, the whole resource is written; the model itself is left where it is.
+     *
+     * @param modelRoot      The root object of the model.
+     * @param binaryFilePath The path to the output binary file (.xmib).
+     * @return true if the model was saved successfully, false otherwise.
+     */
+    public boolean saveBinaryModel(EObject modelRoot, String binaryFilePath) {
+        Monitor monitor = beginOperation("saveBinaryModel", 1);
+        try {
+            return saveBinaryModel(modelRoot, binaryFilePath, monitor);
+        } finally {
+            monitor.done();
+        }
+    }
 
-                // Iterate over the classifiers in the package
-                for (EClassifier eClassifier : ePackage.getEClassifiers()) {
-                    // Check if the classifier is an instance of EClass
-                    if (eClassifier instanceof EClass) {
-                        EClass eClass = (EClass) eClassifier;
+    private boolean saveBinaryModel(EObject modelRoot, String binaryFilePath, Monitor monitor) {
+        monitor.subTask("save");
+        URI binaryURI = URI.createFileURI(binaryFilePath);
+        Resource resource = modelRoot.eResource();
+        if (resource == null) {
+            // A free-standing root can simply be added to a new binary resource.
+            try (EmfSession.Lease lease = session.acquire()) {
+                Resource binaryResource = lease.getResourceSet().createResource(binaryURI);
+                binaryResource.getContents().add(modelRoot);
+                try {
+                    binaryResource.save(lease.getSaveOptions());
+                } finally {
+                    // The root is the caller's, and free-standing again even if the save fails.
+                    binaryResource.getContents().remove(modelRoot);
+                }
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+        // Otherwise stream the owning resource in binary form without moving its contents.
+        try (OutputStream outputStream = new BufferedOutputStream(resource.getResourceSet() != null
+                ? resource.getResourceSet().getURIConverter().createOutputStream(binaryURI)
+                : new FileOutputStream(binaryFilePath))) {
+            BinaryResourceImpl.EObjectOutputStream eObjectOutputStream =
+                    new BinaryResourceImpl.EObjectOutputStream(outputStream, BinaryResourceFactoryImpl.SAVE_OPTIONS);
+            eObjectOutputStream.saveResource(resource);
+            eObjectOutputStream.flush();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
 
-                        // Define a new class in the PlantUML diagram
-                        plantUMLText.append("class ").append(eClass.getName()).append(" {\n");
+    /**
+     * Converts an Ecore model to an XSD schema and saves it to the specified path.
+     *
+     * @param ecoreFilePath Path to the input Ecore file.
+     * @param xsdOutputPath Path to save the generated XSD file.
+     * @return true if the XSD file is generated successfully, false otherwise.
+     */
+    public boolean ConvertEcoreToXSD(String ecoreFilePath, String xsdOutputPath) {
+        return xsd.get().ConvertEcoreToXSD(ecoreFilePath, xsdOutputPath);
+    }
 
-                        // Iterate over the attributes of the class
-                        for (EAttribute eAttribute : eClass.getEAttributes()) {
-                            // Add each attribute to the class definition in PlantUML
-                            plantUMLText.append("  ").append(eAttribute.getName()).append(" : ").append(eAttribute.getEType().getName()).append("\n");
-                        }
 
-                        // Close the class definition
-                        plantUMLText.append("}\n");
+    /**
+     * Main method to generate Java code from a GenModel file.
+     * This method initializes a code generator and produces Java code based on the provided GenModel.
+     * The generated code will be placed in the target directory.
+     * Generations can run concurrently on several threads, each with its own GenModel.
+     *
+     * @param genModel The GenModel object representing the model to be converted into Java code.
+     * @param targetPath The target directory where the generated Java code should be stored.
+     * @return true if the generation completed without errors, false otherwise.
+     */
+    public boolean GenModelToJava(GenModel genModel, String targetPath) {
+        return codegen.get().GenModelToJava(genModel, targetPath);
+    }
 
-                        // Add super types (inheritance relationships)
-                        for (EClass superType : eClass.getESuperTypes()) {
-                            plantUMLText.append(eClass.getName()).append(" --|> ").append(superType.getName()).append("\n");
-                        }
+    /**
+     * Generates Java code from a GenModel like {@link #GenModelToJava(GenModel, String)}, and returns the
+     * generator's diagnostic together with what it printed to the error output during this call.
+     *
+     * @param genModel The GenModel object representing the model to be converted into Java code.
+     * @param targetPath The target directory where the generated Java code should be stored.
+     * @return The result of the generation.
+     */
+    public GenerationResult GenModelToJavaWithResult(GenModel genModel, String targetPath) {
+        return codegen.get().GenModelToJavaWithResult(genModel, targetPath);
+    }
 
-                        // Add references (associations)
-                        for (EReference eReference : eClass.getEReferences()) {
-                            plantUMLText.append(eClass.getName()).append(" --> ").append(eReference.getEType().getName()).append(" : ").append(eReference.getName()).append("\n");
-                        }
-                    }
-                }
+    /**
+     * Generates Java code from a GenModel, regenerating only the GenPackages, GenClasses and GenEnums
+     * that changed since the previous run. Files of unchanged artifacts are not rewritten.
+     * The fingerprints of the generated artifacts are kept in a manifest next to the .genmodel file
+     * (see {@link GenModelFingerprints}); without a manifest every artifact is generated.
+     *
+     * @param genModel The GenModel object representing the model to be converted into Java code.
+     * @param targetPath The target directory where the generated Java code should be stored.
+     * @return true if the code is up to date after the call, false if the generation failed or the manifest could not be read or written.
+     */
+    public boolean GenModelToJavaIncremental(GenModel genModel, String targetPath) {
+        return codegen.get().GenModelToJavaIncremental(genModel, targetPath);
+    }
 
-                // Close the package definition
-                plantUMLText.append("}\n");
-            }
-        }
+    /**
+     * Generates Java code from a GenModel on several threads. Multi-package models are split by GenPackage;
+     * models with fewer packages than threads are split by classifier. Each worker generates from its own copy
+     * of the GenModel (see {@link ParallelGenModelGenerator}), and the files are identical to those of
+     * {@link #GenModelToJava(GenModel, String)}.
+     *
+     * @param genModel The GenModel object representing the model to be converted into Java code.
+     * @param targetPath The target directory where the generated Java code should be stored.
+     * @param threads The number of worker threads.
+     * @return true if the generation completed without errors, false otherwise.
+     */
+    public boolean GenModelToJavaParallel(GenModel genModel, String targetPath, int threads) {
+        return codegen.get().GenModelToJavaParallel(genModel, targetPath, threads);
+    }
 
-        // End the PlantUML diagram
-        plantUMLText.append("@enduml\n");
+    public boolean ConvertEcoreToUML(String ecoreFilePath, String svgFilePath) {
+        return diagram.get().ConvertEcoreToUML(ecoreFilePath, svgFilePath);
+    }
 
-        // Return the constructed PlantUML text
-        return plantUMLText.toString();
+    /**
+     * Splits the class diagram of an Ecore model into several diagrams, rendered in parallel to one SVG file each.
+     * Diagrams whose PlantUML text did not change since a previous rendering are copied from the diagram cache.
+     *
+     * @param ecoreFilePath The path to the input Ecore file.
+     * @param svgDirectory  The directory receiving one {@code <diagram>.svg} file per diagram.
+     * @param partitioning  Whether to draw one diagram per EPackage or per connected group of classes.
+     * @return true if every diagram was rendered, false otherwise.
+     */
+    public boolean ConvertEcoreToUMLPartitioned(String ecoreFilePath, String svgDirectory, PlantUMLDiagramRenderer.Partitioning partitioning) {
+        return diagram.get().ConvertEcoreToUMLPartitioned(ecoreFilePath, svgDirectory, partitioning);
     }
-    private boolean generateSVGFromPlantUML(String plantUMLText, String svgFilePath) {
-        SourceStringReader reader = new SourceStringReader(plantUMLText);
-        try (OutputStream outputStream = new FileOutputStream(new File(svgFilePath))) {
-            String desc = reader.generateImage(outputStream, new FileFormatOption(FileFormat.SVG));
-            return desc != null;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
-        }
+
+    /**
+     * Renders the class diagram of the classes within a number of hops of one class of an Ecore model,
+     * following supertypes and references in both directions.
+     *
+     * @param ecoreFilePath The path to the input Ecore file.
+     * @param className     The name of the class in the middle of the view, optionally qualified by its package
+     *                      (e.g. {@code gastm.Expression}).
+     * @param hops          The maximum distance of the shown classes from that class.
+     * @param svgFilePath   The path to the output SVG file.
+     * @return true if the diagram was rendered, false if the class does not exist or rendering failed.
+     */
+    public boolean ConvertEcoreToUMLFocused(String ecoreFilePath, String className, int hops, String svgFilePath) {
+        return diagram.get().ConvertEcoreToUMLFocused(ecoreFilePath, className, hops, svgFilePath);
     }
 
 
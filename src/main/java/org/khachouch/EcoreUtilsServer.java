@@ -0,0 +1,321 @@
+package org.khachouch;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Logger;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+
+/**
+ * Keeps one {@link EcoreUtils} instance warm and runs the {@link Commands} sent by {@link EcoreUtilsClient}s over a
+ * Unix-domain or loopback socket. Loaded classes, JIT-compiled code, pooled ResourceSets and cached metamodels
+ * survive from one request to the next, so only the first request pays for them.
+ * <p>
+ * The protocol is line-based UTF-8, one request per connection:
+ * <pre>
+ * request:  on a TCP port, the server's token; then the client's absolute working directory, the number of
+ *           arguments, and each argument on its own line
+ * response: "1 " + a line printed to standard output, or "2 " + a line printed to standard error, any number of
+ *           times, then "= " + the exit code
+ * </pre>
+ * The special command {@code shutdown} stops the server. Requests run concurrently, each on its own virtual thread.
+ * <p>
+ * Requests run with the privileges of the server, reading and writing any file it can, so only the user who
+ * started it is served. A Unix-domain socket (the default) is made readable and writable by that user only, and
+ * where the platform reports the peer of a connection, connections of other users are refused. On a loopback TCP
+ * port, which every local user can connect to, each request must start with a random token the server writes to a
+ * file only that user can read ({@link EcoreUtilsClient#tokenFile(int)}).
+ */
+public class EcoreUtilsServer implements Closeable {
+    private static final Logger logger = (Logger) LogManager.getLogger(EcoreUtilsServer.class);
+
+    private final EcoreUtils ecoreUtils;
+    private final ServerSocketChannel serverChannel;
+    private final Path socketFile;
+    // The token TCP requests start with, and the file it is written to; null for a Unix-domain socket.
+    private final String token;
+    private final Path tokenFile;
+    private final UserPrincipal user;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Opens the server socket.
+     *
+     * @param ecoreUtils The instance running the requests.
+     * @param address    A port number for a loopback TCP socket, or the path of a Unix-domain socket file
+     *                   (see {@link EcoreUtilsClient#parseAddress(String)}), e.g. {@link EcoreUtilsClient#defaultSocket()}.
+     * @throws IOException if the socket cannot be bound, or the socket file exists and is not a stale socket.
+     */
+    public EcoreUtilsServer(EcoreUtils ecoreUtils, String address) throws IOException {
+        this.ecoreUtils = ecoreUtils;
+        user = PrivateFiles.currentUser();
+        SocketAddress socketAddress = EcoreUtilsClient.parseAddress(address);
+        if (socketAddress instanceof UnixDomainSocketAddress unixAddress) {
+            socketFile = unixAddress.getPath();
+            if (socketFile.toAbsolutePath().equals(EcoreUtilsClient.defaultSocket().toAbsolutePath())) {
+                PrivateFiles.createDirectory(PrivateFiles.stateDirectory());
+            }
+            removeStaleSocket(unixAddress);
+            serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            serverChannel.bind(socketAddress);
+            PrivateFiles.restrict(socketFile);
+            token = null;
+            tokenFile = null;
+        } else {
+            socketFile = null;
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(socketAddress);
+            byte[] random = new byte[32];
+            new SecureRandom().nextBytes(random);
+            token = HexFormat.of().formatHex(random);
+            tokenFile = EcoreUtilsClient.tokenFile(((InetSocketAddress) serverChannel.getLocalAddress()).getPort());
+            try {
+                PrivateFiles.createDirectory(tokenFile.getParent());
+                PrivateFiles.write(tokenFile, (token + "\n").getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                serverChannel.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Deletes the socket file left by a server that did not shut down cleanly, which would make the bind fail.
+     *
+     * @throws IOException if the path exists and is not a socket, e.g. a regular file given by mistake, or a server
+     *                     still listens on it.
+     */
+    private static void removeStaleSocket(UnixDomainSocketAddress address) throws IOException {
+        Path path = address.getPath();
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        if (!Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+            throw new IOException(path + " exists and is not a socket");
+        }
+        boolean listening;
+        try (SocketChannel probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            listening = probe.connect(address);
+        } catch (IOException e) {
+            listening = false;
+        }
+        if (listening) {
+            throw new IOException("A server is already listening on " + path);
+        }
+        Files.delete(path);
+    }
+
+    /**
+     * @return The address the server is bound to, e.g. to find the port chosen for port 0.
+     */
+    public SocketAddress getLocalAddress() throws IOException {
+        return serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Accepts requests until {@link #close()} is called or a client sends {@code shutdown}.
+     */
+    public void serve() {
+        logger.info("Serving EcoreUtils requests on " + describeAddress() + (tokenFile != null ? ", token in " + tokenFile : ""));
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                executor.execute(() -> handle(channel));
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        logger.info("EcoreUtils server stopped");
+    }
+
+    /**
+     * Stops accepting requests. Requests being run are completed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        executor.shutdown();
+        if (socketFile != null) {
+            Files.deleteIfExists(socketFile);
+        }
+        if (tokenFile != null) {
+            Files.deleteIfExists(tokenFile);
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+            if (socketFile != null && !isFromUser(channel)) {
+                logger.warn("Request refused: the client runs as another user");
+                return;
+            }
+            if (token != null && !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                    readLine(reader).getBytes(StandardCharsets.UTF_8))) {
+                logger.warn("Request refused: wrong token");
+                return;
+            }
+            Path workingDirectory = Path.of(readLine(reader));
+            if (!workingDirectory.isAbsolute()) {
+                throw new IOException("The working directory is not absolute: " + workingDirectory);
+            }
+            int count = Integer.parseInt(readLine(reader));
+            if (count < 0) {
+                throw new IOException("Negative argument count: " + count);
+            }
+            List<String> args = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                args.add(readLine(reader));
+            }
+
+            if (args.size() == 1 && args.get(0).equals("shutdown")) {
+                writer.write("= " + Commands.SUCCESS + "\n");
+                writer.flush();
+                close();
+                return;
+            }
+
+            // Everything the operations print on this thread, or on workers it hands its capture to, goes to the client.
+            int exitCode;
+            try (LineStream out = new LineStream(writer, "1 ");
+                 LineStream err = new LineStream(writer, "2 ")) {
+                ConsoleCapture outCapture = new ConsoleCapture(ConsoleCapture.Stream.OUT, out);
+                ConsoleCapture errCapture = new ConsoleCapture(ConsoleCapture.Stream.ERR, err);
+                ConsoleCapture.Scope outScope = outCapture.open();
+                ConsoleCapture.Scope errScope = errCapture.open();
+                try {
+                    Commands commands = new Commands(ecoreUtils, workingDirectory, System.out, System.err);
+                    exitCode = commands.run(args.toArray(String[]::new));
+                } catch (RuntimeException e) {
+                    e.printStackTrace(new PrintStream(err, true, StandardCharsets.UTF_8));
+                    exitCode = Commands.FAILURE;
+                } finally {
+                    errScope.close();
+                    outScope.close();
+                }
+            }
+            writer.write("= " + exitCode + "\n");
+            writer.flush();
+        } catch (IOException | RuntimeException e) {
+            // A malformed request or a client that went away; the other requests are not affected.
+            logger.warn("Request failed: " + e);
+        }
+    }
+
+    /**
+     * @return A line of the request.
+     * @throws IOException if the client closed the connection before sending it.
+     */
+    private static String readLine(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            throw new IOException("Incomplete request");
+        }
+        return line;
+    }
+
+    /**
+     * @return false if the peer of a Unix-domain connection runs as another user. Where the platform does not report
+     * peers, only the permissions of the socket file keep other users out.
+     */
+    private boolean isFromUser(SocketChannel channel) throws IOException {
+        if (!channel.supportedOptions().contains(ExtendedSocketOptions.SO_PEERCRED)) {
+            return true;
+        }
+        UnixDomainPrincipal peer = channel.getOption(ExtendedSocketOptions.SO_PEERCRED);
+        return peer.user().getName().equals(user.getName());
+    }
+
+    private String describeAddress() {
+        try {
+            return String.valueOf(serverChannel.getLocalAddress());
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+
+    /**
+     * Sends what is written to it to the client one line at a time, each line with a prefix.
+     * Both streams of a request write to the same socket, so complete lines are written under the writer's lock.
+     */
+    private static final class LineStream extends OutputStream {
+        private final Writer writer;
+        private final String prefix;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        LineStream(Writer writer, String prefix) {
+            this.writer = writer;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if (b == '\n') {
+                writeLine();
+            } else if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+
+        /**
+         * Sends the pending partial line, if any, as a line of its own. Flushing does not, as lines are sent
+         * as soon as they are complete and a line split by a flush would reach the client as two.
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            if (line.size() > 0) {
+                writeLine();
+            }
+        }
+
+        private void writeLine() throws IOException {
+            synchronized (writer) {
+                writer.write(prefix);
+                writer.write(line.toString(StandardCharsets.UTF_8));
+                writer.write('\n');
+                writer.flush();
+            }
+            line.reset();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package org.khachouch;
+
+import org.eclipse.emf.codegen.ecore.genmodel.GenModelPackage;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EFactory;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.impl.EPackageRegistryImpl;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceFactoryRegistryImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.EcoreResourceFactoryImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.xsd.util.XSDResourceFactoryImpl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared EMF configuration used by {@link EcoreUtilsImpl}.
+ * The session holds one resource factory registry and one package registry for all calls,
+ * and hands out pooled ResourceSets that are reset before they are reused.
+ * A ResourceSet obtained through {@link #acquire()} is confined to the caller until the lease is closed.
+ */
+public class EmfSession {
+    /**
+     * The default memory budget of the metamodel cache, in estimated bytes of heap.
+     */
+    public static final long DEFAULT_METAMODEL_CACHE_BUDGET = 64L * 1024 * 1024;
+    /**
+     * The system property naming the directory of the {@link ArtifactCache} of new sessions; unset, outputs are not cached.
+     * {@code ecoreutils.artifactCache.maxBytes} sets its size cap and {@code ecoreutils.artifactCache.hardLinks=true}
+     * materializes the outputs as hard links.
+     */
+    public static final String ARTIFACT_CACHE_PROPERTY = "ecoreutils.artifactCache";
+    /**
+     * The system property naming the {@link MetaModelCache.InstanceStorage} of new sessions, e.g. {@code compact}.
+     * Instance models are read as DynamicEObjectImpl by default.
+     */
+    public static final String INSTANCE_STORAGE_PROPERTY = "ecoreutils.instanceStorage";
+    /**
+     * The number of cached name-to-feature entries above which a ResourceSet drops its lookup tables when it is
+     * reset, so that the tables do not hold on to the classes of every metamodel it has seen.
+     */
+    private static final int MAX_CACHED_FEATURES = 10_000;
+
+    private final Resource.Factory.Registry resourceFactoryRegistry;
+    private final EPackage.Registry packageRegistry;
+    private final PerformanceProfile profile;
+    private final ConcurrentLinkedDeque<PooledResourceSet> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final int maxIdle;
+    private final MetaModelCache metaModelCache;
+    private final ResourceClosureLoader closureLoader = new ResourceClosureLoader(this, Runtime.getRuntime().availableProcessors());
+    // Created on first use, as it loads the XSD model.
+    private final Lazy<XsdSchemaCache> schemaCache = new Lazy<>(() -> new XsdSchemaCache());
+    private volatile ArtifactCache artifactCache;
+
+    public EmfSession() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public EmfSession(int maxIdle) {
+        this(maxIdle, DEFAULT_METAMODEL_CACHE_BUDGET);
+    }
+
+    public EmfSession(int maxIdle, long metaModelCacheBudget) {
+        this(maxIdle, metaModelCacheBudget, PerformanceProfile.HIGH_THROUGHPUT);
+    }
+
+    /**
+     * Creates a session.
+     *
+     * @param maxIdle              The maximum number of reset ResourceSets kept for reuse.
+     * @param metaModelCacheBudget The memory budget of the metamodel cache, in estimated bytes of heap.
+     * @param profile              The load and save options of every resource read or written in the session.
+     */
+    public EmfSession(int maxIdle, long metaModelCacheBudget, PerformanceProfile profile) {
+        this(maxIdle, metaModelCacheBudget, profile, instanceStorage());
+    }
+
+    /**
+     * Creates a session.
+     *
+     * @param maxIdle              The maximum number of reset ResourceSets kept for reuse.
+     * @param metaModelCacheBudget The memory budget of the metamodel cache, in estimated bytes of heap.
+     * @param profile              The load and save options of every resource read or written in the session.
+     * @param instanceStorage      What the instances of the dynamic packages of every metamodel the session loads
+     *                             are made of.
+     */
+    public EmfSession(int maxIdle, long metaModelCacheBudget, PerformanceProfile profile,
+                      MetaModelCache.InstanceStorage instanceStorage) {
+        this.maxIdle = maxIdle;
+        this.profile = profile;
+
+        // One registry for every pooled ResourceSet; falls back to the global registry like ResourceSetImpl does.
+        resourceFactoryRegistry = new ResourceFactoryRegistryImpl() {
+            @Override
+            protected Resource.Factory delegatedGetFactory(URI uri, String contentTypeIdentifier) {
+                return Resource.Factory.Registry.INSTANCE.getFactory(uri, contentTypeIdentifier);
+            }
+        };
+        Map<String, Object> extensionToFactoryMap = resourceFactoryRegistry.getExtensionToFactoryMap();
+        extensionToFactoryMap.put("ecore", new EcoreResourceFactoryImpl());
+        extensionToFactoryMap.put("genmodel", new EcoreResourceFactoryImpl());
+        extensionToFactoryMap.put("xmi", new XMIResourceFactoryImpl());
+        // Descriptors defer loading the XSD model and the GenModel package until a call needs them.
+        extensionToFactoryMap.put("xsd", (Resource.Factory.Descriptor) () -> new XSDResourceFactoryImpl());
+        extensionToFactoryMap.put(BinaryResourceFactoryImpl.EXTENSION, new BinaryResourceFactoryImpl());
+        // Instance models may use any extension; read and write them as XMI.
+        extensionToFactoryMap.put(Resource.Factory.Registry.DEFAULT_EXTENSION, new XMIResourceFactoryImpl());
+
+        packageRegistry = new EPackageRegistryImpl(EPackage.Registry.INSTANCE);
+        packageRegistry.put(GenModelPackage.eNS_URI, new EPackage.Descriptor() {
+            @Override
+            public EPackage getEPackage() {
+                return GenModelPackage.eINSTANCE;
+            }
+
+            @Override
+            public EFactory getEFactory() {
+                return GenModelPackage.eINSTANCE.getEFactoryInstance();
+            }
+        });
+
+        metaModelCache = new MetaModelCache(this, metaModelCacheBudget, true, instanceStorage);
+        artifactCache = createArtifactCache();
+    }
+
+    private static ArtifactCache createArtifactCache() {
+        String directory = System.getProperty(ARTIFACT_CACHE_PROPERTY);
+        if (directory == null || directory.isBlank()) {
+            return null;
+        }
+        try {
+            return new ArtifactCache(Path.of(directory),
+                    Long.getLong(ARTIFACT_CACHE_PROPERTY + ".maxBytes", ArtifactCache.DEFAULT_MAX_BYTES),
+                    Boolean.getBoolean(ARTIFACT_CACHE_PROPERTY + ".hardLinks")
+                            ? ArtifactCache.Materialization.HARD_LINK : ArtifactCache.Materialization.COPY);
+        } catch (IOException e) {
+            System.err.println("The artifact cache " + directory + " cannot be used: " + e);
+            return null;
+        }
+    }
+
+    private static MetaModelCache.InstanceStorage instanceStorage() {
+        String storage = System.getProperty(INSTANCE_STORAGE_PROPERTY);
+        if (storage == null || storage.isBlank()) {
+            return MetaModelCache.InstanceStorage.DYNAMIC;
+        }
+        try {
+            return MetaModelCache.InstanceStorage.valueOf(storage.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown instance storage " + storage + ", instances are dynamic.");
+            return MetaModelCache.InstanceStorage.DYNAMIC;
+        }
+    }
+
+    public Resource.Factory.Registry getResourceFactoryRegistry() {
+        return resourceFactoryRegistry;
+    }
+
+    public EPackage.Registry getPackageRegistry() {
+        return packageRegistry;
+    }
+
+    /**
+     * @return The load and save options applied to the resources of the session.
+     */
+    public PerformanceProfile getPerformanceProfile() {
+        return profile;
+    }
+
+    /**
+     * @return The cache of the metamodels loaded for reading and validating instance models.
+     */
+    public MetaModelCache getMetaModelCache() {
+        return metaModelCache;
+    }
+
+    /**
+     * @return The cache of the XSD schemas imported or included by the schemas converted to Ecore.
+     */
+    public XsdSchemaCache getSchemaCache() {
+        return schemaCache.get();
+    }
+
+    /**
+     * @return The cache of conversion outputs, or null if outputs are always computed.
+     */
+    public ArtifactCache getArtifactCache() {
+        return artifactCache;
+    }
+
+    /**
+     * Sets the cache of conversion outputs used by the EcoreUtils instances of this session.
+     *
+     * @param artifactCache The cache, or null to always compute the outputs.
+     */
+    public void setArtifactCache(ArtifactCache artifactCache) {
+        this.artifactCache = artifactCache;
+    }
+
+    /**
+     * Loads a resource and, concurrently, every resource it references, then resolves the proxies between them.
+     * Use it instead of {@code getResource(uri, true)} before a full traversal (validation, GenModel initialization)
+     * of a model split across files.
+     *
+     * @param resourceSet The ResourceSet receiving the resources.
+     * @param uri         The URI of the resource to load.
+     * @return The resource of the URI.
+     * @see ResourceClosureLoader
+     */
+    public Resource loadClosure(ResourceSet resourceSet, URI uri) {
+        return closureLoader.load(resourceSet, uri);
+    }
+
+    /**
+     * Borrows a ResourceSet from the pool, creating one if none is idle.
+     *
+     * @return A lease that returns the ResourceSet to the pool when closed.
+     */
+    public Lease acquire() {
+        PooledResourceSet resourceSet = idle.pollFirst();
+        if (resourceSet != null) {
+            idleCount.decrementAndGet();
+        } else {
+            resourceSet = createResourceSet();
+        }
+        return new Lease(resourceSet);
+    }
+
+    private PooledResourceSet createResourceSet() {
+        PooledResourceSet resourceSet = new PooledResourceSet();
+        resourceSet.setResourceFactoryRegistry(resourceFactoryRegistry);
+        // Packages registered during a call stay local to that call's ResourceSet.
+        resourceSet.setPackageRegistry(new EPackageRegistryImpl(packageRegistry));
+        // Resolve getResource(uri) through a map instead of scanning the resource list.
+        resourceSet.setURIResourceMap(new HashMap<>());
+        applyLoadOptions(resourceSet);
+        return resourceSet;
+    }
+
+    /**
+     * Sets the load options of the profile, used by every getResource(uri, true) of the ResourceSet.
+     */
+    private void applyLoadOptions(PooledResourceSet resourceSet) {
+        Map<Object, Object> loadOptions = resourceSet.getLoadOptions();
+        loadOptions.putAll(profile.getLoadOptions());
+        if (profile.cacheLookupTables()) {
+            loadOptions.put(XMLResource.OPTION_USE_XML_NAME_TO_FEATURE_MAP, resourceSet.nameToFeatureMap);
+        }
+    }
+
+    private void release(PooledResourceSet resourceSet) {
+        reset(resourceSet);
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offerFirst(resourceSet);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Clears everything a call may have left in a ResourceSet so that the next caller starts from a clean state.
+     */
+    private void reset(PooledResourceSet resourceSet) {
+        resourceSet.getResources().clear();
+        resourceSet.getURIResourceMap().clear();
+        resourceSet.getLoadOptions().clear();
+        resourceSet.getURIConverter().getURIMap().clear();
+        resourceSet.getPackageRegistry().clear();
+        resourceSet.getAdapterFactories().clear();
+        resourceSet.eAdapters().clear();
+
+        // The lookup tables only depend on the metamodels, so they are kept for the next caller, up to a point.
+        if (resourceSet.nameToFeatureMap.size() > MAX_CACHED_FEATURES) {
+            resourceSet.nameToFeatureMap.clear();
+            resourceSet.lookupTable.clear();
+        }
+        applyLoadOptions(resourceSet);
+    }
+
+    /**
+     * A pooled ResourceSet, with the tables that its loads and saves reuse from one document to the next.
+     * Like the ResourceSet, they are confined to the holder of the lease.
+     */
+    private static final class PooledResourceSet extends ResourceSetImpl {
+        private final Map<Object, Object> nameToFeatureMap = new HashMap<>();
+        private final List<Object> lookupTable = new ArrayList<>();
+    }
+
+    /**
+     * Exclusive use of a pooled ResourceSet. Close it (ideally with try-with-resources) to give the ResourceSet back.
+     */
+    public final class Lease implements AutoCloseable {
+        private final PooledResourceSet resourceSet;
+        private boolean released;
+
+        private Lease(PooledResourceSet resourceSet) {
+            this.resourceSet = resourceSet;
+        }
+
+        public ResourceSet getResourceSet() {
+            return resourceSet;
+        }
+
+        /**
+         * Returns the save options of the session's profile for the resources of this lease's ResourceSet.
+         * The feature lookup table they include assumes that these saves use no XMLMap or extended metadata.
+         *
+         * @return A new modifiable map of save options.
+         */
+        public Map<Object, Object> getSaveOptions() {
+            Map<Object, Object> saveOptions = profile.getSaveOptions();
+            if (profile.cacheLookupTables()) {
+                saveOptions.put(XMLResource.OPTION_USE_CACHED_LOOKUP_TABLE, resourceSet.lookupTable);
+            }
+            return saveOptions;
+        }
+
+        /**
+         * Keeps the ResourceSet out of the pool, for results that outlive the call (e.g. a returned GenModel).
+         */
+        public void detach() {
+            released = true;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(resourceSet);
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Saves an instance model as a main resource plus one resource per containment subtree chosen by a
+ * {@link FragmentationPolicy}. The fragments of {@code model.xmi} are {@code model.fragments/0.xmi},
+ * {@code model.fragments/1.xmi}, ...; the containers refer to them through containment proxies, which EMF
+ * resolves, loading the fragment, the first time the containment is traversed (see {@link FragmentedModel}).
+ */
+final class FragmentWriter {
+    private static final String FRAGMENTS_DIRECTORY_SUFFIX = ".fragments";
+
+    private FragmentWriter() {
+    }
+
+    /**
+     * @param modelURI The URI of the main resource of a fragmented model.
+     * @return The URI of the directory holding its fragments.
+     */
+    static URI getFragmentsDirectory(URI modelURI) {
+        return modelURI.trimSegments(1).appendSegment(modelURI.trimFileExtension().lastSegment() + FRAGMENTS_DIRECTORY_SUFFIX);
+    }
+
+    /**
+     * Moves the subtrees chosen by the policy into fragment resources of the resource's ResourceSet, and saves the
+     * resource and its fragments. The subtrees stay contained by their containers, so the model itself is unchanged.
+     * Local files of an earlier save are only replaced once every resource has been written.
+     *
+     * @param resource    The resource of the model, with its destination URI.
+     * @param policy      The policy choosing the subtrees to split off.
+     * @param saveOptions The options of every save.
+     * @return The number of fragments written.
+     * @throws IOException if a resource cannot be saved.
+     */
+    static int save(Resource resource, FragmentationPolicy policy, Map<?, ?> saveOptions) throws IOException {
+        ResourceSet resourceSet = resource.getResourceSet();
+        if (resource.getURI().isRelative()) {
+            // A plain path. Only URIs with a scheme are written relative to the resource, and the model must stay
+            // readable once moved along with its fragments.
+            resource.setURI(URI.createFileURI(new File(URI.decode(resource.getURI().toString())).getAbsolutePath()));
+        }
+        URI directory = getFragmentsDirectory(resource.getURI());
+        // Without an extension the resource is XMI, like instance models of any other extension.
+        String extension = Objects.requireNonNullElse(resource.getURI().fileExtension(), "xmi");
+
+        List<EObject> fragmentRoots = findFragmentRoots(resource, policy);
+        // Taken first, as an object leaving the resource loses its ID there.
+        Map<EObject, String> ids = new HashMap<>();
+        if (resource instanceof XMLResource xmlResource) {
+            for (EObject fragmentRoot : fragmentRoots) {
+                collectIDs(xmlResource, fragmentRoot, ids);
+                for (TreeIterator<EObject> iterator = EcoreUtil.getAllProperContents(fragmentRoot, false); iterator.hasNext(); ) {
+                    collectIDs(xmlResource, iterator.next(), ids);
+                }
+            }
+        }
+        List<Resource> fragments = new ArrayList<>(fragmentRoots.size());
+        for (EObject fragmentRoot : fragmentRoots) {
+            Resource fragment = resourceSet.createResource(directory.appendSegment(fragments.size() + "." + extension));
+            // A root of the fragment, and still an element of its container's containment list.
+            fragment.getContents().add(fragmentRoot);
+            fragments.add(fragment);
+        }
+
+        // The IDs of the moved objects belong to their new resources.
+        if (!ids.isEmpty()) {
+            for (Resource fragment : fragments) {
+                if (fragment instanceof XMLResource xmlFragment) {
+                    for (TreeIterator<EObject> iterator = EcoreUtil.getAllProperContents(fragment, false); iterator.hasNext(); ) {
+                        EObject eObject = iterator.next();
+                        String id = ids.get(eObject);
+                        if (id != null) {
+                            xmlFragment.setID(eObject, id);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (!directory.isFile() || !resource.getURI().isFile()) {
+            // Only local files can be replaced as a whole: elsewhere, the resources are saved in place.
+            resource.save(saveOptions);
+            for (Resource fragment : fragments) {
+                fragment.save(saveOptions);
+            }
+            return fragments.size();
+        }
+        replaceFiles(resource, fragments, Path.of(directory.toFileString()), extension, saveOptions);
+        return fragments.size();
+    }
+
+    private static void collectIDs(XMLResource resource, EObject eObject, Map<EObject, String> ids) {
+        String id = resource.getID(eObject);
+        if (id != null) {
+            ids.put(eObject, id);
+        }
+    }
+
+    /**
+     * Saves the resource and its fragments to temporary files, and only once all are written, moves them over the
+     * files of the previous save and deletes the fragments that save had beyond the new ones. A failed save leaves
+     * the previous files untouched.
+     */
+    private static void replaceFiles(Resource resource, List<Resource> fragments, Path directory, String extension,
+                                     Map<?, ?> saveOptions) throws IOException {
+        Path mainFile = Path.of(resource.getURI().toFileString()).toAbsolutePath();
+        Map<Path, Path> temporaryFiles = new LinkedHashMap<>();
+        try {
+            if (!fragments.isEmpty()) {
+                Files.createDirectories(directory);
+            }
+            for (int i = 0; i < fragments.size(); i++) {
+                Path fragmentFile = directory.resolve(i + "." + extension);
+                temporaryFiles.put(fragmentFile, saveToTemporaryFile(fragments.get(i), fragmentFile, saveOptions));
+            }
+            Files.createDirectories(mainFile.getParent());
+            // Moved last, so that the main resource never refers to fragments that are not in place yet.
+            temporaryFiles.put(mainFile, saveToTemporaryFile(resource, mainFile, saveOptions));
+
+            for (Iterator<Map.Entry<Path, Path>> iterator = temporaryFiles.entrySet().iterator(); iterator.hasNext(); ) {
+                Map.Entry<Path, Path> entry = iterator.next();
+                Files.move(entry.getValue(), entry.getKey(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                iterator.remove();
+            }
+        } finally {
+            for (Path temporaryFile : temporaryFiles.values()) {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+        deleteFragments(directory, extension, fragments.size());
+    }
+
+    /**
+     * Saves a resource to a new temporary file next to its destination. The resource keeps its URI, so that its
+     * references to the other resources are written relative to the destination.
+     */
+    private static Path saveToTemporaryFile(Resource resource, Path destination, Map<?, ?> saveOptions) throws IOException {
+        // Not Files.createTempFile, whose files only their owner can read: the saved model gets the usual permissions.
+        Path temporaryFile = destination.resolveSibling(destination.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        URIConverter uriConverter = resource.getResourceSet().getURIConverter();
+        try (OutputStream output = uriConverter.createOutputStream(URI.createFileURI(temporaryFile.toString()), saveOptions)) {
+            resource.save(output, saveOptions);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+        return temporaryFile;
+    }
+
+    /**
+     * Walks the containment trees of the resource bottom-up and returns the objects the policy splits off,
+     * innermost first. The walk uses its own stack, as containment trees can be deeper than the call stack allows.
+     */
+    private static List<EObject> findFragmentRoots(Resource resource, FragmentationPolicy policy) {
+        List<EObject> fragmentRoots = new ArrayList<>();
+        Deque<Subtree> stack = new ArrayDeque<>();
+        for (EObject root : resource.getContents()) {
+            stack.push(new Subtree(root));
+            while (!stack.isEmpty()) {
+                Subtree subtree = stack.peek();
+                if (subtree.children.hasNext()) {
+                    InternalEObject child = (InternalEObject) subtree.children.next();
+                    // Already in a resource of its own.
+                    if (child.eDirectResource() == null) {
+                        stack.push(new Subtree(child));
+                    }
+                    continue;
+                }
+                stack.pop();
+                Subtree container = stack.peek();
+                if (container == null) {
+                    continue;
+                }
+                EObject eObject = subtree.eObject;
+                if (eObject.eContainmentFeature().isResolveProxies() && policy.isFragmentRoot(eObject, subtree.size)) {
+                    fragmentRoots.add(eObject);
+                } else {
+                    container.size += subtree.size;
+                }
+            }
+        }
+        return fragmentRoots;
+    }
+
+    /**
+     * Removes the fragments of an earlier save beyond those of this save, so that the directory only holds the ones
+     * of this save.
+     *
+     * @param count The number of fragments of this save, numbered from 0.
+     */
+    private static void deleteFragments(Path directory, String extension, int count) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Pattern fragmentName = Pattern.compile("(\\d+)\\." + Pattern.quote(extension));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*." + extension)) {
+            for (Path file : files) {
+                Matcher matcher = fragmentName.matcher(file.getFileName().toString());
+                if (matcher.matches() && (matcher.group(1).length() > 9 || Integer.parseInt(matcher.group(1)) >= count)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static final class Subtree {
+        private final EObject eObject;
+        private final Iterator<EObject> children;
+        // The objects of the subtree that stay in the same resource as its root.
+        private int size = 1;
+
+        private Subtree(EObject eObject) {
+            this.eObject = eObject;
+            this.children = eObject.eContents().iterator();
+        }
+    }
+}
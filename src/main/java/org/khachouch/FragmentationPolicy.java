@@ -0,0 +1,76 @@
+package org.khachouch;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which containment subtrees of an instance model are saved as separate fragments by
+ * {@link EcoreUtilsImpl#saveModelAfterVerification(java.nio.file.Path, String, String, FragmentationPolicy)}.
+ * <p>
+ * The subtrees are visited bottom-up, so the size passed for an object excludes the subtrees below it that were
+ * already split off: a size threshold yields fragments of bounded size. Only objects held by a containment reference
+ * that resolves proxies can be split; the others stay with their container whatever the policy says (metamodels
+ * converted from XSD usually declare their containments with {@code resolveProxies="false"}).
+ */
+@FunctionalInterface
+public interface FragmentationPolicy {
+
+    /**
+     * @param eObject An object of the model, other than a root.
+     * @param size    The number of objects of its subtree that are not already in another fragment, itself included.
+     * @return true to save the subtree of the object as a fragment of its own.
+     */
+    boolean isFragmentRoot(EObject eObject, int size);
+
+    /**
+     * Splits off every instance of the given classes or their subclasses.
+     *
+     * @param classNames The names of the classes, simple (e.g. {@code Block}) or qualified (e.g. {@code gastm.Block}).
+     * @return The policy.
+     */
+    static FragmentationPolicy byEClass(String... classNames) {
+        Set<String> names = Set.of(classNames);
+        // Decided once per class, as a model has far more objects than classes.
+        Map<EClass, Boolean> decisions = new ConcurrentHashMap<>();
+        return (eObject, size) -> decisions.computeIfAbsent(eObject.eClass(), eClass -> {
+            if (matches(eClass, names)) {
+                return true;
+            }
+            for (EClass superType : eClass.getEAllSuperTypes()) {
+                if (matches(superType, names)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    private static boolean matches(EClass eClass, Set<String> names) {
+        return names.contains(eClass.getName()) || names.contains(StructureHasher.qualifiedName(eClass));
+    }
+
+    /**
+     * Splits off the subtrees reaching a number of objects, so that no fragment is much larger than that.
+     *
+     * @param maxObjects The number of objects from which a subtree becomes a fragment.
+     * @return The policy.
+     */
+    static FragmentationPolicy bySize(int maxObjects) {
+        if (maxObjects < 1) {
+            throw new IllegalArgumentException("maxObjects must be at least 1: " + maxObjects);
+        }
+        return (eObject, size) -> size >= maxObjects;
+    }
+
+    /**
+     * @param other Another policy.
+     * @return A policy splitting off the subtrees that this policy or the other one splits off.
+     */
+    default FragmentationPolicy or(FragmentationPolicy other) {
+        return (eObject, size) -> isFragmentRoot(eObject, size) || other.isFragmentRoot(eObject, size);
+    }
+}
@@ -0,0 +1,149 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * A model saved in fragments (see {@link FragmentationPolicy}), of which only the main resource is loaded up front.
+ * A fragment is loaded the first time a traversal reaches it, by resolving the containment proxy that stands for it,
+ * so reading one branch of a large model only loads the fragments along that branch.
+ * <p>
+ * With a limit on the loaded fragments, loading one more unloads the least recently loaded one: its objects become
+ * proxies, and it is loaded again if a traversal reaches it again. Objects of an unloaded fragment held by the caller
+ * are proxies too, so re-read them from their container rather than keeping them across a traversal.
+ * <p>
+ * The model lives in a ResourceSet leased from the session, given back by {@link #close()}. Like any ResourceSet,
+ * it must not be used by two threads at once.
+ */
+public class FragmentedModel implements AutoCloseable {
+    private final EmfSession.Lease lease;
+    private final Resource resource;
+    private final int maxLoadedFragments;
+    // In load order, most recently loaded last.
+    private final LinkedHashSet<Resource> loadedFragments = new LinkedHashSet<>();
+    private final FragmentTracker tracker = new FragmentTracker();
+    private int fragmentLoads;
+
+    /**
+     * Starts tracking the fragments loaded into the ResourceSet of a lease.
+     *
+     * @param lease              The lease of the ResourceSet, with the metamodel registered.
+     * @param resource           The main resource, loaded.
+     * @param maxLoadedFragments The maximum number of fragments kept loaded, or 0 for no limit.
+     */
+    FragmentedModel(EmfSession.Lease lease, Resource resource, int maxLoadedFragments) {
+        this.lease = lease;
+        this.resource = resource;
+        this.maxLoadedFragments = maxLoadedFragments;
+        lease.getResourceSet().eAdapters().add(tracker);
+    }
+
+    /**
+     * @return The first root object of the main resource, or null if it is empty.
+     */
+    public EObject getRoot() {
+        return resource.getContents().isEmpty() ? null : resource.getContents().get(0);
+    }
+
+    /**
+     * @return The main resource of the model.
+     */
+    public Resource getResource() {
+        return resource;
+    }
+
+    /**
+     * @return The number of fragments currently loaded.
+     */
+    public int getLoadedFragmentCount() {
+        return loadedFragments.size();
+    }
+
+    /**
+     * @return The number of times a fragment was loaded, including the loads of fragments unloaded before.
+     */
+    public int getFragmentLoadCount() {
+        return fragmentLoads;
+    }
+
+    /**
+     * Unloads every loaded fragment, keeping the main resource.
+     */
+    public void unloadFragments() {
+        for (Resource fragment : new ArrayList<>(loadedFragments)) {
+            fragment.unload();
+        }
+    }
+
+    /**
+     * Gives the ResourceSet back to the session; the model must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        lease.getResourceSet().eAdapters().remove(tracker);
+        for (Resource fragment : lease.getResourceSet().getResources()) {
+            fragment.eAdapters().remove(tracker);
+        }
+        lease.close();
+    }
+
+    private void loaded(Resource fragment) {
+        fragmentLoads++;
+        loadedFragments.add(fragment);
+        if (maxLoadedFragments > 0 && loadedFragments.size() > maxLoadedFragments) {
+            // The fragment being loaded is the last one, so it is never the one unloaded.
+            Resource eldest = loadedFragments.iterator().next();
+            eldest.unload();
+        }
+    }
+
+    /**
+     * Follows the fragments added to the ResourceSet, and their loads and unloads. A resource is notified of its
+     * load once its contents are in place, so unloading another fragment then does not disturb the load.
+     */
+    private final class FragmentTracker extends AdapterImpl {
+        @Override
+        public void notifyChanged(Notification notification) {
+            Object notifier = notification.getNotifier();
+            if (notifier instanceof ResourceSet && notification.getFeatureID(ResourceSet.class) == ResourceSet.RESOURCE_SET__RESOURCES) {
+                if (notification.getEventType() == Notification.ADD) {
+                    track(notification.getNewValue());
+                } else if (notification.getEventType() == Notification.ADD_MANY) {
+                    for (Object added : (List<?>) notification.getNewValue()) {
+                        track(added);
+                    }
+                }
+            } else if (notifier instanceof Resource fragment && notification.getFeatureID(Resource.class) == Resource.RESOURCE__IS_LOADED) {
+                if (notification.getNewBooleanValue()) {
+                    loaded(fragment);
+                } else {
+                    loadedFragments.remove(fragment);
+                }
+            }
+        }
+
+        private void track(Object added) {
+            if (added instanceof Resource fragment && fragment != resource) {
+                fragment.eAdapters().add(this);
+            }
+        }
+
+        @Override
+        public boolean isAdapterForType(Object type) {
+            return type == FragmentedModel.class;
+        }
+
+        @Override
+        public void setTarget(Notifier newTarget) {
+            // Attached to the ResourceSet and to every fragment; there is no single target.
+        }
+    }
+}
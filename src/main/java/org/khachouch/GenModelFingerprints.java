@@ -0,0 +1,348 @@
+package org.khachouch;
+
+import org.eclipse.emf.codegen.ecore.generator.Generator;
+import org.eclipse.emf.codegen.ecore.genmodel.GenBase;
+import org.eclipse.emf.codegen.ecore.genmodel.GenClass;
+import org.eclipse.emf.codegen.ecore.genmodel.GenClassifier;
+import org.eclipse.emf.codegen.ecore.genmodel.GenEnum;
+import org.eclipse.emf.codegen.ecore.genmodel.GenModel;
+import org.eclipse.emf.codegen.ecore.genmodel.GenModelPackage;
+import org.eclipse.emf.codegen.ecore.genmodel.GenPackage;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Fingerprints of the code generation artifacts of a GenModel (one per GenPackage, GenClass and GenEnum).
+ * A fingerprint covers everything the generated files of an artifact depend on: its Ecore structure, its generator
+ * settings down to those of its features, operations, parameters and literals, the structure and settings of its
+ * supertypes, the package and model-wide settings, and the settings of the packages of the types it references.
+ * The fingerprints of the last generation are kept in a manifest next to the .genmodel file, with the Java files
+ * generated for each artifact, so that those of the artifacts removed from the GenModel can be deleted.
+ */
+public class GenModelFingerprints {
+    /**
+     * The suffix appended to the GenModel file name to obtain the manifest file.
+     */
+    public static final String MANIFEST_SUFFIX = ".fingerprints";
+
+    // Prefixes the keys of the manifest lines listing the files generated for an artifact.
+    private static final String FILES_PREFIX = "files:";
+
+    private final GenModel genModel;
+    private final Map<GenBase, String> keys = new LinkedHashMap<>();
+    private final Map<String, String> fingerprints = new TreeMap<>();
+    // The paths of the Java files generated for each artifact, relative to the model directory.
+    private final Map<String, List<String>> files = new TreeMap<>();
+
+    private GenModelFingerprints(GenModel genModel) {
+        this.genModel = genModel;
+    }
+
+    /**
+     * Computes the fingerprints of all artifacts of a GenModel.
+     *
+     * @param genModel The GenModel to fingerprint.
+     * @return The fingerprints, keyed by artifact.
+     */
+    public static GenModelFingerprints compute(GenModel genModel) {
+        GenModelFingerprints result = new GenModelFingerprints(genModel);
+        StructureHasher global = new StructureHasher();
+        global.put(String.valueOf(Generator.class.getPackage().getImplementationVersion()));
+        global.putStructure(genModel, Set.of(GenModelPackage.Literals.GEN_MODEL__GEN_PACKAGES));
+        String globalHash = global.digest();
+
+        List<GenPackage> genPackages = new ArrayList<>();
+        collectGenPackages(genModel.getGenPackages(), genPackages);
+        for (GenPackage genPackage : genPackages) {
+            StructureHasher settings = new StructureHasher();
+            settings.put(globalHash);
+            // The classifiers are artifacts of their own, hashed below (genClassifiers is derived from these lists).
+            settings.putStructure(genPackage, Set.of(
+                    GenModelPackage.Literals.GEN_PACKAGE__GEN_CLASSES, GenModelPackage.Literals.GEN_PACKAGE__GEN_ENUMS,
+                    GenModelPackage.Literals.GEN_PACKAGE__GEN_DATA_TYPES, GenModelPackage.Literals.GEN_PACKAGE__NESTED_GEN_PACKAGES));
+            String settingsHash = settings.digest();
+
+            // The package-level files (package, factory, switch, ...) list every classifier and feature of the package.
+            StructureHasher packageHasher = new StructureHasher();
+            packageHasher.put(settingsHash);
+            packageHasher.putStructure(genPackage.getEcorePackage(), Set.of(
+                    EcorePackage.Literals.EPACKAGE__ECLASSIFIERS, EcorePackage.Literals.EPACKAGE__ESUBPACKAGES));
+            List<EObject> packageElements = new ArrayList<>();
+            for (GenClassifier genClassifier : genPackage.getGenClassifiers()) {
+                packageHasher.putStructure(genClassifier, Set.of());
+                packageHasher.putStructure(genClassifier.getEcoreClassifier(), Set.of());
+                packageElements.add(genClassifier.getEcoreClassifier());
+            }
+            putReferencedPackages(packageHasher, genPackage, packageElements);
+            result.add(genPackage, "package:" + genPackage.getQualifiedPackageName(), packageHasher.digest(), List.of(
+                    genPackage.getQualifiedPackageInterfaceName(), genPackage.getQualifiedPackageClassName(),
+                    genPackage.getQualifiedFactoryInterfaceName(), genPackage.getQualifiedFactoryClassName(),
+                    genPackage.getQualifiedAdapterFactoryClassName(), genPackage.getQualifiedSwitchClassName(),
+                    genPackage.getQualifiedValidatorClassName(), genPackage.getQualifiedResourceFactoryClassName(),
+                    genPackage.getQualifiedResourceClassName(), genPackage.getQualifiedXMLProcessorClassName()));
+
+            for (GenClass genClass : genPackage.getGenClasses()) {
+                StructureHasher classHasher = new StructureHasher();
+                classHasher.put(settingsHash);
+                classHasher.putStructure(genClass, Set.of());
+                classHasher.putStructure(genClass.getEcoreClass(), Set.of());
+                // Implementation classes flatten and number the features of all supertypes, as their GenFeatures say.
+                List<EObject> classElements = new ArrayList<>();
+                classElements.add(genClass.getEcoreClass());
+                for (EClass superType : genClass.getEcoreClass().getEAllSuperTypes()) {
+                    classHasher.putStructure(superType, Set.of());
+                    classElements.add(superType);
+                }
+                for (GenClass baseGenClass : genClass.getAllBaseGenClasses()) {
+                    classHasher.putStructure(baseGenClass, Set.of());
+                }
+                putReferencedPackages(classHasher, genPackage, classElements);
+                result.add(genClass, "class:" + genClass.getQualifiedInterfaceName(), classHasher.digest(), genClass.isInterface()
+                        ? List.of(genClass.getQualifiedInterfaceName())
+                        : List.of(genClass.getQualifiedInterfaceName(), genClass.getQualifiedClassName()));
+            }
+
+            for (GenEnum genEnum : genPackage.getGenEnums()) {
+                StructureHasher enumHasher = new StructureHasher();
+                enumHasher.put(settingsHash);
+                enumHasher.putStructure(genEnum, Set.of());
+                enumHasher.putStructure(genEnum.getEcoreEnum(), Set.of());
+                result.add(genEnum, "enum:" + genEnum.getQualifiedName(), enumHasher.digest(), List.of(genEnum.getQualifiedName()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Hashes the settings of the GenPackages of the classifiers that Ecore elements reference from other packages:
+     * their base package, prefix and suffixes make the names the generated code imports.
+     *
+     * @param hasher     The hasher of an artifact of the GenPackage.
+     * @param genPackage The GenPackage of the artifact.
+     * @param elements   The Ecore elements the artifact is generated from, with their contents.
+     */
+    private static void putReferencedPackages(StructureHasher hasher, GenPackage genPackage, List<EObject> elements) {
+        Map<String, EPackage> referenced = new TreeMap<>();
+        for (EObject element : elements) {
+            for (TreeIterator<EObject> contents = EcoreUtil.getAllContents(List.of(element)); contents.hasNext(); ) {
+                for (EObject target : contents.next().eCrossReferences()) {
+                    if (target instanceof EClassifier classifier && classifier.getEPackage() != null
+                            && classifier.getEPackage() != genPackage.getEcorePackage()) {
+                        referenced.put(classifier.getEPackage().getNsURI() + " " + StructureHasher.qualifiedName(classifier.getEPackage()),
+                                classifier.getEPackage());
+                    }
+                }
+            }
+        }
+        for (Map.Entry<String, EPackage> entry : referenced.entrySet()) {
+            hasher.put(entry.getKey());
+            GenPackage referencedGenPackage = genPackage.getGenModel().findGenPackage(entry.getValue());
+            if (referencedGenPackage != null) {
+                hasher.putAttributes(referencedGenPackage);
+                if (referencedGenPackage.getGenModel() != genPackage.getGenModel()) {
+                    hasher.putAttributes(referencedGenPackage.getGenModel());
+                }
+            }
+        }
+    }
+
+    private static void collectGenPackages(List<GenPackage> genPackages, List<GenPackage> result) {
+        for (GenPackage genPackage : genPackages) {
+            result.add(genPackage);
+            collectGenPackages(genPackage.getNestedGenPackages(), result);
+        }
+    }
+
+    /**
+     * @param qualifiedNames The qualified names of the Java types generated for the artifact, used to delete them
+     *                       once the artifact is removed from the GenModel.
+     */
+    private void add(GenBase artifact, String key, String fingerprint, List<String> qualifiedNames) {
+        keys.put(artifact, key);
+        fingerprints.put(key, fingerprint);
+        List<String> paths = new ArrayList<>();
+        for (String qualifiedName : qualifiedNames) {
+            if (qualifiedName != null && !paths.contains(javaPath(qualifiedName))) {
+                paths.add(javaPath(qualifiedName));
+            }
+        }
+        files.put(key, paths);
+    }
+
+    private static String javaPath(String qualifiedName) {
+        return qualifiedName.replace('.', '/') + ".java";
+    }
+
+    /**
+     * Determines the artifacts whose fingerprint differs from (or is missing in) a previous generation,
+     * plus the artifacts whose main Java file no longer exists.
+     *
+     * @param previous The fingerprints of the previous generation, as read from the manifest.
+     * @return The artifacts to regenerate.
+     */
+    public Set<GenBase> getChangedArtifacts(Map<String, String> previous) {
+        Set<GenBase> changed = new HashSet<>();
+        for (Map.Entry<GenBase, String> entry : keys.entrySet()) {
+            String key = entry.getValue();
+            if (!fingerprints.get(key).equals(previous.get(key)) || !outputExists(entry.getKey())) {
+                changed.add(entry.getKey());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Determines the files generated for artifacts of a previous generation that are no longer in the GenModel,
+     * such as the interface and implementation of a deleted class. Files a current artifact generates are not
+     * included. Manifests written before the generated files were recorded list none.
+     *
+     * @param previous The fingerprints of the previous generation, as read from the manifest.
+     * @return The paths of the stale files, relative to the model directory.
+     */
+    public Set<String> getStaleFiles(Map<String, String> previous) {
+        Set<String> current = new HashSet<>();
+        files.values().forEach(current::addAll);
+        Set<String> stale = new TreeSet<>();
+        for (Map.Entry<String, String> entry : previous.entrySet()) {
+            if (entry.getKey().startsWith(FILES_PREFIX) && !fingerprints.containsKey(entry.getKey().substring(FILES_PREFIX.length()))) {
+                for (String path : entry.getValue().split(",")) {
+                    if (!path.isEmpty() && !current.contains(path)) {
+                        stale.add(path);
+                    }
+                }
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Deletes the files of {@link #getStaleFiles(Map)} that exist in the model directory.
+     *
+     * @param previous The fingerprints of the previous generation, as read from the manifest.
+     * @return The number of files deleted.
+     * @throws IOException if a file cannot be deleted.
+     */
+    public int deleteStaleFiles(Map<String, String> previous) throws IOException {
+        URIConverter uriConverter = uriConverter(genModel);
+        int deleted = 0;
+        for (String path : getStaleFiles(previous)) {
+            URI uri = outputURI(genModel, path);
+            if (uriConverter.exists(uri, null)) {
+                uriConverter.delete(uri, null);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    public Map<String, String> getFingerprints() {
+        return fingerprints;
+    }
+
+    /**
+     * Checks that the main Java file of an artifact is present in the model directory.
+     */
+    private static boolean outputExists(GenBase artifact) {
+        GenModel genModel = artifact.getGenModel();
+        String qualifiedName;
+        if (artifact instanceof GenPackage genPackage) {
+            qualifiedName = genPackage.getQualifiedPackageInterfaceName();
+        } else if (artifact instanceof GenClass genClass) {
+            qualifiedName = genClass.getQualifiedInterfaceName();
+        } else {
+            qualifiedName = ((GenEnum) artifact).getQualifiedName();
+        }
+        return uriConverter(genModel).exists(outputURI(genModel, javaPath(qualifiedName)), null);
+    }
+
+    private static URI outputURI(GenModel genModel, String path) {
+        String modelDirectory = genModel.getModelDirectory().replaceAll("/+$", "");
+        return URI.createPlatformResourceURI(modelDirectory + "/" + path, true);
+    }
+
+    private static URIConverter uriConverter(GenModel genModel) {
+        return genModel.eResource() != null && genModel.eResource().getResourceSet() != null
+                ? genModel.eResource().getResourceSet().getURIConverter()
+                : URIConverter.INSTANCE;
+    }
+
+    /**
+     * Locates the manifest of a GenModel, next to its .genmodel file.
+     *
+     * @param genModel The GenModel.
+     * @return The manifest file, or null if the GenModel is not stored in a local file.
+     */
+    public static File getManifestFile(GenModel genModel) {
+        if (genModel.eResource() == null || !genModel.eResource().getURI().isFile()) {
+            return null;
+        }
+        return new File(genModel.eResource().getURI().toFileString() + MANIFEST_SUFFIX);
+    }
+
+    /**
+     * Reads a manifest written by {@link #writeManifest(File)}.
+     *
+     * @param manifest The manifest file.
+     * @return The fingerprints it contains, or an empty map if it does not exist.
+     * @throws IOException if the manifest cannot be read.
+     */
+    public static Map<String, String> readManifest(File manifest) throws IOException {
+        Map<String, String> result = new HashMap<>();
+        if (manifest == null || !manifest.isFile()) {
+            return result;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(manifest.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf('=');
+                if (separator > 0) {
+                    result.put(line.substring(0, separator), line.substring(separator + 1));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the fingerprints to a manifest, one sorted {@code key=fingerprint} line per artifact, followed by a
+     * {@code files:key=path,...} line per artifact listing its generated files.
+     *
+     * @param manifest The manifest file.
+     * @throws IOException if the manifest cannot be written.
+     */
+    public void writeManifest(File manifest) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(manifest.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue());
+                writer.newLine();
+            }
+            for (Map.Entry<String, List<String>> entry : files.entrySet()) {
+                writer.write(FILES_PREFIX + entry.getKey() + "=" + String.join(",", entry.getValue()));
+                writer.newLine();
+            }
+        }
+    }
+}
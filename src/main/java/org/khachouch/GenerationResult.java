@@ -0,0 +1,19 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.util.Diagnostic;
+
+/**
+ * The outcome of one code generation.
+ *
+ * @param diagnostic  The diagnostic returned by the EMF generator, with the errors of every generated artifact.
+ * @param errorOutput What the generator printed to {@code System.err} during this generation only.
+ */
+public record GenerationResult(Diagnostic diagnostic, String errorOutput) {
+
+    /**
+     * @return true if the generation completed without errors.
+     */
+    public boolean isSuccess() {
+        return diagnostic.getSeverity() < Diagnostic.ERROR;
+    }
+}
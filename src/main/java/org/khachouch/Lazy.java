@@ -0,0 +1,32 @@
+package org.khachouch;
+
+import java.util.function.Supplier;
+
+/**
+ * A value created by its supplier on first use, once, even when several threads ask for it at the same time.
+ *
+ * @param <T> The type of the value.
+ */
+final class Lazy<T> implements Supplier<T> {
+    private final Supplier<T> supplier;
+    private volatile T value;
+
+    Lazy(Supplier<T> supplier) {
+        this.supplier = supplier;
+    }
+
+    @Override
+    public T get() {
+        T result = value;
+        if (result == null) {
+            synchronized (this) {
+                result = value;
+                if (result == null) {
+                    result = supplier.get();
+                    value = result;
+                }
+            }
+        }
+        return result;
+    }
+}
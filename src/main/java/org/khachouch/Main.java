@@ -3,18 +3,26 @@ package org.khachouch;
 import org.eclipse.emf.codegen.ecore.genmodel.GenModel;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 
 public class Main {
     public static void main(String[] args) {
-        // This line sets a system property to add an export directive for the java.desktop module.
-        // Specifically, it allows the unnamed module (our application) to access the internal package
-        // com.sun.imageio.plugins.png. This is necessary because the PlantUML library we are using
-        // attempts to access the PNGMetadata class within this package. Without this directive,
-        // the JVM will throw an IllegalAccessError, as the java.desktop module does not export
-        // this package by default. Adding this export directive ensures that our application
-        // can access the necessary internal classes and avoid runtime errors.
-        System.setProperty("jdk.module.addexports", "java.desktop/com.sun.imageio.plugins.png=ALL-UNNAMED");
-
+        // With arguments, run one command (see Commands), or serve commands to EcoreUtilsClient until shut down,
+        // by default on a Unix-domain socket only the current user can use.
+        if (args.length >= 1 && args.length <= 2 && args[0].equals("serve")) {
+            String address = args.length == 2 ? args[1] : EcoreUtilsClient.defaultSocket().toString();
+            try (EcoreUtilsServer server = new EcoreUtilsServer(new EcoreUtilsImpl(), address)) {
+                server.serve();
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(Commands.FAILURE);
+            }
+            return;
+        }
+        if (args.length > 0) {
+            System.exit(new Commands(new EcoreUtilsImpl(), Path.of("").toAbsolutePath(), System.out, System.err).run(args));
+        }
 
         System.out.println("Hello, World!");
         String ecoreFilePath = "src/main/resources/GastmEcore/gastm.ecore";
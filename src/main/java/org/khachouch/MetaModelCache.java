@@ -0,0 +1,481 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Keeps loaded metamodels (.ecore files) in memory so that instance models can be read and validated
+ * without reloading their metamodel on every call.
+ * Entries are keyed by canonical path and checked against the modification time and size of the file, and of every
+ * file of the metamodels it references, on every access; a metamodel one of whose files changed is reloaded. With
+ * content hashing enabled, a file whose timestamp changed but whose content did not is kept. The least recently used entries are evicted once the estimated heap usage exceeds the budget.
+ * Cached metamodels are shared between threads, so their derived caches are computed before they are handed out.
+ * Unless instances are dynamic, the dynamic packages of a metamodel also get the factory of their
+ * {@link InstanceStorage} before they are handed out, so that the instance models read with them are made of
+ * generated classes or compact objects.
+ */
+public class MetaModelCache {
+    /**
+     * A rough heap cost of one metamodel element (EClass, EAttribute, EAnnotation, ...) with its derived caches.
+     */
+    private static final long ESTIMATED_BYTES_PER_OBJECT = 512;
+
+    /**
+     * A snapshot of the cache counters.
+     *
+     * @param hits          Lookups answered from the cache, or by waiting for another thread loading the same file.
+     * @param misses        Lookups that had to load the metamodel (including reloads after invalidation).
+     * @param evictions     Entries removed to stay within the memory budget.
+     * @param invalidations Entries dropped because their file changed on disk.
+     * @param entries       The number of cached metamodels.
+     * @param weight        The estimated heap usage of the cached metamodels, in bytes.
+     */
+    public record Stats(long hits, long misses, long evictions, long invalidations, int entries, long weight) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    /**
+     * What the instances of the dynamic packages of the cached metamodels are made of.
+     */
+    public enum InstanceStorage {
+        /**
+         * EMF's DynamicEObjectImpl.
+         */
+        DYNAMIC,
+        /**
+         * Classes generated at runtime, one per EClass (see {@link RuntimeEFactory}).
+         */
+        RUNTIME_CLASSES,
+        /**
+         * CompactEObjects, whose primitive attributes are packed into bits (see {@link CompactEFactory}).
+         */
+        COMPACT;
+
+        /**
+         * Installs the factory of this storage on a package and its subpackages.
+         *
+         * @param ePackage A package, before any of its classes is instantiated.
+         */
+        void install(EPackage ePackage) {
+            switch (this) {
+                case RUNTIME_CLASSES -> RuntimeEFactory.install(ePackage);
+                case COMPACT -> CompactEFactory.install(ePackage);
+                case DYNAMIC -> {
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        final Resource resource;
+        final long weight;
+        // The metamodel file first, then the files of the metamodels it references.
+        final List<FileState> files;
+
+        Entry(Resource resource, long weight, List<FileState> files) {
+            this.resource = resource;
+            this.weight = weight;
+            this.files = files;
+        }
+    }
+
+    /**
+     * A file an entry was loaded from, as it was then.
+     */
+    private static final class FileState {
+        final Path path;
+        // Updated under the cache's lock, read by the threads checking the entry.
+        volatile long lastModified;
+        volatile long size;
+        final byte[] contentHash;
+
+        FileState(Path path, long lastModified, long size, byte[] contentHash) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.contentHash = contentHash;
+        }
+    }
+
+    /**
+     * The new modification time and size of a file whose content did not change.
+     */
+    private record Touch(FileState file, long lastModified, long size) {
+    }
+
+    private final EmfSession session;
+    private final long maxWeight;
+    private final boolean hashContent;
+    private final InstanceStorage instanceStorage;
+    // Access-ordered, so iteration starts with the least recently used entry.
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, CompletableFuture<Resource>> loading = new HashMap<>();
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Creates a cache.
+     *
+     * @param session     The session whose resource factories are used to load the metamodels.
+     * @param maxWeight   The memory budget, in estimated bytes of heap. The most recently used entry is always kept.
+     * @param hashContent true to compare file contents when the modification time or size changed, false to reload directly.
+     */
+    public MetaModelCache(EmfSession session, long maxWeight, boolean hashContent) {
+        this(session, maxWeight, hashContent, InstanceStorage.DYNAMIC);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param session         The session whose resource factories are used to load the metamodels.
+     * @param maxWeight       The memory budget, in estimated bytes of heap. The most recently used entry is always kept.
+     * @param hashContent     true to compare file contents when the modification time or size changed, false to reload directly.
+     * @param instanceStorage What the instances of the dynamic packages of every metamodel loaded are made of.
+     */
+    public MetaModelCache(EmfSession session, long maxWeight, boolean hashContent, InstanceStorage instanceStorage) {
+        this.session = session;
+        this.maxWeight = maxWeight;
+        this.hashContent = hashContent;
+        this.instanceStorage = instanceStorage;
+    }
+
+    /**
+     * @return What the instances of the cached metamodels are made of.
+     */
+    public InstanceStorage getInstanceStorage() {
+        return instanceStorage;
+    }
+
+    /**
+     * Returns the metamodel stored in a file, loading it if it is not cached or changed on disk.
+     *
+     * @param metaModelPath The path to the metamodel file.
+     * @return The resource holding the metamodel. It must not be modified.
+     * @throws IOException if the file cannot be read or loaded.
+     */
+    public Resource get(String metaModelPath) throws IOException {
+        Path path = Path.of(metaModelPath).toRealPath();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        Entry cached;
+        synchronized (this) {
+            cached = entries.get(path);
+        }
+        // The files are checked, and hashed if they changed, outside the lock, so that other metamodels stay
+        // available meanwhile. null if one of them changed.
+        List<Touch> touches = cached != null ? check(cached) : null;
+
+        CompletableFuture<Resource> pending;
+        boolean loader = false;
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (entry != null && (entry != cached || touches != null)) {
+                // Unchanged, or reloaded by another thread while the files were checked.
+                if (entry == cached) {
+                    for (Touch touch : touches) {
+                        touch.file.lastModified = touch.lastModified;
+                        touch.file.size = touch.size;
+                    }
+                }
+                hits++;
+                return entry.resource;
+            }
+            if (entry != null) {
+                remove(path);
+                invalidations++;
+            }
+            // Threads missing on a file that is being loaded wait for that load instead of loading it again.
+            pending = loading.get(path);
+            if (pending == null) {
+                pending = new CompletableFuture<>();
+                loading.put(path, pending);
+                loader = true;
+                misses++;
+            } else {
+                hits++;
+            }
+        }
+
+        if (!loader) {
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof IOException ioException ? ioException : new IOException(e.getCause());
+            }
+        }
+
+        // The load itself happens outside the lock, so other metamodels stay available meanwhile.
+        try {
+            // The metamodel file as it was before the load, so that a change during the load is seen on the next get.
+            FileState file = new FileState(path, lastModified, size, hashContent ? hash(path) : null);
+            Resource resource = load(path);
+            Entry entry = new Entry(resource, estimateWeight(resource), fileStates(file, resource.getResourceSet()));
+            synchronized (this) {
+                loading.remove(path);
+                Entry previous = entries.put(path, entry);
+                if (previous != null) {
+                    weight -= previous.weight;
+                }
+                weight += entry.weight;
+                evict();
+            }
+            pending.complete(resource);
+            return resource;
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                loading.remove(path);
+            }
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Compares the files of an entry with the disk.
+     *
+     * @return The files whose timestamp or size changed but whose content did not, or null if a file changed or
+     * cannot be read.
+     */
+    private List<Touch> check(Entry entry) {
+        List<Touch> touches = new ArrayList<>();
+        try {
+            for (FileState file : entry.files) {
+                BasicFileAttributes attributes = Files.readAttributes(file.path, BasicFileAttributes.class);
+                long lastModified = attributes.lastModifiedTime().toMillis();
+                long size = attributes.size();
+                if (file.lastModified == lastModified && file.size == size) {
+                    continue;
+                }
+                if (file.contentHash == null || !Arrays.equals(file.contentHash, hash(file.path))) {
+                    return null;
+                }
+                touches.add(new Touch(file, lastModified, size));
+            }
+        } catch (IOException e) {
+            // Deleted, or no longer readable: the metamodel is loaded again, which reports the problem.
+            return null;
+        }
+        return touches;
+    }
+
+    /**
+     * @return The metamodel file, and the state of the other local files loaded in its ResourceSet.
+     */
+    private List<FileState> fileStates(FileState metaModelFile, ResourceSet resourceSet) throws IOException {
+        List<FileState> files = new ArrayList<>();
+        files.add(metaModelFile);
+        for (Resource loaded : resourceSet.getResources()) {
+            URI uri = loaded.getURI();
+            if (uri == null || !uri.isFile()) {
+                continue;
+            }
+            Path file = Path.of(uri.toFileString()).toAbsolutePath().normalize();
+            if (!Files.isRegularFile(file) || file.toRealPath().equals(metaModelFile.path)) {
+                continue;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            files.add(new FileState(file, attributes.lastModifiedTime().toMillis(), attributes.size(),
+                    hashContent ? hash(file) : null));
+        }
+        return List.copyOf(files);
+    }
+
+    /**
+     * Returns the root packages of a metamodel, loading it if needed.
+     *
+     * @param metaModelPath The path to the metamodel file.
+     * @return The root EPackages of the metamodel.
+     * @throws IOException if the file cannot be read or loaded.
+     */
+    public List<EPackage> getPackages(String metaModelPath) throws IOException {
+        List<EPackage> packages = new ArrayList<>();
+        for (EObject root : get(metaModelPath).getContents()) {
+            if (root instanceof EPackage ePackage) {
+                packages.add(ePackage);
+            }
+        }
+        return packages;
+    }
+
+    /**
+     * Makes a cached metamodel available to a ResourceSet: its packages are registered by namespace URI,
+     * and references to the metamodel file resolve to the cached resource instead of loading the file again.
+     *
+     * @param resourceSet   The ResourceSet that will load instance models.
+     * @param metaModelPath The path to the metamodel file.
+     * @throws IOException if the file cannot be read or loaded.
+     */
+    public void register(ResourceSet resourceSet, String metaModelPath) throws IOException {
+        Resource resource = get(metaModelPath);
+        for (EObject root : resource.getContents()) {
+            if (root instanceof EPackage ePackage) {
+                resourceSet.getPackageRegistry().put(ePackage.getNsURI(), ePackage);
+            }
+        }
+        if (resourceSet instanceof ResourceSetImpl resourceSetImpl && resourceSetImpl.getURIResourceMap() != null) {
+            resourceSetImpl.getURIResourceMap().put(resource.getURI(), resource);
+        }
+    }
+
+    /**
+     * Drops the entry of a metamodel file, if cached.
+     *
+     * @param metaModelPath The path to the metamodel file.
+     */
+    public void invalidate(String metaModelPath) {
+        Path path = Path.of(metaModelPath).toAbsolutePath().normalize();
+        try {
+            path = path.toRealPath();
+        } catch (IOException e) {
+            // The file is gone; its entry, if any, is keyed by the normalized path.
+        }
+        synchronized (this) {
+            if (remove(path)) {
+                invalidations++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, invalidations, entries.size(), weight);
+    }
+
+    private boolean remove(Path path) {
+        Entry entry = entries.remove(path);
+        if (entry == null) {
+            return false;
+        }
+        weight -= entry.weight;
+        return true;
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (weight > maxWeight && entries.size() > 1) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            weight -= eldest.weight;
+            evictions++;
+        }
+    }
+
+    /**
+     * Loads a metamodel into its own ResourceSet and prepares it for concurrent readers.
+     */
+    private Resource load(Path path) throws IOException {
+        // The ResourceSet lives as long as the entry, so it is not given back to the pool.
+        EmfSession.Lease lease = session.acquire();
+        lease.detach();
+        try {
+            Resource resource = session.loadClosure(lease.getResourceSet(), URI.createFileURI(path.toString()));
+            // The metamodels it references are shared along with it.
+            for (Resource loaded : lease.getResourceSet().getResources()) {
+                warm(loaded);
+            }
+            if (instanceStorage != InstanceStorage.DYNAMIC) {
+                // Before any instance exists, and before other threads see the packages.
+                for (Resource loaded : lease.getResourceSet().getResources()) {
+                    for (EObject root : loaded.getContents()) {
+                        if (root instanceof EPackage ePackage) {
+                            instanceStorage.install(ePackage);
+                        }
+                    }
+                }
+            }
+            return resource;
+        } catch (RuntimeException e) {
+            throw new IOException("Could not load metamodel " + path, e);
+        }
+    }
+
+    /**
+     * Computes the lazily built caches of every EPackage (classifiers by name) and EClass (all features,
+     * supertypes, feature IDs, features by name), so that threads sharing the metamodel only ever read it.
+     */
+    private static void warm(Resource resource) {
+        for (TreeIterator<EObject> iterator = resource.getAllContents(); iterator.hasNext(); ) {
+            warm(iterator.next());
+        }
+    }
+
+    /**
+     * Computes the lazily built caches of one element of a metamodel, if it is an EPackage or an EClass.
+     *
+     * @param eObject An element of a metamodel.
+     */
+    static void warm(EObject eObject) {
+        if (eObject instanceof EPackage ePackage) {
+            ePackage.getEClassifier("");
+        } else if (eObject instanceof EClass eClass) {
+            eClass.getEAllStructuralFeatures();
+            eClass.getEAllAttributes();
+            eClass.getEAllReferences();
+            eClass.getEAllContainments();
+            eClass.getEAllOperations();
+            eClass.getEAllSuperTypes();
+            eClass.getEAllGenericSuperTypes();
+            eClass.getEIDAttribute();
+            eClass.getFeatureCount();
+            eClass.getEStructuralFeature("");
+        }
+    }
+
+    private static long estimateWeight(Resource resource) {
+        long objects = 0;
+        for (TreeIterator<EObject> iterator = EcoreUtil.getAllContents(resource.getResourceSet(), false); iterator.hasNext(); iterator.next()) {
+            objects++;
+        }
+        return objects * ESTIMATED_BYTES_PER_OBJECT;
+    }
+
+    private static byte[] hash(Path path) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            for (int read; (read = inputStream.read(buffer)) != -1; ) {
+                digest.update(buffer, 0, read);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
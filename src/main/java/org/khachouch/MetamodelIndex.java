@@ -0,0 +1,233 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lookup tables over the classifiers of an EPackage tree (a root package and its subpackages), computed once:
+ * classifiers and features by qualified name, the subtypes of every class and the references pointing to it.
+ * Qualified names join the package names and the element name with dots, e.g. {@code gastm.Expression} or
+ * {@code gastm.Expression.type}.
+ * The index is attached to the root package and reused by later calls. It is a snapshot: a metamodel that is
+ * modified afterwards needs {@link #rebuild(EPackage)}. Classes outside the tree (e.g. subtypes defined in
+ * other metamodels) are not indexed. The lists it returns are shared by every caller and cannot be modified.
+ */
+public class MetamodelIndex extends AdapterImpl {
+    private final List<EPackage> packages;
+    private final Map<EPackage, List<EClassifier>> packageClassifiers = new HashMap<>();
+    private final Map<String, EClassifier> classifiers = new HashMap<>();
+    private final Map<String, List<EClassifier>> classifiersBySimpleName = new HashMap<>();
+    private final Map<String, EStructuralFeature> features = new HashMap<>();
+    private final Map<EClass, Map<String, EStructuralFeature>> allFeatures = new HashMap<>();
+    private final Map<EClass, List<EClass>> directSubtypes = new HashMap<>();
+    private final Map<EClass, List<EClass>> allSubtypes = new HashMap<>();
+    private final Map<EClass, List<EReference>> incomingReferences = new HashMap<>();
+
+    private MetamodelIndex(EPackage root) {
+        List<EPackage> treePackages = new ArrayList<>();
+        collect(root, treePackages);
+        // Every class of the tree is known before the subtype closures are computed.
+        for (EClass eClass : allFeatures.keySet()) {
+            allSubtypes.put(eClass, List.copyOf(closure(eClass)));
+        }
+        // The lists are handed out as they are, so none of them can be changed by a caller.
+        packages = List.copyOf(treePackages);
+        classifiersBySimpleName.replaceAll((name, list) -> List.copyOf(list));
+        directSubtypes.replaceAll((eClass, list) -> List.copyOf(list));
+        incomingReferences.replaceAll((eClass, list) -> List.copyOf(list));
+    }
+
+    /**
+     * Returns the index of the EPackage tree containing a package, building it on first use.
+     *
+     * @param ePackage A package of the tree; the index belongs to the root package.
+     * @return The index.
+     */
+    public static MetamodelIndex get(EPackage ePackage) {
+        EPackage root = (EPackage) EcoreUtil.getRootContainer(ePackage);
+        // Cached metamodels are shared between threads, and their adapter lists are not thread-safe.
+        // The lock is the root package, so building an index only holds up the callers of that tree.
+        synchronized (root) {
+            MetamodelIndex index = (MetamodelIndex) EcoreUtil.getExistingAdapter(root, MetamodelIndex.class);
+            if (index == null) {
+                index = new MetamodelIndex(root);
+                root.eAdapters().add(index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Drops the index of an EPackage tree and builds it again, after the metamodel was modified.
+     *
+     * @param ePackage A package of the tree.
+     * @return The new index.
+     */
+    public static MetamodelIndex rebuild(EPackage ePackage) {
+        EPackage root = (EPackage) EcoreUtil.getRootContainer(ePackage);
+        synchronized (root) {
+            root.eAdapters().remove(EcoreUtil.getExistingAdapter(root, MetamodelIndex.class));
+            return get(root);
+        }
+    }
+
+    @Override
+    public boolean isAdapterForType(Object type) {
+        return type == MetamodelIndex.class;
+    }
+
+    /**
+     * @return The root package and all its subpackages, depth first; read-only.
+     */
+    public List<EPackage> getPackages() {
+        return packages;
+    }
+
+    /**
+     * @param ePackage A package of the tree.
+     * @return Its classifiers, in declaration order, as they were when the index was built; read-only.
+     */
+    public List<EClassifier> getClassifiers(EPackage ePackage) {
+        return packageClassifiers.getOrDefault(ePackage, List.of());
+    }
+
+    /**
+     * @param qualifiedName The qualified name of a classifier, e.g. {@code gastm.Expression}.
+     * @return The classifier, or null.
+     */
+    public EClassifier getClassifier(String qualifiedName) {
+        return classifiers.get(qualifiedName);
+    }
+
+    /**
+     * @param name The simple name of a classifier.
+     * @return The classifiers of the tree with that name, in package order; read-only.
+     */
+    public List<EClassifier> getClassifiersByName(String name) {
+        return classifiersBySimpleName.getOrDefault(name, List.of());
+    }
+
+    /**
+     * @param qualifiedName The qualified name of a class, e.g. {@code gastm.Expression}.
+     * @return The class, or null if there is none or the classifier is not a class.
+     */
+    public EClass getEClass(String qualifiedName) {
+        return classifiers.get(qualifiedName) instanceof EClass eClass ? eClass : null;
+    }
+
+    /**
+     * @param qualifiedName The qualified name of a feature, e.g. {@code gastm.Expression.type}; only the features
+     *                      declared by the class itself are found this way.
+     * @return The feature, or null.
+     */
+    public EStructuralFeature getFeature(String qualifiedName) {
+        return features.get(qualifiedName);
+    }
+
+    /**
+     * @param eClass A class of the tree.
+     * @param name   The name of a feature of the class, declared or inherited.
+     * @return The feature, or null.
+     */
+    public EStructuralFeature getFeature(EClass eClass, String name) {
+        Map<String, EStructuralFeature> classFeatures = allFeatures.get(eClass);
+        return classFeatures == null ? null : classFeatures.get(name);
+    }
+
+    /**
+     * @param eClass A class of the tree.
+     * @return The classes of the tree having it as a direct supertype; read-only.
+     */
+    public List<EClass> getDirectSubtypes(EClass eClass) {
+        return directSubtypes.getOrDefault(eClass, List.of());
+    }
+
+    /**
+     * @param eClass A class of the tree.
+     * @return The classes of the tree inheriting from it, directly or not, nearest first; read-only.
+     */
+    public List<EClass> getAllSubtypes(EClass eClass) {
+        return allSubtypes.getOrDefault(eClass, List.of());
+    }
+
+    /**
+     * @param eClass A class of the tree.
+     * @return The references of the tree whose type is that class (not one of its supertypes); read-only.
+     */
+    public List<EReference> getIncomingReferences(EClass eClass) {
+        return incomingReferences.getOrDefault(eClass, List.of());
+    }
+
+    /**
+     * @param classifier A classifier of the tree.
+     * @return Its qualified name, e.g. {@code gastm.Expression}.
+     */
+    public static String getQualifiedName(EClassifier classifier) {
+        return getQualifiedName(classifier.getEPackage()) + "." + classifier.getName();
+    }
+
+    private static String getQualifiedName(EPackage ePackage) {
+        return ePackage.getESuperPackage() == null ? ePackage.getName() : getQualifiedName(ePackage.getESuperPackage()) + "." + ePackage.getName();
+    }
+
+    private void collect(EPackage ePackage, List<EPackage> treePackages) {
+        treePackages.add(ePackage);
+        packageClassifiers.put(ePackage, List.copyOf(ePackage.getEClassifiers()));
+        String packageName = getQualifiedName(ePackage);
+        for (EClassifier classifier : ePackage.getEClassifiers()) {
+            String qualifiedName = packageName + "." + classifier.getName();
+            classifiers.putIfAbsent(qualifiedName, classifier);
+            classifiersBySimpleName.computeIfAbsent(classifier.getName(), key -> new ArrayList<>()).add(classifier);
+            if (classifier instanceof EClass eClass) {
+                for (EStructuralFeature feature : eClass.getEStructuralFeatures()) {
+                    features.putIfAbsent(qualifiedName + "." + feature.getName(), feature);
+                }
+                Map<String, EStructuralFeature> classFeatures = new LinkedHashMap<>();
+                for (EStructuralFeature feature : eClass.getEAllStructuralFeatures()) {
+                    classFeatures.putIfAbsent(feature.getName(), feature);
+                }
+                allFeatures.put(eClass, classFeatures);
+                for (EClass superType : eClass.getESuperTypes()) {
+                    directSubtypes.computeIfAbsent(superType, key -> new ArrayList<>()).add(eClass);
+                }
+                for (EReference reference : eClass.getEReferences()) {
+                    if (reference.getEType() instanceof EClass target) {
+                        incomingReferences.computeIfAbsent(target, key -> new ArrayList<>()).add(reference);
+                    }
+                }
+            }
+        }
+        for (EPackage subpackage : ePackage.getESubpackages()) {
+            collect(subpackage, treePackages);
+        }
+    }
+
+    private Set<EClass> closure(EClass eClass) {
+        // Breadth first, so that direct subtypes come before their own subtypes.
+        Set<EClass> result = new LinkedHashSet<>();
+        List<EClass> level = directSubtypes.getOrDefault(eClass, List.of());
+        while (!level.isEmpty()) {
+            List<EClass> next = new ArrayList<>();
+            for (EClass subtype : level) {
+                if (result.add(subtype)) {
+                    next.addAll(directSubtypes.getOrDefault(subtype, List.of()));
+                }
+            }
+            level = next;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,40 @@
+package org.khachouch;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The structural differences between two versions of an Ecore model, as computed by
+ * {@link ModelFingerprint#diff(ModelFingerprint)}. Names are qualified, e.g. {@code gastm.Expression}.
+ *
+ * @param changedPackages      Packages added, removed, or whose attributes, annotations or classifier order changed.
+ * @param addedClassifiers     Classifiers only in the new version.
+ * @param removedClassifiers   Classifiers only in the previous version.
+ * @param changedClassifiers   Classifiers in both versions whose structure changed.
+ * @param dependentClassifiers Classes in both versions whose own structure is unchanged, but which inherit from an
+ *                             added, removed or changed classifier, directly or not, or type a feature or operation
+ *                             with one of those or one of their subtypes (and the subtypes of such classes).
+ */
+public record ModelDiff(Set<String> changedPackages, Set<String> addedClassifiers, Set<String> removedClassifiers,
+                        Set<String> changedClassifiers, Set<String> dependentClassifiers) {
+
+    /**
+     * @return true if both versions have the same structure, so work derived from the previous one can be reused.
+     */
+    public boolean isEmpty() {
+        return changedPackages.isEmpty() && addedClassifiers.isEmpty() && removedClassifiers.isEmpty()
+                && changedClassifiers.isEmpty();
+    }
+
+    /**
+     * @return The classifiers added, removed, changed or depending on those, i.e. those whose derived artifacts
+     * (e.g. generated classes, which copy inherited features) must be updated.
+     */
+    public Set<String> getAffectedClassifiers() {
+        Set<String> affected = new TreeSet<>(addedClassifiers);
+        affected.addAll(removedClassifiers);
+        affected.addAll(changedClassifiers);
+        affected.addAll(dependentClassifiers);
+        return affected;
+    }
+}
@@ -0,0 +1,334 @@
+package org.khachouch;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EOperation;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EParameter;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcorePackage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A structural fingerprint of an Ecore model: one hash per EClassifier and one per EPackage, over the names, features,
+ * types, operations, annotations and supertypes, in a form that does not depend on how the .ecore file is written
+ * (attribute order, whitespace, xmi:ids, relative or absolute hrefs). Two models with equal fingerprints produce the
+ * same GenModel, XSD and Java code, so a build can skip those steps, and {@link #diff(ModelFingerprint)} tells which
+ * classifiers changed when it cannot.
+ * <p>
+ * A package hash covers the package's own attributes and annotations and the order of its classifiers, which
+ * determines their generated IDs; the classifiers themselves are hashed separately.
+ * <p>
+ * The fingerprint also keeps, per class, the names of its direct supertypes and of the classifiers typing its features
+ * and operations, so that a diff can tell which unchanged classifiers depend on the changed ones.
+ */
+public class ModelFingerprint {
+    private static final String PACKAGE_PREFIX = "package:";
+    private static final String CLASSIFIER_PREFIX = "classifier:";
+    private static final String SUPERTYPES_PREFIX = "supertypes:";
+    private static final String REFERENCES_PREFIX = "references:";
+
+    // Sorted, so that the overall fingerprint and the manifest do not depend on the traversal order.
+    private final Map<String, String> packages = new TreeMap<>();
+    private final Map<String, String> classifiers = new TreeMap<>();
+    // The classifiers of the model each class inherits from directly, or uses as the type of a feature or operation.
+    private final Map<String, Set<String>> supertypes = new TreeMap<>();
+    private final Map<String, Set<String>> references = new TreeMap<>();
+
+    private ModelFingerprint() {
+    }
+
+    /**
+     * Computes the fingerprint of a package and its subpackages.
+     *
+     * @param ePackage The root package.
+     * @return The fingerprint.
+     */
+    public static ModelFingerprint compute(EPackage ePackage) {
+        return compute(List.of(ePackage));
+    }
+
+    /**
+     * Computes the fingerprint of several packages and their subpackages, e.g. the roots of one .ecore file.
+     *
+     * @param ePackages The root packages.
+     * @return The fingerprint.
+     */
+    public static ModelFingerprint compute(List<EPackage> ePackages) {
+        ModelFingerprint result = new ModelFingerprint();
+        for (EPackage ePackage : ePackages) {
+            result.add(ePackage);
+        }
+        // Only the classifiers of the model can change between two of its versions.
+        result.supertypes.values().forEach(names -> names.retainAll(result.classifiers.keySet()));
+        result.references.values().forEach(names -> names.retainAll(result.classifiers.keySet()));
+        result.supertypes.values().removeIf(Set::isEmpty);
+        result.references.values().removeIf(Set::isEmpty);
+        return result;
+    }
+
+    private void add(EPackage ePackage) {
+        StructureHasher packageHasher = new StructureHasher();
+        packageHasher.putStructure(ePackage, Set.of(
+                EcorePackage.Literals.EPACKAGE__ECLASSIFIERS, EcorePackage.Literals.EPACKAGE__ESUBPACKAGES));
+        for (EClassifier classifier : ePackage.getEClassifiers()) {
+            String qualifiedName = StructureHasher.qualifiedName(classifier);
+            packageHasher.put(qualifiedName);
+
+            StructureHasher classifierHasher = new StructureHasher();
+            classifierHasher.putStructure(classifier, Set.of());
+            classifiers.put(qualifiedName, classifierHasher.digest());
+            if (classifier instanceof EClass eClass) {
+                addDependencies(qualifiedName, eClass);
+            }
+        }
+        packages.put(StructureHasher.qualifiedName(ePackage), packageHasher.digest());
+
+        for (EPackage subpackage : ePackage.getESubpackages()) {
+            add(subpackage);
+        }
+    }
+
+    private void addDependencies(String qualifiedName, EClass eClass) {
+        Set<String> superNames = new TreeSet<>();
+        for (EClass superType : eClass.getESuperTypes()) {
+            superNames.add(StructureHasher.qualifiedName(superType));
+        }
+        supertypes.put(qualifiedName, superNames);
+        Set<String> typeNames = new TreeSet<>();
+        for (EStructuralFeature feature : eClass.getEStructuralFeatures()) {
+            addTypeName(typeNames, feature.getEType());
+        }
+        for (EOperation operation : eClass.getEOperations()) {
+            addTypeName(typeNames, operation.getEType());
+            for (EParameter parameter : operation.getEParameters()) {
+                addTypeName(typeNames, parameter.getEType());
+            }
+            for (EClassifier exception : operation.getEExceptions()) {
+                addTypeName(typeNames, exception);
+            }
+        }
+        references.put(qualifiedName, typeNames);
+    }
+
+    private static void addTypeName(Set<String> typeNames, EClassifier type) {
+        if (type != null && !type.eIsProxy()) {
+            typeNames.add(StructureHasher.qualifiedName(type));
+        }
+    }
+
+    /**
+     * @return The hash of the whole model, equal for two models only if all their package and classifier hashes are.
+     */
+    public String getFingerprint() {
+        StructureHasher hasher = new StructureHasher();
+        for (Map.Entry<String, String> entry : toManifestEntries().entrySet()) {
+            hasher.put(entry.getKey());
+            hasher.put(entry.getValue());
+        }
+        return hasher.digest();
+    }
+
+    /**
+     * @return The package hashes, keyed by qualified package name.
+     */
+    public Map<String, String> getPackageFingerprints() {
+        return Collections.unmodifiableMap(packages);
+    }
+
+    /**
+     * @return The classifier hashes, keyed by qualified classifier name, e.g. {@code gastm.Expression}.
+     */
+    public Map<String, String> getClassifierFingerprints() {
+        return Collections.unmodifiableMap(classifiers);
+    }
+
+    /**
+     * Compares this fingerprint with the one of a previous version of the model.
+     *
+     * @param previous The fingerprint of the previous version.
+     * @return The packages and classifiers that were added, removed or changed since.
+     */
+    public ModelDiff diff(ModelFingerprint previous) {
+        Set<String> changedPackages = new TreeSet<>();
+        for (String name : union(packages.keySet(), previous.packages.keySet())) {
+            if (!Objects.equals(packages.get(name), previous.packages.get(name))) {
+                changedPackages.add(name);
+            }
+        }
+        Set<String> added = new TreeSet<>();
+        Set<String> removed = new TreeSet<>();
+        Set<String> changed = new TreeSet<>();
+        Set<String> dependent = new TreeSet<>();
+        for (String name : union(classifiers.keySet(), previous.classifiers.keySet())) {
+            String hash = classifiers.get(name);
+            String previousHash = previous.classifiers.get(name);
+            if (previousHash == null) {
+                added.add(name);
+            } else if (hash == null) {
+                removed.add(name);
+            } else if (!hash.equals(previousHash)) {
+                changed.add(name);
+            }
+        }
+        Set<String> modified = union(union(added, removed), changed);
+        for (String name : findDependents(modified)) {
+            if (!modified.contains(name)) {
+                dependent.add(name);
+            }
+        }
+        return new ModelDiff(changedPackages, added, removed, changed, dependent);
+    }
+
+    /**
+     * @return The classifiers inheriting, directly or not, from one of the given ones or from a class referring to
+     * one of them, and the classes whose features or operations are typed by one of these; the given ones included.
+     */
+    private Set<String> findDependents(Set<String> names) {
+        Map<String, Set<String>> subtypes = invert(supertypes);
+        Map<String, Set<String>> referrers = invert(references);
+        Set<String> result = new TreeSet<>(names);
+        Deque<String> pending = new ArrayDeque<>(names);
+        while (!pending.isEmpty()) {
+            String name = pending.pop();
+            for (String subtype : subtypes.getOrDefault(name, Set.of())) {
+                if (result.add(subtype)) {
+                    pending.push(subtype);
+                }
+            }
+            // A class referring to an affected one is affected too, and so are its subtypes, but not its referrers.
+            for (String referrer : referrers.getOrDefault(name, Set.of())) {
+                if (result.add(referrer)) {
+                    for (String subtype : closure(referrer, subtypes)) {
+                        result.add(subtype);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> closure(String name, Map<String, Set<String>> edges) {
+        Set<String> result = new TreeSet<>();
+        Deque<String> pending = new ArrayDeque<>(List.of(name));
+        while (!pending.isEmpty()) {
+            for (String next : edges.getOrDefault(pending.pop(), Set.of())) {
+                if (result.add(next)) {
+                    pending.push(next);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Set<String>> invert(Map<String, Set<String>> edges) {
+        Map<String, Set<String>> inverse = new TreeMap<>();
+        edges.forEach((from, targets) -> {
+            for (String target : targets) {
+                inverse.computeIfAbsent(target, key -> new TreeSet<>()).add(from);
+            }
+        });
+        return inverse;
+    }
+
+    private static Set<String> union(Set<String> first, Set<String> second) {
+        Set<String> union = new TreeSet<>(first);
+        union.addAll(second);
+        return union;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ModelFingerprint fingerprint
+                && packages.equals(fingerprint.packages) && classifiers.equals(fingerprint.classifiers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(packages, classifiers);
+    }
+
+    private Map<String, String> toManifestEntries() {
+        Map<String, String> entries = new TreeMap<>();
+        packages.forEach((name, hash) -> entries.put(PACKAGE_PREFIX + name, hash));
+        classifiers.forEach((name, hash) -> entries.put(CLASSIFIER_PREFIX + name, hash));
+        return entries;
+    }
+
+    /**
+     * Reads a fingerprint written by {@link #writeManifest(File)}, e.g. the one of the last build.
+     *
+     * @param manifest The manifest file.
+     * @return The fingerprint it contains, or null if it does not exist.
+     * @throws IOException if the manifest cannot be read.
+     */
+    public static ModelFingerprint readManifest(File manifest) throws IOException {
+        if (manifest == null || !manifest.isFile()) {
+            return null;
+        }
+        ModelFingerprint result = new ModelFingerprint();
+        try (BufferedReader reader = Files.newBufferedReader(manifest.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf('=');
+                if (separator <= 0) {
+                    continue;
+                }
+                String key = line.substring(0, separator);
+                String hash = line.substring(separator + 1);
+                if (key.startsWith(PACKAGE_PREFIX)) {
+                    result.packages.put(key.substring(PACKAGE_PREFIX.length()), hash);
+                } else if (key.startsWith(CLASSIFIER_PREFIX)) {
+                    result.classifiers.put(key.substring(CLASSIFIER_PREFIX.length()), hash);
+                } else if (key.startsWith(SUPERTYPES_PREFIX)) {
+                    result.supertypes.put(key.substring(SUPERTYPES_PREFIX.length()), new TreeSet<>(List.of(hash.split(","))));
+                } else if (key.startsWith(REFERENCES_PREFIX)) {
+                    result.references.put(key.substring(REFERENCES_PREFIX.length()), new TreeSet<>(List.of(hash.split(","))));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the fingerprint to a manifest, one sorted {@code package:name=hash} or {@code classifier:name=hash} line
+     * per element, followed by the {@code supertypes:name=names} and {@code references:name=names} lines of the
+     * classes depending on others.
+     *
+     * @param manifest The manifest file.
+     * @throws IOException if the manifest cannot be written.
+     */
+    public void writeManifest(File manifest) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(manifest.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : toManifestEntries().entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue());
+                writer.newLine();
+            }
+            writeDependencies(writer, SUPERTYPES_PREFIX, supertypes);
+            writeDependencies(writer, REFERENCES_PREFIX, references);
+        }
+    }
+
+    private static void writeDependencies(BufferedWriter writer, String prefix, Map<String, Set<String>> dependencies)
+            throws IOException {
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            writer.write(prefix + entry.getKey() + "=" + String.join(",", entry.getValue()));
+            writer.newLine();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.khachouch;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EReference;
+
+/**
+ * Receives the content of an instance model as {@link ModelScanner} reads it, in document order, without the model
+ * being built. Every method does nothing by default.
+ */
+public interface ModelScanListener {
+
+    /**
+     * An object starts; its attributes and references follow, then its contained objects, then
+     * {@link #endObject(EClass)}.
+     *
+     * @param eClass      The class of the object.
+     * @param containment The containment reference holding it, or null for a root.
+     * @param uriFragment The URI fragment EMF refers to it by: its ID if it has one, its path otherwise.
+     * @param path        Its path from the root of the document (e.g. {@code //@elements.3/@body}), whether or not
+     *                    it has an ID, and whether or not its containers have one.
+     * @param depth       0 for a root, 1 for the objects it contains, and so on.
+     */
+    default void startObject(EClass eClass, EReference containment, String uriFragment, String path, int depth) {
+    }
+
+    /**
+     * A value of an attribute of the current object, once per value of a many-valued attribute.
+     *
+     * @param eClass    The class of the object.
+     * @param attribute The attribute.
+     * @param value     The value, converted to the attribute's type (e.g. an Integer or an EEnumLiteral).
+     */
+    default void attribute(EClass eClass, EAttribute attribute, Object value) {
+    }
+
+    /**
+     * A target of a reference of the current object, or a contained object saved in another document.
+     *
+     * @param eClass    The class of the object.
+     * @param reference The reference.
+     * @param target    The URI fragment of a target in the same document, or the URI of a target in another one.
+     * @param external  true if the target is in another document.
+     */
+    default void reference(EClass eClass, EReference reference, String target, boolean external) {
+    }
+
+    /**
+     * The current object ends.
+     *
+     * @param eClass The class of the object.
+     */
+    default void endObject(EClass eClass) {
+    }
+
+    /**
+     * A value that does not convert to the type of its attribute.
+     *
+     * @param eClass    The class of the object.
+     * @param attribute The attribute.
+     * @param literal   The value as written.
+     */
+    default void invalidValue(EClass eClass, EAttribute attribute, String literal) {
+    }
+
+    /**
+     * An XML attribute or element that is not a feature of the current object's class, or an object whose class is
+     * not in the metamodel. Its content is skipped.
+     *
+     * @param eClass The class of the current object, or null at the top of the document.
+     * @param name   The XML name, e.g. {@code size} or {@code gastm:Unknown}.
+     */
+    default void unknownFeature(EClass eClass, String name) {
+    }
+}
@@ -0,0 +1,407 @@
+package org.khachouch;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.impl.EPackageRegistryImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Reads an XMI instance model in a single pass and reports its objects, attribute values and references to a
+ * {@link ModelScanListener}, without building the model: memory use depends on the depth of the containment tree,
+ * not on the size of the file. The classes and features are looked up in the metamodel, so the values reach the
+ * listener converted to their types.
+ * <p>
+ * Objects saved in other documents (containment proxies, such as the fragments of a model saved with a
+ * {@link FragmentationPolicy}) are reported as external references and not followed.
+ * A scanner holds no state between scans; it can be used by several threads at once.
+ */
+public class ModelScanner {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private final EPackage.Registry packageRegistry;
+
+    /**
+     * @param packageRegistry The registry the namespaces of the model are looked up in.
+     */
+    public ModelScanner(EPackage.Registry packageRegistry) {
+        this.packageRegistry = packageRegistry;
+    }
+
+    /**
+     * @param packages The packages of the metamodel; their subpackages and the globally registered packages
+     *                 (e.g. Ecore) are found too.
+     */
+    public ModelScanner(EPackage... packages) {
+        this(createRegistry(EPackage.Registry.INSTANCE, List.of(packages)));
+    }
+
+    /**
+     * @param delegate The registry consulted for the namespaces of none of the packages.
+     * @param packages The packages to register, with their subpackages.
+     * @return A registry of the packages.
+     */
+    static EPackage.Registry createRegistry(EPackage.Registry delegate, Iterable<EPackage> packages) {
+        EPackage.Registry registry = new EPackageRegistryImpl(delegate);
+        Deque<EPackage> pending = new ArrayDeque<>();
+        packages.forEach(pending::push);
+        while (!pending.isEmpty()) {
+            EPackage ePackage = pending.pop();
+            registry.put(ePackage.getNsURI(), ePackage);
+            ePackage.getESubpackages().forEach(pending::push);
+        }
+        return registry;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        // Models do not need a DTD, and a scan must not reach out to other files.
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Scans a model file.
+     *
+     * @param modelPath The path to the XMI file.
+     * @param listener  The listener receiving the content of the model.
+     * @throws IOException if the file cannot be read or is not well-formed XML.
+     */
+    public void scan(Path modelPath, ModelScanListener listener) throws IOException {
+        try (InputStream input = Files.newInputStream(modelPath)) {
+            scan(input, listener);
+        }
+    }
+
+    /**
+     * Scans a model read from a stream, which is left open.
+     *
+     * @param input    The XMI document.
+     * @param listener The listener receiving the content of the model.
+     * @throws IOException if the stream cannot be read or is not well-formed XML.
+     */
+    public void scan(InputStream input, ModelScanListener listener) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(new BufferedInputStream(input, BUFFER_SIZE));
+            new Scan(reader, listener).run();
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot read the model: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // The underlying stream belongs to the caller; there is nothing else to release.
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of one scan: the objects open along the current containment path.
+     */
+    private final class Scan {
+        private final XMLStreamReader reader;
+        private final ModelScanListener listener;
+        private final Deque<OpenObject> open = new ArrayDeque<>();
+
+        private Scan(XMLStreamReader reader, ModelScanListener listener) {
+            this.reader = reader;
+            this.listener = listener;
+        }
+
+        private void run() throws XMLStreamException {
+            while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+                // The prolog.
+            }
+            if (!reader.isStartElement()) {
+                return;
+            }
+            if (isXmiNamespace(reader.getNamespaceURI()) && XMIResource.XMI_TAG_NAME.equals(reader.getLocalName())) {
+                // Several roots, numbered like the contents of the resource.
+                int index = 0;
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    scanRoot("/" + index++);
+                }
+            } else {
+                scanRoot("/");
+            }
+        }
+
+        private void scanRoot(String uriFragment) throws XMLStreamException {
+            String type = getTypeAttribute();
+            EClass eClass = type != null ? getEClass(type) : getEClass(reader.getNamespaceURI(), reader.getLocalName());
+            if (eClass == null) {
+                listener.unknownFeature(null, type != null ? type : getName());
+                skipElement();
+                return;
+            }
+            startObject(eClass, null, uriFragment);
+            scanContents();
+        }
+
+        /**
+         * Reads the elements until the end of the root object, with the reader on the start of the root.
+         */
+        private void scanContents() throws XMLStreamException {
+            while (!open.isEmpty()) {
+                int event = reader.nextTag();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    OpenObject object = open.pop();
+                    listener.endObject(object.eClass);
+                    continue;
+                }
+                OpenObject container = open.peek();
+                EStructuralFeature feature = container.eClass.getEStructuralFeature(reader.getLocalName());
+                if (feature instanceof EReference reference && reference.isContainment()) {
+                    scanContained(container, reference);
+                } else if (feature instanceof EReference reference) {
+                    scanReferenceElement(container, reference);
+                } else if (feature instanceof EAttribute attribute) {
+                    attributeValue(container.eClass, attribute, readText());
+                } else {
+                    listener.unknownFeature(container.eClass, getName());
+                    skipElement();
+                }
+            }
+        }
+
+        private void scanContained(OpenObject container, EReference containment) throws XMLStreamException {
+            int index = container.nextIndex(containment);
+            String href = reader.getAttributeValue(null, XMIResource.HREF);
+            if (href != null) {
+                // Saved in another document: a containment proxy.
+                reference(container.eClass, containment, href);
+                skipElement();
+                return;
+            }
+            String type = getTypeAttribute();
+            EClass eClass = type != null ? getEClass(type) : containment.getEReferenceType();
+            if (eClass == null) {
+                listener.unknownFeature(container.eClass, type);
+                skipElement();
+                return;
+            }
+            // EMF only writes the ID of the object that has one; the objects it contains keep their full path.
+            String path = containment.isMany()
+                    ? container.path + "/@" + containment.getName() + "." + index
+                    : container.path + "/@" + containment.getName();
+            startObject(eClass, containment, path);
+        }
+
+        private void scanReferenceElement(OpenObject container, EReference reference) throws XMLStreamException {
+            String href = reader.getAttributeValue(null, XMIResource.HREF);
+            if (href != null) {
+                reference(container.eClass, reference, href);
+                skipElement();
+            } else {
+                referenceValues(container.eClass, reference, readText());
+            }
+        }
+
+        /**
+         * Opens an object, with the reader on its start element, and reports the object and its XML attributes.
+         */
+        private void startObject(EClass eClass, EReference containment, String path) {
+            String id = null;
+            EAttribute idAttribute = eClass.getEIDAttribute();
+            int count = reader.getAttributeCount();
+            for (int i = 0; i < count; i++) {
+                String namespace = reader.getAttributeNamespace(i);
+                if (isXmiNamespace(namespace) && XMIResource.XMI_ID.equals(reader.getAttributeLocalName(i))) {
+                    id = reader.getAttributeValue(i);
+                    break;
+                } else if (idAttribute != null && isEmpty(namespace) && idAttribute.getName().equals(reader.getAttributeLocalName(i))) {
+                    id = reader.getAttributeValue(i);
+                }
+            }
+            OpenObject object = new OpenObject(eClass, path, id != null ? id : path);
+            listener.startObject(eClass, containment, object.uriFragment, object.path, open.size());
+            open.push(object);
+
+            for (int i = 0; i < count; i++) {
+                if (!isEmpty(reader.getAttributeNamespace(i))) {
+                    // xmi:id, xmi:version, xsi:type, ...
+                    continue;
+                }
+                String name = reader.getAttributeLocalName(i);
+                EStructuralFeature feature = eClass.getEStructuralFeature(name);
+                if (feature instanceof EAttribute attribute) {
+                    attributeValue(eClass, attribute, reader.getAttributeValue(i));
+                } else if (feature instanceof EReference reference) {
+                    referenceValues(eClass, reference, reader.getAttributeValue(i));
+                } else {
+                    listener.unknownFeature(eClass, name);
+                }
+            }
+        }
+
+        private void attributeValue(EClass eClass, EAttribute attribute, String literal) {
+            if (!attribute.isMany()) {
+                convert(eClass, attribute, literal);
+                return;
+            }
+            // Many values written in one XML attribute are separated by spaces.
+            for (String value : literal.trim().split("\\s+")) {
+                if (!value.isEmpty()) {
+                    convert(eClass, attribute, value);
+                }
+            }
+        }
+
+        private void convert(EClass eClass, EAttribute attribute, String literal) {
+            Object value;
+            try {
+                value = EcoreUtil.createFromString(attribute.getEAttributeType(), literal);
+            } catch (RuntimeException e) {
+                listener.invalidValue(eClass, attribute, literal);
+                return;
+            }
+            listener.attribute(eClass, attribute, value);
+        }
+
+        /**
+         * Reports the targets written in an XML attribute, separated by spaces. A target in another document may
+         * come after its type, e.g. {@code ecore:EDataType http://www.eclipse.org/emf/2002/Ecore#//EString}.
+         */
+        private void referenceValues(EClass eClass, EReference reference, String value) {
+            for (String target : value.trim().split("\\s+")) {
+                if (target.isEmpty() || target.indexOf('#') < 0 && target.indexOf(':') >= 0 && target.indexOf('/') < 0) {
+                    // A type, or nothing.
+                    continue;
+                }
+                reference(eClass, reference, target);
+            }
+        }
+
+        private void reference(EClass eClass, EReference reference, String target) {
+            int hash = target.indexOf('#');
+            if (hash == 0) {
+                listener.reference(eClass, reference, target.substring(1), false);
+            } else {
+                listener.reference(eClass, reference, target, hash > 0);
+            }
+        }
+
+        /**
+         * @return The xsi:type or xmi:type of the current element, e.g. {@code gastm:Block}, or null if it has none.
+         */
+        private String getTypeAttribute() {
+            String type = reader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, XMIResource.TYPE);
+            return type != null ? type : reader.getAttributeValue(XMIResource.XMI_URI, XMIResource.TYPE);
+        }
+
+        /**
+         * @param type A type written as a qualified name, with its prefix declared on the current element or above.
+         * @return The class, or null if it is not in the metamodel.
+         */
+        private EClass getEClass(String type) {
+            int colon = type.indexOf(':');
+            String prefix = colon < 0 ? XMLConstants.DEFAULT_NS_PREFIX : type.substring(0, colon);
+            return getEClass(reader.getNamespaceContext().getNamespaceURI(prefix), type.substring(colon + 1));
+        }
+
+        private EClass getEClass(String namespace, String name) {
+            EPackage ePackage = packageRegistry.getEPackage(isEmpty(namespace) ? null : namespace);
+            if (ePackage == null) {
+                return null;
+            }
+            EClassifier classifier = ePackage.getEClassifier(name);
+            return classifier instanceof EClass eClass ? eClass : null;
+        }
+
+        /**
+         * Reads the text of the current element, ignoring any element nested in it, and leaves the reader on its end.
+         */
+        private String readText() throws XMLStreamException {
+            StringBuilder text = new StringBuilder();
+            int depth = 1;
+            while (depth > 0) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                } else if (depth == 1 && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)) {
+                    text.append(reader.getText());
+                }
+            }
+            return text.toString();
+        }
+
+        /**
+         * Skips the current element and its content, and leaves the reader on its end.
+         */
+        private void skipElement() throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+
+        private String getName() {
+            String prefix = reader.getPrefix();
+            return isEmpty(prefix) ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+        }
+    }
+
+    private static boolean isXmiNamespace(String namespace) {
+        // XMI 2.0 as EMF writes it, or a later version.
+        return namespace != null && (namespace.equals(XMIResource.XMI_URI) || namespace.startsWith("http://www.omg.org/spec/XMI/"));
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    /**
+     * An object whose element is open, with the number of objects read so far in each of its containments.
+     */
+    private static final class OpenObject {
+        private final EClass eClass;
+        private final String path;
+        private final String uriFragment;
+        private int[] containedCounts;
+
+        private OpenObject(EClass eClass, String path, String uriFragment) {
+            this.eClass = eClass;
+            this.path = path;
+            this.uriFragment = uriFragment;
+        }
+
+        private int nextIndex(EReference containment) {
+            if (containedCounts == null) {
+                containedCounts = new int[eClass.getFeatureCount()];
+            }
+            return containedCounts[eClass.getFeatureID(containment)]++;
+        }
+    }
+}
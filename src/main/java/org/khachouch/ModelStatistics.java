@@ -0,0 +1,329 @@
+package org.khachouch;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EReference;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Aggregates the content of an instance model reported by a {@link ModelScanner}: the number of instances of each
+ * class, the range of the values of each attribute and, optionally, the references whose target is not in the model.
+ * <p>
+ * Without the reference check the statistics take memory in proportion to the metamodel only. The check keeps a
+ * 64-bit hash of the URI fragment of every object (and of its path too if it has an ID) and of every reference read
+ * before its target, some 16 to 32 bytes per object: far less than the object itself would take once loaded, but not a constant.
+ */
+public class ModelStatistics implements ModelScanListener {
+    private static final int MAX_DANGLING_SAMPLES = 100;
+    private static final int MAX_PENDING_SAMPLES = 10_000;
+
+    /**
+     * The range of the values of an attribute.
+     *
+     * @param count The number of values.
+     * @param min   The smallest value, or null if the values are not ordered (e.g. enumeration literals).
+     * @param max   The largest value, or null if the values are not ordered.
+     */
+    public record AttributeRange(long count, Object min, Object max) {
+    }
+
+    private final boolean checkReferences;
+    private final Map<EClass, long[]> instanceCounts = new IdentityHashMap<>();
+    private final Map<EAttribute, MutableRange> attributeRanges = new IdentityHashMap<>();
+    private long objectCount;
+    private long referenceCount;
+    private long externalReferenceCount;
+    private long invalidValueCount;
+    private long unknownFeatureCount;
+    private int maxDepth;
+
+    private final LongHashSet objects = new LongHashSet();
+    // The references read before their target, as hashes, and the first few of them as written.
+    private long[] pending = new long[1024];
+    private int pendingCount;
+    private final Map<Long, String> pendingSamples = new HashMap<>();
+    private long danglingReferenceCount = -1;
+    private List<String> danglingSamples = List.of();
+
+    /**
+     * @param checkReferences true to count the references whose target is not in the model, at a cost of 16 to
+     *                        32 bytes per object.
+     */
+    public ModelStatistics(boolean checkReferences) {
+        this.checkReferences = checkReferences;
+    }
+
+    @Override
+    public void startObject(EClass eClass, EReference containment, String uriFragment, String path, int depth) {
+        objectCount++;
+        instanceCounts.computeIfAbsent(eClass, key -> new long[1])[0]++;
+        maxDepth = Math.max(maxDepth, depth);
+        if (checkReferences) {
+            // An object with an ID can be referred to by either.
+            objects.add(hash(uriFragment));
+            if (!path.equals(uriFragment)) {
+                objects.add(hash(path));
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void attribute(EClass eClass, EAttribute attribute, Object value) {
+        MutableRange range = attributeRanges.computeIfAbsent(attribute, key -> new MutableRange());
+        range.count++;
+        if (value instanceof Comparable comparable && range.ordered) {
+            try {
+                if (range.min == null || comparable.compareTo(range.min) < 0) {
+                    range.min = comparable;
+                }
+                if (range.max == null || comparable.compareTo(range.max) > 0) {
+                    range.max = comparable;
+                }
+            } catch (ClassCastException e) {
+                // Values of different types, e.g. from a union data type.
+                range.unordered();
+            }
+        } else if (value != null) {
+            range.unordered();
+        }
+    }
+
+    @Override
+    public void reference(EClass eClass, EReference reference, String target, boolean external) {
+        referenceCount++;
+        if (external) {
+            externalReferenceCount++;
+        } else if (checkReferences) {
+            long hash = hash(target);
+            if (!objects.contains(hash)) {
+                // Possibly an object further down the document; checked at the end.
+                if (pendingCount == pending.length) {
+                    pending = Arrays.copyOf(pending, pendingCount * 2);
+                }
+                pending[pendingCount++] = hash;
+                if (pendingSamples.size() < MAX_PENDING_SAMPLES) {
+                    pendingSamples.putIfAbsent(hash, target);
+                }
+                danglingReferenceCount = -1;
+            }
+        }
+    }
+
+    @Override
+    public void invalidValue(EClass eClass, EAttribute attribute, String literal) {
+        invalidValueCount++;
+    }
+
+    @Override
+    public void unknownFeature(EClass eClass, String name) {
+        unknownFeatureCount++;
+    }
+
+    /**
+     * @return The number of objects.
+     */
+    public long getObjectCount() {
+        return objectCount;
+    }
+
+    /**
+     * @return The number of instances of each class, by qualified name (e.g. {@code gastm.Block}).
+     */
+    public SortedMap<String, Long> getInstanceCounts() {
+        SortedMap<String, Long> counts = new TreeMap<>();
+        instanceCounts.forEach((eClass, count) -> counts.merge(StructureHasher.qualifiedName(eClass), count[0], Long::sum));
+        return counts;
+    }
+
+    /**
+     * @return The range of the values of each attribute, by qualified name (e.g. {@code gastm.Block.name}).
+     */
+    public SortedMap<String, AttributeRange> getAttributeRanges() {
+        SortedMap<String, AttributeRange> ranges = new TreeMap<>();
+        attributeRanges.forEach((attribute, range) ->
+                ranges.put(StructureHasher.qualifiedName(attribute), new AttributeRange(range.count, range.min, range.max)));
+        return ranges;
+    }
+
+    /**
+     * @return The number of references, including those to other documents.
+     */
+    public long getReferenceCount() {
+        return referenceCount;
+    }
+
+    /**
+     * @return The number of references to objects in other documents, which are not checked.
+     */
+    public long getExternalReferenceCount() {
+        return externalReferenceCount;
+    }
+
+    /**
+     * @return The number of references whose target is not in the model, or -1 if references are not checked.
+     * Only meaningful once the scan is over.
+     */
+    public long getDanglingReferenceCount() {
+        resolvePending();
+        return danglingReferenceCount;
+    }
+
+    /**
+     * @return Some of the dangling references, as written in the model.
+     */
+    public List<String> getDanglingReferenceSamples() {
+        resolvePending();
+        return danglingSamples;
+    }
+
+    /**
+     * @return The number of values that do not convert to the type of their attribute.
+     */
+    public long getInvalidValueCount() {
+        return invalidValueCount;
+    }
+
+    /**
+     * @return The number of XML attributes and elements that are not features of the metamodel.
+     */
+    public long getUnknownFeatureCount() {
+        return unknownFeatureCount;
+    }
+
+    /**
+     * @return The depth of the deepest object, 0 if only the roots.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Prints the statistics, one line each.
+     *
+     * @param out Where to print them.
+     */
+    public void print(PrintStream out) {
+        out.println("objects " + objectCount + " (max depth " + maxDepth + ")");
+        getInstanceCounts().forEach((name, count) -> out.println("  " + name + " " + count));
+        out.println("attributes");
+        getAttributeRanges().forEach((name, range) -> out.println("  " + name + " " + range.count()
+                + (range.min() != null ? " [" + range.min() + " .. " + range.max() + "]" : "")));
+        out.println("references " + referenceCount + " (external " + externalReferenceCount + ")");
+        if (checkReferences) {
+            out.println("dangling references " + getDanglingReferenceCount());
+            getDanglingReferenceSamples().forEach(target -> out.println("  " + target));
+        }
+        out.println("invalid values " + invalidValueCount);
+        out.println("unknown features " + unknownFeatureCount);
+    }
+
+    private void resolvePending() {
+        if (!checkReferences || danglingReferenceCount >= 0) {
+            return;
+        }
+        long dangling = 0;
+        List<String> samples = new ArrayList<>();
+        for (int i = 0; i < pendingCount; i++) {
+            if (!objects.contains(pending[i])) {
+                dangling++;
+                String target = pendingSamples.get(pending[i]);
+                if (target != null && samples.size() < MAX_DANGLING_SAMPLES && !samples.contains(target)) {
+                    samples.add(target);
+                }
+            }
+        }
+        danglingReferenceCount = dangling;
+        danglingSamples = Collections.unmodifiableList(samples);
+    }
+
+    /**
+     * FNV-1a over the characters of the string, 64 bits, so that collisions between the fragments of a model are
+     * negligible. Never 0, the empty slot of {@link LongHashSet}.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static final class MutableRange {
+        private long count;
+        private boolean ordered = true;
+        private Comparable<?> min;
+        private Comparable<?> max;
+
+        private void unordered() {
+            ordered = false;
+            min = null;
+            max = null;
+        }
+    }
+
+    /**
+     * A set of longs with open addressing, without boxing: 16 to 32 bytes per element.
+     */
+    private static final class LongHashSet {
+        private long[] slots = new long[1024];
+        private int size;
+
+        private void add(long value) {
+            if (size * 2 >= slots.length) {
+                grow();
+            }
+            if (insert(slots, value)) {
+                size++;
+            }
+        }
+
+        private boolean contains(long value) {
+            int mask = slots.length - 1;
+            for (int i = index(value, mask); slots[i] != 0; i = (i + 1) & mask) {
+                if (slots[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void grow() {
+            long[] grown = new long[slots.length * 2];
+            for (long value : slots) {
+                if (value != 0) {
+                    insert(grown, value);
+                }
+            }
+            slots = grown;
+        }
+
+        private static boolean insert(long[] slots, long value) {
+            int mask = slots.length - 1;
+            int i = index(value, mask);
+            for (; slots[i] != 0; i = (i + 1) & mask) {
+                if (slots[i] == value) {
+                    return false;
+                }
+            }
+            slots[i] = value;
+            return true;
+        }
+
+        private static int index(long value, int mask) {
+            // The low bits of FNV alone are poorly mixed.
+            return (int) (value ^ (value >>> 32)) * 0x9e3779b9 & mask;
+        }
+    }
+}
@@ -1,14 +1,72 @@
 package org.khachouch;
 
+import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.core.Logger;
 import org.eclipse.emf.common.util.BasicMonitor;
 import org.eclipse.emf.common.util.Diagnostic;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A progress monitor that logs the reported tasks and measures them.
+ * Every {@code beginTask}/{@code done} pair is a span, and every {@code subTask} is a span inside the current task
+ * that ends at the next {@code subTask} or at {@code done}. Spans nest like the calls that report them, e.g. the
+ * EMF generator's per-file tasks inside an operation's "generate" phase. Each finished span is recorded in a
+ * {@link MonitorMetrics} histogram under its path (e.g. "validateModel / parse") and emitted as a
+ * {@link MonitorSpanEvent} Flight Recorder event.
+ * A monitor follows one operation on one thread; use a new one for each call.
+ */
 public class Monitor extends BasicMonitor {
     private Logger logger;
+    private final MonitorMetrics metrics;
+    private final Level level;
+    private final Deque<Span> tasks = new ArrayDeque<>();
+
+    private static final class Span {
+        final String name;
+        final Span parent;
+        final int depth;
+        final long start = System.nanoTime();
+        final MonitorSpanEvent event = new MonitorSpanEvent();
+        String displayName;
+        Span subTask;
+
+        Span(String name, Span parent) {
+            this.name = name;
+            this.displayName = name;
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+            event.begin();
+        }
+
+        /**
+         * @return The names of the enclosing named spans and of this span, e.g. "validateModel / parse".
+         */
+        String path() {
+            String parentPath = parent == null ? null : parent.path();
+            if (displayName == null) {
+                return parentPath;
+            }
+            return parentPath == null ? displayName : parentPath + " / " + displayName;
+        }
+    }
 
     public Monitor(Logger logger) {
+        this(logger, null, Level.INFO);
+    }
+
+    /**
+     * Creates a monitor that records its spans.
+     *
+     * @param logger  The logger receiving the task names.
+     * @param metrics The registry receiving the span durations, or null to only emit Flight Recorder events.
+     * @param level   The level at which tasks are logged.
+     */
+    public Monitor(Logger logger, MonitorMetrics metrics, Level level) {
         this.logger = logger;
+        this.metrics = metrics;
+        this.level = level;
     }
 
     @Override
@@ -16,12 +74,21 @@ public class Monitor extends BasicMonitor {
         if (name != null && !name.isEmpty()) {
             log(">>> " + name);
         }
+        // A task begun during a subtask is part of that subtask's work, so it nests inside it.
+        // Unnamed tasks (the generator opens many) still need a span to pair with their done(); they are not recorded.
+        Span task = tasks.peek();
+        Span parent = task != null && task.subTask != null ? task.subTask : task;
+        tasks.push(new Span(name == null || name.isEmpty() ? null : name, parent));
     }
 
     @Override
     public void setTaskName(String name) {
         if (name != null && !name.isEmpty()) {
             log("<>> " + name);
+            Span task = tasks.peek();
+            if (task != null && task.name == null) {
+                task.displayName = name;
+            }
         }
     }
 
@@ -30,6 +97,25 @@ public class Monitor extends BasicMonitor {
         if (name != null && !name.isEmpty()) {
             log(">>  " + name);
         }
+        Span task = tasks.peek();
+        if (task != null) {
+            closeSubTask(task);
+            if (name != null && !name.isEmpty()) {
+                task.subTask = new Span(name, task);
+            }
+        }
+    }
+
+    @Override
+    public void done() {
+        Span task = tasks.poll();
+        if (task != null) {
+            closeSubTask(task);
+            long duration = finish(task);
+            if (task.depth == 0 && task.displayName != null) {
+                log("<<< " + task.displayName + " (" + String.format("%.3f ms", duration / 1e6) + ")");
+            }
+        }
     }
 
     @Override
@@ -44,7 +130,33 @@ public class Monitor extends BasicMonitor {
         super.clearBlocked();
     }
 
+    private void closeSubTask(Span task) {
+        if (task != null && task.subTask != null) {
+            finish(task.subTask);
+            task.subTask = null;
+        }
+    }
+
+    private long finish(Span span) {
+        long duration = System.nanoTime() - span.start;
+        String name = span.displayName;
+        if (name != null) {
+            String path = span.path();
+            if (metrics != null) {
+                metrics.record(path, duration);
+            }
+            span.event.end();
+            if (span.event.shouldCommit()) {
+                span.event.name = name;
+                span.event.path = path;
+                span.event.depth = span.depth;
+                span.event.commit();
+            }
+        }
+        return duration;
+    }
+
     private void log(String msg) {
-        this.logger.info(msg);
+        this.logger.log(level, msg);
     }
 }
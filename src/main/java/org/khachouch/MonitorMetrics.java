@@ -0,0 +1,165 @@
+package org.khachouch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms of the spans reported by {@link Monitor}s, one per task path (e.g. "validateModel / parse").
+ * A registry is shared by all the monitors of an {@link EcoreUtilsImpl} and is safe to update from many threads.
+ * Durations fall into power-of-two buckets (1 ns, 2 ns, 4 ns, ...), so percentiles are accurate within a factor of two.
+ */
+public class MonitorMetrics {
+    /**
+     * The name under which spans are recorded once {@code maxNames} distinct paths have been seen.
+     */
+    public static final String OTHER = "(other)";
+
+    private static final int BUCKETS = 64;
+
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final int maxNames;
+
+    public MonitorMetrics() {
+        this(1000);
+    }
+
+    /**
+     * Creates a registry.
+     *
+     * @param maxNames The maximum number of distinct task paths; generators report one task per generated file,
+     *                 so this bounds the memory used by large models.
+     */
+    public MonitorMetrics(int maxNames) {
+        this.maxNames = maxNames;
+    }
+
+    /**
+     * Records the duration of a span.
+     *
+     * @param name          The task path.
+     * @param durationNanos The duration of the span, in nanoseconds.
+     */
+    public void record(String name, long durationNanos) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.size() < maxNames
+                    ? histograms.computeIfAbsent(name, key -> new Histogram())
+                    : histograms.computeIfAbsent(OTHER, key -> new Histogram());
+        }
+        histogram.record(Math.max(durationNanos, 0));
+    }
+
+    /**
+     * @return A consistent-per-name copy of all histograms, sorted by task path.
+     */
+    public Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> result = new TreeMap<>();
+        histograms.forEach((name, histogram) -> result.put(name, histogram.snapshot()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    public void reset() {
+        histograms.clear();
+    }
+
+    /**
+     * Writes all histograms in the Prometheus text exposition format, as a summary with quantiles in seconds,
+     * e.g. to be served by a local endpoint or written to a file picked up by a node exporter.
+     *
+     * @param out Where to write.
+     */
+    public void exportPrometheus(Appendable out) {
+        try {
+            out.append("# HELP ecoreutils_task_seconds Duration of the tasks reported by EcoreUtils monitors.\n");
+            out.append("# TYPE ecoreutils_task_seconds summary\n");
+            for (Map.Entry<String, Snapshot> entry : snapshot().entrySet()) {
+                String label = "task=\"" + entry.getKey().replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+                Snapshot snapshot = entry.getValue();
+                out.append("ecoreutils_task_seconds{").append(label).append(",quantile=\"0.5\"} ").append(seconds(snapshot.p50Nanos())).append('\n');
+                out.append("ecoreutils_task_seconds{").append(label).append(",quantile=\"0.9\"} ").append(seconds(snapshot.p90Nanos())).append('\n');
+                out.append("ecoreutils_task_seconds{").append(label).append(",quantile=\"0.99\"} ").append(seconds(snapshot.p99Nanos())).append('\n');
+                out.append("ecoreutils_task_seconds_sum{").append(label).append("} ").append(seconds(snapshot.totalNanos())).append('\n');
+                out.append("ecoreutils_task_seconds_count{").append(label).append("} ").append(String.valueOf(snapshot.count())).append('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / 1e9);
+    }
+
+    /**
+     * The statistics of one task path.
+     *
+     * @param count      The number of spans.
+     * @param totalNanos The summed duration.
+     * @param minNanos   The shortest span.
+     * @param maxNanos   The longest span.
+     * @param p50Nanos   The median, as the upper bound of its bucket.
+     * @param p90Nanos   The 90th percentile, as the upper bound of its bucket.
+     * @param p99Nanos   The 99th percentile, as the upper bound of its bucket.
+     */
+    public record Snapshot(long count, long totalNanos, long minNanos, long maxNanos, long p50Nanos, long p90Nanos, long p99Nanos) {
+
+        public double meanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+                    count, meanNanos() / 1e6, p50Nanos / 1e6, p90Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6);
+        }
+    }
+
+    private static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            // Bucket i holds durations in [2^(i-1), 2^i); bucket 0 holds zero.
+            buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+            total.add(nanos);
+            min.accumulateAndGet(nanos, Math::min);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        Snapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            long recorded = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                recorded += counts[i];
+            }
+            long maxNanos = max.get();
+            return new Snapshot(recorded, total.sum(), recorded == 0 ? 0 : min.get(), maxNanos,
+                    percentile(counts, recorded, 0.5, maxNanos),
+                    percentile(counts, recorded, 0.9, maxNanos),
+                    percentile(counts, recorded, 0.99, maxNanos));
+        }
+
+        private static long percentile(long[] counts, long recorded, double quantile, long maxNanos) {
+            long rank = (long) Math.ceil(recorded * quantile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    long upperBound = i == 0 ? 0 : (1L << i) - 1;
+                    return Math.min(upperBound, maxNanos);
+                }
+            }
+            return 0;
+        }
+    }
+}
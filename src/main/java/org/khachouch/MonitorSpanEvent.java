@@ -0,0 +1,29 @@
+package org.khachouch;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for each task and subtask reported to a {@link Monitor}.
+ * Enabled by default when recording; the event duration is the duration of the span.
+ */
+@Name("org.khachouch.MonitorSpan")
+@Label("EcoreUtils Task")
+@Category("EcoreUtils")
+@Description("A task or subtask reported by an EcoreUtils operation or by the EMF code generator")
+@StackTrace(false)
+class MonitorSpanEvent extends Event {
+    @Label("Name")
+    String name;
+
+    @Label("Path")
+    @Description("The names of the enclosing tasks and of this task, separated by ' / '")
+    String path;
+
+    @Label("Depth")
+    int depth;
+}
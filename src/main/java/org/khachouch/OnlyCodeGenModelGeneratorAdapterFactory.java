@@ -2,10 +2,17 @@ package org.khachouch;
 
 import org.eclipse.emf.codegen.ecore.generator.GeneratorAdapterFactory;
 import org.eclipse.emf.codegen.ecore.genmodel.GenModel;
+import org.eclipse.emf.codegen.ecore.genmodel.generator.GenClassGeneratorAdapter;
+import org.eclipse.emf.codegen.ecore.genmodel.generator.GenEnumGeneratorAdapter;
 import org.eclipse.emf.codegen.ecore.genmodel.generator.GenModelGeneratorAdapter;
 import org.eclipse.emf.codegen.ecore.genmodel.generator.GenModelGeneratorAdapterFactory;
+import org.eclipse.emf.codegen.ecore.genmodel.generator.GenPackageGeneratorAdapter;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.util.Diagnostic;
 import org.eclipse.emf.common.util.Monitor;
 
+import java.util.function.Predicate;
+
 public class OnlyCodeGenModelGeneratorAdapterFactory extends GenModelGeneratorAdapterFactory {
 
     public static final GeneratorAdapterFactory.Descriptor Descriptor = new GeneratorAdapterFactory.Descriptor() {
@@ -15,6 +22,26 @@ public class OnlyCodeGenModelGeneratorAdapterFactory extends GenModelGeneratorAd
         }
     };
 
+    /**
+     * Creates a descriptor for factories that only generate the selected GenPackages, GenClasses and GenEnums.
+     *
+     * @param artifactFilter Accepts the Gen objects whose Java files must be (re)generated.
+     * @return The descriptor to register with a Generator.
+     */
+    public static GeneratorAdapterFactory.Descriptor descriptor(Predicate<Object> artifactFilter) {
+        return () -> new OnlyCodeGenModelGeneratorAdapterFactory(artifactFilter);
+    }
+
+    private final Predicate<Object> artifactFilter;
+
+    public OnlyCodeGenModelGeneratorAdapterFactory() {
+        this(object -> true);
+    }
+
+    public OnlyCodeGenModelGeneratorAdapterFactory(Predicate<Object> artifactFilter) {
+        this.artifactFilter = artifactFilter;
+    }
+
     private final GenModelGeneratorAdapter onlyCodeGenModelGeneratorAdapter = new GenModelGeneratorAdapter(this) {
         @Override
         public void generateModelBuildProperties(GenModel genModel, Monitor monitor) {
@@ -42,9 +69,45 @@ public class OnlyCodeGenModelGeneratorAdapterFactory extends GenModelGeneratorAd
         }
     };
 
+    // The children of a filtered-out object are still visited, so each artifact is filtered on its own.
+    private final GenPackageGeneratorAdapter filteredGenPackageGeneratorAdapter = new GenPackageGeneratorAdapter(this) {
+        @Override
+        protected Diagnostic generateModel(Object object, Monitor monitor) {
+            return artifactFilter.test(object) ? super.generateModel(object, monitor) : Diagnostic.OK_INSTANCE;
+        }
+    };
+
+    private final GenClassGeneratorAdapter filteredGenClassGeneratorAdapter = new GenClassGeneratorAdapter(this) {
+        @Override
+        protected Diagnostic generateModel(Object object, Monitor monitor) {
+            return artifactFilter.test(object) ? super.generateModel(object, monitor) : Diagnostic.OK_INSTANCE;
+        }
+    };
+
+    private final GenEnumGeneratorAdapter filteredGenEnumGeneratorAdapter = new GenEnumGeneratorAdapter(this) {
+        @Override
+        protected Diagnostic generateModel(Object object, Monitor monitor) {
+            return artifactFilter.test(object) ? super.generateModel(object, monitor) : Diagnostic.OK_INSTANCE;
+        }
+    };
+
     @Override
     public GenModelGeneratorAdapter createGenModelAdapter() {
         return onlyCodeGenModelGeneratorAdapter;
     }
-}
 
+    @Override
+    public Adapter createGenPackageAdapter() {
+        return filteredGenPackageGeneratorAdapter;
+    }
+
+    @Override
+    public Adapter createGenClassAdapter() {
+        return filteredGenClassGeneratorAdapter;
+    }
+
+    @Override
+    public Adapter createGenEnumAdapter() {
+        return filteredGenEnumGeneratorAdapter;
+    }
+}
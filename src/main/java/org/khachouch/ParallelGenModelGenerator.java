@@ -0,0 +1,277 @@
+package org.khachouch;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Logger;
+import org.eclipse.emf.codegen.ecore.generator.Generator;
+import org.eclipse.emf.codegen.ecore.genmodel.GenBase;
+import org.eclipse.emf.codegen.ecore.genmodel.GenClass;
+import org.eclipse.emf.codegen.ecore.genmodel.GenClassifier;
+import org.eclipse.emf.codegen.ecore.genmodel.GenEnum;
+import org.eclipse.emf.codegen.ecore.genmodel.GenModel;
+import org.eclipse.emf.codegen.ecore.genmodel.GenPackage;
+import org.eclipse.emf.codegen.ecore.genmodel.generator.GenBaseGeneratorAdapter;
+import org.eclipse.emf.common.util.BasicDiagnostic;
+import org.eclipse.emf.common.util.Diagnostic;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * Generates the Java code of a GenModel on several threads.
+ * The artifacts (GenPackages, GenClasses, GenEnums) are split into one partition per worker. A GenModel carries
+ * generation state (import managers, generator adapters), so every worker generates from its own copy of the
+ * GenModel and its Ecore resources, with its own {@link Generator} and {@link OnlyCodeGenModelGeneratorAdapterFactory}.
+ * Each artifact is generated exactly once, by the same templates as a sequential run, so the files are identical.
+ */
+public class ParallelGenModelGenerator {
+
+    /**
+     * How artifacts are grouped before being spread over the workers.
+     */
+    public enum Partitioning {
+        /**
+         * A GenPackage and all its classifiers are generated by the same worker.
+         */
+        PACKAGE,
+        /**
+         * Package-level files, classes and enums are distributed individually, balanced by feature count.
+         */
+        CLASSIFIER
+    }
+
+    private static final Logger logger = (Logger) LogManager.getLogger(ParallelGenModelGenerator.class);
+
+    private final EmfSession session;
+    private final int threads;
+    private final Partitioning partitioning;
+    private final MonitorMetrics metrics;
+
+    public ParallelGenModelGenerator(EmfSession session, int threads, Partitioning partitioning) {
+        this(session, threads, partitioning, null);
+    }
+
+    /**
+     * Creates a parallel generator.
+     *
+     * @param session      The session providing the ResourceSets for the per-worker copies.
+     * @param threads      The number of worker threads.
+     * @param partitioning How the artifacts are split between the workers.
+     * @param metrics      The registry receiving the durations of the workers' generator tasks, or null.
+     */
+    public ParallelGenModelGenerator(EmfSession session, int threads, Partitioning partitioning, MonitorMetrics metrics) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        this.session = session;
+        this.threads = threads;
+        this.partitioning = partitioning;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Generates the selected artifacts of a GenModel.
+     *
+     * @param genModel  The GenModel to generate code for; its model directory must already be set.
+     * @param selection Accepts the artifacts to generate.
+     * @return The merged diagnostic of all workers.
+     */
+    public Diagnostic generate(GenModel genModel, Predicate<GenBase> selection) {
+        List<List<GenBase>> partitions = partition(genModel, selection);
+        BasicDiagnostic result = new BasicDiagnostic(Diagnostic.OK, "org.khachouch", 0, "Parallel code generation", null);
+        if (partitions.isEmpty()) {
+            return result;
+        }
+        logger.info("Generating " + genModel.getModelName() + " on " + partitions.size() + " workers");
+
+        // Copies are made up front on this thread: reading the original concurrently could resolve proxies in it.
+        List<Worker> workers = new ArrayList<>(partitions.size());
+        try {
+            for (List<GenBase> partition : partitions) {
+                workers.add(new Worker(genModel, partition));
+            }
+        } catch (RuntimeException | Error e) {
+            // The ResourceSets leased so far go back to the session.
+            for (Worker worker : workers) {
+                worker.close();
+            }
+            throw e;
+        }
+
+        // The workers' error output goes where the caller's goes, e.g. to the capture of GenModelToJavaParallel.
+        ConsoleCapture capture = ConsoleCapture.current(ConsoleCapture.Stream.ERR);
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            List<Future<Diagnostic>> futures = new ArrayList<>(workers.size());
+            for (Worker worker : workers) {
+                futures.add(executor.submit(() -> worker.generate(capture)));
+            }
+            for (Future<Diagnostic> future : futures) {
+                try {
+                    result.add(future.get());
+                } catch (ExecutionException e) {
+                    result.add(BasicDiagnostic.toDiagnostic(e.getCause()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.add(Diagnostic.CANCEL_INSTANCE);
+        } finally {
+            executor.shutdownNow();
+            for (Worker worker : workers) {
+                worker.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Groups the selected artifacts into at most {@code threads} partitions of similar weight.
+     */
+    private List<List<GenBase>> partition(GenModel genModel, Predicate<GenBase> selection) {
+        // Units are the indivisible pieces of work, with their weight.
+        Map<List<GenBase>, Integer> units = new LinkedHashMap<>();
+        for (GenPackage genPackage : allGenPackages(genModel.getGenPackages(), new ArrayList<>())) {
+            List<GenBase> packageUnit = new ArrayList<>();
+            int packageWeight = 0;
+            if (selection.test(genPackage)) {
+                packageUnit.add(genPackage);
+                packageWeight += genPackage.getGenClassifiers().size();
+            }
+            for (GenClassifier genClassifier : genPackage.getGenClassifiers()) {
+                if (!(genClassifier instanceof GenClass) && !(genClassifier instanceof GenEnum)
+                        || !selection.test(genClassifier)) {
+                    continue;
+                }
+                int weight = 1 + (genClassifier instanceof GenClass genClass ? genClass.getAllGenFeatures().size() : 0);
+                if (partitioning == Partitioning.PACKAGE) {
+                    packageUnit.add(genClassifier);
+                    packageWeight += weight;
+                } else {
+                    units.put(List.of(genClassifier), weight);
+                }
+            }
+            if (!packageUnit.isEmpty()) {
+                units.put(packageUnit, packageWeight);
+            }
+        }
+
+        // Longest-processing-time first: give the heaviest remaining unit to the lightest partition.
+        int count = Math.min(threads, units.size());
+        List<List<GenBase>> partitions = new ArrayList<>(count);
+        int[] weights = new int[count];
+        for (int i = 0; i < count; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        units.entrySet().stream()
+                .sorted(Map.Entry.<List<GenBase>, Integer>comparingByValue(Comparator.reverseOrder()))
+                .forEachOrdered(unit -> {
+                    int lightest = 0;
+                    for (int i = 1; i < count; i++) {
+                        if (weights[i] < weights[lightest]) {
+                            lightest = i;
+                        }
+                    }
+                    partitions.get(lightest).addAll(unit.getKey());
+                    weights[lightest] += unit.getValue();
+                });
+        return partitions;
+    }
+
+    private static List<GenPackage> allGenPackages(List<GenPackage> genPackages, List<GenPackage> result) {
+        for (GenPackage genPackage : genPackages) {
+            result.add(genPackage);
+            allGenPackages(genPackage.getNestedGenPackages(), result);
+        }
+        return result;
+    }
+
+    /**
+     * One worker: a private copy of the GenModel and the artifacts of one partition, translated to that copy.
+     */
+    private final class Worker {
+        private final EmfSession.Lease lease;
+        private final GenModel genModel;
+        private final Set<Object> artifacts = new HashSet<>();
+
+        Worker(GenModel original, List<GenBase> partition) {
+            lease = session.acquire();
+            try {
+                EcoreUtil.Copier copier = new EcoreUtil.Copier();
+                genModel = copy(original, lease.getResourceSet(), copier);
+                // canGenerate is a plain field rather than a model feature, so the copier does not carry it over.
+                genModel.setCanGenerate(original.canGenerate());
+                for (GenBase artifact : partition) {
+                    artifacts.add(copier.get(artifact));
+                }
+            } catch (RuntimeException | Error e) {
+                lease.close();
+                throw e;
+            }
+        }
+
+        Diagnostic generate(ConsoleCapture capture) {
+            Generator generator = CodegenSupport.createGenerator(genModel, OnlyCodeGenModelGeneratorAdapterFactory.descriptor(artifacts::contains));
+            if (capture == null) {
+                return generator.generate(genModel, GenBaseGeneratorAdapter.MODEL_PROJECT_TYPE, new Monitor(logger, metrics, Level.INFO));
+            }
+            ConsoleCapture.Scope scope = capture.open();
+            try {
+                return generator.generate(genModel, GenBaseGeneratorAdapter.MODEL_PROJECT_TYPE, new Monitor(logger, metrics, Level.INFO));
+            } finally {
+                scope.close();
+            }
+        }
+
+        void close() {
+            lease.close();
+        }
+    }
+
+    /**
+     * Copies a GenModel together with every resource of its ResourceSet (Ecore models, used GenModels),
+     * keeping the resource URIs and URI mappings so that generated paths and references are unchanged.
+     */
+    private static GenModel copy(GenModel genModel, ResourceSet target, EcoreUtil.Copier copier) {
+        Resource genModelResource = genModel.eResource();
+        ResourceSet source = genModelResource != null ? genModelResource.getResourceSet() : null;
+        if (source == null) {
+            // A free-standing GenModel: copy it with the Ecore packages it refers to.
+            List<EObject> roots = new ArrayList<>();
+            roots.add(genModel);
+            for (GenPackage genPackage : genModel.getGenPackages()) {
+                roots.add(EcoreUtil.getRootContainer(genPackage.getEcorePackage()));
+            }
+            copier.copyAll(roots);
+            copier.copyReferences();
+            return (GenModel) copier.get(genModel);
+        }
+
+        List<Resource> resources = new ArrayList<>(source.getResources());
+        List<Collection<EObject>> copies = new ArrayList<>(resources.size());
+        for (Resource resource : resources) {
+            copies.add(copier.copyAll(resource.getContents()));
+        }
+        copier.copyReferences();
+        for (int i = 0; i < resources.size(); i++) {
+            target.createResource(resources.get(i).getURI()).getContents().addAll(copies.get(i));
+        }
+        target.getURIConverter().getURIMap().putAll(source.getURIConverter().getURIMap());
+        return (GenModel) copier.get(genModel);
+    }
+}
@@ -0,0 +1,98 @@
+package org.khachouch;
+
+import org.eclipse.emf.ecore.xmi.XMLParserPool;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMLParserPoolImpl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The load and save options an {@link EmfSession} applies to every XML resource (.ecore, .genmodel, XMI instance
+ * models) it reads or writes. Without options, EMF creates a new SAX parser for every load, rebuilds its
+ * name-to-feature and feature lookup tables for every document, and keeps the whole serialized document in memory
+ * before writing it.
+ * <p>
+ * The per-document tables are kept with each pooled ResourceSet of the session (see {@link EmfSession.Lease}), as
+ * they are not thread-safe; the parser pool is shared by the whole process.
+ *
+ * @param useParserPool        Borrows SAX parsers from a process-wide {@link XMLParserPool} instead of creating one per load.
+ * @param cacheLookupTables    Reuses the name-to-feature map of the loads and the feature lookup table of the saves
+ *                             across documents, and caches the XML configuration (helpers, escapes, printers).
+ * @param deferIdrefResolution Resolves the IDREFs of a document once it is parsed, instead of tracking forward references.
+ * @param useFileBuffer        Buffers the document being saved in a temporary file instead of in memory.
+ * @param bufferSize           The size of the parser input buffer and the number of characters after which a save
+ *                             flushes its output, or 0 for the EMF defaults.
+ */
+public record PerformanceProfile(boolean useParserPool, boolean cacheLookupTables, boolean deferIdrefResolution,
+                                 boolean useFileBuffer, int bufferSize) {
+    /**
+     * EMF's own behaviour: no options.
+     */
+    public static final PerformanceProfile EMF_DEFAULTS = new PerformanceProfile(false, false, false, false, 0);
+    /**
+     * Every optimization, with 64 KB buffers. This is the profile of a new {@link EmfSession}.
+     */
+    public static final PerformanceProfile HIGH_THROUGHPUT = new PerformanceProfile(true, true, true, true, 64 * 1024);
+
+    /**
+     * The parser property setting the size of the buffer Xerces reads the document into.
+     */
+    private static final String INPUT_BUFFER_SIZE_PROPERTY = "http://apache.org/xml/properties/input-buffer-size";
+
+    // Parsers are pooled by features and properties; the default handlers are not pooled, as the pool would use the
+    // (mutable) load options as keys.
+    private static final XMLParserPool PARSER_POOL = new XMLParserPoolImpl();
+
+    public PerformanceProfile {
+        if (bufferSize < 0) {
+            throw new IllegalArgumentException("bufferSize must not be negative: " + bufferSize);
+        }
+    }
+
+    /**
+     * Returns the load options of the profile, without the per-document tables, which the caller adds when
+     * {@link #cacheLookupTables()} is set (see {@link XMLResource#OPTION_USE_XML_NAME_TO_FEATURE_MAP}).
+     *
+     * @return A new modifiable map of load options.
+     */
+    public Map<Object, Object> getLoadOptions() {
+        Map<Object, Object> options = new HashMap<>();
+        if (useParserPool) {
+            options.put(XMLResource.OPTION_USE_PARSER_POOL, PARSER_POOL);
+            // The pooled parsers are namespace aware, so the document need not be read ahead to detect its encoding.
+            // A parser EMF creates itself is not, and needs the deprecated code path.
+            options.put(XMLResource.OPTION_USE_DEPRECATED_METHODS, Boolean.FALSE);
+        }
+        if (cacheLookupTables) {
+            options.put(XMLResource.OPTION_CONFIGURATION_CACHE, Boolean.TRUE);
+        }
+        if (deferIdrefResolution) {
+            options.put(XMLResource.OPTION_DEFER_IDREF_RESOLUTION, Boolean.TRUE);
+        }
+        if (bufferSize > 0) {
+            options.put(XMLResource.OPTION_PARSER_PROPERTIES, Map.of(INPUT_BUFFER_SIZE_PROPERTY, bufferSize));
+        }
+        return options;
+    }
+
+    /**
+     * Returns the save options of the profile, without the per-document tables, which the caller adds when
+     * {@link #cacheLookupTables()} is set (see {@link XMLResource#OPTION_USE_CACHED_LOOKUP_TABLE}).
+     *
+     * @return A new modifiable map of save options.
+     */
+    public Map<Object, Object> getSaveOptions() {
+        Map<Object, Object> options = new HashMap<>();
+        if (cacheLookupTables) {
+            options.put(XMLResource.OPTION_CONFIGURATION_CACHE, Boolean.TRUE);
+        }
+        if (useFileBuffer) {
+            options.put(XMLResource.OPTION_USE_FILE_BUFFER, Boolean.TRUE);
+        }
+        if (bufferSize > 0) {
+            options.put(XMLResource.OPTION_FLUSH_THRESHOLD, bufferSize);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,496 @@
+package org.khachouch;
+
+import net.sourceforge.plantuml.FileFormat;
+import net.sourceforge.plantuml.FileFormatOption;
+import net.sourceforge.plantuml.SourceStringReader;
+import net.sourceforge.plantuml.cucadiagram.dot.GraphvizUtils;
+import net.sourceforge.plantuml.version.Version;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Logger;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Builds PlantUML class diagrams of Ecore models and renders them to SVG.
+ * Large metamodels can be split into one diagram per EPackage or per connected component, or shown as focused
+ * views of the classes within a few hops of one class, so that no single layout has to place hundreds of classes.
+ * Diagrams are rendered in parallel. Given a cache directory, each SVG is also kept on disk under the SHA-256 of its
+ * PlantUML text and the PlantUML version, so an unchanged diagram is never laid out twice. The cache has no size cap;
+ * it is meant for a build that renders the same models repeatedly. The cached SVGs are copied into
+ * the outputs, so the cache directory must be private to the current user: it is created with owner-only
+ * permissions, and a directory owned by another user is not used.
+ */
+public class PlantUMLDiagramRenderer {
+
+    /**
+     * How a model is split into diagrams.
+     */
+    public enum Partitioning {
+        /**
+         * One diagram per EPackage (nested packages included), named after its qualified name.
+         * References to classes of other packages are drawn to a plain box.
+         */
+        PACKAGE,
+        /**
+         * One diagram per group of classes connected by inheritance or references, largest first.
+         * Classes connected to nothing are gathered in a single "unconnected" diagram.
+         */
+        COMPONENT
+    }
+
+    /**
+     * The system property naming the directory of the SVG cache of {@link EcoreUtilsImpl}; unset, diagrams are not
+     * cached.
+     */
+    public static final String CACHE_PROPERTY = "ecoreutils.diagramCache";
+
+    private static final Logger logger = (Logger) LogManager.getLogger(PlantUMLDiagramRenderer.class);
+    // Prefixes the text of each cache key, so that the SVGs of another PlantUML version are not served.
+    private static final String CACHE_KEY_PREFIX = "PlantUML " + Version.versionString() + "\n";
+
+    private final int threads;
+    private final Path cacheDirectory;
+    // Whether the cache directory is private to the current user; null until it is first checked.
+    private volatile Boolean cacheUsable;
+    private final AtomicInteger cacheHits = new AtomicInteger();
+
+    /**
+     * Creates a renderer.
+     *
+     * @param threads        The number of diagrams rendered at the same time.
+     * @param cacheDirectory The directory keeping the rendered SVGs, or null to always render. It is created on first
+     *                       use, readable only by the current user; if it belongs to another user, nothing is cached.
+     */
+    public PlantUMLDiagramRenderer(int threads, Path cacheDirectory) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        this.threads = threads;
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * @return The number of diagrams taken from the cache instead of being rendered.
+     */
+    public int getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * Builds the diagram of whole packages, as {@link EcoreUtilsImpl#ConvertEcoreToUML(String, String)} draws them.
+     *
+     * @param ePackages The packages to draw; their subpackages are not drawn.
+     * @return The PlantUML text.
+     */
+    public static String toPlantUML(Collection<EPackage> ePackages) {
+        Map<EPackage, List<EClass>> classes = new LinkedHashMap<>();
+        for (EPackage ePackage : ePackages) {
+            classes.put(ePackage, eClasses(ePackage));
+        }
+        return toPlantUML(classes, target -> true);
+    }
+
+    /**
+     * Splits the classes of some packages into several diagrams.
+     *
+     * @param ePackages    The root packages of the model.
+     * @param partitioning How to split the classes.
+     * @return The PlantUML text of each diagram, by diagram name.
+     */
+    public static Map<String, String> partition(Collection<EPackage> ePackages, Partitioning partitioning) {
+        List<EPackage> allPackages = new ArrayList<>();
+        for (EPackage ePackage : ePackages) {
+            collectPackages(ePackage, allPackages);
+        }
+
+        Map<String, String> diagrams = new LinkedHashMap<>();
+        if (partitioning == Partitioning.PACKAGE) {
+            for (EPackage ePackage : allPackages) {
+                List<EClass> classes = eClasses(ePackage);
+                if (!classes.isEmpty()) {
+                    diagrams.put(qualifiedName(ePackage), toPlantUML(Map.of(ePackage, classes), target -> true));
+                }
+            }
+            return diagrams;
+        }
+
+        // Connected components, with a union-find over the classes of the model.
+        List<EClass> allClasses = new ArrayList<>();
+        for (EPackage ePackage : allPackages) {
+            allClasses.addAll(eClasses(ePackage));
+        }
+        Map<EClass, EClass> parents = new HashMap<>();
+        for (EClass eClass : allClasses) {
+            parents.put(eClass, eClass);
+        }
+        for (EClass eClass : allClasses) {
+            for (EClass neighbour : outgoing(eClass)) {
+                if (parents.containsKey(neighbour)) {
+                    parents.put(find(parents, eClass), find(parents, neighbour));
+                }
+            }
+        }
+        Map<EClass, List<EClass>> components = new LinkedHashMap<>();
+        for (EClass eClass : allClasses) {
+            components.computeIfAbsent(find(parents, eClass), key -> new ArrayList<>()).add(eClass);
+        }
+
+        List<List<EClass>> connected = new ArrayList<>();
+        List<EClass> unconnected = new ArrayList<>();
+        for (List<EClass> component : components.values()) {
+            if (component.size() == 1) {
+                unconnected.addAll(component);
+            } else {
+                connected.add(component);
+            }
+        }
+        // Stable sort: components of the same size keep the order of the model.
+        connected.sort(Comparator.comparingInt(component -> -component.size()));
+        for (int i = 0; i < connected.size(); i++) {
+            diagrams.put("component-" + (i + 1), toPlantUML(byPackage(connected.get(i)), target -> true));
+        }
+        if (!unconnected.isEmpty()) {
+            diagrams.put("unconnected", toPlantUML(byPackage(unconnected), target -> true));
+        }
+        return diagrams;
+    }
+
+    /**
+     * Builds the diagram of the classes within a number of hops of a class. A hop follows a supertype or
+     * a reference, in either direction.
+     *
+     * @param center The class in the middle of the view.
+     * @param hops   The maximum distance of the shown classes from the center.
+     * @return The PlantUML text.
+     */
+    public static String focus(EClass center, int hops) {
+        // The neighbourhood is searched in the whole model of the class, so that incoming edges are found too.
+        List<EPackage> allPackages = new ArrayList<>();
+        List<EObject> roots = center.eResource() != null
+                ? center.eResource().getContents()
+                : List.of(EcoreUtil.getRootContainer(center));
+        for (EObject root : roots) {
+            if (root instanceof EPackage ePackage) {
+                collectPackages(ePackage, allPackages);
+            }
+        }
+        Map<EClass, Set<EClass>> neighbours = new HashMap<>();
+        for (EPackage ePackage : allPackages) {
+            for (EClass eClass : eClasses(ePackage)) {
+                for (EClass target : outgoing(eClass)) {
+                    neighbours.computeIfAbsent(eClass, key -> new LinkedHashSet<>()).add(target);
+                    neighbours.computeIfAbsent(target, key -> new LinkedHashSet<>()).add(eClass);
+                }
+            }
+        }
+
+        // Breadth-first search up to the given distance.
+        Set<EClass> shown = new LinkedHashSet<>();
+        shown.add(center);
+        Deque<EClass> frontier = new ArrayDeque<>(shown);
+        for (int hop = 0; hop < hops && !frontier.isEmpty(); hop++) {
+            Deque<EClass> next = new ArrayDeque<>();
+            for (EClass eClass : frontier) {
+                for (EClass neighbour : neighbours.getOrDefault(eClass, Set.of())) {
+                    if (shown.add(neighbour)) {
+                        next.add(neighbour);
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        // Edges leaving the view would only add unrelated boxes around it.
+        List<EClass> ordered = new ArrayList<>();
+        for (EPackage ePackage : allPackages) {
+            for (EClass eClass : eClasses(ePackage)) {
+                if (shown.contains(eClass)) {
+                    ordered.add(eClass);
+                }
+            }
+        }
+        for (EClass eClass : shown) {
+            if (!ordered.contains(eClass)) {
+                ordered.add(eClass);
+            }
+        }
+        return toPlantUML(byPackage(ordered), shown::contains);
+    }
+
+    /**
+     * Renders several diagrams in parallel, each to {@code <name>.svg} in the output directory.
+     *
+     * @param diagrams        The PlantUML text of each diagram, by diagram name.
+     * @param outputDirectory The directory receiving the SVG files; it is created if needed.
+     * @return true if every diagram was rendered, false otherwise.
+     */
+    public boolean render(Map<String, String> diagrams, Path outputDirectory) {
+        try {
+            Files.createDirectories(outputDirectory);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, diagrams.size())));
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>(diagrams.size());
+            for (Map.Entry<String, String> diagram : diagrams.entrySet()) {
+                Path svgFile = outputDirectory.resolve(fileName(diagram.getKey()) + ".svg");
+                futures.add(executor.submit(() -> render(diagram.getValue(), svgFile)));
+            }
+            boolean success = true;
+            for (Future<Boolean> future : futures) {
+                try {
+                    success &= future.get();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    success = false;
+                }
+            }
+            return success;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Renders one diagram, or copies it from the cache if the same text was rendered before.
+     *
+     * @param plantUMLText The PlantUML text.
+     * @param svgFile      The SVG file to write.
+     * @return true if the diagram was written, false otherwise.
+     */
+    public boolean render(String plantUMLText, Path svgFile) {
+        try {
+            Path directory = cacheDirectory();
+            if (directory == null) {
+                return renderSVG(plantUMLText, svgFile);
+            }
+            Path cachedFile = directory.resolve(sha256(CACHE_KEY_PREFIX + plantUMLText) + ".svg");
+            // Files planted before the directory was made private are not the current user's: they are rendered again.
+            if (PrivateFiles.isOwnedFile(cachedFile)) {
+                cacheHits.incrementAndGet();
+                Files.copy(cachedFile, svgFile, StandardCopyOption.REPLACE_EXISTING);
+                return true;
+            }
+            if (!renderSVG(plantUMLText, svgFile)) {
+                return false;
+            }
+            // Without Graphviz, class diagrams come out as an error image, which must not outlive the missing install.
+            if (isGraphvizAvailable()) {
+                // Another thread may cache the same text at the same time; the atomic move keeps whole files only.
+                Path temporaryFile = Files.createTempFile(directory, "render", ".tmp");
+                Files.copy(svgFile, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporaryFile, cachedFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * @return The cache directory, created private to the current user on the first call, or null if there is none
+     * or it belongs to another user.
+     */
+    private Path cacheDirectory() {
+        if (cacheDirectory == null) {
+            return null;
+        }
+        if (cacheUsable == null) {
+            synchronized (this) {
+                if (cacheUsable == null) {
+                    try {
+                        PrivateFiles.createDirectory(cacheDirectory);
+                        cacheUsable = true;
+                    } catch (IOException e) {
+                        logger.warn("Diagrams are not cached: " + e.getMessage());
+                        cacheUsable = false;
+                    }
+                }
+            }
+        }
+        return cacheUsable ? cacheDirectory : null;
+    }
+
+    private static boolean renderSVG(String plantUMLText, Path svgFile) throws IOException {
+        SourceStringReader reader = new SourceStringReader(plantUMLText);
+        try (OutputStream outputStream = Files.newOutputStream(svgFile)) {
+            String desc = reader.generateImage(outputStream, new FileFormatOption(FileFormat.SVG));
+            return desc != null && !desc.equals("(Error)");
+        }
+    }
+
+    private static boolean isGraphvizAvailable() {
+        File dotExe = GraphvizUtils.getDotExe();
+        return dotExe != null && dotExe.canExecute();
+    }
+
+    /**
+     * Writes the classes of each package, with their attributes, supertypes and references.
+     *
+     * @param classes         The classes to draw, by package, in drawing order.
+     * @param shownEdgeTarget Accepts the classes that supertype and reference edges may point to.
+     * @return The PlantUML text.
+     */
+    private static String toPlantUML(Map<EPackage, List<EClass>> classes, Predicate<EClass> shownEdgeTarget) {
+        // Initialize a StringBuilder to construct the PlantUML text
+        StringBuilder plantUMLText = new StringBuilder();
+
+        // Start the PlantUML diagram
+        plantUMLText.append("@startuml\n");
+
+        // Set the size of class attribute icons to 0 (no icons)
+        plantUMLText.append("skinparam classAttributeIconSize 0\n");
+
+        // Use orthogonal lines to reduce entanglement in the diagram
+        plantUMLText.append("skinparam linetype ortho\n");
+
+        // Arrange elements from top to bottom to reflect hierarchical structure
+        plantUMLText.append("top to bottom direction\n");
+
+        for (Map.Entry<EPackage, List<EClass>> entry : classes.entrySet()) {
+            // Start a new package in the PlantUML diagram
+            plantUMLText.append("package ").append(entry.getKey().getName()).append(" {\n");
+
+            for (EClass eClass : entry.getValue()) {
+                // Define a new class in the PlantUML diagram
+                plantUMLText.append("class ").append(eClass.getName()).append(" {\n");
+
+                // Add each attribute to the class definition in PlantUML
+                for (EAttribute eAttribute : eClass.getEAttributes()) {
+                    plantUMLText.append("  ").append(eAttribute.getName()).append(" : ").append(eAttribute.getEType().getName()).append("\n");
+                }
+
+                // Close the class definition
+                plantUMLText.append("}\n");
+
+                // Add super types (inheritance relationships)
+                for (EClass superType : eClass.getESuperTypes()) {
+                    if (shownEdgeTarget.test(superType)) {
+                        plantUMLText.append(eClass.getName()).append(" --|> ").append(superType.getName()).append("\n");
+                    }
+                }
+
+                // Add references (associations)
+                for (EReference eReference : eClass.getEReferences()) {
+                    if (!(eReference.getEType() instanceof EClass target) || shownEdgeTarget.test(target)) {
+                        plantUMLText.append(eClass.getName()).append(" --> ").append(eReference.getEType().getName()).append(" : ").append(eReference.getName()).append("\n");
+                    }
+                }
+            }
+
+            // Close the package definition
+            plantUMLText.append("}\n");
+        }
+
+        // End the PlantUML diagram
+        plantUMLText.append("@enduml\n");
+        return plantUMLText.toString();
+    }
+
+    private static List<EClass> eClasses(EPackage ePackage) {
+        List<EClass> classes = new ArrayList<>();
+        for (EClassifier eClassifier : ePackage.getEClassifiers()) {
+            if (eClassifier instanceof EClass eClass) {
+                classes.add(eClass);
+            }
+        }
+        return classes;
+    }
+
+    private static Map<EPackage, List<EClass>> byPackage(List<EClass> classes) {
+        Map<EPackage, List<EClass>> result = new LinkedHashMap<>();
+        for (EClass eClass : classes) {
+            result.computeIfAbsent(eClass.getEPackage(), key -> new ArrayList<>()).add(eClass);
+        }
+        return result;
+    }
+
+    private static List<EClass> outgoing(EClass eClass) {
+        List<EClass> targets = new ArrayList<>(eClass.getESuperTypes());
+        for (EReference eReference : eClass.getEReferences()) {
+            if (eReference.getEType() instanceof EClass target) {
+                targets.add(target);
+            }
+        }
+        return targets;
+    }
+
+    private static EClass find(Map<EClass, EClass> parents, EClass eClass) {
+        EClass root = eClass;
+        while (parents.get(root) != root) {
+            root = parents.get(root);
+        }
+        // Path compression keeps later lookups short.
+        while (parents.get(eClass) != root) {
+            EClass next = parents.get(eClass);
+            parents.put(eClass, root);
+            eClass = next;
+        }
+        return root;
+    }
+
+    private static void collectPackages(EPackage ePackage, List<EPackage> result) {
+        result.add(ePackage);
+        for (EPackage subpackage : ePackage.getESubpackages()) {
+            collectPackages(subpackage, result);
+        }
+    }
+
+    private static String qualifiedName(EPackage ePackage) {
+        return ePackage.getESuperPackage() == null ? ePackage.getName() : qualifiedName(ePackage.getESuperPackage()) + "." + ePackage.getName();
+    }
+
+    private static String fileName(String diagramName) {
+        return diagramName.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform provides SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.khachouch;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+
+/**
+ * Creates files and directories only the current user can read or write, for the state other local users must not
+ * read or plant (server tokens and sockets, caches whose content is copied into outputs). On file systems without
+ * POSIX permissions (Windows), only ownership is checked.
+ */
+final class PrivateFiles {
+    private static final Set<PosixFilePermission> OWNER_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private PrivateFiles() {
+    }
+
+    /**
+     * @return The directory of the per-user state of EcoreUtils, in the user's home directory: the server's default
+     * socket and its token files.
+     */
+    static Path stateDirectory() {
+        return Path.of(System.getProperty("user.home"), ".ecoreutils");
+    }
+
+    /**
+     * Creates a directory, and its missing parents, readable only by the current user, or checks an existing one.
+     *
+     * @param directory The directory.
+     * @return The directory.
+     * @throws IOException if it cannot be created, or exists but is a link, not a directory, or owned by another user.
+     */
+    static Path createDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+            Files.createDirectories(directory.toAbsolutePath().getParent());
+            try {
+                if (isPosix(directory)) {
+                    Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_DIRECTORY));
+                } else {
+                    Files.createDirectory(directory);
+                }
+            } catch (FileAlreadyExistsException e) {
+                // Created concurrently; checked below like any existing directory.
+            }
+        }
+        BasicFileAttributes attributes = Files.readAttributes(directory, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!attributes.isDirectory()) {
+            throw new IOException(directory + " is not a directory");
+        }
+        checkOwner(directory);
+        if (isPosix(directory) && !Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS).equals(OWNER_DIRECTORY)) {
+            // Ours, so it can be tightened; files planted before are caught by callers checking the owner of what they read.
+            Files.setPosixFilePermissions(directory, OWNER_DIRECTORY);
+        }
+        return directory;
+    }
+
+    /**
+     * Writes a new file only the current user can read, replacing an existing one.
+     *
+     * @param file    The file, in a directory made by {@link #createDirectory(Path)}.
+     * @param content The content.
+     * @throws IOException if the file cannot be written.
+     */
+    static void write(Path file, byte[] content) throws IOException {
+        Files.deleteIfExists(file);
+        if (isPosix(file.toAbsolutePath().getParent())) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(OWNER_FILE));
+        } else {
+            Files.createFile(file);
+        }
+        Files.write(file, content, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Makes an existing file, e.g. a socket just bound, readable and writable only by the current user.
+     *
+     * @param file The file.
+     * @throws IOException if its permissions cannot be changed.
+     */
+    static void restrict(Path file) throws IOException {
+        if (isPosix(file.toAbsolutePath().getParent())) {
+            Files.setPosixFilePermissions(file, OWNER_FILE);
+        }
+    }
+
+    /**
+     * @param path A file or directory.
+     * @throws IOException if it is not owned by the current user.
+     */
+    static void checkOwner(Path path) throws IOException {
+        UserPrincipal owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS);
+        if (!owner.getName().equals(currentUser().getName())) {
+            throw new IOException(path + " is owned by " + owner.getName() + ", not by the current user");
+        }
+    }
+
+    /**
+     * @param file A file.
+     * @return true if it is a regular file, not a link, owned by the current user.
+     */
+    static boolean isOwnedFile(Path file) {
+        try {
+            if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+                return false;
+            }
+            checkOwner(file);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The user this JVM runs as.
+     * @throws IOException if the user cannot be looked up.
+     */
+    static UserPrincipal currentUser() throws IOException {
+        return FileSystems.getDefault().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+    }
+
+    private static boolean isPosix(Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+}
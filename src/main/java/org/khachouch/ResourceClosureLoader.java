@@ -0,0 +1,176 @@
+package org.khachouch;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads a resource together with every resource it references, directly or not, parsing the referenced resources
+ * concurrently. {@code getResource(uri, true)} only loads the resource itself; the cross-document references are
+ * proxies that are resolved one at a time, on the calling thread, by the first traversal reaching them.
+ * <p>
+ * The closure is loaded in waves: the proxies of the resources loaded so far name the resources of the next wave,
+ * which are parsed on worker threads, each in a ResourceSet leased from the {@link EmfSession}. Once a wave is parsed,
+ * its resources are moved into the caller's ResourceSet on the calling thread, so the caller's ResourceSet is never
+ * touched by two threads. The proxies are resolved at the end, when every resource they point to is in place.
+ */
+public class ResourceClosureLoader {
+    private static final Logger logger = (Logger) LogManager.getLogger(ResourceClosureLoader.class);
+
+    private final EmfSession session;
+    private final int threads;
+
+    /**
+     * Creates a loader.
+     *
+     * @param session The session leasing the ResourceSets the referenced resources are parsed in.
+     * @param threads The maximum number of resources parsed at the same time.
+     */
+    public ResourceClosureLoader(EmfSession session, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        this.session = session;
+        this.threads = threads;
+    }
+
+    /**
+     * Loads a resource and the resources it references into a ResourceSet, and resolves all their proxies.
+     * A referenced resource that cannot be loaded is added with its errors, as a demand load would leave it,
+     * and the proxies to it stay unresolved.
+     *
+     * @param resourceSet The ResourceSet receiving the resources. Its URI map, load options and locally registered
+     *                    packages are used to load the referenced resources.
+     * @param uri         The URI of the resource to load.
+     * @return The resource of the URI.
+     */
+    public Resource load(ResourceSet resourceSet, URI uri) {
+        Resource root = resourceSet.getResource(uri, true);
+        // Taken on this thread, as the ResourceSet's getters may create what they return.
+        Configuration configuration = new Configuration(new HashMap<>(resourceSet.getURIConverter().getURIMap()),
+                new HashMap<>(resourceSet.getLoadOptions()), new HashMap<>(resourceSet.getPackageRegistry()));
+
+        ExecutorService executor = null;
+        try {
+            List<Resource> wave = List.of(root);
+            int waves = 0;
+            int loaded = 0;
+            while (true) {
+                Set<URI> referenced = findReferencedURIs(resourceSet, wave);
+                if (referenced.isEmpty()) {
+                    break;
+                }
+                waves++;
+                loaded += referenced.size();
+
+                List<Resource> parsed = new ArrayList<>(referenced.size());
+                if (referenced.size() == 1) {
+                    // Not worth a hand-off to another thread.
+                    parsed.add(parse(configuration, referenced.iterator().next()));
+                } else {
+                    if (executor == null) {
+                        executor = Executors.newFixedThreadPool(threads);
+                    }
+                    List<Future<Resource>> futures = new ArrayList<>(referenced.size());
+                    for (URI referencedURI : referenced) {
+                        futures.add(executor.submit(() -> parse(configuration, referencedURI)));
+                    }
+                    for (Future<Resource> future : futures) {
+                        parsed.add(await(future));
+                    }
+                }
+
+                // Stitch the wave into the caller's ResourceSet; the next wave is what these resources reference.
+                resourceSet.getResources().addAll(parsed);
+                wave = parsed;
+            }
+            if (loaded > 0) {
+                logger.debug("Loaded " + loaded + " resources referenced by " + uri + " in " + waves + " waves");
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+
+        EcoreUtil.resolveAll(resourceSet);
+        return root;
+    }
+
+    /**
+     * Collects the resources the proxies of some resources point to, other than those already in the ResourceSet
+     * or registered as packages.
+     */
+    private static Set<URI> findReferencedURIs(ResourceSet resourceSet, List<Resource> resources) {
+        Set<URI> uris = new LinkedHashSet<>();
+        for (Resource resource : resources) {
+            for (EObject proxy : EcoreUtil.ProxyCrossReferencer.find(resource).keySet()) {
+                URI uri = ((InternalEObject) proxy).eProxyURI().trimFragment();
+                if (!uris.contains(uri) && resourceSet.getResource(uri, false) == null) {
+                    uris.add(uri);
+                }
+            }
+        }
+        return uris;
+    }
+
+    /**
+     * Parses one resource in a leased ResourceSet configured like the caller's, and detaches it from that set.
+     */
+    private Resource parse(Configuration configuration, URI uri) {
+        try (EmfSession.Lease lease = session.acquire()) {
+            ResourceSet workerResourceSet = lease.getResourceSet();
+            workerResourceSet.getURIConverter().getURIMap().putAll(configuration.uriMap());
+            // The worker's own options win: its lookup tables must not be shared with the other workers.
+            configuration.loadOptions().forEach(workerResourceSet.getLoadOptions()::putIfAbsent);
+            workerResourceSet.getPackageRegistry().putAll(configuration.packages());
+
+            Resource resource = workerResourceSet.createResource(uri);
+            if (resource == null) {
+                throw new RuntimeException("Cannot create a resource for '" + uri + "'; a registered resource factory is needed");
+            }
+            try {
+                resource.load(workerResourceSet.getLoadOptions());
+            } catch (IOException | RuntimeException e) {
+                // Kept with its errors, like ResourceSetImpl keeps a resource whose demand load failed.
+                logger.warn("Could not load " + uri + ": " + e.getMessage());
+            }
+            workerResourceSet.getResources().remove(resource);
+            return resource;
+        }
+    }
+
+    /**
+     * What the worker ResourceSets copy from the caller's.
+     */
+    private record Configuration(Map<URI, URI> uriMap, Map<Object, Object> loadOptions, Map<String, Object> packages) {
+    }
+
+    private static Resource await(Future<Resource> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : new RuntimeException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,504 @@
+package org.khachouch;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.FeatureMapUtil;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates the bytecode of the subclass of {@link RuntimeEObject} for an EClass and defines it as a hidden class.
+ * <p>
+ * The class has one field per structural feature, except container references (the container is kept by the
+ * object itself), and implements dynamicGet, dynamicSet and dynamicUnset with a switch over the feature IDs. eGet,
+ * eSet and eIsSet are implemented the same way for the features the setting delegates add nothing to, and fall back
+ * to the delegates otherwise. The EClass is the class data of the hidden class, which the constructor loads as a
+ * dynamic constant.
+ */
+final class RuntimeClassGenerator {
+    private static final String SUPER_NAME = Type.getInternalName(RuntimeEObject.class);
+    private static final String PACKAGE_PREFIX = SUPER_NAME.substring(0, SUPER_NAME.lastIndexOf('/') + 1);
+    private static final String OBJECT_DESCRIPTOR = Type.getDescriptor(Object.class);
+    private static final String ECLASS_DESCRIPTOR = Type.getDescriptor(EClass.class);
+    private static final String INTERNAL_EOBJECT = Type.getInternalName(InternalEObject.class);
+    private static final String VALUE_HOLDER = Type.getInternalName(EStructuralFeature.Internal.DynamicValueHolder.class);
+    private static final ConstantDynamic ECLASS = new ConstantDynamic("_", ECLASS_DESCRIPTOR,
+            new Handle(H_INVOKESTATIC, Type.getInternalName(MethodHandles.class), "classData",
+                    "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;", false));
+
+    /**
+     * How the value of a feature is kept and accessed.
+     */
+    private enum Kind {
+        /**
+         * A single-valued attribute of a primitive type, not unsettable: an unboxed field.
+         */
+        PRIMITIVE,
+        /**
+         * Any other single-valued attribute, not unsettable: null for the default value.
+         */
+        DATA,
+        /**
+         * A single-valued reference other than a container reference, not unsettable: null if not set.
+         */
+        REFERENCE,
+        /**
+         * A many-valued feature other than a feature map or a map: the list, created by the delegate on first access.
+         */
+        MANY,
+        /**
+         * Any other feature the delegate stores a value for: only accessed through the delegate.
+         */
+        OTHER
+    }
+
+    private record Slot(int featureID, Kind kind, String field, Type type, Object defaultValue, String castType,
+                        boolean resolveProxies) {
+    }
+
+    private RuntimeClassGenerator() {
+    }
+
+    /**
+     * @param eClass An EClass.
+     * @return true if instances of the EClass can be generated: it is neither abstract nor an interface and has no
+     * instance class of its own (such as {@code java.util.Map$Entry}).
+     */
+    static boolean canGenerate(EClass eClass) {
+        return !eClass.isAbstract() && !eClass.isInterface() && eClass.getInstanceClassName() == null;
+    }
+
+    /**
+     * Generates the class of the instances of an EClass and defines it as a hidden class next to {@link RuntimeEObject}.
+     *
+     * @param eClass An EClass for which {@link #canGenerate(EClass)} holds. Its features must not change afterwards.
+     * @return A lookup with full access to the new class, which is its {@link MethodHandles.Lookup#lookupClass()}.
+     * @throws IllegalAccessException if the class cannot be defined.
+     */
+    static MethodHandles.Lookup define(EClass eClass) throws IllegalAccessException {
+        return MethodHandles.lookup().defineHiddenClassWithClassData(generate(eClass), eClass, true);
+    }
+
+    static byte[] generate(EClass eClass) {
+        String name = PACKAGE_PREFIX + "RuntimeEObject$" + identifier(eClass.getEPackage() != null ? eClass.getEPackage().getName() : "")
+                + "$" + identifier(eClass.getName());
+        List<Slot> slots = slots(eClass);
+        int featureCount = eClass.getFeatureCount();
+
+        // The frames only merge java.lang.Object values, so no class needs to be loaded to compute them.
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return "java/lang/Object";
+            }
+        };
+        writer.visit(V21, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, name, null, SUPER_NAME, null);
+        for (Slot slot : slots) {
+            writer.visitField(ACC_PRIVATE, slot.field(), slot.type().getDescriptor(), null, null).visitEnd();
+        }
+
+        generateConstructor(writer, name, slots);
+        generateENewInstance(writer, name);
+        generateDynamicGet(writer, name, slots, featureCount);
+        generateDynamicSet(writer, name, slots, featureCount);
+        generateDynamicUnset(writer, name, slots, featureCount);
+        generateEGet(writer, name, slots, featureCount);
+        generateESet(writer, name, slots, featureCount);
+        generateEIsSet(writer, name, slots, featureCount);
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static List<Slot> slots(EClass eClass) {
+        List<Slot> slots = new ArrayList<>();
+        List<EStructuralFeature> features = eClass.getEAllStructuralFeatures();
+        for (int featureID = 0; featureID < features.size(); featureID++) {
+            EStructuralFeature feature = features.get(featureID);
+            if (feature instanceof EReference reference && reference.isContainer()) {
+                continue;
+            }
+            String field = "f" + featureID + "_" + identifier(feature.getName());
+            Class<?> instanceClass = feature.getEType() != null ? feature.getEType().getInstanceClass() : null;
+            // Derived, volatile and delegated features, feature maps and maps are left entirely to the delegate.
+            boolean plain = !feature.isDerived() && !feature.isVolatile()
+                    && EcoreUtil.getSettingDelegateFactory(feature) == null
+                    && !FeatureMapUtil.isFeatureMap(feature) && instanceClass != Map.Entry.class;
+            Kind kind;
+            if (!plain) {
+                kind = Kind.OTHER;
+            } else if (feature.isMany()) {
+                kind = Kind.MANY;
+            } else if (feature.isUnsettable()) {
+                kind = Kind.OTHER;
+            } else if (feature instanceof EReference) {
+                kind = Kind.REFERENCE;
+            } else if (instanceClass != null && instanceClass.isPrimitive()) {
+                kind = Kind.PRIMITIVE;
+            } else {
+                kind = Kind.DATA;
+            }
+
+            if (kind == Kind.PRIMITIVE) {
+                slots.add(new Slot(featureID, kind, field, Type.getType(instanceClass), feature.getDefaultValue(), null, false));
+            } else {
+                // eSet can cast a value itself only to a class every loader sees, e.g. java.lang.String.
+                String castType = kind == Kind.DATA && instanceClass != null && instanceClass.getClassLoader() == null
+                        ? Type.getInternalName(instanceClass) : null;
+                boolean resolveProxies = kind == Kind.REFERENCE && ((EReference) feature).isResolveProxies();
+                Object defaultValue = kind == Kind.DATA ? feature.getDefaultValue() : null;
+                slots.add(new Slot(featureID, kind, field, Type.getType(Object.class), defaultValue, castType, resolveProxies));
+            }
+        }
+        return slots;
+    }
+
+    private static void generateConstructor(ClassWriter writer, String name, List<Slot> slots) {
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        method.visitCode();
+        method.visitVarInsn(ALOAD, 0);
+        method.visitLdcInsn(ECLASS);
+        method.visitMethodInsn(INVOKESPECIAL, SUPER_NAME, "<init>", "(" + ECLASS_DESCRIPTOR + ")V", false);
+        for (Slot slot : slots) {
+            if (slot.kind() == Kind.PRIMITIVE && !isZero(slot.defaultValue())) {
+                method.visitVarInsn(ALOAD, 0);
+                pushConstant(method, slot);
+                method.visitFieldInsn(PUTFIELD, name, slot.field(), slot.type().getDescriptor());
+            }
+        }
+        method.visitInsn(RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    private static void generateENewInstance(ClassWriter writer, String name) {
+        MethodVisitor method = writer.visitMethod(0, "eNewInstance", "()" + Type.getObjectType(SUPER_NAME).getDescriptor(), null, null);
+        method.visitCode();
+        method.visitTypeInsn(NEW, name);
+        method.visitInsn(DUP);
+        method.visitMethodInsn(INVOKESPECIAL, name, "<init>", "()V", false);
+        method.visitInsn(ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    private static void generateDynamicGet(ClassWriter writer, String name, List<Slot> slots, int featureCount) {
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "dynamicGet", "(I)" + OBJECT_DESCRIPTOR, null, null);
+        method.visitCode();
+        Label[] cases = switchOnFeatureID(method, slots, featureCount, 1);
+        Label otherwise = cases[featureCount];
+        for (Slot slot : slots) {
+            method.visitLabel(cases[slot.featureID()]);
+            getField(method, name, slot);
+            box(method, slot);
+            method.visitInsn(ARETURN);
+        }
+        method.visitLabel(otherwise);
+        method.visitInsn(ACONST_NULL);
+        method.visitInsn(ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    private static void generateDynamicSet(ClassWriter writer, String name, List<Slot> slots, int featureCount) {
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "dynamicSet", "(I" + OBJECT_DESCRIPTOR + ")V", null, null);
+        method.visitCode();
+        Label[] cases = switchOnFeatureID(method, slots, featureCount, 1);
+        Label otherwise = cases[featureCount];
+        for (Slot slot : slots) {
+            method.visitLabel(cases[slot.featureID()]);
+            if (slot.kind() == Kind.PRIMITIVE) {
+                // The delegates store null for the default value.
+                Label notNull = new Label();
+                method.visitVarInsn(ALOAD, 2);
+                method.visitJumpInsn(IFNONNULL, notNull);
+                method.visitVarInsn(ALOAD, 0);
+                pushConstant(method, slot);
+                method.visitFieldInsn(PUTFIELD, name, slot.field(), slot.type().getDescriptor());
+                method.visitInsn(RETURN);
+                method.visitLabel(notNull);
+                method.visitVarInsn(ALOAD, 0);
+                method.visitVarInsn(ALOAD, 2);
+                unbox(method, slot);
+            } else {
+                method.visitVarInsn(ALOAD, 0);
+                method.visitVarInsn(ALOAD, 2);
+            }
+            method.visitFieldInsn(PUTFIELD, name, slot.field(), slot.type().getDescriptor());
+            method.visitInsn(RETURN);
+        }
+        method.visitLabel(otherwise);
+        method.visitInsn(RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    private static void generateDynamicUnset(ClassWriter writer, String name, List<Slot> slots, int featureCount) {
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "dynamicUnset", "(I)V", null, null);
+        method.visitCode();
+        Label[] cases = switchOnFeatureID(method, slots, featureCount, 1);
+        Label otherwise = cases[featureCount];
+        for (Slot slot : slots) {
+            method.visitLabel(cases[slot.featureID()]);
+            method.visitVarInsn(ALOAD, 0);
+            if (slot.kind() == Kind.PRIMITIVE) {
+                pushConstant(method, slot);
+            } else {
+                method.visitInsn(ACONST_NULL);
+            }
+            method.visitFieldInsn(PUTFIELD, name, slot.field(), slot.type().getDescriptor());
+            method.visitInsn(RETURN);
+        }
+        method.visitLabel(otherwise);
+        method.visitInsn(RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    /**
+     * eGet(featureID, resolve, coreType): the field itself, unless the delegate has something to add (a default
+     * value, a proxy to resolve, a list to create).
+     */
+    private static void generateEGet(ClassWriter writer, String name, List<Slot> slots, int featureCount) {
+        String descriptor = "(IZZ)" + OBJECT_DESCRIPTOR;
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "eGet", descriptor, null, null);
+        method.visitCode();
+        List<Slot> fast = slots.stream().filter(slot -> slot.kind() != Kind.OTHER).toList();
+        Label[] cases = switchOnFeatureID(method, fast, featureCount, 1);
+        Label delegate = cases[featureCount];
+        for (Slot slot : fast) {
+            method.visitLabel(cases[slot.featureID()]);
+            getField(method, name, slot);
+            if (slot.kind() == Kind.PRIMITIVE) {
+                box(method, slot);
+                method.visitInsn(ARETURN);
+                continue;
+            }
+            method.visitVarInsn(ASTORE, 4);
+            Label result = new Label();
+            method.visitVarInsn(ALOAD, 4);
+            switch (slot.kind()) {
+                case DATA -> {
+                    method.visitJumpInsn(IFNULL, delegate);
+                    method.visitVarInsn(ALOAD, 4);
+                    method.visitFieldInsn(GETSTATIC, VALUE_HOLDER, "NIL", OBJECT_DESCRIPTOR);
+                    method.visitJumpInsn(IF_ACMPEQ, delegate);
+                }
+                case REFERENCE -> {
+                    method.visitJumpInsn(IFNULL, result);
+                    if (slot.resolveProxies()) {
+                        method.visitVarInsn(ILOAD, 2);
+                        method.visitJumpInsn(IFEQ, result);
+                        method.visitVarInsn(ALOAD, 4);
+                        method.visitTypeInsn(CHECKCAST, INTERNAL_EOBJECT);
+                        method.visitMethodInsn(INVOKEINTERFACE, INTERNAL_EOBJECT, "eIsProxy", "()Z", true);
+                        method.visitJumpInsn(IFNE, delegate);
+                    }
+                }
+                default -> method.visitJumpInsn(IFNULL, delegate);
+            }
+            method.visitLabel(result);
+            method.visitVarInsn(ALOAD, 4);
+            method.visitInsn(ARETURN);
+        }
+        method.visitLabel(delegate);
+        method.visitVarInsn(ALOAD, 0);
+        method.visitVarInsn(ILOAD, 1);
+        method.visitVarInsn(ILOAD, 2);
+        method.visitVarInsn(ILOAD, 3);
+        method.visitMethodInsn(INVOKESPECIAL, SUPER_NAME, "eGet", descriptor, false);
+        method.visitInsn(ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    /**
+     * eSet(featureID, newValue): a cast and a field store for non-null attribute values when nobody listens;
+     * references, lists and notifications go through the delegate.
+     */
+    private static void generateESet(ClassWriter writer, String name, List<Slot> slots, int featureCount) {
+        String descriptor = "(I" + OBJECT_DESCRIPTOR + ")V";
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "eSet", descriptor, null, null);
+        method.visitCode();
+        List<Slot> fast = slots.stream()
+                .filter(slot -> slot.kind() == Kind.PRIMITIVE || slot.kind() == Kind.DATA && slot.castType() != null)
+                .toList();
+        Label[] cases = switchOnFeatureID(method, fast, featureCount, 1);
+        Label delegate = cases[featureCount];
+        for (Slot slot : fast) {
+            method.visitLabel(cases[slot.featureID()]);
+            method.visitVarInsn(ALOAD, 2);
+            method.visitJumpInsn(IFNULL, delegate);
+            method.visitVarInsn(ALOAD, 0);
+            method.visitMethodInsn(INVOKEVIRTUAL, SUPER_NAME, "eNotificationRequired", "()Z", false);
+            method.visitJumpInsn(IFNE, delegate);
+            method.visitVarInsn(ALOAD, 0);
+            method.visitVarInsn(ALOAD, 2);
+            if (slot.kind() == Kind.PRIMITIVE) {
+                unbox(method, slot);
+            } else {
+                method.visitTypeInsn(CHECKCAST, slot.castType());
+            }
+            method.visitFieldInsn(PUTFIELD, name, slot.field(), slot.type().getDescriptor());
+            method.visitInsn(RETURN);
+        }
+        method.visitLabel(delegate);
+        method.visitVarInsn(ALOAD, 0);
+        method.visitVarInsn(ILOAD, 1);
+        method.visitVarInsn(ALOAD, 2);
+        method.visitMethodInsn(INVOKESPECIAL, SUPER_NAME, "eSet", descriptor, false);
+        method.visitInsn(RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    /**
+     * eIsSet(featureID): a comparison with the default value for integral primitives, a null check for references
+     * and for attributes without a default value.
+     */
+    private static void generateEIsSet(ClassWriter writer, String name, List<Slot> slots, int featureCount) {
+        String descriptor = "(I)Z";
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "eIsSet", descriptor, null, null);
+        method.visitCode();
+        List<Slot> fast = slots.stream()
+                .filter(slot -> switch (slot.kind()) {
+                    case PRIMITIVE -> slot.type().getSort() != Type.FLOAT && slot.type().getSort() != Type.DOUBLE;
+                    case DATA -> slot.defaultValue() == null;
+                    case REFERENCE -> true;
+                    default -> false;
+                })
+                .toList();
+        Label[] cases = switchOnFeatureID(method, fast, featureCount, 1);
+        Label delegate = cases[featureCount];
+        for (Slot slot : fast) {
+            method.visitLabel(cases[slot.featureID()]);
+            Label notSet = new Label();
+            getField(method, name, slot);
+            if (slot.kind() != Kind.PRIMITIVE) {
+                method.visitJumpInsn(IFNULL, notSet);
+            } else if (slot.type().getSort() == Type.LONG) {
+                pushConstant(method, slot);
+                method.visitInsn(LCMP);
+                method.visitJumpInsn(IFEQ, notSet);
+            } else {
+                pushConstant(method, slot);
+                method.visitJumpInsn(IF_ICMPEQ, notSet);
+            }
+            method.visitInsn(ICONST_1);
+            method.visitInsn(IRETURN);
+            method.visitLabel(notSet);
+            method.visitInsn(ICONST_0);
+            method.visitInsn(IRETURN);
+        }
+        method.visitLabel(delegate);
+        method.visitVarInsn(ALOAD, 0);
+        method.visitVarInsn(ILOAD, 1);
+        method.visitMethodInsn(INVOKESPECIAL, SUPER_NAME, "eIsSet", descriptor, false);
+        method.visitInsn(IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    /**
+     * Emits a tableswitch on an int local over every feature ID; the IDs without a slot go to the default case.
+     *
+     * @return The label of each feature ID, then the label of the default case, to be placed by the caller.
+     */
+    private static Label[] switchOnFeatureID(MethodVisitor method, List<Slot> slots, int featureCount, int local) {
+        Label otherwise = new Label();
+        Label[] labels = new Label[featureCount + 1];
+        Arrays.fill(labels, otherwise);
+        for (Slot slot : slots) {
+            labels[slot.featureID()] = new Label();
+        }
+        if (featureCount > 0) {
+            method.visitVarInsn(ILOAD, local);
+            method.visitTableSwitchInsn(0, featureCount - 1, otherwise, Arrays.copyOf(labels, featureCount));
+        }
+        return labels;
+    }
+
+    private static void getField(MethodVisitor method, String name, Slot slot) {
+        method.visitVarInsn(ALOAD, 0);
+        method.visitFieldInsn(GETFIELD, name, slot.field(), slot.type().getDescriptor());
+    }
+
+    private static void box(MethodVisitor method, Slot slot) {
+        if (slot.kind() == Kind.PRIMITIVE) {
+            Type wrapper = wrapper(slot.type());
+            method.visitMethodInsn(INVOKESTATIC, wrapper.getInternalName(), "valueOf",
+                    "(" + slot.type().getDescriptor() + ")" + wrapper.getDescriptor(), false);
+        }
+    }
+
+    private static void unbox(MethodVisitor method, Slot slot) {
+        Type wrapper = wrapper(slot.type());
+        method.visitTypeInsn(CHECKCAST, wrapper.getInternalName());
+        method.visitMethodInsn(INVOKEVIRTUAL, wrapper.getInternalName(), slot.type().getClassName() + "Value",
+                "()" + slot.type().getDescriptor(), false);
+    }
+
+    private static Type wrapper(Type primitive) {
+        return Type.getType(switch (primitive.getSort()) {
+            case Type.BOOLEAN -> Boolean.class;
+            case Type.CHAR -> Character.class;
+            case Type.BYTE -> Byte.class;
+            case Type.SHORT -> Short.class;
+            case Type.INT -> Integer.class;
+            case Type.LONG -> Long.class;
+            case Type.FLOAT -> Float.class;
+            case Type.DOUBLE -> Double.class;
+            default -> throw new IllegalArgumentException("Not a primitive type: " + primitive);
+        });
+    }
+
+    /**
+     * Pushes the default value of a primitive slot, as an int for the types the JVM represents as ints.
+     */
+    private static void pushConstant(MethodVisitor method, Slot slot) {
+        Object value = slot.defaultValue();
+        switch (slot.type().getSort()) {
+            case Type.BOOLEAN -> method.visitLdcInsn(Boolean.TRUE.equals(value) ? 1 : 0);
+            case Type.CHAR -> method.visitLdcInsn((int) (value != null ? (Character) value : 0));
+            case Type.LONG -> method.visitLdcInsn(value != null ? ((Number) value).longValue() : 0L);
+            case Type.FLOAT -> method.visitLdcInsn(value != null ? ((Number) value).floatValue() : 0f);
+            case Type.DOUBLE -> method.visitLdcInsn(value != null ? ((Number) value).doubleValue() : 0d);
+            default -> method.visitLdcInsn(value != null ? ((Number) value).intValue() : 0);
+        }
+    }
+
+    private static boolean isZero(Object value) {
+        return value == null || Boolean.FALSE.equals(value) || Character.valueOf((char) 0).equals(value)
+                || value instanceof Number number && Double.doubleToRawLongBits(number.doubleValue()) == 0;
+    }
+
+    /**
+     * @return The name with every character that is not allowed in a class or field name replaced by an underscore.
+     */
+    private static String identifier(String name) {
+        if (name == null || name.isEmpty()) {
+            return "_";
+        }
+        StringBuilder identifier = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            identifier.append(Character.isJavaIdentifierPart(c) && c != '$' ? c : '_');
+        }
+        return identifier.toString();
+    }
+}
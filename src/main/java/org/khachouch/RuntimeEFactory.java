@@ -0,0 +1,93 @@
+package org.khachouch;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EFactory;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.impl.EFactoryImpl;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * The factory of a dynamic EPackage (one loaded from an .ecore file, without generated code) that creates instances
+ * of classes generated in memory instead of {@link org.eclipse.emf.ecore.impl.DynamicEObjectImpl}.
+ * <p>
+ * Each EClass gets a hidden subclass of {@link RuntimeEObject} with a field per feature (see
+ * {@link RuntimeClassGenerator}), so that reading and writing a model costs about what it costs with the code
+ * generated from a GenModel, without a generation or build step. Loads, validation and saves work unchanged, as they
+ * only go through the reflective API. The classes are unloaded with the factory.
+ * <p>
+ * The EClasses must not change once the factory is created.
+ */
+public class RuntimeEFactory extends EFactoryImpl {
+    private final EClass[] eClasses;
+    // An instance of each generated class, by classifier ID, that creates the others.
+    private final RuntimeEObject[] prototypes;
+
+    /**
+     * Generates the classes of the instances of the EClasses of a package. An EClass whose class cannot be generated
+     * keeps dynamic instances.
+     *
+     * @param ePackage The package. The factory is not installed; see {@link #install(EPackage)}.
+     */
+    public RuntimeEFactory(EPackage ePackage) {
+        List<EClassifier> classifiers = ePackage.getEClassifiers();
+        eClasses = new EClass[classifiers.size()];
+        prototypes = new RuntimeEObject[classifiers.size()];
+        for (EClassifier classifier : classifiers) {
+            if (classifier instanceof EClass eClass && RuntimeClassGenerator.canGenerate(eClass)) {
+                try {
+                    prototypes[eClass.getClassifierID()] = prototype(RuntimeClassGenerator.define(eClass));
+                    eClasses[eClass.getClassifierID()] = eClass;
+                } catch (Throwable e) {
+                    System.err.println("Could not generate a class for " + eClass.getName() + ": " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the factory of a dynamic package and of its subpackages with a RuntimeEFactory. Packages that have a
+     * factory of their own, such as generated packages, are left alone, and so are packages that already have one.
+     *
+     * @param ePackage The package, before any of its classes is instantiated.
+     * @return The number of packages whose factory was replaced.
+     */
+    public static int install(EPackage ePackage) {
+        int installed = 0;
+        EFactory factory = ePackage.getEFactoryInstance();
+        if (factory == null || factory.getClass() == EFactoryImpl.class) {
+            ePackage.setEFactoryInstance(new RuntimeEFactory(ePackage));
+            installed++;
+        }
+        for (EPackage subpackage : ePackage.getESubpackages()) {
+            installed += install(subpackage);
+        }
+        return installed;
+    }
+
+    /**
+     * @param eClass An EClass of the package.
+     * @return true if the instances of the EClass are of a generated class, false if they are dynamic.
+     */
+    public boolean isGenerated(EClass eClass) {
+        int classifierID = eClass.getClassifierID();
+        return classifierID >= 0 && classifierID < eClasses.length && eClasses[classifierID] == eClass;
+    }
+
+    @Override
+    public EObject create(EClass eClass) {
+        int classifierID = eClass.getClassifierID();
+        if (classifierID >= 0 && classifierID < eClasses.length && eClasses[classifierID] == eClass) {
+            return prototypes[classifierID].eNewInstance();
+        }
+        return super.create(eClass);
+    }
+
+    private static RuntimeEObject prototype(MethodHandles.Lookup lookup) throws Throwable {
+        return (RuntimeEObject) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+    }
+}
@@ -0,0 +1,98 @@
+package org.khachouch;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.impl.DynamicEObjectImpl;
+import org.eclipse.emf.ecore.impl.MinimalEObjectImpl;
+
+/**
+ * The base class of the classes {@link RuntimeEFactory} generates at runtime for the EClasses of a dynamic metamodel.
+ * <p>
+ * As with {@link DynamicEObjectImpl}, every feature is handled by its setting delegate, so notifications, containment,
+ * inverse references, proxies and unsettable features behave the same. The difference is storage: a generated class
+ * keeps each value in a field of its own, primitives unboxed, instead of in an array of settings. For single-valued
+ * attributes and references and for the lists of many-valued features, it also reads and writes the field directly
+ * in eGet, eSet and eIsSet, as generated code does, and only calls the delegate for the other cases.
+ */
+public abstract class RuntimeEObject extends MinimalEObjectImpl.Container {
+    // Kept in a field, as in DynamicEObjectImpl, so that eClass() is one monomorphic call for all generated classes.
+    private final EClass eClass;
+
+    /**
+     * @param eClass The EClass the class was generated for.
+     */
+    protected RuntimeEObject(EClass eClass) {
+        this.eClass = eClass;
+    }
+
+    /**
+     * @return A new instance of the same generated class. A hidden class can only be named by itself, so
+     * {@link RuntimeEFactory} creates instances through one it keeps for the purpose.
+     */
+    abstract RuntimeEObject eNewInstance();
+
+    @Override
+    protected EClass eStaticClass() {
+        return eClass;
+    }
+
+    @Override
+    public EClass eClass() {
+        return eClass;
+    }
+
+    // Every feature is dynamic: its ID in the class is the index of its value in dynamicGet and dynamicSet.
+    @Override
+    protected int eStaticFeatureCount() {
+        return 0;
+    }
+
+    @Override
+    protected int eStaticOperationCount() {
+        return 0;
+    }
+
+    @Override
+    public int eDerivedStructuralFeatureID(EStructuralFeature eStructuralFeature) {
+        return eClass().getFeatureID(eStructuralFeature);
+    }
+
+    @Override
+    public void eSetClass(EClass eClass) {
+        if (eClass != this.eClass) {
+            throw new IllegalArgumentException("An instance of " + this.eClass.getName() + " cannot become an instance of "
+                    + (eClass != null ? eClass.getName() : null));
+        }
+    }
+
+    @Override
+    protected boolean eHasSettings() {
+        return true;
+    }
+
+    @Override
+    protected EStructuralFeature.Internal.DynamicValueHolder eSettings() {
+        return this;
+    }
+
+    /**
+     * @param dynamicFeatureID The ID of a feature in the class.
+     * @return The value of its field as the setting delegates store it: null for the default value of an object
+     * field, the boxed value of a primitive one.
+     */
+    @Override
+    public abstract Object dynamicGet(int dynamicFeatureID);
+
+    /**
+     * @param dynamicFeatureID The ID of a feature in the class.
+     * @param newValue         The value to store, null for the default value.
+     */
+    @Override
+    public abstract void dynamicSet(int dynamicFeatureID, Object newValue);
+
+    /**
+     * @param dynamicFeatureID The ID of a feature in the class.
+     */
+    @Override
+    public abstract void dynamicUnset(int dynamicFeatureID);
+}
@@ -0,0 +1,96 @@
+package org.khachouch;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.ENamedElement;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Feeds model elements into a SHA-256 digest in a canonical, serialization-independent form:
+ * features are visited in metamodel order and references to other elements are hashed by qualified name,
+ * so neither attribute order, whitespace, nor the way cross-document references are written matters.
+ * Shared by {@link GenModelFingerprints} and {@link ModelFingerprint}.
+ */
+final class StructureHasher {
+    private final MessageDigest digest;
+
+    StructureHasher() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void put(String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Hashes the persistent attribute values of an object (used for generator settings).
+     */
+    void putAttributes(EObject object) {
+        put(object.eClass().getName());
+        for (EAttribute attribute : object.eClass().getEAllAttributes()) {
+            if (!attribute.isTransient() && !attribute.isDerived() && object.eIsSet(attribute)) {
+                put(attribute.getName());
+                put(String.valueOf(object.eGet(attribute)));
+            }
+        }
+    }
+
+    /**
+     * Hashes an Ecore element with its contents; references to other elements are hashed by qualified name.
+     */
+    void putStructure(EObject object, Set<EStructuralFeature> skipped) {
+        put(object.eClass().getName());
+        for (EStructuralFeature feature : object.eClass().getEAllStructuralFeatures()) {
+            if (feature.isTransient() || feature.isDerived() || skipped.contains(feature) || !object.eIsSet(feature)) {
+                continue;
+            }
+            put(feature.getName());
+            Object value = object.eGet(feature);
+            List<?> values = feature.isMany() ? (List<?>) value : List.of(value);
+            for (Object element : values) {
+                if (feature instanceof EAttribute) {
+                    put(String.valueOf(element));
+                } else if (((EReference) feature).isContainment()) {
+                    putStructure((EObject) element, Set.of());
+                } else {
+                    put(qualifiedName((EObject) element));
+                }
+            }
+        }
+    }
+
+    String digest() {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @return The names of an element and its containers separated by dots, e.g. {@code gastm.Expression}.
+     */
+    static String qualifiedName(EObject element) {
+        if (element instanceof ENamedElement namedElement) {
+            StringBuilder name = new StringBuilder(String.valueOf(namedElement.getName()));
+            for (EObject container = element.eContainer(); container instanceof ENamedElement; container = container.eContainer()) {
+                name.insert(0, ((ENamedElement) container).getName() + ".");
+            }
+            return name.toString();
+        }
+        return EcoreUtil.getURI(element).fragment();
+    }
+}
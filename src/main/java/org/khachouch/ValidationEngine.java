@@ -0,0 +1,597 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.util.Diagnostic;
+import org.eclipse.emf.common.util.DiagnosticChain;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EValidator;
+import org.eclipse.emf.ecore.impl.EValidatorRegistryImpl;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.Diagnostician;
+import org.eclipse.emf.ecore.util.EObjectValidator;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Validates models with the EMF validators, as {@link Diagnostician} does, but splits the containment tree across
+ * the workers of a fork-join pool, can stop at the first error or after a number of issues, and returns a
+ * {@link ValidationReport} instead of a tree of diagnostics, with the time spent in each constraint.
+ * <p>
+ * Every object is validated on its own, by the validator registered for its package, and its contained objects are
+ * validated by the same worker unless another worker is idle, in which case they are handed over. The issues are
+ * reported in document order whatever the number of workers.
+ * <p>
+ * A validation that stops early ({@code failFast}, {@code maxDiagnostics}) stops every worker as soon as one of them
+ * reaches the limit. On a single worker, the issues kept are therefore the first ones in document order; on several,
+ * they are the first ones found, still reported in document order, and the error that stopped a fail-fast validation
+ * may come after errors in parts of the model no worker had reached yet.
+ * <p>
+ * Before a parallel validation, the proxies of the model are resolved and the lazily built caches of its classes
+ * computed on the calling thread, so that the workers only read the model and its metamodel. The model must not be
+ * changed while it is validated. Models of fewer than 10,000 objects are validated on the calling thread.
+ * <p>
+ * An engine can validate several models at once. Its fork-join pool is started by the first parallel validation and
+ * shared by all of them, so concurrent callers together use at most {@code parallelism} workers; {@link #close()}
+ * stops it. The workers of an engine that is not closed end on their own after a minute without work.
+ */
+public class ValidationEngine implements AutoCloseable {
+    // While fewer tasks than this wait in a worker's queue, other workers are likely idle and a subtree is handed over.
+    private static final int SURPLUS_THRESHOLD = 2;
+    // Smaller models are validated on the calling thread, where starting a pool would cost more than it saves.
+    private static final int PARALLEL_THRESHOLD = 10_000;
+
+    private final int parallelism;
+    private final boolean failFast;
+    private final int maxDiagnostics;
+    private volatile ForkJoinPool pool;
+    private boolean closed;
+
+    /**
+     * Creates an engine using every processor, reporting every issue.
+     */
+    public ValidationEngine() {
+        this(Runtime.getRuntime().availableProcessors(), false, 0);
+    }
+
+    /**
+     * Creates an engine.
+     *
+     * @param parallelism    The number of workers; 1 validates on the calling thread.
+     * @param failFast       true to stop at the first error found, which with several workers is not necessarily the
+     *                       first one in document order.
+     * @param maxDiagnostics The number of issues (errors, warnings, infos) after which the validation stops,
+     *                       or 0 for no limit. With several workers, they are the first ones found.
+     */
+    public ValidationEngine(int parallelism, boolean failFast, int maxDiagnostics) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        if (maxDiagnostics < 0) {
+            throw new IllegalArgumentException("maxDiagnostics must not be negative: " + maxDiagnostics);
+        }
+        this.parallelism = parallelism;
+        this.failFast = failFast;
+        this.maxDiagnostics = maxDiagnostics;
+    }
+
+    /**
+     * Validates an object and the objects it contains.
+     *
+     * @param root The root of the tree to validate.
+     * @return The report of the validation.
+     */
+    public ValidationReport validate(EObject root) {
+        return validate(List.of(root));
+    }
+
+    /**
+     * Validates every root of a resource and the objects they contain.
+     *
+     * @param resource The loaded resource.
+     * @return The report of the validation.
+     */
+    public ValidationReport validate(Resource resource) {
+        return validate(new ArrayList<>(resource.getContents()));
+    }
+
+    private ValidationReport validate(List<EObject> roots) {
+        long start = System.nanoTime();
+        ForkJoinPool workers = parallelism > 1 && prepare(roots) >= PARALLEL_THRESHOLD ? getPool() : null;
+        Run run = new Run(workers != null);
+        SubtreeTask task = new SubtreeTask(run, roots, 0, roots.size());
+        if (workers != null) {
+            workers.invoke(task);
+        } else {
+            // Outside a pool the task runs on the calling thread and never forks.
+            task.invoke();
+        }
+        return new ValidationReport(task.collectIssues(), run.severity.get(), run.validatedObjects.sum(),
+                !run.stopped.get(), run.getConstraintTimings(), System.nanoTime() - start);
+    }
+
+    /**
+     * @return The pool of the engine, started on the first call, or null once the engine is closed.
+     */
+    private ForkJoinPool getPool() {
+        ForkJoinPool result = pool;
+        if (result == null) {
+            synchronized (this) {
+                if (closed) {
+                    return null;
+                }
+                result = pool;
+                if (result == null) {
+                    result = new ForkJoinPool(parallelism);
+                    pool = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stops the workers of the engine, once the validations running complete. Later validations run on the calling
+     * thread.
+     */
+    @Override
+    public void close() {
+        ForkJoinPool stopped;
+        synchronized (this) {
+            closed = true;
+            stopped = pool;
+            pool = null;
+        }
+        if (stopped != null) {
+            stopped.shutdown();
+        }
+    }
+
+    /**
+     * Resolves the proxies of the model, which loads the resources they point to into the shared ResourceSet, and
+     * computes the caches of the classes of its objects, and of the classes it defines if it is a metamodel.
+     *
+     * @return The number of objects of the model.
+     */
+    private static long prepare(List<EObject> roots) {
+        long objects = 0;
+        Set<EClass> eClasses = new HashSet<>();
+        for (TreeIterator<EObject> iterator = EcoreUtil.getAllContents(roots, true); iterator.hasNext(); ) {
+            EObject eObject = iterator.next();
+            objects++;
+            if (eClasses.add(eObject.eClass())) {
+                MetaModelCache.warm(eObject.eClass());
+                MetaModelCache.warm(eObject.eClass().getEPackage());
+            }
+            if (eObject instanceof EClass || eObject instanceof EPackage) {
+                MetaModelCache.warm(eObject);
+            }
+            for (Iterator<EObject> references = eObject.eCrossReferences().iterator(); references.hasNext(); ) {
+                references.next();
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * The state shared by the tasks of one validation.
+     */
+    private final class Run {
+        private final boolean parallel;
+        private final TimedObjectValidator defaultValidator = new TimedObjectValidator(this);
+        private final EngineDiagnostician diagnostician = new EngineDiagnostician(new ValidatorRegistry(defaultValidator), this);
+        private final AtomicBoolean stopped = new AtomicBoolean();
+        private final AtomicInteger issueCount = new AtomicInteger();
+        private final AtomicInteger severity = new AtomicInteger(Diagnostic.OK);
+        private final LongAdder validatedObjects = new LongAdder();
+        private final Map<EClass, Map<String, Timer>> constraintTimers = new ConcurrentHashMap<>();
+        private final Map<EClass, Timer> validatorTimers = new ConcurrentHashMap<>();
+
+        private Run(boolean parallel) {
+            this.parallel = parallel;
+        }
+
+        private boolean canFork() {
+            return parallel && RecursiveAction.getSurplusQueuedTaskCount() < SURPLUS_THRESHOLD;
+        }
+
+        private Map<Object, Object> createContext() {
+            Map<Object, Object> context = diagnostician.createDefaultContext();
+            // The engine walks the containment tree itself.
+            context.put(Diagnostician.VALIDATE_RECURSIVELY, Boolean.FALSE);
+            return context;
+        }
+
+        /**
+         * Counts an issue; returns false if it is past the limit and must not be kept.
+         */
+        private boolean record(int issueSeverity) {
+            severity.accumulateAndGet(issueSeverity, Math::max);
+            int count = issueCount.incrementAndGet();
+            if (failFast && issueSeverity >= Diagnostic.ERROR || maxDiagnostics > 0 && count >= maxDiagnostics) {
+                stopped.set(true);
+            }
+            return maxDiagnostics == 0 || count <= maxDiagnostics;
+        }
+
+        private Timer constraintTimer(EClass eClass, String constraint) {
+            return constraintTimers.computeIfAbsent(eClass, key -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(constraint, key -> new Timer());
+        }
+
+        private Timer validatorTimer(EClass eClass) {
+            return validatorTimers.computeIfAbsent(eClass, key -> new Timer());
+        }
+
+        private List<ValidationReport.ConstraintTiming> getConstraintTimings() {
+            List<ValidationReport.ConstraintTiming> timings = new ArrayList<>();
+            String[] names = TimedObjectValidator.DEFAULT_CONSTRAINTS;
+            for (int i = 0; i < names.length; i++) {
+                defaultValidator.timers[i].addTo(timings, names[i]);
+            }
+            constraintTimers.forEach((eClass, timers) -> timers.forEach((constraint, timer) ->
+                    timer.addTo(timings, StructureHasher.qualifiedName(eClass) + "." + constraint)));
+            validatorTimers.forEach((eClass, timer) -> timer.addTo(timings, StructureHasher.qualifiedName(eClass)));
+            timings.sort(Comparator.comparingLong(ValidationReport.ConstraintTiming::nanos).reversed());
+            return timings;
+        }
+    }
+
+    /**
+     * Validates a range of sibling objects and their subtrees, and keeps their issues, in document order, along with
+     * the tasks validating the subtrees handed to other workers.
+     */
+    // ForkJoinTask is Serializable, but a task is never serialized: it only lives for one validation.
+    @SuppressWarnings("serial")
+    private static final class SubtreeTask extends RecursiveAction implements DiagnosticChain {
+        private final Run run;
+        private final List<EObject> objects;
+        private final int from;
+        private final int to;
+        // Lists of issues and tasks, in document order.
+        private final List<Object> parts = new ArrayList<>();
+        private Map<Object, Object> context;
+
+        private SubtreeTask(Run run, List<EObject> objects, int from, int to) {
+            this.run = run;
+            this.objects = objects;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            context = run.createContext();
+            // Hand the later halves of the range over while workers are idle; the nearest half is pushed last.
+            Deque<SubtreeTask> forked = new ArrayDeque<>();
+            int end = to;
+            while (end - from > 1 && run.canFork()) {
+                int middle = (from + end) >>> 1;
+                SubtreeTask later = new SubtreeTask(run, objects, middle, end);
+                later.fork();
+                forked.push(later);
+                end = middle;
+            }
+            for (int i = from; i < end && !run.stopped.get(); i++) {
+                validateTree(objects.get(i));
+            }
+            parts.addAll(forked);
+            for (Object part : parts) {
+                if (part instanceof SubtreeTask task) {
+                    task.join();
+                }
+            }
+        }
+
+        /**
+         * Validates an object and its subtree, with a stack of its own as containment trees can be deeper than the
+         * call stack allows.
+         */
+        private void validateTree(EObject root) {
+            Deque<Iterator<EObject>> stack = new ArrayDeque<>();
+            validateObject(root, stack);
+            while (!stack.isEmpty() && !run.stopped.get()) {
+                Iterator<EObject> children = stack.peek();
+                if (children.hasNext()) {
+                    validateObject(children.next(), stack);
+                } else {
+                    stack.pop();
+                }
+            }
+        }
+
+        private void validateObject(EObject eObject, Deque<Iterator<EObject>> stack) {
+            run.validatedObjects.increment();
+            run.diagnostician.validate(eObject.eClass(), eObject, this, context);
+            List<EObject> contents = eObject.eContents();
+            if (contents.isEmpty()) {
+                return;
+            }
+            if (run.canFork()) {
+                SubtreeTask task = new SubtreeTask(run, new ArrayList<>(contents), 0, contents.size());
+                task.fork();
+                parts.add(task);
+            } else {
+                stack.push(contents.iterator());
+            }
+        }
+
+        @Override
+        public void add(Diagnostic diagnostic) {
+            if (diagnostic.getSeverity() == Diagnostic.OK || !run.record(diagnostic.getSeverity())) {
+                return;
+            }
+            EObject eObject = null;
+            for (Object data : diagnostic.getData()) {
+                if (data instanceof EObject dataObject) {
+                    eObject = dataObject;
+                    break;
+                }
+            }
+            currentIssues().add(new ValidationReport.Issue(diagnostic.getSeverity(), diagnostic.getMessage(),
+                    diagnostic.getSource(), diagnostic.getCode(), eObject));
+        }
+
+        @Override
+        public void addAll(Diagnostic diagnostic) {
+            for (Diagnostic child : diagnostic.getChildren()) {
+                add(child);
+            }
+        }
+
+        @Override
+        public void merge(Diagnostic diagnostic) {
+            if (diagnostic.getChildren().isEmpty()) {
+                add(diagnostic);
+            } else {
+                addAll(diagnostic);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<ValidationReport.Issue> currentIssues() {
+            if (!parts.isEmpty() && parts.get(parts.size() - 1) instanceof List<?> issues) {
+                return (List<ValidationReport.Issue>) issues;
+            }
+            List<ValidationReport.Issue> issues = new ArrayList<>();
+            parts.add(issues);
+            return issues;
+        }
+
+        /**
+         * @return The issues of this task and of the tasks it handed subtrees to, in document order.
+         */
+        @SuppressWarnings("unchecked")
+        private List<ValidationReport.Issue> collectIssues() {
+            List<ValidationReport.Issue> issues = new ArrayList<>();
+            Deque<Iterator<Object>> stack = new ArrayDeque<>();
+            stack.push(parts.iterator());
+            while (!stack.isEmpty()) {
+                Iterator<Object> iterator = stack.peek();
+                if (!iterator.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                Object part = iterator.next();
+                if (part instanceof SubtreeTask task) {
+                    stack.push(task.parts.iterator());
+                } else {
+                    issues.addAll((List<ValidationReport.Issue>) part);
+                }
+            }
+            return issues;
+        }
+    }
+
+    /**
+     * Validates with the validators of a registry, timing each call to a validator other than the default one,
+     * which times its constraints itself.
+     */
+    private static final class EngineDiagnostician extends Diagnostician {
+        private final Run run;
+
+        private EngineDiagnostician(EValidator.Registry eValidatorRegistry, Run run) {
+            super(eValidatorRegistry);
+            this.run = run;
+        }
+
+        @Override
+        protected boolean doValidate(EValidator eValidator, EClass eClass, EObject eObject, DiagnosticChain diagnostics,
+                                     Map<Object, Object> context) {
+            if (eValidator == run.defaultValidator) {
+                return super.doValidate(eValidator, eClass, eObject, diagnostics, context);
+            }
+            long start = System.nanoTime();
+            try {
+                return super.doValidate(eValidator, eClass, eObject, diagnostics, context);
+            } finally {
+                run.validatorTimer(eClass).record(start);
+            }
+        }
+    }
+
+    /**
+     * The validator of the packages that have none of their own (e.g. dynamic packages), which times each of the
+     * default constraints of EMF and each invariant and constraint declared on a class.
+     */
+    private static final class TimedObjectValidator extends EObjectValidator {
+        private static final String[] DEFAULT_CONSTRAINTS = {"EveryMultiplicityConforms", "EveryProxyResolves",
+                "EveryReferenceIsContained", "EveryBidirectionalReferenceIsPaired", "EveryDataValueConforms",
+                "UniqueID", "EveryKeyUnique", "EveryMapEntryUnique"};
+
+        private final Run run;
+        private final Timer[] timers = new Timer[DEFAULT_CONSTRAINTS.length];
+
+        private TimedObjectValidator(Run run) {
+            this.run = run;
+            for (int i = 0; i < timers.length; i++) {
+                timers[i] = new Timer();
+            }
+        }
+
+        @Override
+        public boolean validate_EveryMultiplicityConforms(EObject eObject, DiagnosticChain diagnostics, Map<Object, Object> context) {
+            long start = System.nanoTime();
+            try {
+                return super.validate_EveryMultiplicityConforms(eObject, diagnostics, context);
+            } finally {
+                timers[0].record(start);
+            }
+        }
+
+        @Override
+        public boolean validate_EveryProxyResolves(EObject eObject, DiagnosticChain diagnostics, Map<Object, Object> context) {
+            long start = System.nanoTime();
+            try {
+                return super.validate_EveryProxyResolves(eObject, diagnostics, context);
+            } finally {
+                timers[1].record(start);
+            }
+        }
+
+        @Override
+        public boolean validate_EveryReferenceIsContained(EObject eObject, DiagnosticChain diagnostics, Map<Object, Object> context) {
+            long start = System.nanoTime();
+            try {
+                return super.validate_EveryReferenceIsContained(eObject, diagnostics, context);
+            } finally {
+                timers[2].record(start);
+            }
+        }
+
+        @Override
+        public boolean validate_EveryBidirectionalReferenceIsPaired(EObject eObject, DiagnosticChain diagnostics, Map<Object, Object> context) {
+            long start = System.nanoTime();
+            try {
+                return super.validate_EveryBidirectionalReferenceIsPaired(eObject, diagnostics, context);
+            } finally {
+                timers[3].record(start);
+            }
+        }
+
+        @Override
+        public boolean validate_EveryDataValueConforms(EObject eObject, DiagnosticChain diagnostics, Map<Object, Object> context) {
+            long start = System.nanoTime();
+            try {
+                return super.validate_EveryDataValueConforms(eObject, diagnostics, context);
+            } finally {
+                timers[4].record(start);
+            }
+        }
+
+        @Override
+        public boolean validate_UniqueID(EObject eObject, DiagnosticChain diagnostics, Map<Object, Object> context) {
+            long start = System.nanoTime();
+            try {
+                return super.validate_UniqueID(eObject, diagnostics, context);
+            } finally {
+                timers[5].record(start);
+            }
+        }
+
+        @Override
+        public boolean validate_EveryKeyUnique(EObject eObject, DiagnosticChain diagnostics, Map<Object, Object> context) {
+            long start = System.nanoTime();
+            try {
+                return super.validate_EveryKeyUnique(eObject, diagnostics, context);
+            } finally {
+                timers[6].record(start);
+            }
+        }
+
+        @Override
+        public boolean validate_EveryMapEntryUnique(EObject eObject, DiagnosticChain diagnostics, Map<Object, Object> context) {
+            long start = System.nanoTime();
+            try {
+                return super.validate_EveryMapEntryUnique(eObject, diagnostics, context);
+            } finally {
+                timers[7].record(start);
+            }
+        }
+
+        @Override
+        public boolean validate(EClass eClass, EObject eObject, DiagnosticChain diagnostics, Map<Object, Object> context,
+                                String validationDelegate, String constraint, String expression, int severity, String source, int code) {
+            long start = System.nanoTime();
+            try {
+                return super.validate(eClass, eObject, diagnostics, context, validationDelegate, constraint, expression, severity, source, code);
+            } finally {
+                run.constraintTimer(eClass, constraint).record(start);
+            }
+        }
+    }
+
+    /**
+     * The validators registered globally, looked up once per package, with the timed validator in place of the
+     * default one. A package's validator may be created on its first lookup, which the global registry does not
+     * guard against concurrent lookups, so the first lookup of each package is serialized.
+     */
+    // EValidatorRegistryImpl is a Serializable HashMap, but this registry only lives for one validation.
+    @SuppressWarnings("serial")
+    private static final class ValidatorRegistry extends EValidatorRegistryImpl {
+        private static final Object NONE = new Object();
+
+        private final EValidator defaultValidator;
+        private final Map<Object, Object> resolved = new ConcurrentHashMap<>();
+
+        private ValidatorRegistry(EValidator defaultValidator) {
+            super(EValidator.Registry.INSTANCE);
+            this.defaultValidator = defaultValidator;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (key == null) {
+                return defaultValidator;
+            }
+            Object validator = resolved.get(key);
+            if (validator == null) {
+                synchronized (this) {
+                    validator = resolved.get(key);
+                    if (validator == null) {
+                        Object registered = super.get(key);
+                        validator = registered == null ? NONE : registered == EObjectValidator.INSTANCE ? defaultValidator : registered;
+                        resolved.put(key, validator);
+                    }
+                }
+            }
+            return validator == NONE ? null : validator;
+        }
+    }
+
+    /**
+     * The number of evaluations of a constraint and the time they took, added to by several workers.
+     */
+    private static final class Timer {
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private void record(long start) {
+            nanos.add(System.nanoTime() - start);
+            evaluations.increment();
+        }
+
+        private void addTo(List<ValidationReport.ConstraintTiming> timings, String constraint) {
+            long count = evaluations.sum();
+            if (count > 0) {
+                timings.add(new ValidationReport.ConstraintTiming(constraint, count, nanos.sum()));
+            }
+        }
+    }
+}
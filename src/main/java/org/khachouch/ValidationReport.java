@@ -0,0 +1,144 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.util.Diagnostic;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * The outcome of a {@link ValidationEngine} run: the issues found, in document order, and the time spent in each
+ * constraint.
+ */
+public class ValidationReport {
+
+    /**
+     * A problem found on an object.
+     *
+     * @param severity The severity, one of {@link Diagnostic#INFO}, {@link Diagnostic#WARNING} and {@link Diagnostic#ERROR}.
+     * @param message  The message, as EMF words it.
+     * @param source   The source of the constraint, e.g. {@code org.eclipse.emf.ecore}.
+     * @param code     The code of the constraint within its source.
+     * @param eObject  The object the problem was found on, or null if the validator did not say.
+     */
+    public record Issue(int severity, String message, String source, int code, EObject eObject) {
+
+        /**
+         * @return The URI fragment of the object within its resource, or null if there is no object.
+         */
+        public String location() {
+            if (eObject == null) {
+                return null;
+            }
+            Resource resource = eObject.eResource();
+            return resource != null ? resource.getURIFragment(eObject) : EcoreUtil.getURI(eObject).fragment();
+        }
+    }
+
+    /**
+     * The time spent evaluating one constraint, over all the objects it was evaluated on.
+     *
+     * @param constraint  The constraint: a default constraint of EMF (e.g. {@code EveryMultiplicityConforms}), an
+     *                    invariant or constraint of a class (e.g. {@code gastm.Block.hasName}), or all the
+     *                    constraints of a generated validator on a class (e.g. {@code ecore.EClass}).
+     * @param evaluations The number of objects it was evaluated on.
+     * @param nanos       The total time spent, in nanoseconds, summed over the threads.
+     */
+    public record ConstraintTiming(String constraint, long evaluations, long nanos) {
+    }
+
+    private final List<Issue> issues;
+    private final int severity;
+    private final long validatedObjectCount;
+    private final boolean complete;
+    private final List<ConstraintTiming> constraintTimings;
+    private final long elapsedNanos;
+
+    ValidationReport(List<Issue> issues, int severity, long validatedObjectCount, boolean complete,
+                     List<ConstraintTiming> constraintTimings, long elapsedNanos) {
+        this.issues = List.copyOf(issues);
+        this.severity = severity;
+        this.validatedObjectCount = validatedObjectCount;
+        this.complete = complete;
+        this.constraintTimings = List.copyOf(constraintTimings);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return The issues found, in document order, up to the engine's limit.
+     */
+    public List<Issue> getIssues() {
+        return issues;
+    }
+
+    /**
+     * @return The highest severity found, {@link Diagnostic#OK} if there is no issue.
+     */
+    public int getSeverity() {
+        return severity;
+    }
+
+    /**
+     * @return true if no error was found.
+     */
+    public boolean isValid() {
+        return severity < Diagnostic.ERROR;
+    }
+
+    /**
+     * @return The number of objects validated.
+     */
+    public long getValidatedObjectCount() {
+        return validatedObjectCount;
+    }
+
+    /**
+     * @return false if the validation stopped early, at the first error or at the limit of issues, so that some
+     * objects were not validated.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return The time spent in each constraint, the most expensive first.
+     */
+    public List<ConstraintTiming> getConstraintTimings() {
+        return constraintTimings;
+    }
+
+    /**
+     * @return The wall-clock duration of the validation, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Prints the issues, one line each, then the time spent in each constraint.
+     *
+     * @param out Where to print them.
+     */
+    public void print(PrintStream out) {
+        for (Issue issue : issues) {
+            out.println(severityName(issue.severity()) + " " + issue.location() + ": " + issue.message());
+        }
+        out.println(validatedObjectCount + " objects validated in " + elapsedNanos / 1_000_000 + " ms"
+                + (complete ? "" : " (stopped early)") + ", " + issues.size() + " issues");
+        for (ConstraintTiming timing : constraintTimings) {
+            out.println("  " + timing.constraint() + " " + timing.evaluations() + " evaluations " + timing.nanos() / 1_000_000 + " ms");
+        }
+    }
+
+    private static String severityName(int severity) {
+        return switch (severity) {
+            case Diagnostic.ERROR -> "ERROR";
+            case Diagnostic.WARNING -> "WARNING";
+            case Diagnostic.INFO -> "INFO";
+            case Diagnostic.CANCEL -> "CANCEL";
+            default -> "OK";
+        };
+    }
+}
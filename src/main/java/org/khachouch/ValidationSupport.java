@@ -0,0 +1,157 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Parses instance models, validates them against their metamodel and saves the valid ones, for the
+ * validateModel and saveModelAfterVerification operations of {@link EcoreUtilsImpl}, which adapt their inputs to a stream.
+ * Created on the first of these calls.
+ */
+final class ValidationSupport {
+    private final EcoreUtilsImpl ecoreUtils;
+    private final EmfSession session;
+
+    ValidationSupport(EcoreUtilsImpl ecoreUtils) {
+        this.ecoreUtils = ecoreUtils;
+        this.session = ecoreUtils.getSession();
+    }
+
+    boolean validateModel(InputStream modelStream, URI modelURI, String metaModelPath) {
+        Monitor monitor = ecoreUtils.beginOperation("validateModel", 2);
+        try (EmfSession.Lease lease = session.acquire()) {
+            // Load the metamodel and register it in the package registry
+            monitor.subTask("parse");
+            ResourceSet resourceSet = lease.getResourceSet();
+            ecoreUtils.registerMetaModel(resourceSet, metaModelPath);
+
+            // Parse the model once and validate it
+            Resource resource = loadModel(resourceSet, modelStream, modelURI);
+            monitor.subTask("validate");
+            return isValid(resource);
+        } catch (Exception e) {
+            // Print the stack trace if an exception occurs
+            e.printStackTrace();
+            return false;
+        } finally {
+            monitor.done();
+        }
+    }
+
+    ValidationReport getValidationReport(InputStream modelStream, URI modelURI, String metaModelPath, ValidationEngine engine) {
+        Monitor monitor = ecoreUtils.beginOperation("getValidationReport", 2);
+        try (EmfSession.Lease lease = session.acquire()) {
+            monitor.subTask("parse");
+            ResourceSet resourceSet = lease.getResourceSet();
+            ecoreUtils.registerMetaModel(resourceSet, metaModelPath);
+            Resource resource = loadModel(resourceSet, modelStream, modelURI);
+            monitor.subTask("validate");
+            return engine.validate(resource);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            monitor.done();
+        }
+    }
+
+    boolean saveModelAfterVerification(InputStream modelStream, URI modelURI, String metaModelPath, String xmiFilePath) {
+        return saveModelAfterVerification(modelStream, modelURI, metaModelPath, xmiFilePath, null);
+    }
+
+    /**
+     * @param policy The policy splitting the model into fragments, or null to save it as one file.
+     */
+    boolean saveModelAfterVerification(InputStream modelStream, URI modelURI, String metaModelPath, String xmiFilePath,
+                                       FragmentationPolicy policy) {
+        Monitor monitor = ecoreUtils.beginOperation("saveModelAfterVerification", 3);
+        try (EmfSession.Lease lease = session.acquire()) {
+            monitor.subTask("parse");
+            ResourceSet resourceSet = lease.getResourceSet();
+            ecoreUtils.registerMetaModel(resourceSet, metaModelPath);
+
+            // Parse the model once; the validated resource is the one that gets saved
+            Resource resource = loadModel(resourceSet, modelStream, modelURI);
+            monitor.subTask("validate");
+            boolean isValid = isValid(resource);
+            // Print the validation result
+            System.out.println("Le modèle est valide : " + isValid);
+            if (!isValid) {
+                return false;
+            }
+
+            URI destinationURI = URI.createURI(xmiFilePath);
+            if (Objects.equals(modelURI.fileExtension(), destinationURI.fileExtension())) {
+                // Same format: save the loaded resource under its new name, keeping its XMI IDs
+                resource.setURI(destinationURI);
+            } else {
+                // Another format (e.g. binary) gets its own resource; the factory supplies its save options
+                Resource destinationResource = resourceSet.createResource(destinationURI);
+                destinationResource.getContents().addAll(resource.getContents());
+                resource = destinationResource;
+            }
+            // Save the resource to the specified file path
+            monitor.subTask("save");
+            if (policy == null) {
+                resource.save(lease.getSaveOptions());
+            } else {
+                int fragments = FragmentWriter.save(resource, policy, lease.getSaveOptions());
+                System.out.println(fragments + " fragments written to " + FragmentWriter.getFragmentsDirectory(resource.getURI()).toFileString());
+            }
+            // Print a success message
+            System.out.println("Fichier XMI sauvegardé avec succès à l'emplacement : " + xmiFilePath);
+            return true;
+        } catch (Exception e) {
+            // Print the stack trace if an exception occurs during loading or saving
+            e.printStackTrace();
+            return false;
+        } finally {
+            monitor.done();
+        }
+    }
+
+    /**
+     * Parses a model from a stream into a new resource of the given ResourceSet.
+     *
+     * @param resourceSet The ResourceSet receiving the model, with its metamodel registered.
+     * @param modelStream The stream containing the model.
+     * @param modelURI    The URI of the resource; its extension selects the format.
+     * @return The loaded resource.
+     * @throws IOException if the model cannot be parsed.
+     */
+    private Resource loadModel(ResourceSet resourceSet, InputStream modelStream, URI modelURI) throws IOException {
+        Resource resource = resourceSet.createResource(modelURI);
+        resource.load(modelStream, resourceSet.getLoadOptions());
+        return resource;
+    }
+
+    /**
+     * Validates the root object of a loaded model, printing the diagnostic messages if it is not valid.
+     *
+     * @param resource The loaded model.
+     * @return true if the model is valid, false otherwise.
+     */
+    private boolean isValid(Resource resource) {
+        // Get the root object of the model
+        EObject modelRoot = resource.getContents().get(0);
+
+        // Validate the model root object and its contents, across the engine's workers
+        ValidationReport report = ecoreUtils.getValidationEngine().validate(modelRoot);
+        // Check if the validation result indicates an error
+        boolean isValid = report.isValid();
+        // If the model is not valid, print the diagnostic messages
+        if (!isValid) {
+            for (ValidationReport.Issue issue : report.getIssues()) {
+                System.out.println(issue.message());
+            }
+        }
+        // Return the validation result
+        return isValid;
+    }
+}
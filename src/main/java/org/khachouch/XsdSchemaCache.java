@@ -0,0 +1,436 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.notify.impl.AdapterFactoryImpl;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.resource.impl.ExtensibleURIConverterImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.xsd.XSDSchema;
+import org.eclipse.xsd.XSDSchemaContent;
+import org.eclipse.xsd.impl.XSDImportImpl;
+import org.eclipse.xsd.util.XSDResourceFactoryImpl;
+import org.eclipse.xsd.util.XSDResourceImpl;
+import org.eclipse.xsd.util.XSDSchemaLocator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps parsed XSD schemas so that the schemas imported or included by many others (e.g. XMI.xsd) are not parsed
+ * again by every XSD to Ecore conversion. Schemas are keyed by resolved URI and by the SHA-256 hash of their content,
+ * so an edited file is parsed again. A schema is parsed in a ResourceSet of its own, together with the schemas it
+ * imports itself, and the copy is checked against the content of all these files before it is reused.
+ * <p>
+ * An XSD schema is not thread-safe, and is modified when another schema imports or includes it. A conversion
+ * therefore borrows a parsed copy for its own use through a {@link Conversion}, and the copy is given back, with the
+ * references to the conversion's schemas removed, when the conversion is closed. Concurrent conversions importing
+ * the same schema each borrow a copy, so a schema is parsed at most once per thread converting at the same time.
+ */
+public class XsdSchemaCache {
+    /**
+     * The default maximum number of distinct schemas (URI and content) kept.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    /**
+     * A snapshot of the cache counters.
+     *
+     * @param hits          Imports and includes answered with a parsed copy from the cache.
+     * @param misses        Imports and includes that had to parse the schema.
+     * @param evictions     Schemas dropped as least recently used to stay within the maximum number of entries.
+     * @param invalidations Parsed copies dropped because one of their files changed.
+     * @param entries       The number of distinct schemas cached.
+     * @param idleCopies    The number of parsed copies not borrowed by a conversion.
+     */
+    public record Stats(long hits, long misses, long evictions, long invalidations, int entries, int idleCopies) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    private record Key(URI uri, String contentHash) {
+    }
+
+    /**
+     * One parsed copy of a schema, with the schemas it imports.
+     */
+    private static final class ParsedSchema {
+        final Key key;
+        final XSDSchema schema;
+        // Every schema of the copy by URI, the schema itself included.
+        final Map<URI, XSDSchema> schemas;
+        // The content hash of every imported file, checked before the copy is reused.
+        final Map<URI, String> importedHashes;
+        // The number of directives referencing each schema, and of versions incorporated into it, when it was borrowed.
+        final Map<XSDSchema, int[]> borrowedState = new HashMap<>();
+
+        ParsedSchema(Key key, XSDSchema schema, Map<URI, XSDSchema> schemas, Map<URI, String> importedHashes) {
+            this.key = key;
+            this.schema = schema;
+            this.schemas = schemas;
+            this.importedHashes = importedHashes;
+        }
+
+        void borrow() {
+            for (XSDSchema xsdSchema : schemas.values()) {
+                borrowedState.put(xsdSchema, new int[]{xsdSchema.getReferencingDirectives().size(), xsdSchema.getIncorporatedVersions().size()});
+            }
+        }
+
+        /**
+         * Undoes what importing or including the schemas did to them: XSD records the referencing directive in the
+         * referenced schema, and keeps the versions of an included or redefined schema adapted to the including one.
+         */
+        void giveBack() {
+            for (Map.Entry<XSDSchema, int[]> entry : borrowedState.entrySet()) {
+                truncate(entry.getKey().getReferencingDirectives(), entry.getValue()[0]);
+                truncate(entry.getKey().getIncorporatedVersions(), entry.getValue()[1]);
+            }
+            borrowedState.clear();
+        }
+
+        private static void truncate(EList<?> list, int size) {
+            while (list.size() > size) {
+                list.remove(list.size() - 1);
+            }
+        }
+    }
+
+    private final int maxEntries;
+    private final int maxIdleCopies;
+    private final URIConverter uriConverter = new ExtensibleURIConverterImpl();
+    // Access-ordered, so iteration starts with the least recently used entry.
+    private final LinkedHashMap<Key, Deque<ParsedSchema>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public XsdSchemaCache() {
+        this(DEFAULT_MAX_ENTRIES, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxEntries    The maximum number of distinct schemas kept; the least recently used are dropped first.
+     * @param maxIdleCopies The maximum number of parsed copies kept per schema, i.e. the number of concurrent conversions
+     *                      that find a copy to borrow.
+     */
+    public XsdSchemaCache(int maxEntries, int maxIdleCopies) {
+        this.maxEntries = maxEntries;
+        this.maxIdleCopies = maxIdleCopies;
+    }
+
+    /**
+     * Starts a conversion. Attach the ResourceSet the conversion loads its schemas into, and close the conversion
+     * once its result no longer refers to the schemas (for XSDEcoreBuilder, after {@code generate}).
+     *
+     * @return The conversion.
+     */
+    public Conversion open() {
+        return new Conversion();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized Stats getStats() {
+        int idleCopies = 0;
+        for (Deque<ParsedSchema> copies : entries.values()) {
+            idleCopies += copies.size();
+        }
+        return new Stats(hits, misses, evictions, invalidations, entries.size(), idleCopies);
+    }
+
+    /**
+     * Returns a parsed copy of a schema for the exclusive use of the caller, parsing the schema if no copy is idle.
+     *
+     * @param uri The resolved URI of the schema.
+     * @return The copy, or null if the URI is not an XSD schema that can be read.
+     */
+    private ParsedSchema borrow(URI uri) {
+        Key key;
+        try {
+            key = new Key(uri, hash(uri));
+        } catch (IOException e) {
+            // Not a readable file, e.g. an import naming only a namespace; XSD resolves it as usual.
+            return null;
+        }
+
+        ParsedSchema parsedSchema;
+        while ((parsedSchema = pollIdleCopy(key)) != null) {
+            if (isCurrent(parsedSchema)) {
+                synchronized (this) {
+                    hits++;
+                }
+                parsedSchema.borrow();
+                return parsedSchema;
+            }
+            // An imported file changed; the copy is dropped, and the other idle copies are found the same way.
+            synchronized (this) {
+                invalidations++;
+            }
+        }
+
+        synchronized (this) {
+            misses++;
+        }
+        parsedSchema = parse(key);
+        if (parsedSchema != null) {
+            parsedSchema.borrow();
+        }
+        return parsedSchema;
+    }
+
+    private synchronized ParsedSchema pollIdleCopy(Key key) {
+        Deque<ParsedSchema> copies = entries.get(key);
+        return copies == null ? null : copies.pollFirst();
+    }
+
+    private synchronized void giveBack(ParsedSchema parsedSchema) {
+        parsedSchema.giveBack();
+        Deque<ParsedSchema> copies = entries.get(parsedSchema.key);
+        if (copies == null) {
+            // A new schema, or one evicted while it was borrowed. Other contents of the same URI are outdated.
+            for (Iterator<Key> iterator = entries.keySet().iterator(); iterator.hasNext(); ) {
+                if (iterator.next().uri().equals(parsedSchema.key.uri())) {
+                    iterator.remove();
+                    invalidations++;
+                }
+            }
+            copies = new ArrayDeque<>();
+            entries.put(parsedSchema.key, copies);
+            evict();
+        }
+        if (copies.size() < maxIdleCopies) {
+            copies.offerFirst(parsedSchema);
+        }
+    }
+
+    private void evict() {
+        Iterator<Deque<ParsedSchema>> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries) {
+            iterator.next();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private boolean isCurrent(ParsedSchema parsedSchema) {
+        for (Map.Entry<URI, String> importedHash : parsedSchema.importedHashes.entrySet()) {
+            try {
+                if (!hash(importedHash.getKey()).equals(importedHash.getValue())) {
+                    return false;
+                }
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a schema into its own ResourceSet, with the schemas it imports, includes or redefines.
+     */
+    private ParsedSchema parse(Key key) {
+        ResourceSet resourceSet = createResourceSet();
+        Resource resource;
+        try {
+            resource = resourceSet.getResource(key.uri(), true);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (!(resource instanceof XSDResourceImpl xsdResource) || xsdResource.getSchema() == null) {
+            return null;
+        }
+
+        // XSD resolves imports when a component of the imported namespace is first looked up;
+        // resolve them all now so that the copy does not change while it is borrowed.
+        List<Resource> resolved = new ArrayList<>();
+        while (resolved.size() < resourceSet.getResources().size()) {
+            for (Resource next : new ArrayList<>(resourceSet.getResources())) {
+                if (!resolved.contains(next)) {
+                    resolved.add(next);
+                    if (next instanceof XSDResourceImpl nextXsdResource && nextXsdResource.getSchema() != null) {
+                        for (XSDSchemaContent content : nextXsdResource.getSchema().getContents()) {
+                            if (content instanceof XSDImportImpl xsdImport) {
+                                xsdImport.importSchema();
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<URI, XSDSchema> schemas = new HashMap<>();
+        Map<URI, String> importedHashes = new HashMap<>();
+        for (Resource next : resourceSet.getResources()) {
+            if (next instanceof XSDResourceImpl nextXsdResource && nextXsdResource.getSchema() != null) {
+                URI uri = normalize(next.getURI());
+                schemas.put(uri, nextXsdResource.getSchema());
+                if (!uri.equals(key.uri())) {
+                    try {
+                        importedHashes.put(uri, hash(uri));
+                    } catch (IOException e) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return new ParsedSchema(key, xsdResource.getSchema(), schemas, importedHashes);
+    }
+
+    /**
+     * Creates a ResourceSet configured like the one of XSDEcoreBuilder.
+     */
+    private static ResourceSet createResourceSet() {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.getLoadOptions().put(XSDResourceImpl.XSD_TRACK_LOCATION, Boolean.TRUE);
+        Map<String, Object> extensionToFactoryMap = resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap();
+        extensionToFactoryMap.put("wsdl", new XSDResourceFactoryImpl());
+        extensionToFactoryMap.put("xsd", new XSDResourceFactoryImpl());
+        return resourceSet;
+    }
+
+    /**
+     * Makes relative file URIs absolute, so that a schema has one key whatever the location it is referenced from.
+     */
+    private static URI normalize(URI uri) {
+        if (uri.isRelative()) {
+            return URI.createFileURI(new File(uri.toString()).getAbsolutePath());
+        }
+        return uri;
+    }
+
+    private String hash(URI uri) throws IOException {
+        try (InputStream inputStream = uriConverter.createInputStream(uri)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            for (int read; (read = inputStream.read(buffer)) != -1; ) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The schemas borrowed by one conversion. A conversion is confined to one thread.
+     */
+    public final class Conversion implements AutoCloseable {
+        // The schemas this conversion uses, by URI, so that a schema reached through several imports is the same object.
+        private final Map<URI, XSDSchema> schemas = new HashMap<>();
+        private final List<ParsedSchema> borrowed = new ArrayList<>();
+
+        private Conversion() {
+        }
+
+        /**
+         * Makes a ResourceSet take the schemas it imports, includes or redefines from the cache.
+         * The schemas loaded directly into the ResourceSet (e.g. the one being converted) are parsed as usual.
+         *
+         * @param resourceSet The ResourceSet of the conversion.
+         */
+        public void attach(ResourceSet resourceSet) {
+            resourceSet.getAdapterFactories().add(new AdapterFactoryImpl() {
+                @Override
+                public boolean isFactoryForType(Object type) {
+                    return type == XSDSchemaLocator.class;
+                }
+
+                @Override
+                protected Adapter createAdapter(Notifier target) {
+                    return new Locator();
+                }
+            });
+        }
+
+        /**
+         * Gives the borrowed schemas back to the cache. The schemas loaded by the conversion must not be used afterwards.
+         */
+        @Override
+        public void close() {
+            for (ParsedSchema parsedSchema : borrowed) {
+                giveBack(parsedSchema);
+            }
+            borrowed.clear();
+            schemas.clear();
+        }
+
+        private XSDSchema locate(XSDSchema referencingSchema, String resolvedSchemaLocation) {
+            if (resolvedSchemaLocation == null) {
+                return null;
+            }
+            URI uri = normalize(URI.createURI(resolvedSchemaLocation));
+            XSDSchema xsdSchema = schemas.get(uri);
+            if (xsdSchema != null) {
+                return xsdSchema;
+            }
+            ResourceSet resourceSet = referencingSchema.eResource() == null ? null : referencingSchema.eResource().getResourceSet();
+            if (resourceSet == null || isLoaded(resourceSet, uri)) {
+                // Already parsed by the conversion itself; XSD finds it.
+                return null;
+            }
+
+            ParsedSchema parsedSchema = borrow(uri);
+            if (parsedSchema == null) {
+                return null;
+            }
+            // The copy brings its own imports. If the conversion already uses other objects for one of them,
+            // the copy cannot be mixed in: XSD would see two versions of the same components.
+            for (URI importedURI : parsedSchema.schemas.keySet()) {
+                if (schemas.containsKey(importedURI) || isLoaded(resourceSet, importedURI)) {
+                    giveBack(parsedSchema);
+                    return null;
+                }
+            }
+            borrowed.add(parsedSchema);
+            schemas.putAll(parsedSchema.schemas);
+            return parsedSchema.schema;
+        }
+
+        private boolean isLoaded(ResourceSet resourceSet, URI uri) {
+            for (Resource resource : resourceSet.getResources()) {
+                if (resource.getURI() != null && normalize(resource.getURI()).equals(uri)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private final class Locator extends AdapterImpl implements XSDSchemaLocator {
+            @Override
+            public boolean isAdapterForType(Object type) {
+                return type == XSDSchemaLocator.class;
+            }
+
+            @Override
+            public XSDSchema locateSchema(XSDSchema xsdSchema, String namespace, String rawSchemaLocation, String resolvedSchemaLocation) {
+                return locate(xsdSchema, resolvedSchemaLocation);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.BasicExtendedMetaData;
+import org.eclipse.emf.ecore.util.ExtendedMetaData;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xml.type.XMLTypePackage;
+import org.eclipse.xsd.XSDSchema;
+import org.eclipse.xsd.ecore.EcoreSchemaBuilder;
+import org.eclipse.xsd.ecore.XSDEcoreBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The conversions between XSD schemas and Ecore models of {@link EcoreUtilsImpl}, which documents them.
+ * Created on the first of these calls, so that the XSD model and its builders are only loaded by the instances using them.
+ */
+final class XsdSupport {
+    private final EcoreUtilsImpl ecoreUtils;
+    private final EmfSession session;
+
+    XsdSupport(EcoreUtilsImpl ecoreUtils) {
+        this.ecoreUtils = ecoreUtils;
+        this.session = ecoreUtils.getSession();
+    }
+
+    boolean ConvertXSDToEcore(String xsdUri, String ecoreUri) {
+        Monitor monitor = ecoreUtils.beginOperation("ConvertXSDToEcore", 2);
+        try {
+            return ecoreUtils.cached("ConvertXSDToEcore", List.of(XSDEcoreBuilder.class), xsdUri, Map.of(),
+                    List.of(ecoreUri), () -> ConvertXSDToEcore(xsdUri, ecoreUri, monitor));
+        } finally {
+            monitor.done();
+        }
+    }
+
+    private boolean ConvertXSDToEcore(String xsdUri, String ecoreUri, Monitor monitor) {
+        // The borrowed schemas are given back to the cache once the conversion is done
+        try (XsdSchemaCache.Conversion conversion = session.getSchemaCache().open()) {
+            // Create an XSDEcoreBuilder object to handle the conversion from XSD to Ecore
+            // The schemas imported or included by the XSD file are borrowed from the session's schema cache
+            XSDEcoreBuilder xsdEcoreBuilder = new XSDEcoreBuilder() {
+                @Override
+                protected ResourceSet createResourceSet() {
+                    ResourceSet resourceSet = super.createResourceSet();
+                    conversion.attach(resourceSet);
+                    return resourceSet;
+                }
+            };
+
+            // Create a URI object from the XSD file path
+            // This URI will be used to locate the XSD file
+            URI xsdURI = URI.createURI(xsdUri);
+            // XSD only resolves the locations of imported and included schemas against a URI with a scheme
+            if (xsdURI.scheme() == null) {
+                xsdURI = URI.createFileURI(new File(xsdUri).getAbsolutePath());
+            }
+
+            // Generate a collection of Ecore packages from the XSD file
+            // The XSDEcoreBuilder processes the XSD and produces corresponding Ecore packages
+            monitor.subTask("generate");
+            Collection ecorePackages = xsdEcoreBuilder.generate(xsdURI);
+
+            // Create a URI object from the Ecore file path
+            // This URI will be used to specify where the Ecore model will be saved
+            URI ecoreURI = URI.createURI(ecoreUri);
+
+            // Create an Ecore resource from the URI
+            try (EmfSession.Lease lease = session.acquire()) {
+                Resource ecoreResource = lease.getResourceSet().createResource(ecoreURI);
+
+                // Add the generated Ecore packages to the resource
+                // This step integrates the Ecore packages into the resource for saving
+                ecoreResource.getContents().addAll(ecorePackages);
+
+                // Save the Ecore resource to the specified location
+                monitor.subTask("save");
+                ecoreResource.save(lease.getSaveOptions());
+                return true;
+            } catch (IOException e) {
+                // Print an error message if saving the Ecore model fails
+                System.err.println("ERROR saving the Ecore model: " + e);
+                e.printStackTrace();
+                return false;
+            }
+        }
+    }
+
+    boolean ConvertEcoreToXSD(String ecoreFilePath, String xsdOutputPath) {
+        Monitor monitor = ecoreUtils.beginOperation("ConvertEcoreToXSD", 3);
+        try {
+            return ecoreUtils.cached("ConvertEcoreToXSD", List.of(EcoreSchemaBuilder.class), ecoreFilePath, Map.of(),
+                    List.of(xsdOutputPath), () -> ConvertEcoreToXSD(ecoreFilePath, xsdOutputPath, monitor));
+        } finally {
+            monitor.done();
+        }
+    }
+
+    private boolean ConvertEcoreToXSD(String ecoreFilePath, String xsdOutputPath, Monitor monitor) {
+        try (EmfSession.Lease lease = session.acquire()) {
+            monitor.subTask("parse");
+            // Step 1: Borrow a ResourceSet from the session.
+            // The session has registered the factories for Ecore, XSD and XMI files.
+            ResourceSet resourceSet = lease.getResourceSet();
+
+            // Step 2: Load the Ecore resource using its file path.
+            // Create a URI for the Ecore file.
+            URI ecoreURI = URI.createFileURI(ecoreFilePath);
+
+            // Load the resource into the ResourceSet.
+            Resource ecoreResource = resourceSet.getResource(ecoreURI, true);
+
+            // Check if the Ecore resource contains at least one valid EPackage.
+            if (ecoreResource.getContents().isEmpty() || !(ecoreResource.getContents().get(0) instanceof EPackage)) {
+                throw new IllegalArgumentException("The provided Ecore file does not contain a valid EPackage.");
+            }
+
+            // Retrieve the root EPackage from the loaded resource.
+            EPackage ePackage = (EPackage) ecoreResource.getContents().get(0);
+
+            // Step 3: Build the ExtendedMetaData the EcoreSchemaBuilder maps the Ecore model to XSD with.
+            // It is built from the loaded packages, the way a GenModel of the model would build it.
+            monitor.subTask("generate");
+            EcoreSchemaBuilder schemaBuilder = new EcoreSchemaBuilder(createExtendedMetaData(resourceSet, ecoreResource));
+
+            // Step 4: Generate the XSD schema from the EPackage.
+            XSDSchema xsdSchema = schemaBuilder.getSchema(ePackage);
+
+            // Step 5: Save the generated XSD schema to the specified output path.
+            // Create a URI for the output XSD file.
+            monitor.subTask("save");
+            URI xsdURI = URI.createFileURI(xsdOutputPath);
+
+            // Create a new resource for the XSD file in the ResourceSet.
+            Resource xsdResource = resourceSet.createResource(xsdURI);
+
+            // Add the XSD schema to the resource's contents.
+            xsdResource.getContents().add(xsdSchema);
+
+            // Save the resource to write the XSD schema to the file.
+            xsdResource.save(lease.getSaveOptions());
+
+            // Return true to indicate successful processing.
+            return true;
+
+        } catch (IOException | IllegalArgumentException e) {
+            // Catch and handle file I/O errors or invalid arguments.
+            e.printStackTrace();
+            // Return false to indicate failure.
+            return false;
+        }
+    }
+
+    /**
+     * Builds the ExtendedMetaData of the packages of an Ecore resource, as {@code GenModel.getExtendedMetaData()} does
+     * for a GenModel initialized with them: their namespaces, and the XML Schema namespace as an alias of XMLType.
+     *
+     * @param resourceSet   The ResourceSet the Ecore resource was loaded in, whose packages resolve other namespaces.
+     * @param ecoreResource The Ecore resource.
+     * @return The ExtendedMetaData.
+     */
+    private static ExtendedMetaData createExtendedMetaData(ResourceSet resourceSet, Resource ecoreResource) {
+        ExtendedMetaData extendedMetaData = new BasicExtendedMetaData(resourceSet.getPackageRegistry());
+        for (EObject root : ecoreResource.getContents()) {
+            if (root instanceof EPackage ePackage) {
+                putPackages(extendedMetaData, ePackage);
+            }
+        }
+        // References to the XML Schema data types are resolved in XMLType, their Ecore counterpart.
+        if (extendedMetaData.getPackage(XMLResource.XML_SCHEMA_URI) == null) {
+            extendedMetaData.putPackage(XMLResource.XML_SCHEMA_URI, extendedMetaData.getPackage(XMLTypePackage.eNS_URI));
+        }
+        return extendedMetaData;
+    }
+
+    private static void putPackages(ExtendedMetaData extendedMetaData, EPackage ePackage) {
+        // Ecore itself is left to the registry, as a GenModel leaves it.
+        if (!EcorePackage.eNS_URI.equals(ePackage.getNsURI())) {
+            extendedMetaData.putPackage(extendedMetaData.getNamespace(ePackage), ePackage);
+        }
+        for (EPackage subpackage : ePackage.getESubpackages()) {
+            putPackages(extendedMetaData, subpackage);
+        }
+    }
+}
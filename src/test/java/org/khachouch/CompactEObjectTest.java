@@ -0,0 +1,256 @@
+package org.khachouch;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactEObjectTest {
+    private static final EcorePackage ECORE = EcorePackage.eINSTANCE;
+
+    private final EPackage dynamicPackage = TestModels.createPackage();
+    private final EPackage compactPackage = compactPackage();
+
+    private static EPackage compactPackage() {
+        EPackage ePackage = TestModels.createPackage();
+        CompactEFactory.install(ePackage);
+        return ePackage;
+    }
+
+    /**
+     * @return A class with an attribute of each type, named a0, a1... in order, in a package of its own.
+     */
+    private static EClass eClass(EDataType... types) {
+        EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+        eClass.setName("Packed");
+        EcoreFactory.eINSTANCE.createEPackage().getEClassifiers().add(eClass);
+        for (EDataType type : types) {
+            EAttribute attribute = EcoreFactory.eINSTANCE.createEAttribute();
+            attribute.setName("a" + eClass.getEStructuralFeatures().size());
+            attribute.setEType(type);
+            eClass.getEStructuralFeatures().add(attribute);
+        }
+        return eClass;
+    }
+
+    @Test
+    void packsPrimitiveAttributesOnly() {
+        CompactEFactory factory = (CompactEFactory) compactPackage.getEFactoryInstance();
+        assertTrue(factory.isCompact((EClass) compactPackage.getEClassifier("Node")));
+        assertTrue(factory.isCompact((EClass) compactPackage.getEClassifier("Leaf")));
+        assertFalse(factory.isCompact((EClass) compactPackage.getEClassifier("Element")));
+        assertInstanceOf(CompactEObject.class, TestModels.create(compactPackage, "Leaf"));
+
+        EClass node = (EClass) compactPackage.getEClassifier("Node");
+        CompactEObject.Layout layout = new CompactEObject.Layout(node);
+        for (EStructuralFeature feature : node.getEAllStructuralFeatures()) {
+            byte type = layout.types[node.getFeatureID(feature)];
+            switch (feature.getName()) {
+                case "aBoolean", "aByte", "aChar", "aShort", "anInt", "aFloat", "aLong", "aDouble", "zeroInt" ->
+                        assertTrue(type > CompactEObject.Layout.VALUE, feature.getName());
+                case "parent" -> assertEquals(CompactEObject.Layout.NONE, type);
+                // Boxed, unsettable, many-valued and reference features keep an Object.
+                default -> assertEquals(CompactEObject.Layout.VALUE, type, feature.getName());
+            }
+        }
+    }
+
+    @Test
+    void narrowTypesAreSignExtended() {
+        EClass eClass = eClass(ECORE.getEByte(), ECORE.getEShort(), ECORE.getEInt());
+        CompactEObject.Layout layout = new CompactEObject.Layout(eClass);
+        long[] bits = new long[1];
+        for (int value = Byte.MIN_VALUE; value <= Byte.MAX_VALUE; value++) {
+            layout.set(bits, 0, CompactEObject.Layout.encode(CompactEObject.Layout.BYTE, (byte) value));
+            assertEquals(value & 0xFF, layout.get(bits, 0));
+            assertEquals((byte) value, CompactEObject.Layout.decode(CompactEObject.Layout.BYTE, layout.get(bits, 0)));
+        }
+        for (short value : new short[]{Short.MIN_VALUE, -300, -1, 0, 1, Short.MAX_VALUE}) {
+            layout.set(bits, 1, CompactEObject.Layout.encode(CompactEObject.Layout.SHORT, value));
+            assertEquals(value & 0xFFFF, layout.get(bits, 1));
+            assertEquals(value, CompactEObject.Layout.decode(CompactEObject.Layout.SHORT, layout.get(bits, 1)));
+        }
+        for (int value : new int[]{Integer.MIN_VALUE, -70000, -1, 0, 1, Integer.MAX_VALUE}) {
+            layout.set(bits, 2, CompactEObject.Layout.encode(CompactEObject.Layout.INT, value));
+            assertEquals(value & 0xFFFFFFFFL, layout.get(bits, 2));
+            assertEquals(value, CompactEObject.Layout.decode(CompactEObject.Layout.INT, layout.get(bits, 2)));
+        }
+        // A negative value must not spill into the bits of its neighbours.
+        layout.set(bits, 0, CompactEObject.Layout.encode(CompactEObject.Layout.BYTE, (byte) 0));
+        layout.set(bits, 1, CompactEObject.Layout.encode(CompactEObject.Layout.SHORT, (short) -1));
+        assertEquals((byte) 0, CompactEObject.Layout.decode(CompactEObject.Layout.BYTE, layout.get(bits, 0)));
+    }
+
+    @Test
+    void charsAreNotSignExtended() {
+        CompactEObject.Layout layout = new CompactEObject.Layout(eClass(ECORE.getEChar(), ECORE.getEByte()));
+        long[] bits = new long[1];
+        for (char value : new char[]{'\0', 'x', '\u7fff', '\u8000', '\uffff'}) {
+            layout.set(bits, 0, CompactEObject.Layout.encode(CompactEObject.Layout.CHAR, value));
+            assertEquals(value, layout.get(bits, 0));
+            assertEquals(value, CompactEObject.Layout.decode(CompactEObject.Layout.CHAR, layout.get(bits, 0)));
+            assertEquals(0, layout.get(bits, 1));
+        }
+    }
+
+    @Test
+    void floatingPointValuesKeepTheirBits() {
+        CompactEObject.Layout layout = new CompactEObject.Layout(eClass(ECORE.getEFloat(), ECORE.getEDouble()));
+        long[] bits = new long[2];
+        for (float value : new float[]{0f, -0f, Float.NaN, Float.intBitsToFloat(0xFFC00001), Float.intBitsToFloat(0x7F800001),
+                Float.NEGATIVE_INFINITY, Float.MIN_VALUE, -Float.MAX_VALUE}) {
+            layout.set(bits, 0, CompactEObject.Layout.encode(CompactEObject.Layout.FLOAT, value));
+            Float decoded = (Float) CompactEObject.Layout.decode(CompactEObject.Layout.FLOAT, layout.get(bits, 0));
+            assertEquals(Float.floatToRawIntBits(value), Float.floatToRawIntBits(decoded));
+        }
+        for (double value : new double[]{0d, -0d, Double.NaN, Double.longBitsToDouble(0xFFF8000000000001L),
+                Double.longBitsToDouble(0x7FF0000000000001L), Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE}) {
+            layout.set(bits, 1, CompactEObject.Layout.encode(CompactEObject.Layout.DOUBLE, value));
+            Double decoded = (Double) CompactEObject.Layout.decode(CompactEObject.Layout.DOUBLE, layout.get(bits, 1));
+            assertEquals(Double.doubleToRawLongBits(value), Double.doubleToRawLongBits(decoded));
+        }
+    }
+
+    @Test
+    void narrowValuesShareALong() {
+        // Declared narrowest first: the layout sorts them by decreasing width, so that the 64 bits fill one long.
+        EClass eClass = eClass(ECORE.getEBoolean(), ECORE.getEByte(), ECORE.getEBoolean(), ECORE.getEShort(),
+                ECORE.getEBoolean(), ECORE.getEInt(), ECORE.getEBoolean(), ECORE.getEBoolean(), ECORE.getEBoolean(),
+                ECORE.getEBoolean(), ECORE.getEBoolean());
+        CompactEObject.Layout layout = new CompactEObject.Layout(eClass);
+        int featureCount = eClass.getFeatureCount();
+        long[] bits = new long[1];
+        for (int featureID = 0; featureID < featureCount; featureID++) {
+            // Every other value all ones, then all zeros.
+            layout.set(bits, featureID, -1);
+            for (int other = 0; other < featureCount; other++) {
+                long expected = other == featureID ? -1L >>> (64 - width(layout.types[other])) : 0;
+                assertEquals(expected, layout.get(bits, other), featureID + " set, " + other + " read");
+            }
+            layout.set(bits, featureID, 0);
+        }
+        assertEquals(0, bits[0]);
+        for (int featureID = 0; featureID < featureCount; featureID++) {
+            layout.set(bits, featureID, -1);
+        }
+        assertEquals(-1, bits[0]);
+
+        // A 64-bit value takes a long of its own, before the narrower ones.
+        layout = new CompactEObject.Layout(eClass(ECORE.getEInt(), ECORE.getELong(), ECORE.getEShort()));
+        bits = new long[2];
+        layout.set(bits, 1, -1);
+        assertArrayEquals(new long[]{-1, 0}, bits);
+        layout.set(bits, 0, -1);
+        layout.set(bits, 2, -1);
+        assertArrayEquals(new long[]{-1, 0xFFFFFFFFFFFFL}, bits);
+    }
+
+    private static int width(byte type) {
+        return switch (type) {
+            case CompactEObject.Layout.BOOLEAN -> 1;
+            case CompactEObject.Layout.BYTE -> 8;
+            case CompactEObject.Layout.CHAR, CompactEObject.Layout.SHORT -> 16;
+            case CompactEObject.Layout.INT, CompactEObject.Layout.FLOAT -> 32;
+            default -> 64;
+        };
+    }
+
+    @Test
+    void objectsDoNotShareTheirBits() {
+        EObject first = TestModels.create(compactPackage, "Leaf");
+        EObject second = TestModels.create(compactPackage, "Leaf");
+        for (String name : List.of("aBoolean", "aByte", "aChar", "aShort", "anInt", "aFloat", "aLong", "aDouble", "weight")) {
+            EAttribute attribute = (EAttribute) TestModels.feature(first, name);
+            Object value = TestModels.values(attribute).get(1);
+            first.eSet(attribute, value);
+            assertEquals(value, first.eGet(attribute));
+            assertEquals(attribute.getDefaultValue(), second.eGet(attribute), name);
+        }
+    }
+
+    @Test
+    void dynamicUnsetRestoresNonZeroDefaults() {
+        CompactEObject node = (CompactEObject) TestModels.create(compactPackage, "Leaf");
+        CompactEObject.Layout layout = new CompactEObject.Layout(node.eClass());
+        for (String name : List.of("aBoolean", "aByte", "aChar", "aShort", "anInt", "aFloat", "aLong", "aDouble", "weight")) {
+            EAttribute attribute = (EAttribute) TestModels.feature(node, name);
+            int featureID = node.eClass().getFeatureID(attribute);
+            Object defaultValue = attribute.getDefaultValue();
+            assertEquals(defaultValue, CompactEObject.Layout.decode(layout.types[featureID], layout.defaultBits(featureID)));
+            assertEquals(defaultValue, node.eGet(attribute));
+
+            for (Object value : TestModels.values(attribute)) {
+                node.eSet(attribute, value);
+                node.dynamicUnset(featureID);
+                assertEquals(defaultValue, node.eGet(attribute), name);
+                assertEquals(defaultValue, node.dynamicGet(featureID), name);
+                node.eSet(attribute, value);
+                node.dynamicSet(featureID, null);
+                assertEquals(defaultValue, node.eGet(attribute), name);
+                node.eSet(attribute, value);
+                node.eUnset(attribute);
+                assertEquals(defaultValue, node.eGet(attribute), name);
+                assertFalse(node.eIsSet(attribute), name);
+            }
+        }
+    }
+
+    @Test
+    void eIsSetAgreesWithTheSettingDelegate() {
+        CompactEObject node = (CompactEObject) TestModels.create(compactPackage, "Leaf");
+        for (String name : List.of("aBoolean", "aByte", "aChar", "aShort", "anInt", "aFloat", "aLong", "aDouble", "zeroInt",
+                "weight", "flag")) {
+            EAttribute attribute = (EAttribute) TestModels.feature(node, name);
+            int featureID = node.eClass().getFeatureID(attribute);
+            EStructuralFeature.Internal.SettingDelegate delegate = ((EStructuralFeature.Internal) attribute).getSettingDelegate();
+            assertEquals(delegate.dynamicIsSet(node, node.eSettings(), featureID), node.eIsSet(featureID), name);
+            for (Object value : TestModels.values(attribute)) {
+                node.eSet(attribute, value);
+                assertEquals(delegate.dynamicIsSet(node, node.eSettings(), featureID), node.eIsSet(featureID), name + " " + value);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5})
+    void behavesAsDynamicObjectsOnRandomModels(long seed) throws IOException {
+        Resource dynamic = TestModels.createTree(dynamicPackage, new Random(seed), 200);
+        Resource compact = TestModels.createTree(compactPackage, new Random(seed), 200);
+        // Without notifications, eSet writes the bits itself; with them, it goes through the delegate.
+        TestModels.randomize(dynamic, new Random(seed), 2);
+        TestModels.randomize(compact, new Random(seed), 2);
+        TestModels.assertSameModel(dynamic, compact);
+
+        List<String> dynamicNotifications = TestModels.recordNotifications(dynamic);
+        List<String> compactNotifications = TestModels.recordNotifications(compact);
+        TestModels.randomize(dynamic, new Random(-seed), 2);
+        TestModels.randomize(compact, new Random(-seed), 2);
+        assertFalse(compactNotifications.isEmpty());
+        assertEquals(dynamicNotifications, compactNotifications);
+        TestModels.assertSameModel(dynamic, compact);
+
+        byte[] xmi = TestModels.save(dynamic);
+        assertArrayEquals(xmi, TestModels.save(compact));
+        Resource loaded = TestModels.load(compactPackage, xmi);
+        loaded.getAllContents().forEachRemaining(eObject -> assertInstanceOf(CompactEObject.class, eObject));
+        TestModels.assertSameModel(TestModels.load(dynamicPackage, xmi), loaded);
+    }
+}
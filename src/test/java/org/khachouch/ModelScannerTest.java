@@ -0,0 +1,95 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ModelScannerTest {
+
+    /**
+     * @return The test metamodel, with an ID attribute on every element.
+     */
+    private static EPackage packageWithIDs() {
+        EPackage ePackage = TestModels.createPackage();
+        EAttribute id = EcoreFactory.eINSTANCE.createEAttribute();
+        id.setName("id");
+        id.setEType(EcorePackage.Literals.ESTRING);
+        id.setID(true);
+        ((EClass) ePackage.getEClassifier("Element")).getEStructuralFeatures().add(id);
+        return ePackage;
+    }
+
+    private static EObject node(EPackage ePackage, EObject container, String id) {
+        EObject node = TestModels.create(ePackage, "Node");
+        if (id != null) {
+            node.eSet(TestModels.feature(node, "id"), id);
+        }
+        if (container != null) {
+            TestModels.children(container).add(node);
+        }
+        return node;
+    }
+
+    @Test
+    void objectsInsideObjectsWithIDsKeepTheirPaths() throws IOException {
+        EPackage ePackage = packageWithIDs();
+        EObject root = node(ePackage, null, "root");
+        EObject a = node(ePackage, root, null);
+        EObject a0 = node(ePackage, a, null);
+        EObject b = node(ePackage, root, "b");
+        EObject b0 = node(ePackage, b, null);
+        @SuppressWarnings("unchecked")
+        List<EObject> targets = (List<EObject>) root.eGet(TestModels.feature(root, "targets"));
+        targets.addAll(List.of(a0, b, b0));
+        a.eSet(TestModels.feature(a, "target"), b0);
+        Resource resource = TestModels.createResourceSet(ePackage).createResource(URI.createURI("model.xmi"));
+        resource.getContents().add(root);
+        byte[] xmi = TestModels.save(resource);
+
+        List<String> uriFragments = new ArrayList<>();
+        List<String> paths = new ArrayList<>();
+        ModelStatistics statistics = new ModelStatistics(true);
+        new ModelScanner(ePackage).scan(new ByteArrayInputStream(xmi), new ModelScanListener() {
+            @Override
+            public void startObject(EClass eClass, EReference containment, String uriFragment, String path, int depth) {
+                uriFragments.add(uriFragment);
+                paths.add(path);
+                statistics.startObject(eClass, containment, uriFragment, path, depth);
+            }
+
+            @Override
+            public void reference(EClass eClass, EReference reference, String target, boolean external) {
+                statistics.reference(eClass, reference, target, external);
+            }
+        });
+
+        assertEquals(List.of(root, a, a0, b, b0).stream().map(resource::getURIFragment).toList(), uriFragments);
+        assertEquals(List.of("root", "//@children.0", "//@children.0/@children.0", "b", "//@children.1/@children.0"),
+                uriFragments);
+        assertEquals(List.of("/", "//@children.0", "//@children.0/@children.0", "//@children.1", "//@children.1/@children.0"),
+                paths);
+        assertEquals(4, statistics.getReferenceCount());
+        assertEquals(0, statistics.getDanglingReferenceCount());
+
+        // An object with an ID can also be referred to by its path.
+        EReference target = (EReference) TestModels.feature(root, "target");
+        statistics.reference(root.eClass(), target, "//@children.1", false);
+        statistics.reference(root.eClass(), target, "//@children.2", false);
+        assertEquals(1, statistics.getDanglingReferenceCount());
+        assertEquals(List.of("//@children.2"), statistics.getDanglingReferenceSamples());
+    }
+}
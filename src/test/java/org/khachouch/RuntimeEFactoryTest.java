@@ -0,0 +1,243 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.impl.DynamicEObjectImpl;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuntimeEFactoryTest {
+    private final EPackage dynamicPackage = TestModels.createPackage();
+    private final EPackage runtimePackage = runtimePackage();
+
+    private static EPackage runtimePackage() {
+        EPackage ePackage = TestModels.createPackage();
+        RuntimeEFactory.install(ePackage);
+        return ePackage;
+    }
+
+    @Test
+    void generatesAClassForEachConcreteClass() {
+        RuntimeEFactory factory = (RuntimeEFactory) runtimePackage.getEFactoryInstance();
+        assertTrue(factory.isGenerated((EClass) runtimePackage.getEClassifier("Node")));
+        assertTrue(factory.isGenerated((EClass) runtimePackage.getEClassifier("Leaf")));
+        assertFalse(factory.isGenerated((EClass) runtimePackage.getEClassifier("Element")));
+        assertFalse(factory.isGenerated((EClass) dynamicPackage.getEClassifier("Node")));
+
+        EObject node = TestModels.create(runtimePackage, "Node");
+        EObject leaf = TestModels.create(runtimePackage, "Leaf");
+        assertInstanceOf(RuntimeEObject.class, node);
+        assertInstanceOf(RuntimeEObject.class, leaf);
+        assertNotSame(node.getClass(), leaf.getClass());
+        assertSame(runtimePackage.getEClassifier("Leaf"), leaf.eClass());
+        assertInstanceOf(DynamicEObjectImpl.class, TestModels.create(dynamicPackage, "Node"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"aBoolean", "aByte", "aChar", "aShort", "anInt", "aFloat", "aLong", "aDouble"})
+    void primitiveAttributesBehaveAsDynamicOnes(String name) {
+        EObject dynamic = TestModels.create(dynamicPackage, "Leaf");
+        EObject runtime = TestModels.create(runtimePackage, "Leaf");
+        EAttribute dynamicAttribute = (EAttribute) TestModels.feature(dynamic, name);
+        EAttribute runtimeAttribute = (EAttribute) TestModels.feature(runtime, name);
+        Object defaultValue = runtimeAttribute.getDefaultValue();
+
+        assertEquals(defaultValue, runtime.eGet(runtimeAttribute));
+        assertFalse(runtime.eIsSet(runtimeAttribute));
+        for (Object value : TestModels.values(runtimeAttribute)) {
+            dynamic.eSet(dynamicAttribute, value);
+            runtime.eSet(runtimeAttribute, value);
+            assertEquals(TestModels.describe(value), TestModels.describe(runtime.eGet(runtimeAttribute)));
+            assertEquals(dynamic.eIsSet(dynamicAttribute), runtime.eIsSet(runtimeAttribute), "is set to " + value);
+            assertEquals(!value.equals(defaultValue), runtime.eIsSet(runtimeAttribute), "is set to " + value);
+
+            runtime.eUnset(runtimeAttribute);
+            assertEquals(defaultValue, runtime.eGet(runtimeAttribute));
+            assertFalse(runtime.eIsSet(runtimeAttribute));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"zeroInt", "boxedInt", "aString", "aColor", "name", "weight", "flag"})
+    void otherAttributesBehaveAsDynamicOnes(String name) {
+        EObject dynamic = TestModels.create(dynamicPackage, "Leaf");
+        EObject runtime = TestModels.create(runtimePackage, "Leaf");
+        EAttribute dynamicAttribute = (EAttribute) TestModels.feature(dynamic, name);
+        EAttribute runtimeAttribute = (EAttribute) TestModels.feature(runtime, name);
+
+        assertEquals(TestModels.describe(dynamic.eGet(dynamicAttribute)), TestModels.describe(runtime.eGet(runtimeAttribute)));
+        assertFalse(runtime.eIsSet(runtimeAttribute));
+        for (Object value : TestModels.values(runtimeAttribute)) {
+            // The literals of an enum are those of its package.
+            Object dynamicValue = TestModels.values(dynamicAttribute).get(TestModels.values(runtimeAttribute).indexOf(value));
+            dynamic.eSet(dynamicAttribute, dynamicValue);
+            runtime.eSet(runtimeAttribute, value);
+            assertEquals(TestModels.describe(dynamic.eGet(dynamicAttribute)), TestModels.describe(runtime.eGet(runtimeAttribute)));
+            assertEquals(dynamic.eIsSet(dynamicAttribute), runtime.eIsSet(runtimeAttribute), "is set to " + value);
+
+            dynamic.eUnset(dynamicAttribute);
+            runtime.eUnset(runtimeAttribute);
+            assertEquals(TestModels.describe(dynamic.eGet(dynamicAttribute)), TestModels.describe(runtime.eGet(runtimeAttribute)));
+            assertFalse(runtime.eIsSet(runtimeAttribute));
+        }
+    }
+
+    @Test
+    void unsettableAttributesAreSetToTheirDefault() {
+        EObject node = TestModels.create(runtimePackage, "Node");
+        EStructuralFeature unsettableInt = TestModels.feature(node, "unsettableInt");
+        EStructuralFeature unsettableString = TestModels.feature(node, "unsettableString");
+
+        assertEquals(7, node.eGet(unsettableInt));
+        assertFalse(node.eIsSet(unsettableInt));
+        node.eSet(unsettableInt, 7);
+        assertTrue(node.eIsSet(unsettableInt));
+        node.eSet(unsettableInt, 0);
+        assertEquals(0, node.eGet(unsettableInt));
+        assertTrue(node.eIsSet(unsettableInt));
+        node.eUnset(unsettableInt);
+        assertEquals(7, node.eGet(unsettableInt));
+        assertFalse(node.eIsSet(unsettableInt));
+
+        assertFalse(node.eIsSet(unsettableString));
+        node.eSet(unsettableString, null);
+        assertTrue(node.eIsSet(unsettableString));
+        assertEquals(null, node.eGet(unsettableString));
+        node.eUnset(unsettableString);
+        assertFalse(node.eIsSet(unsettableString));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void manyValuedFeaturesAreLists() {
+        EObject node = TestModels.create(runtimePackage, "Node");
+        EObject other = TestModels.create(runtimePackage, "Leaf");
+        EStructuralFeature ints = TestModels.feature(node, "ints");
+        EStructuralFeature names = TestModels.feature(node, "names");
+        EStructuralFeature targets = TestModels.feature(node, "targets");
+
+        for (EStructuralFeature feature : List.of(ints, names, targets)) {
+            assertTrue(((List<?>) node.eGet(feature)).isEmpty());
+            assertFalse(node.eIsSet(feature));
+        }
+        EList<Object> intList = (EList<Object>) node.eGet(ints);
+        intList.add(-1);
+        intList.add(Integer.MAX_VALUE);
+        assertSame(intList, node.eGet(ints));
+        assertEquals(List.of(-1, Integer.MAX_VALUE), node.eGet(ints));
+        assertTrue(node.eIsSet(ints));
+        node.eSet(names, List.of("a", "b"));
+        assertEquals(List.of("a", "b"), node.eGet(names));
+        node.eSet(targets, List.of(other, node));
+        assertEquals(List.of(other, node), node.eGet(targets));
+
+        for (EStructuralFeature feature : List.of(ints, names, targets)) {
+            node.eUnset(feature);
+            assertTrue(((List<?>) node.eGet(feature)).isEmpty());
+            assertFalse(node.eIsSet(feature));
+        }
+    }
+
+    @Test
+    void containmentSetsTheContainer() {
+        EObject node = TestModels.create(runtimePackage, "Node");
+        EObject child = TestModels.create(runtimePackage, "Leaf");
+        TestModels.children(node).add(child);
+        assertSame(node, child.eContainer());
+        assertSame(node, child.eGet(TestModels.feature(child, "parent")));
+        assertSame(TestModels.feature(node, "children"), child.eContainingFeature());
+
+        child.eSet(TestModels.feature(child, "parent"), null);
+        assertTrue(TestModels.children(node).isEmpty());
+        assertEquals(null, child.eContainer());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void proxiesAreResolved(@TempDir Path directory) throws IOException {
+        ResourceSet resourceSet = TestModels.createResourceSet(runtimePackage);
+        Resource targetResource = resourceSet.createResource(URI.createFileURI(directory.resolve("target.xmi").toString()));
+        EObject target = TestModels.create(runtimePackage, "Node");
+        targetResource.getContents().add(target);
+        Resource sourceResource = resourceSet.createResource(URI.createFileURI(directory.resolve("source.xmi").toString()));
+        EObject source = TestModels.create(runtimePackage, "Node");
+        sourceResource.getContents().add(source);
+        source.eSet(TestModels.feature(source, "target"), target);
+        source.eSet(TestModels.feature(source, "targets"), List.of(target));
+        targetResource.save(null);
+        sourceResource.save(null);
+
+        ResourceSet loadSet = TestModels.createResourceSet(runtimePackage);
+        EObject loaded = loadSet.getResource(sourceResource.getURI(), true).getContents().get(0);
+        EStructuralFeature targetFeature = TestModels.feature(loaded, "target");
+        EStructuralFeature targetsFeature = TestModels.feature(loaded, "targets");
+        EObject proxy = (EObject) loaded.eGet(targetFeature, false);
+        assertTrue(proxy.eIsProxy());
+        assertInstanceOf(RuntimeEObject.class, proxy);
+        assertTrue(((InternalEList<EObject>) loaded.eGet(targetsFeature)).basicGet(0).eIsProxy());
+        assertEquals(1, loadSet.getResources().size());
+
+        EObject resolved = (EObject) loaded.eGet(targetFeature);
+        assertFalse(resolved.eIsProxy());
+        assertInstanceOf(RuntimeEObject.class, resolved);
+        assertSame(loadSet.getResource(targetResource.getURI(), false).getContents().get(0), resolved);
+        assertSame(resolved, loaded.eGet(targetFeature, false));
+        assertSame(resolved, ((List<?>) loaded.eGet(targetsFeature)).get(0));
+        assertSame(resolved, ((InternalEList<EObject>) loaded.eGet(targetsFeature)).basicGet(0));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3})
+    void notifiesAsDynamicObjects(long seed) throws IOException {
+        Resource dynamic = TestModels.createTree(dynamicPackage, new Random(seed), 50);
+        Resource runtime = TestModels.createTree(runtimePackage, new Random(seed), 50);
+        List<String> dynamicNotifications = TestModels.recordNotifications(dynamic);
+        List<String> runtimeNotifications = TestModels.recordNotifications(runtime);
+
+        TestModels.randomize(dynamic, new Random(seed), 2);
+        TestModels.randomize(runtime, new Random(seed), 2);
+        assertFalse(runtimeNotifications.isEmpty());
+        assertEquals(dynamicNotifications, runtimeNotifications);
+        TestModels.assertSameModel(dynamic, runtime);
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3})
+    void savesTheXmiOfDynamicObjects(long seed) throws IOException {
+        Resource dynamic = TestModels.createTree(dynamicPackage, new Random(seed), 200);
+        Resource runtime = TestModels.createTree(runtimePackage, new Random(seed), 200);
+        TestModels.randomize(dynamic, new Random(seed), 2);
+        TestModels.randomize(runtime, new Random(seed), 2);
+        byte[] xmi = TestModels.save(dynamic);
+        assertArrayEquals(xmi, TestModels.save(runtime));
+        TestModels.assertSameModel(dynamic, runtime);
+
+        Resource loaded = TestModels.load(runtimePackage, xmi);
+        loaded.getAllContents().forEachRemaining(eObject -> assertInstanceOf(RuntimeEObject.class, eObject));
+        assertArrayEquals(xmi, TestModels.save(loaded));
+        TestModels.assertSameModel(TestModels.load(dynamicPackage, xmi), loaded);
+    }
+}
@@ -0,0 +1,366 @@
+package org.khachouch;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EEnum;
+import org.eclipse.emf.ecore.EEnumLiteral;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * A dynamic metamodel with a feature of each kind the instance factories store differently, and random instance
+ * models of it that are built the same way for any factory, to compare their objects with DynamicEObjectImpls.
+ */
+final class TestModels {
+    static final String NS_URI = "http://www.khachouch.org/ecoreutils/test";
+
+    private TestModels() {
+    }
+
+    /**
+     * Creates a new instance of the test metamodel, with the factory of a dynamic package:
+     * <ul>
+     * <li>Element, abstract, with a name;</li>
+     * <li>Node, an Element with an attribute of each primitive type with a non-zero default, a string and an enum
+     * with defaults, an int with a zero default, a boxed int, unsettable attributes, many-valued attributes,
+     * containment of children (whose container is {@code parent}) and single and many cross-references;</li>
+     * <li>Leaf, a Node with two attributes of its own.</li>
+     * </ul>
+     *
+     * @return The package, which is in no resource set.
+     */
+    static EPackage createPackage() {
+        EcoreFactory factory = EcoreFactory.eINSTANCE;
+        EcorePackage ecore = EcorePackage.eINSTANCE;
+        EPackage ePackage = factory.createEPackage();
+        ePackage.setName("test");
+        ePackage.setNsPrefix("test");
+        ePackage.setNsURI(NS_URI);
+
+        EEnum color = factory.createEEnum();
+        color.setName("Color");
+        for (String name : List.of("RED", "GREEN", "BLUE")) {
+            EEnumLiteral literal = factory.createEEnumLiteral();
+            literal.setName(name);
+            literal.setValue(color.getELiterals().size());
+            color.getELiterals().add(literal);
+        }
+        ePackage.getEClassifiers().add(color);
+
+        EClass element = factory.createEClass();
+        element.setName("Element");
+        element.setAbstract(true);
+        addAttribute(element, "name", ecore.getEString(), null);
+        ePackage.getEClassifiers().add(element);
+
+        EClass node = factory.createEClass();
+        node.setName("Node");
+        node.getESuperTypes().add(element);
+        addAttribute(node, "aBoolean", ecore.getEBoolean(), "true");
+        addAttribute(node, "aByte", ecore.getEByte(), "-5");
+        addAttribute(node, "aChar", ecore.getEChar(), "x");
+        addAttribute(node, "aShort", ecore.getEShort(), "-300");
+        addAttribute(node, "anInt", ecore.getEInt(), "-70000");
+        addAttribute(node, "aFloat", ecore.getEFloat(), "1.5");
+        addAttribute(node, "aLong", ecore.getELong(), "-1099511627776");
+        addAttribute(node, "aDouble", ecore.getEDouble(), "-2.25");
+        addAttribute(node, "zeroInt", ecore.getEInt(), null);
+        addAttribute(node, "boxedInt", ecore.getEIntegerObject(), null);
+        addAttribute(node, "aString", ecore.getEString(), "text");
+        addAttribute(node, "aColor", color, "GREEN");
+        addAttribute(node, "unsettableInt", ecore.getEInt(), "7").setUnsettable(true);
+        addAttribute(node, "unsettableString", ecore.getEString(), null).setUnsettable(true);
+        addAttribute(node, "ints", ecore.getEInt(), null).setUpperBound(EStructuralFeature.UNBOUNDED_MULTIPLICITY);
+        addAttribute(node, "names", ecore.getEString(), null).setUpperBound(EStructuralFeature.UNBOUNDED_MULTIPLICITY);
+        EReference children = addReference(node, "children", node, true);
+        children.setContainment(true);
+        EReference parent = addReference(node, "parent", node, false);
+        parent.setEOpposite(children);
+        children.setEOpposite(parent);
+        parent.setTransient(true);
+        addReference(node, "target", node, false);
+        addReference(node, "targets", node, true);
+        ePackage.getEClassifiers().add(node);
+
+        EClass leaf = factory.createEClass();
+        leaf.setName("Leaf");
+        leaf.getESuperTypes().add(node);
+        addAttribute(leaf, "weight", ecore.getEDouble(), "0.5");
+        addAttribute(leaf, "flag", ecore.getEBoolean(), null);
+        ePackage.getEClassifiers().add(leaf);
+        return ePackage;
+    }
+
+    private static EAttribute addAttribute(EClass eClass, String name, EDataType type, String defaultValue) {
+        EAttribute attribute = EcoreFactory.eINSTANCE.createEAttribute();
+        attribute.setName(name);
+        attribute.setEType(type);
+        attribute.setDefaultValueLiteral(defaultValue);
+        eClass.getEStructuralFeatures().add(attribute);
+        return attribute;
+    }
+
+    private static EReference addReference(EClass eClass, String name, EClass type, boolean many) {
+        EReference reference = EcoreFactory.eINSTANCE.createEReference();
+        reference.setName(name);
+        reference.setEType(type);
+        reference.setUpperBound(many ? EStructuralFeature.UNBOUNDED_MULTIPLICITY : 1);
+        eClass.getEStructuralFeatures().add(reference);
+        return reference;
+    }
+
+    /**
+     * @return A resource set in which XMI resources of the package can be created and loaded.
+     */
+    static ResourceSet createResourceSet(EPackage ePackage) {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xmi", new XMIResourceFactoryImpl());
+        resourceSet.getPackageRegistry().put(NS_URI, ePackage);
+        return resourceSet;
+    }
+
+    /**
+     * @return A new instance of a class of the package, by name.
+     */
+    static EObject create(EPackage ePackage, String className) {
+        return EcoreUtil.create((EClass) ePackage.getEClassifier(className));
+    }
+
+    static EStructuralFeature feature(EObject eObject, String name) {
+        return eObject.eClass().getEStructuralFeature(name);
+    }
+
+    /**
+     * @return Values of the type of an attribute that are stored in special ways: zero, extremes, the default value,
+     * negative values that need sign extension, NaNs and negative zeros.
+     */
+    static List<Object> values(EAttribute attribute) {
+        Class<?> instanceClass = attribute.getEAttributeType().getInstanceClass();
+        List<Object> values = new ArrayList<>();
+        if (attribute.getEAttributeType() instanceof EEnum eEnum) {
+            for (EEnumLiteral literal : eEnum.getELiterals()) {
+                values.add(literal.getInstance());
+            }
+        } else if (instanceClass == boolean.class) {
+            values.addAll(List.of(true, false));
+        } else if (instanceClass == byte.class) {
+            values.addAll(List.of((byte) 0, (byte) 1, (byte) -1, Byte.MIN_VALUE, Byte.MAX_VALUE));
+        } else if (instanceClass == char.class) {
+            values.addAll(List.of('\0', 'x', '\u00e9', '\u7fff', '\u8000', '\uffff'));
+        } else if (instanceClass == short.class) {
+            values.addAll(List.of((short) 0, (short) 1, (short) -1, Short.MIN_VALUE, Short.MAX_VALUE));
+        } else if (instanceClass == int.class || instanceClass == Integer.class) {
+            values.addAll(List.of(0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        } else if (instanceClass == long.class) {
+            values.addAll(List.of(0L, 1L, -1L, Long.MIN_VALUE, Long.MAX_VALUE));
+        } else if (instanceClass == float.class) {
+            values.addAll(List.of(0f, -0f, 1f, Float.NaN, Float.NEGATIVE_INFINITY, Float.MIN_VALUE, -Float.MAX_VALUE));
+        } else if (instanceClass == double.class) {
+            values.addAll(List.of(0d, -0d, 1d, Double.NaN, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE));
+        } else if (instanceClass == String.class) {
+            values.addAll(List.of("", "a", "text", "line\nbreak"));
+        } else {
+            throw new IllegalArgumentException("No values for " + attribute.getName());
+        }
+        if (attribute.getDefaultValue() != null && !values.contains(attribute.getDefaultValue())) {
+            values.add(attribute.getDefaultValue());
+        }
+        return values;
+    }
+
+    /**
+     * Creates a tree of Nodes and Leaves with default values. Given the same seed, it creates the same tree for any
+     * instance of the test metamodel.
+     *
+     * @param ePackage An instance of the test metamodel.
+     * @param random   The source of the shape of the tree.
+     * @param size     The number of objects.
+     * @return A resource containing the tree, in a resource set of its own.
+     */
+    static Resource createTree(EPackage ePackage, Random random, int size) {
+        Resource resource = createResourceSet(ePackage).createResource(URI.createURI("model.xmi"));
+        List<EObject> objects = new ArrayList<>();
+        objects.add(create(ePackage, "Node"));
+        resource.getContents().add(objects.get(0));
+        while (objects.size() < size) {
+            EObject parent = objects.get(random.nextInt(objects.size()));
+            EObject child = create(ePackage, random.nextInt(3) == 0 ? "Leaf" : "Node");
+            objects.add(child);
+            children(parent).add(child);
+        }
+        return resource;
+    }
+
+    @SuppressWarnings("unchecked")
+    static EList<EObject> children(EObject node) {
+        return (EList<EObject>) node.eGet(feature(node, "children"));
+    }
+
+    /**
+     * Sets, resets and unsets, at random, every feature of every object of a tree but its containment. Given the same
+     * seed, it makes the same changes to the same tree for any instance of the test metamodel.
+     *
+     * @param resource A resource made by {@link #createTree(EPackage, Random, int)}.
+     * @param random   The source of the changes.
+     * @param passes   The number of times each feature is changed.
+     */
+    static void randomize(Resource resource, Random random, int passes) {
+        List<EObject> objects = new ArrayList<>();
+        resource.getAllContents().forEachRemaining(objects::add);
+        for (int pass = 0; pass < passes; pass++) {
+            for (EObject eObject : objects) {
+                for (EStructuralFeature feature : eObject.eClass().getEAllStructuralFeatures()) {
+                    if (feature instanceof EReference reference && (reference.isContainment() || reference.isContainer())) {
+                        continue;
+                    }
+                    switch (random.nextInt(4)) {
+                        case 0 -> {
+                        }
+                        case 1 -> eObject.eUnset(feature);
+                        case 2 -> eObject.eSet(feature, feature.getDefaultValue() != null || feature.isMany()
+                                ? randomValue(feature, random, objects) : null);
+                        default -> eObject.eSet(feature, randomValue(feature, random, objects));
+                    }
+                }
+            }
+        }
+    }
+
+    private static Object randomValue(EStructuralFeature feature, Random random, List<EObject> objects) {
+        if (feature.isMany()) {
+            List<Object> values = new ArrayList<>();
+            for (int i = random.nextInt(4); i > 0; i--) {
+                Object value = randomSingleValue(feature, random, objects);
+                // Non-unique lists are references only: skip the values they already have.
+                if (!(feature instanceof EReference) || !values.contains(value)) {
+                    values.add(value);
+                }
+            }
+            return values;
+        }
+        return randomSingleValue(feature, random, objects);
+    }
+
+    private static Object randomSingleValue(EStructuralFeature feature, Random random, List<EObject> objects) {
+        if (feature instanceof EAttribute attribute) {
+            List<Object> values = values(attribute);
+            return values.get(random.nextInt(values.size()));
+        }
+        return objects.get(random.nextInt(objects.size()));
+    }
+
+    /**
+     * Asserts two resources have the same objects, with the same features set to the same values, and save to the
+     * same XMI.
+     */
+    static void assertSameModel(Resource expected, Resource actual) throws IOException {
+        Iterator<EObject> expectedObjects = expected.getAllContents();
+        Iterator<EObject> actualObjects = actual.getAllContents();
+        while (expectedObjects.hasNext()) {
+            EObject expectedObject = expectedObjects.next();
+            EObject actualObject = actualObjects.next();
+            assertEquals(expectedObject.eClass().getName(), actualObject.eClass().getName());
+            for (EStructuralFeature feature : expectedObject.eClass().getEAllStructuralFeatures()) {
+                EStructuralFeature actualFeature = feature(actualObject, feature.getName());
+                String where = EcoreUtil.getURI(expectedObject).fragment() + "." + feature.getName();
+                assertEquals(expectedObject.eIsSet(feature), actualObject.eIsSet(actualFeature), where + " is set");
+                assertEquals(describe(expectedObject.eGet(feature)), describe(actualObject.eGet(actualFeature)), where);
+            }
+        }
+        assertFalse(actualObjects.hasNext());
+        assertEquals(new String(save(expected), StandardCharsets.UTF_8), new String(save(actual), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return A description of a value that is the same for equal values of any instance of the test metamodel:
+     * objects are described by their URI, proxies included, enum literals by their name and floating-point numbers
+     * by their bits.
+     */
+    static String describe(Object value) {
+        if (value instanceof EObject eObject) {
+            return eObject.eClass().getName() + " " + EcoreUtil.getURI(eObject);
+        } else if (value instanceof List<?> list) {
+            List<String> descriptions = new ArrayList<>();
+            for (Object element : list) {
+                descriptions.add(describe(element));
+            }
+            return descriptions.toString();
+        } else if (value instanceof Float number) {
+            return number + " " + Integer.toHexString(Float.floatToRawIntBits(number));
+        } else if (value instanceof Double number) {
+            return number + " " + Long.toHexString(Double.doubleToRawLongBits(number));
+        }
+        return value != null ? value.getClass().getSimpleName() + " " + value : "null";
+    }
+
+    /**
+     * @return A description of a notification of a feature change, as {@link #describe(Object)} describes values.
+     */
+    static String describe(Notification notification) {
+        return notification.getEventType() + " " + ((EStructuralFeature) notification.getFeature()).getName()
+                + " of " + describe(notification.getNotifier()) + ": " + describe(notification.getOldValue()) + " -> "
+                + describe(notification.getNewValue()) + " at " + notification.getPosition()
+                + (notification.wasSet() ? " was set" : "") + (notification.isTouch() ? " touch" : "");
+    }
+
+    /**
+     * Records the notifications of the feature changes of the objects of a resource, as described by
+     * {@link #describe(Notification)}.
+     *
+     * @return The list the notifications are added to.
+     */
+    static List<String> recordNotifications(Resource resource) {
+        List<String> notifications = new ArrayList<>();
+        resource.eAdapters().add(new EContentAdapter() {
+            @Override
+            public void notifyChanged(Notification notification) {
+                super.notifyChanged(notification);
+                if (notification.getFeature() instanceof EStructuralFeature) {
+                    notifications.add(describe(notification));
+                }
+            }
+        });
+        return notifications;
+    }
+
+    static byte[] save(Resource resource) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        resource.save(output, null);
+        return output.toByteArray();
+    }
+
+    /**
+     * @return A resource of a new resource set of the package, loaded from XMI.
+     */
+    static Resource load(EPackage ePackage, byte[] xmi) throws IOException {
+        Resource resource = createResourceSet(ePackage).createResource(URI.createURI("model.xmi"));
+        resource.load(new ByteArrayInputStream(xmi), null);
+        return resource;
+    }
+}